@@ -24,7 +24,19 @@ public enum Constants {
     RECEIVER_PORT_COUNT_PROP_NAME("receiver.port.count"),
     EMITTER_PORT_COUNT_PROP_NAME("emitter.port.count"),
     RECEIVER_KURA_SERVICE_PID_PROP_NAME("receiver.kura.service.pid"),
-    EMITTER_KURA_SERVICE_PID_PROP_NAME("emitter.kura.service.pid");
+    EMITTER_KURA_SERVICE_PID_PROP_NAME("emitter.kura.service.pid"),
+    /**
+     * The capacity of the mailbox of the receiver component, set on its wires when the graph is asynchronous.
+     *
+     * @since 2.2
+     */
+    RECEIVER_MAILBOX_CAPACITY_PROP_NAME("receiver.mailbox.capacity"),
+    /**
+     * The overflow policy of the mailbox of the receiver component, set on its wires when the graph is asynchronous.
+     *
+     * @since 2.2
+     */
+    RECEIVER_MAILBOX_OVERFLOW_POLICY_PROP_NAME("receiver.mailbox.overflow.policy");
 
     private final String value;
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2016, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -32,9 +32,6 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.kura.KuraErrorCode;
@@ -55,6 +52,7 @@ import org.eclipse.kura.core.configuration.metatype.Tad;
 import org.eclipse.kura.core.configuration.metatype.Tocd;
 import org.eclipse.kura.driver.Driver;
 import org.eclipse.kura.driver.PreparedRead;
+import org.eclipse.kura.internal.asset.provider.AssetIOScheduler;
 import org.eclipse.kura.internal.asset.provider.BaseAssetConfiguration;
 import org.eclipse.kura.internal.asset.provider.DriverTrackerCustomizer;
 import org.osgi.service.component.ComponentContext;
@@ -455,16 +453,23 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
         return this.executor;
     }
 
+    /**
+     * Creates the executor of this asset. By default the I/O tasks are run by the {@link AssetIOScheduler} shared by
+     * all the assets, one at a time for each driver.
+     *
+     * @return the executor
+     */
     protected BaseAssetExecutor initBaseAssetExecutor() {
+        final AssetIOScheduler scheduler = AssetIOScheduler.getDefault();
 
-        // TODO make this configurable and maybe allow using shared thread pools
+        final ExecutorService ioExecutor = scheduler.newAssetExecutor(this, this::getDriverPid);
 
-        final ExecutorService ioExecutor = new ThreadPoolExecutor(1, 5, 60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>());
-        final ExecutorService configExecutor = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>());
+        return new BaseAssetExecutor(ioExecutor, false, scheduler.getConfigExecutor(), true);
+    }
 
-        return new BaseAssetExecutor(ioExecutor, configExecutor);
+    private String getDriverPid() {
+        final BaseAssetConfiguration currentConfig = this.config;
+        return currentConfig != null ? currentConfig.getAssetConfiguration().getDriverPid() : null;
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,470 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.asset.provider;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the I/O tasks of all the assets on a small shared thread pool.
+ * <p>
+ * Most drivers serialize the access to the field device, so the tasks submitted for the same driver are queued in a
+ * lane and run one at a time; a thread blocked on a slow driver cannot delay the assets of the other drivers. Inside a
+ * lane the assets are served in round robin, so that an asset submitting many tasks does not starve the others. After
+ * each task the lane goes back to the end of the pool queue, to give the other drivers a fair share of the threads.
+ * A lane is released once it is idle and no asset uses its driver anymore.
+ * <p>
+ * The time spent by the tasks in the lanes is recorded per driver, see {@link #getStatistics(boolean)}.
+ */
+public class AssetIOScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetIOScheduler.class);
+
+    public static final int DEFAULT_THREAD_COUNT = 4;
+
+    private static final int CONFIG_THREAD_COUNT = 2;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private static final AssetIOScheduler DEFAULT_INSTANCE = new AssetIOScheduler(DEFAULT_THREAD_COUNT);
+
+    private final ThreadPoolExecutor ioExecutor;
+    private final ThreadPoolExecutor configExecutor;
+    private final Map<Object, DriverLane> lanes = new ConcurrentHashMap<>();
+
+    public AssetIOScheduler(final int threadCount) {
+        this.ioExecutor = newExecutor("AssetIOScheduler", threadCount);
+        this.configExecutor = newExecutor("AssetConfigExecutor", CONFIG_THREAD_COUNT);
+    }
+
+    /**
+     * Returns the scheduler shared by all the assets.
+     */
+    public static AssetIOScheduler getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    public synchronized void setThreadCount(final int threadCount) {
+        if (threadCount > this.ioExecutor.getMaximumPoolSize()) {
+            this.ioExecutor.setMaximumPoolSize(threadCount);
+            this.ioExecutor.setCorePoolSize(threadCount);
+        } else {
+            this.ioExecutor.setCorePoolSize(threadCount);
+            this.ioExecutor.setMaximumPoolSize(threadCount);
+        }
+    }
+
+    public int getThreadCount() {
+        return this.ioExecutor.getMaximumPoolSize();
+    }
+
+    /**
+     * Returns an executor that submits the tasks of an asset to this scheduler.
+     *
+     * @param assetKey
+     *            identifies the asset, used for the round robin inside the driver lane
+     * @param driverKey
+     *            returns the identifier of the driver currently used by the asset, or null if it is not known; in
+     *            this case the tasks of the asset are queued in a separate lane
+     */
+    public ExecutorService newAssetExecutor(final Object assetKey, final Supplier<String> driverKey) {
+        return new AssetExecutor(assetKey, driverKey);
+    }
+
+    /**
+     * Returns an executor, shared by all the assets, for the configuration tasks.
+     */
+    public ExecutorService getConfigExecutor() {
+        return this.configExecutor;
+    }
+
+    /**
+     * Returns the queue statistics of each driver lane.
+     *
+     * @param reset
+     *            if true, the statistics are reset after being read
+     */
+    public Map<String, QueueStatistics> getStatistics(final boolean reset) {
+        final Map<String, QueueStatistics> result = new TreeMap<>();
+        for (final DriverLane lane : this.lanes.values()) {
+            result.put(lane.name, lane.getStatistics(reset));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    int getLaneCount() {
+        return this.lanes.size();
+    }
+
+    // the lanes are only added to and removed from the map while holding their entry, the number of assets using a
+    // lane is guarded the same way
+    private void retainLane(final Object laneKey) {
+        this.lanes.compute(laneKey, (k, lane) -> {
+            final DriverLane result = lane != null ? lane : new DriverLane(k);
+            result.users++;
+            return result;
+        });
+    }
+
+    private void releaseLane(final Object laneKey) {
+        this.lanes.computeIfPresent(laneKey, (k, lane) -> {
+            lane.users--;
+            return lane.isReleasable() ? null : lane;
+        });
+    }
+
+    private void schedule(final Object laneKey, final Object assetKey, final Runnable task) {
+        final DriverLane[] toSchedule = new DriverLane[1];
+        this.lanes.compute(laneKey, (k, lane) -> {
+            final DriverLane result = lane != null ? lane : new DriverLane(k);
+            if (result.enqueue(assetKey, task)) {
+                toSchedule[0] = result;
+            }
+            return result;
+        });
+        if (toSchedule[0] != null) {
+            this.ioExecutor.execute(toSchedule[0]);
+        }
+    }
+
+    private List<Runnable> drain(final Object assetKey) {
+        final List<Runnable> result = new ArrayList<>();
+        for (final DriverLane lane : this.lanes.values()) {
+            lane.drain(assetKey, result);
+        }
+        return result;
+    }
+
+    private static ThreadPoolExecutor newExecutor(final String name, final int threadCount) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadFactory threadFactory = r -> {
+            final Thread thread = new Thread(r, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * The wait time of the tasks in a driver lane, since the last reset.
+     */
+    public static final class QueueStatistics {
+
+        private final long taskCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final int pendingTaskCount;
+
+        QueueStatistics(final long taskCount, final long totalWaitNanos, final long maxWaitNanos,
+                final int pendingTaskCount) {
+            this.taskCount = taskCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.pendingTaskCount = pendingTaskCount;
+        }
+
+        public long getTaskCount() {
+            return this.taskCount;
+        }
+
+        public long getAverageWaitNanos() {
+            return this.taskCount == 0 ? 0 : this.totalWaitNanos / this.taskCount;
+        }
+
+        public long getMaxWaitNanos() {
+            return this.maxWaitNanos;
+        }
+
+        public int getPendingTaskCount() {
+            return this.pendingTaskCount;
+        }
+
+        @Override
+        public String toString() {
+            return "tasks: " + this.taskCount + ", average wait: "
+                    + TimeUnit.NANOSECONDS.toMillis(getAverageWaitNanos()) + " ms, max wait: "
+                    + TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos) + " ms, pending: " + this.pendingTaskCount;
+        }
+    }
+
+    private static final class Task {
+
+        private final Runnable runnable;
+        private final long submitNanos = System.nanoTime();
+
+        Task(final Runnable runnable) {
+            this.runnable = runnable;
+        }
+    }
+
+    private final class DriverLane implements Runnable {
+
+        private final Object key;
+        private final String name;
+
+        // guarded by the entry of the lane in the lanes map
+        private int users;
+
+        // guarded by this
+        private final Map<Object, Deque<Task>> queues = new HashMap<>();
+        private final Deque<Object> readyAssets = new ArrayDeque<>();
+        private boolean scheduled;
+        private int pendingTaskCount;
+        private long taskCount;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        DriverLane(final Object key) {
+            this.key = key;
+            this.name = String.valueOf(key);
+        }
+
+        /**
+         * Queues a task, returns true if the lane must be submitted to the pool.
+         */
+        synchronized boolean enqueue(final Object assetKey, final Runnable runnable) {
+            final Deque<Task> queue = this.queues.computeIfAbsent(assetKey, k -> {
+                this.readyAssets.addLast(k);
+                return new ArrayDeque<>();
+            });
+            queue.addLast(new Task(runnable));
+            this.pendingTaskCount++;
+            if (this.scheduled) {
+                return false;
+            }
+            this.scheduled = true;
+            return true;
+        }
+
+        synchronized void drain(final Object assetKey, final List<Runnable> drained) {
+            final Deque<Task> queue = this.queues.remove(assetKey);
+            if (queue == null) {
+                return;
+            }
+            this.readyAssets.remove(assetKey);
+            this.pendingTaskCount -= queue.size();
+            for (final Task task : queue) {
+                drained.add(task.runnable);
+            }
+        }
+
+        synchronized boolean isReleasable() {
+            return this.users <= 0 && !this.scheduled && this.readyAssets.isEmpty();
+        }
+
+        @Override
+        public void run() {
+            final Task task;
+            synchronized (this) {
+                final Object assetKey = this.readyAssets.pollFirst();
+                if (assetKey == null) {
+                    // the queued tasks have been drained
+                    task = null;
+                    this.scheduled = false;
+                } else {
+                    final Deque<Task> queue = this.queues.get(assetKey);
+                    task = queue.pollFirst();
+                    if (queue.isEmpty()) {
+                        this.queues.remove(assetKey);
+                    } else {
+                        this.readyAssets.addLast(assetKey);
+                    }
+
+                    final long waitNanos = System.nanoTime() - task.submitNanos;
+                    this.pendingTaskCount--;
+                    this.taskCount++;
+                    this.totalWaitNanos += waitNanos;
+                    this.maxWaitNanos = Math.max(this.maxWaitNanos, waitNanos);
+                }
+            }
+
+            if (task == null) {
+                releaseIfIdle();
+                return;
+            }
+
+            try {
+                task.runnable.run();
+            } catch (Exception e) {
+                logger.warn("Asset I/O task failed", e);
+            } finally {
+                reschedule();
+            }
+        }
+
+        private void reschedule() {
+            final boolean idle;
+            synchronized (this) {
+                idle = this.readyAssets.isEmpty();
+                if (idle) {
+                    this.scheduled = false;
+                }
+            }
+            if (idle) {
+                releaseIfIdle();
+            } else {
+                AssetIOScheduler.this.ioExecutor.execute(this);
+            }
+        }
+
+        private void releaseIfIdle() {
+            AssetIOScheduler.this.lanes.computeIfPresent(this.key,
+                    (k, lane) -> lane == this && lane.isReleasable() ? null : lane);
+        }
+
+        synchronized QueueStatistics getStatistics(final boolean reset) {
+            final QueueStatistics result = new QueueStatistics(this.taskCount, this.totalWaitNanos,
+                    this.maxWaitNanos, this.pendingTaskCount);
+            if (reset) {
+                this.taskCount = 0;
+                this.totalWaitNanos = 0;
+                this.maxWaitNanos = 0;
+            }
+            return result;
+        }
+    }
+
+    private final class AssetExecutor extends AbstractExecutorService {
+
+        private final Object assetKey;
+        private final Supplier<String> driverKey;
+        private final AtomicInteger pendingTaskCount = new AtomicInteger();
+        private volatile boolean shutdown;
+
+        // the lane retained by this asset, guarded by this
+        private Object laneKey;
+
+        AssetExecutor(final Object assetKey, final Supplier<String> driverKey) {
+            this.assetKey = assetKey;
+            this.driverKey = driverKey;
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            final String driver = this.driverKey.get();
+            final Object key = driver != null ? driver : this.assetKey;
+
+            synchronized (this) {
+                if (this.shutdown) {
+                    throw new RejectedExecutionException("Asset executor has been shut down");
+                }
+                if (!key.equals(this.laneKey)) {
+                    retainLane(key);
+                    if (this.laneKey != null) {
+                        releaseLane(this.laneKey);
+                    }
+                    this.laneKey = key;
+                }
+                this.pendingTaskCount.incrementAndGet();
+            }
+
+            schedule(key, this.assetKey, new AssetTask(command));
+        }
+
+        @Override
+        public void shutdown() {
+            synchronized (this) {
+                this.shutdown = true;
+                if (this.laneKey != null) {
+                    releaseLane(this.laneKey);
+                    this.laneKey = null;
+                }
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown();
+
+            final List<Runnable> drained = drain(this.assetKey);
+            final List<Runnable> result = new ArrayList<>(drained.size());
+            for (final Runnable task : drained) {
+                result.add(task instanceof AssetTask ? ((AssetTask) task).command : task);
+            }
+            onTasksDone(drained.size());
+            return result;
+        }
+
+        private void onTasksDone(final int count) {
+            if (count > 0 && this.pendingTaskCount.addAndGet(-count) == 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return this.shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return this.shutdown && this.pendingTaskCount.get() == 0;
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (this) {
+                while (!isTerminated()) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                return true;
+            }
+        }
+
+        private final class AssetTask implements Runnable {
+
+            private final Runnable command;
+
+            AssetTask(final Runnable command) {
+                this.command = command;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    this.command.run();
+                } finally {
+                    onTasksDone(1);
+                }
+            }
+        }
+    }
+}
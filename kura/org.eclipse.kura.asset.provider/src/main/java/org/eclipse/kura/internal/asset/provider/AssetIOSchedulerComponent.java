@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.asset.provider;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Configures the {@link AssetIOScheduler} shared by all the assets.
+ */
+public class AssetIOSchedulerComponent implements ConfigurableComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetIOSchedulerComponent.class);
+
+    private static final String THREAD_COUNT_PROP_NAME = "io.thread.count";
+    private static final String STATISTICS_INTERVAL_PROP_NAME = "statistics.log.interval";
+
+    private final AssetIOScheduler scheduler;
+
+    private ScheduledExecutorService statisticsExecutor;
+    private ScheduledFuture<?> statisticsTask;
+
+    public AssetIOSchedulerComponent() {
+        this(AssetIOScheduler.getDefault());
+    }
+
+    AssetIOSchedulerComponent(final AssetIOScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    protected void activate(final Map<String, Object> properties) {
+        logger.info("Activating AssetIOScheduler...");
+        this.statisticsExecutor = Executors
+                .newSingleThreadScheduledExecutor(r -> new Thread(r, "AssetIOSchedulerStatistics"));
+        updated(properties);
+        logger.info("Activating AssetIOScheduler...done");
+    }
+
+    public synchronized void updated(final Map<String, Object> properties) {
+        final int threadCount = getInteger(properties, THREAD_COUNT_PROP_NAME, AssetIOScheduler.DEFAULT_THREAD_COUNT);
+        this.scheduler.setThreadCount(Math.max(1, threadCount));
+        logger.info("Asset I/O tasks run on {} threads", this.scheduler.getThreadCount());
+
+        if (this.statisticsTask != null) {
+            this.statisticsTask.cancel(false);
+            this.statisticsTask = null;
+        }
+        final int interval = getInteger(properties, STATISTICS_INTERVAL_PROP_NAME, 0);
+        if (interval > 0) {
+            this.statisticsTask = this.statisticsExecutor.scheduleAtFixedRate(this::logStatistics, interval,
+                    interval, TimeUnit.SECONDS);
+        }
+    }
+
+    protected synchronized void deactivate() {
+        logger.info("Deactivating AssetIOScheduler...");
+        this.statisticsExecutor.shutdownNow();
+        this.statisticsTask = null;
+        // the scheduler outlives this component, it keeps running the asset tasks with the default configuration
+        this.scheduler.setThreadCount(AssetIOScheduler.DEFAULT_THREAD_COUNT);
+        logger.info("Deactivating AssetIOScheduler...done");
+    }
+
+    private void logStatistics() {
+        this.scheduler.getStatistics(true)
+                .forEach((driver, statistics) -> logger.info("Driver {} I/O queue, {}", driver, statistics));
+    }
+
+    private static int getInteger(final Map<String, Object> properties, final String key, final int defaultValue) {
+        final Object value = properties != null ? properties.get(key) : null;
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+}
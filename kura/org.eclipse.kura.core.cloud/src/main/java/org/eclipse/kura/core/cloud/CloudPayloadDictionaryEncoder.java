@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import java.io.IOException;
+
+import org.eclipse.kura.core.util.GZipUtil;
+
+/**
+ * Compresses the payloads with a {@link PayloadDictionary}, training it with the payloads until a dictionary is
+ * available. Until then the payloads are optionally compressed with gzip.
+ */
+public class CloudPayloadDictionaryEncoder implements CloudPayloadEncoder {
+
+    private final CloudPayloadEncoder decorated;
+    private final PayloadDictionary dictionary;
+    private final boolean gzipFallback;
+
+    public CloudPayloadDictionaryEncoder(CloudPayloadEncoder decorated, PayloadDictionary dictionary,
+            boolean gzipFallback) {
+        this.decorated = decorated;
+        this.dictionary = dictionary;
+        this.gzipFallback = gzipFallback;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        byte[] source = this.decorated.getBytes();
+        this.dictionary.addSample(source);
+
+        byte[] compressed = this.dictionary.compress(source);
+        if (compressed == null && this.gzipFallback) {
+            compressed = GZipUtil.compress(source);
+        }
+
+        // Return compressed data only if shorter than uncompressed one
+        return compressed != null && compressed.length < source.length ? compressed : source;
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2011, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -26,6 +26,11 @@ public class CloudPayloadGZipEncoder implements CloudPayloadEncoder {
 
     @Override
     public byte[] getBytes() throws IOException {
+        if (this.decorated instanceof CloudPayloadProtoBufEncoderImpl) {
+            // compress straight from the encoding buffer
+            return ((CloudPayloadProtoBufEncoderImpl) this.decorated).getCompressedBytes();
+        }
+
         byte[] source = this.decorated.getBytes();
         byte[] compressed = GZipUtil.compress(source);
 
@@ -43,6 +43,9 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -70,9 +73,11 @@ import org.eclipse.kura.cloudconnection.request.RequestHandlerRegistry;
 import org.eclipse.kura.cloudconnection.subscriber.listener.CloudSubscriberListener;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.configuration.ConfigurationService;
+import org.eclipse.kura.core.cloud.InboundMessageDispatcher.OverflowPolicy;
 import org.eclipse.kura.core.cloud.publisher.NotificationPublisherImpl;
 import org.eclipse.kura.core.cloud.subscriber.CloudSubscriptionRecord;
 import org.eclipse.kura.core.data.DataServiceImpl;
+import org.eclipse.kura.core.util.MqttTopicTrie;
 import org.eclipse.kura.data.DataService;
 import org.eclipse.kura.data.listener.DataServiceListener;
 import org.eclipse.kura.marshalling.Marshaller;
@@ -116,6 +121,8 @@ public class CloudServiceImpl
 
     private static ExecutorService callbackExecutor = Executors.newFixedThreadPool(NUM_CONCURRENT_CALLBACKS);
 
+    private static final long DISPATCHER_SHUTDOWN_TIMEOUT = 5;
+
     private ComponentContext ctx;
 
     private CloudServiceOptions options;
@@ -132,10 +139,21 @@ public class CloudServiceImpl
 
     // use a synchronized implementation for the list
     private final List<CloudClientImpl> cloudClients;
+    // the same cloud clients indexed by application id, for the dispatch of inbound messages
+    private final Map<String, List<CloudClientImpl>> cloudClientsByAppId;
     private final Set<CloudConnectionListener> registeredCloudConnectionListeners;
     private final Set<CloudPublisherDeliveryListener> registeredCloudPublisherDeliveryListeners;
     private final Set<CloudDeliveryListener> registeredCloudDeliveryListeners;
     private final Map<CloudSubscriptionRecord, List<CloudSubscriberListener>> registeredSubscribers;
+    private final MqttTopicTrie<CloudSubscriptionRecord> subscriptionTrie;
+
+    // delivers inbound messages to the listeners out of the transport thread
+    private volatile InboundMessageDispatcher inboundDispatcher;
+
+    // null if dictionary compression is disabled
+    private volatile PayloadDictionary payloadDictionary;
+    private final AtomicBoolean dictionaryAdvertisementScheduled = new AtomicBoolean();
+    private ExecutorService lifecycleExecutor;
 
     // package visibility for LyfeCyclePayloadBuilder
     String imei;
@@ -148,6 +166,11 @@ public class CloudServiceImpl
     private boolean birthPublished;
 
     private final AtomicInteger messageId;
+    // the dictionary advertised by the last birth certificate and the message ID of the certificate, the dictionary
+    // is used only once the certificate has been published, as messages of other lanes can overtake it (guarded by
+    // messageId)
+    private volatile PayloadDictionary.Entry pendingAdvertisement;
+    private int advertisementMessageId = -1;
 
     private ServiceRegistration<?> cloudServiceRegistration;
 
@@ -162,9 +185,12 @@ public class CloudServiceImpl
 
     public CloudServiceImpl() {
         this.cloudClients = new CopyOnWriteArrayList<>();
+        this.cloudClientsByAppId = new ConcurrentHashMap<>();
         this.messageId = new AtomicInteger();
         this.registeredRequestHandlers = new HashMap<>();
         this.registeredSubscribers = new ConcurrentHashMap<>();
+        this.subscriptionTrie = new MqttTopicTrie<>();
+        this.inboundDispatcher = new InboundMessageDispatcher(0, 1, OverflowPolicy.BLOCK, 0, TimeUnit.MILLISECONDS);
         this.registeredCloudConnectionListeners = new CopyOnWriteArraySet<>();
         this.registeredCloudPublisherDeliveryListeners = new CopyOnWriteArraySet<>();
         this.registeredCloudDeliveryListeners = new CopyOnWriteArraySet<>();
@@ -287,6 +313,9 @@ public class CloudServiceImpl
         // save the bundle context and the properties
         this.ctx = componentContext;
         this.options = new CloudServiceOptions(properties, this.systemService);
+        updateInboundDispatcher();
+        updatePayloadDictionary();
+        this.lifecycleExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "CloudService:Lifecycle"));
         //
         // install event listener for GPS locked event
         Dictionary<String, Object> props = new Hashtable<>();
@@ -325,6 +354,8 @@ public class CloudServiceImpl
 
         // Update properties and re-publish Birth certificate
         this.options = new CloudServiceOptions(properties, this.systemService);
+        updateInboundDispatcher();
+        updatePayloadDictionary();
         if (isConnected()) {
             try {
                 setupCloudConnection(false);
@@ -347,10 +378,14 @@ public class CloudServiceImpl
 
         this.dataService.removeDataServiceListener(this);
 
+        this.inboundDispatcher.shutdown(DISPATCHER_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+        this.lifecycleExecutor.shutdownNow();
+
         // no need to release the cloud clients as the updated app
         // certificate is already published due the missing dependency
         // we only need to empty our CloudClient list
         this.cloudClients.clear();
+        this.cloudClientsByAppId.clear();
 
         this.dataService = null;
         this.systemService = null;
@@ -364,6 +399,65 @@ public class CloudServiceImpl
         this.notificationPublisherRegistration.unregister();
     }
 
+    private void updateInboundDispatcher() {
+        final int threads = this.options.getInboundDispatchThreads();
+        final int queueSize = this.options.getInboundDispatchQueueSize();
+        final OverflowPolicy overflowPolicy = this.options.getInboundDispatchOverflowPolicy();
+        final int blockTimeout = this.options.getInboundDispatchBlockTimeout();
+
+        final InboundMessageDispatcher oldDispatcher = this.inboundDispatcher;
+        if (oldDispatcher.hasConfiguration(threads, queueSize, overflowPolicy, blockTimeout, TimeUnit.MILLISECONDS)) {
+            return;
+        }
+
+        logger.info("Dispatching inbound messages with {} threads, queue size {} and overflow policy {}", threads,
+                queueSize, overflowPolicy.getValue());
+        this.inboundDispatcher = new InboundMessageDispatcher(threads, queueSize, overflowPolicy, blockTimeout,
+                TimeUnit.MILLISECONDS);
+        oldDispatcher.shutdown(DISPATCHER_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private void updatePayloadDictionary() {
+        if (!this.options.getEncodeDictionary()) {
+            this.payloadDictionary = null;
+            return;
+        }
+
+        final int size = this.options.getEncodeDictionarySize();
+        final int samples = this.options.getEncodeDictionarySamples();
+        final PayloadDictionary oldDictionary = this.payloadDictionary;
+        if (oldDictionary == null || !oldDictionary.hasConfiguration(size, samples)) {
+            logger.info("Training a payload dictionary of up to {} bytes with {} payloads", size, samples);
+            this.payloadDictionary = new PayloadDictionary(size, samples);
+        }
+    }
+
+    PayloadDictionary getPayloadDictionary() {
+        return this.payloadDictionary;
+    }
+
+    /*
+     * A newly trained dictionary can be used only after the remote server has received it with the birth
+     * certificate. Nothing is scheduled while a birth certificate advertising a dictionary is still being published.
+     */
+    private void scheduleDictionaryAdvertisement() {
+        if (this.pendingAdvertisement != null
+                || !this.dictionaryAdvertisementScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            this.lifecycleExecutor.execute(() -> {
+                this.dictionaryAdvertisementScheduled.set(false);
+                if (isConnected()) {
+                    tryPublishBirthCertificate();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.dictionaryAdvertisementScheduled.set(false);
+        }
+    }
+
     @Override
     public void handleEvent(Event event) {
         if (PositionLockedEvent.POSITION_LOCKED_EVENT_TOPIC.contains(event.getTopic())) {
@@ -433,6 +527,7 @@ public class CloudServiceImpl
         // create new instance
         CloudClientImpl cloudClient = new CloudClientImpl(applicationId, this.dataService, this);
         this.cloudClients.add(cloudClient);
+        this.cloudClientsByAppId.computeIfAbsent(applicationId, id -> new CopyOnWriteArrayList<>()).add(cloudClient);
 
         // publish updated birth certificate with list of active apps
         if (isConnected()) {
@@ -474,6 +569,11 @@ public class CloudServiceImpl
     public void removeCloudClient(CloudClientImpl cloudClient) {
         // remove the client
         this.cloudClients.remove(cloudClient);
+        this.inboundDispatcher.remove(cloudClient);
+        this.cloudClientsByAppId.computeIfPresent(cloudClient.getApplicationId(), (id, clients) -> {
+            clients.remove(cloudClient);
+            return clients.isEmpty() ? null : clients;
+        });
 
         // publish updated birth certificate with updated list of active apps
         if (isConnected()) {
@@ -486,11 +586,15 @@ public class CloudServiceImpl
     }
 
     public byte[] encodePayload(KuraPayload payload) throws KuraException {
+        return encodePayload(payload, true);
+    }
+
+    private byte[] encodePayload(KuraPayload payload, boolean useDictionary) throws KuraException {
         byte[] bytes;
         CloudPayloadEncoding preferencesEncoding = this.options.getPayloadEncoding();
 
         if (preferencesEncoding == KURA_PROTOBUF) {
-            bytes = encodeProtobufPayload(payload);
+            bytes = encodeProtobufPayload(payload, useDictionary);
         } else if (preferencesEncoding == SIMPLE_JSON) {
             bytes = encodeJsonPayload(payload);
         } else {
@@ -571,6 +675,11 @@ public class CloudServiceImpl
     public void onMessageArrived(String topic, byte[] payload, int qos, boolean retained) {
         logger.info("Message arrived on topic: {}", topic);
 
+        // decode and dispatch the message out of the transport thread
+        this.inboundDispatcher.submit(() -> handleMessageArrived(topic, payload, qos, retained));
+    }
+
+    private void handleMessageArrived(String topic, byte[] payload, int qos, boolean retained) {
         // notify listeners
         KuraTopicImpl kuraTopic = new KuraTopicImpl(topic, this.options.getTopicControlPrefix());
         if (TOPIC_MQTT_APP.equals(kuraTopic.getApplicationId()) || TOPIC_BA_APP.equals(kuraTopic.getApplicationId())) {
@@ -626,27 +735,37 @@ public class CloudServiceImpl
             callbackExecutor.submit(new MessageHandlerCallable(cloudlet, applicationId, kuraTopic.getApplicationTopic(),
                     kuraPayload, this));
         }
-        this.cloudClients.stream()
-                .filter(cloudClient -> cloudClient.getApplicationId().equals(kuraTopic.getApplicationId()))
-                .forEach(cloudClient -> cloudClient.onControlMessageArrived(kuraTopic.getDeviceId(),
-                        kuraTopic.getApplicationTopic(), kuraPayload, qos, retained));
+        final InboundMessageDispatcher dispatcher = this.inboundDispatcher;
+        for (CloudClientImpl cloudClient : getCloudClients(applicationId)) {
+            dispatcher.submit(cloudClient, () -> cloudClient.onControlMessageArrived(kuraTopic.getDeviceId(),
+                    kuraTopic.getApplicationTopic(), kuraPayload, qos, retained));
+        }
 
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("deviceId", kuraTopic.getDeviceId());
-        properties.put("appTopic", kuraTopic.getApplicationTopic());
+        dispatchSubscriberMessage(kuraTopic, kuraPayload);
+    }
 
-        KuraMessage receivedMessage = new KuraMessage(kuraPayload, properties);
+    private void dispatchDataMessage(int qos, boolean retained, KuraTopicImpl kuraTopic, KuraPayload kuraPayload) {
+        final InboundMessageDispatcher dispatcher = this.inboundDispatcher;
+        for (CloudClientImpl cloudClient : getCloudClients(kuraTopic.getApplicationId())) {
+            dispatcher.submit(cloudClient, () -> cloudClient.onMessageArrived(kuraTopic.getDeviceId(),
+                    kuraTopic.getApplicationTopic(), kuraPayload, qos, retained));
+        }
 
-        this.registeredSubscribers.entrySet().stream()
-                .filter(cloudSubscriberEntry -> cloudSubscriberEntry.getKey().matches(kuraTopic.getFullTopic()))
-                .forEach(e -> dispatchMessage(receivedMessage, e.getValue()));
+        dispatchSubscriberMessage(kuraTopic, kuraPayload);
     }
 
-    private void dispatchDataMessage(int qos, boolean retained, KuraTopicImpl kuraTopic, KuraPayload kuraPayload) {
-        this.cloudClients.stream()
-                .filter(cloudClient -> cloudClient.getApplicationId().equals(kuraTopic.getApplicationId()))
-                .forEach(cloudClient -> cloudClient.onMessageArrived(kuraTopic.getDeviceId(),
-                        kuraTopic.getApplicationTopic(), kuraPayload, qos, retained));
+    private List<CloudClientImpl> getCloudClients(String applicationId) {
+        if (applicationId == null) {
+            return Collections.emptyList();
+        }
+        return this.cloudClientsByAppId.getOrDefault(applicationId, Collections.emptyList());
+    }
+
+    private void dispatchSubscriberMessage(KuraTopicImpl kuraTopic, KuraPayload kuraPayload) {
+        final List<CloudSubscriptionRecord> matchingRecords = this.subscriptionTrie.match(kuraTopic.getFullTopic());
+        if (matchingRecords.isEmpty()) {
+            return;
+        }
 
         Map<String, Object> properties = new HashMap<>();
         properties.put("deviceId", kuraTopic.getDeviceId());
@@ -654,18 +773,22 @@ public class CloudServiceImpl
 
         KuraMessage receivedMessage = new KuraMessage(kuraPayload, properties);
 
-        this.registeredSubscribers.entrySet().stream()
-                .filter(cloudSubscriberEntry -> cloudSubscriberEntry.getKey().matches(kuraTopic.getFullTopic()))
-                .forEach(e -> dispatchMessage(receivedMessage, e.getValue()));
+        final InboundMessageDispatcher dispatcher = this.inboundDispatcher;
+        for (final CloudSubscriptionRecord subscriptionRecord : matchingRecords) {
+            final List<CloudSubscriberListener> listeners = this.registeredSubscribers.get(subscriptionRecord);
+            if (listeners != null) {
+                for (final CloudSubscriberListener listener : listeners) {
+                    dispatcher.submit(listener, () -> dispatchMessage(receivedMessage, listener));
+                }
+            }
+        }
     }
 
-    private static void dispatchMessage(final KuraMessage message, final List<CloudSubscriberListener> listeners) {
-        for (final CloudSubscriberListener listener : listeners) {
-            try {
-                listener.onMessageArrived(message);
-            } catch (final Exception e) {
-                logger.warn("unhandled exception in CloudSubscriberListener", e);
-            }
+    private static void dispatchMessage(final KuraMessage message, final CloudSubscriberListener listener) {
+        try {
+            listener.onMessageArrived(message);
+        } catch (final Exception e) {
+            logger.warn("unhandled exception in CloudSubscriberListener", e);
         }
     }
 
@@ -687,6 +810,9 @@ public class CloudServiceImpl
     @Override
     public void onMessagePublished(int messageId, String topic) {
         synchronized (this.messageId) {
+            if (CloudServiceOptions.getLifeCycleMessageQos() == 0) {
+                onBirthCertificateDelivered(messageId);
+            }
             if (this.messageId.get() != -1 && this.messageId.get() == messageId) {
                 if (CloudServiceOptions.getLifeCycleMessageQos() == 0) {
                     this.messageId.set(-1);
@@ -707,6 +833,7 @@ public class CloudServiceImpl
     @Override
     public void onMessageConfirmed(int messageId, String topic) {
         synchronized (this.messageId) {
+            onBirthCertificateDelivered(messageId);
             if (this.messageId.get() != -1 && this.messageId.get() == messageId) {
                 this.messageId.set(-1);
                 this.messageId.notifyAll();
@@ -784,7 +911,9 @@ public class CloudServiceImpl
         // publish birth certificate unless it has already been published
         // and republish is disabled
         boolean publishBirth = true;
-        if (this.birthPublished && !this.options.getRepubBirthCertOnReconnect()) {
+        final PayloadDictionary dictionary = this.payloadDictionary;
+        if (this.birthPublished && !this.options.getRepubBirthCertOnReconnect()
+                && (dictionary == null || !dictionary.hasPendingDictionary())) {
             publishBirth = false;
             logger.info("Birth certificate republish is disabled in configuration");
         }
@@ -822,8 +951,12 @@ public class CloudServiceImpl
                 .append(CloudServiceOptions.getTopicBirthSuffix());
 
         String topic = sbTopic.toString();
+        final PayloadDictionary dictionary = this.payloadDictionary;
+        final PayloadDictionary.Entry advertisedDictionary = dictionary != null
+                ? dictionary.getAdvertisedDictionary()
+                : null;
         KuraPayload payload = createBirthPayload();
-        publishLifeCycleMessage(topic, payload);
+        publishLifeCycleMessage(topic, payload, advertisedDictionary);
     }
 
     private void publishDisconnectCertificate() throws KuraException {
@@ -869,17 +1002,27 @@ public class CloudServiceImpl
     }
 
     private void publishLifeCycleMessage(String topic, KuraPayload payload) throws KuraException {
+        publishLifeCycleMessage(topic, payload, null);
+    }
+
+    private void publishLifeCycleMessage(String topic, KuraPayload payload,
+            PayloadDictionary.Entry advertisedDictionary) throws KuraException {
         // track the message ID and block until the message
         // has been published (i.e. written to the socket).
         synchronized (this.messageId) {
             this.messageId.set(-1);
             // add a timestamp to the message
             payload.setTimestamp(new Date());
-            byte[] encodedPayload = encodePayload(payload);
+            // lifecycle messages must be readable without knowing the payload dictionary
+            byte[] encodedPayload = encodePayload(payload, false);
             int messageId = this.dataService.publish(topic, encodedPayload,
                     CloudServiceOptions.getLifeCycleMessageQos(), CloudServiceOptions.getLifeCycleMessageRetain(),
                     CloudServiceOptions.getLifeCycleMessagePriority());
             this.messageId.set(messageId);
+            if (advertisedDictionary != null) {
+                this.pendingAdvertisement = advertisedDictionary;
+                this.advertisementMessageId = messageId;
+            }
             try {
                 this.messageId.wait(1000);
             } catch (InterruptedException e) {
@@ -889,14 +1032,33 @@ public class CloudServiceImpl
         }
     }
 
-    private byte[] encodeProtobufPayload(KuraPayload payload) throws KuraException {
+    // must be called holding the messageId lock
+    private void onBirthCertificateDelivered(int messageId) {
+        final PayloadDictionary.Entry advertisedDictionary = this.pendingAdvertisement;
+        if (advertisedDictionary == null || this.advertisementMessageId != messageId) {
+            return;
+        }
+
+        this.pendingAdvertisement = null;
+        this.advertisementMessageId = -1;
+
+        final PayloadDictionary dictionary = this.payloadDictionary;
+        if (dictionary != null) {
+            dictionary.onAdvertised(advertisedDictionary);
+        }
+    }
+
+    private byte[] encodeProtobufPayload(KuraPayload payload, boolean useDictionary) throws KuraException {
         byte[] bytes = new byte[0];
         if (payload == null) {
             return bytes;
         }
 
+        final PayloadDictionary dictionary = useDictionary ? this.payloadDictionary : null;
         CloudPayloadEncoder encoder = new CloudPayloadProtoBufEncoderImpl(payload);
-        if (this.options.getEncodeGzip()) {
+        if (dictionary != null) {
+            encoder = new CloudPayloadDictionaryEncoder(encoder, dictionary, this.options.getEncodeGzip());
+        } else if (this.options.getEncodeGzip()) {
             encoder = new CloudPayloadGZipEncoder(encoder);
         }
 
@@ -905,6 +1067,10 @@ public class CloudServiceImpl
         } catch (IOException e) {
             throw new KuraException(KuraErrorCode.ENCODE_ERROR, "KuraPayload", e);
         }
+
+        if (dictionary != null && dictionary.hasPendingDictionary()) {
+            scheduleDictionaryAdvertisement();
+        }
         return bytes;
     }
 
@@ -982,7 +1148,17 @@ public class CloudServiceImpl
     @Override
     public Map<String, String> getInfo() {
         DataServiceImpl dataServiceImpl = (DataServiceImpl) this.dataService;
-        return dataServiceImpl.getConnectionInfo();
+        Map<String, String> result = dataServiceImpl.getConnectionInfo();
+
+        final InboundMessageDispatcher dispatcher = this.inboundDispatcher;
+        result.put("Inbound Queued Messages", Integer.toString(dispatcher.getQueueDepth()));
+        result.put("Inbound Dispatched Messages", Long.toString(dispatcher.getDispatchedCount()));
+        result.put("Inbound Dropped Messages", Long.toString(dispatcher.getDroppedCount()));
+        result.put("Inbound Average Dispatch Latency (ms)",
+                Long.toString(dispatcher.getAverageDispatchLatency(TimeUnit.MILLISECONDS)));
+        result.put("Inbound Max Dispatch Latency (ms)",
+                Long.toString(dispatcher.getMaxDispatchLatency(TimeUnit.MILLISECONDS)));
+        return result;
     }
 
     public String getNotificationPublisherPid() {
@@ -1066,6 +1242,10 @@ public class CloudServiceImpl
                 list.add(subscriber);
                 return list;
             });
+
+            if (subscribers.size() == 1) {
+                this.subscriptionTrie.add(subscriptionRecord.getTopicFilter(), subscriptionRecord);
+            }
         }
 
         if (subscribers.size() == 1) {
@@ -1086,6 +1266,7 @@ public class CloudServiceImpl
 
                 if (subscribers.isEmpty()) {
                     toUnsubscribe.add(e.getKey());
+                    this.subscriptionTrie.remove(e.getKey().getTopicFilter(), e.getKey());
                     return true;
                 } else {
                     return false;
@@ -1096,6 +1277,10 @@ public class CloudServiceImpl
         for (final CloudSubscriptionRecord subscription : toUnsubscribe) {
             unsubscribe(subscription);
         }
+
+        if (!this.registeredSubscribers.values().stream().anyMatch(listeners -> listeners.contains(subscriber))) {
+            this.inboundDispatcher.remove(subscriber);
+        }
     }
 
     private synchronized void subscribe(CloudSubscriptionRecord subscriptionRecord) {
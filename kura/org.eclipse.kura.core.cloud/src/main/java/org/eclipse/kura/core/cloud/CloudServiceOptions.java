@@ -18,6 +18,7 @@ import static org.eclipse.kura.core.cloud.CloudServiceLifecycleCertsPolicy.PUBLI
 import java.util.Map;
 
 import org.eclipse.kura.cloud.CloudPayloadEncoding;
+import org.eclipse.kura.core.cloud.InboundMessageDispatcher.OverflowPolicy;
 import org.eclipse.kura.system.SystemService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,12 +40,28 @@ public class CloudServiceOptions {
     private static final String DEVICE_DISPLAY_NAME = "device.display-name";
     private static final String DEVICE_CUSTOM_NAME = "device.custom-name";
     private static final String ENCODE_GZIP = "encode.gzip";
+    private static final String ENCODE_DICTIONARY = "encode.dictionary";
+    private static final String ENCODE_DICTIONARY_SIZE = "encode.dictionary.size";
+    private static final String ENCODE_DICTIONARY_SAMPLES = "encode.dictionary.samples";
     private static final String REPUB_BIRTH_ON_GPS_LOCK = "republish.mqtt.birth.cert.on.gps.lock";
     private static final String REPUB_BIRTH_ON_MODEM_DETECT = "republish.mqtt.birth.cert.on.modem.detect";
     private static final String REPUB_BIRTH_ON_TAMPER_EVENT = "republish.mqtt.birth.cert.on.tamper.event";
     private static final String ENABLE_DFLT_SUBSCRIPTIONS = "enable.default.subscriptions";
     private static final String BIRTH_CERT_POLICY = "birth.cert.policy";
     private static final String PAYLOAD_ENCODING = "payload.encoding";
+    private static final String INBOUND_DISPATCH_THREADS = "inbound.dispatch.threads";
+    private static final String INBOUND_DISPATCH_QUEUE_SIZE = "inbound.dispatch.queue-size";
+    private static final String INBOUND_DISPATCH_OVERFLOW_POLICY = "inbound.dispatch.overflow-policy";
+    private static final String INBOUND_DISPATCH_BLOCK_TIMEOUT = "inbound.dispatch.block-timeout";
+
+    private static final int ENCODE_DICTIONARY_SIZE_DEFAULT = 2048;
+    private static final int ENCODE_DICTIONARY_SIZE_MIN = 256;
+    private static final int ENCODE_DICTIONARY_SIZE_MAX = 32768;
+    private static final int ENCODE_DICTIONARY_SAMPLES_DEFAULT = 50;
+
+    private static final int INBOUND_DISPATCH_THREADS_DEFAULT = 0;
+    private static final int INBOUND_DISPATCH_QUEUE_SIZE_DEFAULT = 100;
+    private static final int INBOUND_DISPATCH_BLOCK_TIMEOUT_DEFAULT = 1000;
 
     private static final int LIFECYCLE_QOS = 0;
     private static final int LIFECYCLE_PRIORITY = 0;
@@ -106,6 +123,47 @@ public class CloudServiceOptions {
         return encodeGzip;
     }
 
+    /**
+     * Returns true if the current CloudService configuration
+     * specifies that outgoing payloads are compressed with a trained dictionary.
+     *
+     * @return a boolean value.
+     */
+    public boolean getEncodeDictionary() {
+        boolean encodeDictionary = false;
+        if (this.properties != null && this.properties.get(ENCODE_DICTIONARY) instanceof Boolean) {
+            encodeDictionary = (Boolean) this.properties.get(ENCODE_DICTIONARY);
+        }
+        return encodeDictionary;
+    }
+
+    /**
+     * Returns the maximum size in bytes of the payload compression dictionary.
+     *
+     * @return an int value.
+     */
+    public int getEncodeDictionarySize() {
+        int size = ENCODE_DICTIONARY_SIZE_DEFAULT;
+        if (this.properties != null && this.properties.get(ENCODE_DICTIONARY_SIZE) instanceof Integer) {
+            size = Math.min(ENCODE_DICTIONARY_SIZE_MAX,
+                    Math.max(ENCODE_DICTIONARY_SIZE_MIN, (Integer) this.properties.get(ENCODE_DICTIONARY_SIZE)));
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of published payloads used to train the payload compression dictionary.
+     *
+     * @return an int value.
+     */
+    public int getEncodeDictionarySamples() {
+        int samples = ENCODE_DICTIONARY_SAMPLES_DEFAULT;
+        if (this.properties != null && this.properties.get(ENCODE_DICTIONARY_SAMPLES) instanceof Integer) {
+            samples = Math.max(1, (Integer) this.properties.get(ENCODE_DICTIONARY_SAMPLES));
+        }
+        return samples;
+    }
+
     /**
      * Returns true if the current CloudService configuration
      * specifies the cloud client should republish the MQTT birth
@@ -230,6 +288,65 @@ public class CloudServiceOptions {
         return result;
     }
 
+    /**
+     * Returns the number of threads delivering inbound messages to the listeners.
+     * A value of 0, the default, means that inbound messages are delivered on the transport thread.
+     *
+     * @return an int value.
+     */
+    public int getInboundDispatchThreads() {
+        int threads = INBOUND_DISPATCH_THREADS_DEFAULT;
+        if (this.properties != null && this.properties.get(INBOUND_DISPATCH_THREADS) instanceof Integer) {
+            threads = Math.max(0, (Integer) this.properties.get(INBOUND_DISPATCH_THREADS));
+        }
+        return threads;
+    }
+
+    /**
+     * Returns the maximum number of inbound messages queued for each listener.
+     *
+     * @return an int value.
+     */
+    public int getInboundDispatchQueueSize() {
+        int queueSize = INBOUND_DISPATCH_QUEUE_SIZE_DEFAULT;
+        if (this.properties != null && this.properties.get(INBOUND_DISPATCH_QUEUE_SIZE) instanceof Integer) {
+            queueSize = Math.max(1, (Integer) this.properties.get(INBOUND_DISPATCH_QUEUE_SIZE));
+        }
+        return queueSize;
+    }
+
+    /**
+     * Returns the policy applied when an inbound message queue is full.
+     * By default, this method returns {@link OverflowPolicy} {@code BLOCK}.
+     *
+     * @return an {@link OverflowPolicy} value.
+     */
+    public OverflowPolicy getInboundDispatchOverflowPolicy() {
+        OverflowPolicy result = OverflowPolicy.BLOCK;
+        if (this.properties != null && this.properties.get(INBOUND_DISPATCH_OVERFLOW_POLICY) instanceof String) {
+            try {
+                result = OverflowPolicy.fromValue((String) this.properties.get(INBOUND_DISPATCH_OVERFLOW_POLICY));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Cannot parse the provided overflow policy.", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds to wait for space in a full inbound message queue,
+     * when the overflow policy is {@link OverflowPolicy} {@code BLOCK}.
+     *
+     * @return an int value.
+     */
+    public int getInboundDispatchBlockTimeout() {
+        int timeout = INBOUND_DISPATCH_BLOCK_TIMEOUT_DEFAULT;
+        if (this.properties != null && this.properties.get(INBOUND_DISPATCH_BLOCK_TIMEOUT) instanceof Integer) {
+            timeout = Math.max(0, (Integer) this.properties.get(INBOUND_DISPATCH_BLOCK_TIMEOUT));
+        }
+        return timeout;
+    }
+
     public static String getTopicSeparator() {
         return TOPIC_SEPARATOR;
     }
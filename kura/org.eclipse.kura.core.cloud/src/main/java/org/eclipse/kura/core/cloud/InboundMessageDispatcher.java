@@ -0,0 +1,356 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves the handling of inbound messages off the transport callback thread.
+ * <p>
+ * Messages are first queued to a single intake thread, which decodes them and hands them to the target listeners.
+ * Each target has its own bounded queue, served by a shared pool of worker threads, so that a slow listener only
+ * delays its own messages. Messages for the same target are delivered in order.
+ * <p>
+ * When a target queue is full the configured {@link OverflowPolicy} applies. The intake queue never blocks the
+ * calling thread: when it is full the newest message is dropped, or the oldest one with
+ * {@link OverflowPolicy#DROP_OLDEST}. The queue of a target is released as soon as it has no pending messages. With
+ * zero worker threads the messages are handled synchronously on the calling thread.
+ */
+public class InboundMessageDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(InboundMessageDispatcher.class);
+
+    // Maximum number of messages delivered to a target before yielding the worker thread to the other targets
+    private static final int DRAIN_BATCH_SIZE = 16;
+
+    private static final long SHUTDOWN_POLL_INTERVAL = 10;
+
+    public enum OverflowPolicy {
+
+        DROP_NEWEST("drop-newest"),
+        DROP_OLDEST("drop-oldest"),
+        BLOCK("block");
+
+        private final String value;
+
+        OverflowPolicy(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return this.value;
+        }
+
+        public static OverflowPolicy fromValue(String value) {
+            for (OverflowPolicy policy : OverflowPolicy.values()) {
+                if (policy.value.equals(value)) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported overflow policy: " + value);
+        }
+    }
+
+    private final int threads;
+    private final int queueSize;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+
+    private final ExecutorService intakeExecutor;
+    private final ExecutorService workerExecutor;
+    private final Mailbox intake;
+    private final Map<Object, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final LongAdder dispatchedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder totalDispatchLatency = new LongAdder();
+    private final AtomicLong maxDispatchLatency = new AtomicLong();
+
+    public InboundMessageDispatcher(int threads, int queueSize, OverflowPolicy overflowPolicy, long blockTimeout,
+            TimeUnit timeUnit) {
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = timeUnit.toNanos(blockTimeout);
+
+        if (threads > 0) {
+            this.intakeExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "CloudService:Intake"));
+            this.workerExecutor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "CloudService:Dispatch"));
+            this.intake = new Mailbox(null, this.intakeExecutor, false,
+                    overflowPolicy == OverflowPolicy.BLOCK ? OverflowPolicy.DROP_NEWEST : overflowPolicy);
+        } else {
+            this.intakeExecutor = null;
+            this.workerExecutor = null;
+            this.intake = null;
+        }
+    }
+
+    /**
+     * Queues an inbound message to the intake thread.
+     */
+    public void submit(Runnable task) {
+        if (this.intake == null) {
+            runTask(task, System.nanoTime(), false);
+        } else {
+            this.intake.offer(task);
+        }
+    }
+
+    /**
+     * Queues the delivery of a message to the given target.
+     */
+    public void submit(Object target, Runnable task) {
+        if (this.workerExecutor == null) {
+            runTask(task, System.nanoTime(), true);
+        } else {
+            // the producer count keeps the mailbox from being released while the message is being queued
+            final Mailbox mailbox = this.mailboxes.compute(target, (t, m) -> {
+                final Mailbox result = m != null ? m
+                        : new Mailbox(t, this.workerExecutor, true, this.overflowPolicy);
+                result.producers++;
+                return result;
+            });
+            try {
+                mailbox.offer(task);
+            } finally {
+                this.mailboxes.computeIfPresent(target, (t, m) -> {
+                    if (m == mailbox) {
+                        m.producers--;
+                    }
+                    return m.isReleasable() ? null : m;
+                });
+            }
+        }
+    }
+
+    /**
+     * Releases the queue of the given target if it is idle, otherwise the queue is released once the pending messages
+     * have been delivered.
+     */
+    public void remove(Object target) {
+        this.mailboxes.computeIfPresent(target, (t, m) -> m.isReleasable() ? null : m);
+    }
+
+    /**
+     * Stops accepting messages and waits for the queued ones to be delivered, up to the given timeout.
+     */
+    public void shutdown(long timeout, TimeUnit timeUnit) {
+        if (this.intakeExecutor == null) {
+            return;
+        }
+
+        final long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        try {
+            // the mailboxes reschedule themselves on their executor, which can only be stopped once they are idle
+            awaitIdle(Collections.singleton(this.intake), deadline);
+            this.intakeExecutor.shutdown();
+            this.intakeExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            awaitIdle(this.mailboxes.values(), deadline);
+            this.workerExecutor.shutdown();
+            this.workerExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.intakeExecutor.shutdownNow();
+            this.workerExecutor.shutdownNow();
+            if (!this.intake.isIdle() || !this.mailboxes.values().stream().allMatch(Mailbox::isIdle)) {
+                logger.warn("Inbound messages still queued on shutdown, discarding them");
+            }
+        }
+    }
+
+    private static void awaitIdle(Collection<Mailbox> mailboxes, long deadline) throws InterruptedException {
+        while (!mailboxes.stream().allMatch(Mailbox::isIdle) && deadline - System.nanoTime() > 0) {
+            Thread.sleep(SHUTDOWN_POLL_INTERVAL);
+        }
+    }
+
+    public boolean hasConfiguration(int threads, int queueSize, OverflowPolicy overflowPolicy, long blockTimeout,
+            TimeUnit timeUnit) {
+        return this.threads == threads && this.queueSize == queueSize && this.overflowPolicy == overflowPolicy
+                && this.blockTimeoutNanos == timeUnit.toNanos(blockTimeout);
+    }
+
+    public int getQueueDepth() {
+        int depth = this.intake == null ? 0 : this.intake.queue.size();
+        for (Mailbox mailbox : this.mailboxes.values()) {
+            depth += mailbox.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the number of messages delivered to the targets.
+     */
+    public long getDispatchedCount() {
+        return this.dispatchedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return this.droppedCount.sum();
+    }
+
+    /**
+     * Returns the average time spent by the messages in the target queues before being delivered.
+     */
+    public long getAverageDispatchLatency(TimeUnit timeUnit) {
+        final long count = this.dispatchedCount.sum();
+        return count == 0 ? 0 : timeUnit.convert(this.totalDispatchLatency.sum() / count, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxDispatchLatency(TimeUnit timeUnit) {
+        return timeUnit.convert(this.maxDispatchLatency.get(), TimeUnit.NANOSECONDS);
+    }
+
+    private void runTask(Runnable task, long queuedOn, boolean measured) {
+        if (measured) {
+            final long latency = System.nanoTime() - queuedOn;
+            this.dispatchedCount.increment();
+            this.totalDispatchLatency.add(latency);
+            this.maxDispatchLatency.accumulateAndGet(latency, Math::max);
+        }
+
+        try {
+            task.run();
+        } catch (Exception e) {
+            logger.warn("Unhandled exception while dispatching inbound message", e);
+        }
+    }
+
+    private static final class QueuedTask {
+
+        private final Runnable task;
+        private final long queuedOn;
+
+        QueuedTask(Runnable task) {
+            this.task = task;
+            this.queuedOn = System.nanoTime();
+        }
+    }
+
+    private final class Mailbox {
+
+        private final Object target;
+        private final ExecutorService executor;
+        private final BlockingQueue<QueuedTask> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final boolean measured;
+        private final OverflowPolicy overflowPolicy;
+
+        // threads queueing a message, only accessed while holding the mailboxes map entry
+        private int producers;
+
+        Mailbox(Object target, ExecutorService executor, boolean measured, OverflowPolicy overflowPolicy) {
+            this.target = target;
+            this.executor = executor;
+            this.measured = measured;
+            this.overflowPolicy = overflowPolicy;
+            this.queue = new ArrayBlockingQueue<>(InboundMessageDispatcher.this.queueSize);
+        }
+
+        void offer(Runnable task) {
+            final QueuedTask queuedTask = new QueuedTask(task);
+            boolean accepted = this.queue.offer(queuedTask);
+
+            if (!accepted) {
+                switch (this.overflowPolicy) {
+                case DROP_OLDEST:
+                    while (!accepted) {
+                        if (this.queue.poll() != null) {
+                            InboundMessageDispatcher.this.droppedCount.increment();
+                        }
+                        accepted = this.queue.offer(queuedTask);
+                    }
+                    logger.warn("Inbound message queue full, dropped the oldest message");
+                    break;
+                case BLOCK:
+                    schedule();
+                    accepted = offerBlocking(queuedTask);
+                    break;
+                default:
+                    break;
+                }
+            }
+
+            if (!accepted) {
+                InboundMessageDispatcher.this.droppedCount.increment();
+                logger.warn("Inbound message queue full, dropped the newest message");
+            }
+
+            schedule();
+        }
+
+        boolean isIdle() {
+            return !this.scheduled.get() && this.queue.isEmpty();
+        }
+
+        boolean isReleasable() {
+            return this.producers == 0 && isIdle();
+        }
+
+        private boolean offerBlocking(QueuedTask queuedTask) {
+            try {
+                return this.queue.offer(queuedTask, InboundMessageDispatcher.this.blockTimeoutNanos,
+                        TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void schedule() {
+            if (!this.queue.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+                try {
+                    this.executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    this.scheduled.set(false);
+                    logger.debug("Dispatcher shut down, not delivering queued messages");
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+                    final QueuedTask queuedTask = this.queue.poll();
+                    if (queuedTask == null) {
+                        break;
+                    }
+                    runTask(queuedTask.task, queuedTask.queuedOn, this.measured);
+                }
+            } finally {
+                this.scheduled.set(false);
+                schedule();
+                if (this.target != null) {
+                    InboundMessageDispatcher.this.mailboxes.computeIfPresent(this.target,
+                            (t, m) -> m == this && m.isReleasable() ? null : m);
+                }
+            }
+        }
+    }
+}
@@ -44,6 +44,8 @@ import com.eclipsesource.json.JsonObject;
 public class LifeCyclePayloadBuilder {
 
     private static final String EXTENDED_PROPERTIES_KEY = "extended_properties";
+    private static final String PAYLOAD_DICTIONARY_ID_KEY = "payload_dictionary_id";
+    private static final String PAYLOAD_DICTIONARY_KEY = "payload_dictionary";
 
     private static final String ERROR = "ERROR";
 
@@ -138,6 +140,14 @@ public class LifeCyclePayloadBuilder {
             logger.warn("failed to get extended properties", e);
         }
 
+        // the dictionary used to compress the payloads, identified by its zlib DICTID
+        final PayloadDictionary dictionary = this.cloudServiceImpl.getPayloadDictionary();
+        final PayloadDictionary.Entry entry = dictionary != null ? dictionary.getAdvertisedDictionary() : null;
+        if (entry != null) {
+            result.addMetric(PAYLOAD_DICTIONARY_ID_KEY, entry.getId());
+            result.addMetric(PAYLOAD_DICTIONARY_KEY, entry.getContent());
+        }
+
         return result;
     }
 
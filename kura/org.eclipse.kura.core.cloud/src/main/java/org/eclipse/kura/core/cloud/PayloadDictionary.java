@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A deflate preset dictionary trained on the payloads published by the device.
+ * <p>
+ * Small telemetry payloads repeat the same metric names and similar values, but are too short for a per message
+ * compression to find any redundancy. The dictionary is built by concatenating the most recent small payloads, so
+ * that the compressor can refer to it instead.
+ * <p>
+ * Payloads are compressed in the zlib format, whose header carries the Adler-32 checksum of the dictionary. The
+ * remote server must know the dictionary to decompress them, so a new dictionary is only used after it has been
+ * advertised in a birth certificate.
+ */
+public class PayloadDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayloadDictionary.class);
+
+    // Only small payloads benefit from the dictionary, larger ones would also fill it with a single message
+    private static final int MAX_SAMPLE_SIZE = 1024;
+
+    private final int maxSize;
+    private final int sampleCount;
+    private final Deque<byte[]> samples = new ArrayDeque<>();
+
+    private volatile Entry pending;
+    private volatile Entry active;
+
+    public PayloadDictionary(int maxSize, int sampleCount) {
+        this.maxSize = maxSize;
+        this.sampleCount = sampleCount;
+    }
+
+    public boolean hasConfiguration(int maxSize, int sampleCount) {
+        return this.maxSize == maxSize && this.sampleCount == sampleCount;
+    }
+
+    /**
+     * Collects an encoded payload for training. The dictionary is built once enough samples have been collected.
+     *
+     * @return true if this sample completed the training of a new dictionary
+     */
+    public boolean addSample(byte[] payload) {
+        if (this.pending != null || this.active != null || payload.length > MAX_SAMPLE_SIZE) {
+            return false;
+        }
+
+        synchronized (this.samples) {
+            if (this.pending != null) {
+                return false;
+            }
+            this.samples.addLast(payload);
+            if (this.samples.size() < this.sampleCount) {
+                return false;
+            }
+
+            this.pending = new Entry(buildDictionary());
+            this.samples.clear();
+        }
+
+        logger.info("Trained payload dictionary {} of {} bytes", this.pending.getId(),
+                this.pending.getContent().length);
+        return true;
+    }
+
+    /**
+     * Returns the dictionary to advertise in the birth certificate, either a newly trained one or the one in use.
+     */
+    public Entry getAdvertisedDictionary() {
+        final Entry result = this.pending;
+        return result != null ? result : this.active;
+    }
+
+    public boolean hasPendingDictionary() {
+        return this.pending != null;
+    }
+
+    /**
+     * Notifies that the given dictionary has been advertised to the remote server, so it can be used from now on.
+     */
+    public synchronized void onAdvertised(Entry entry) {
+        if (entry != null && entry == this.pending) {
+            this.active = entry;
+            this.pending = null;
+            logger.info("Compressing payloads with dictionary {}", entry.getId());
+        }
+    }
+
+    /**
+     * Compresses the payload with the active dictionary.
+     *
+     * @return the compressed payload, or null if no dictionary has been advertised yet
+     */
+    public byte[] compress(byte[] source) {
+        final Entry entry = this.active;
+        if (entry == null) {
+            return null;
+        }
+
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setDictionary(entry.getContent());
+            deflater.setInput(source);
+            deflater.finish();
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(source.length + 16);
+            final byte[] buffer = new byte[Math.min(source.length + 64, 4096)];
+            while (!deflater.finished()) {
+                final int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] buildDictionary() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] previous = null;
+        for (final byte[] sample : this.samples) {
+            if (!Arrays.equals(sample, previous)) {
+                out.write(sample, 0, sample.length);
+            }
+            previous = sample;
+        }
+
+        // deflate references are cheaper for the closest data, so the most recent samples are kept at the end
+        final byte[] content = out.toByteArray();
+        return content.length <= this.maxSize ? content
+                : Arrays.copyOfRange(content, content.length - this.maxSize, content.length);
+    }
+
+    /**
+     * A trained dictionary, identified by the Adler-32 checksum of its content as in the zlib format.
+     */
+    public static final class Entry {
+
+        private final byte[] content;
+        private final String id;
+
+        Entry(byte[] content) {
+            this.content = content;
+
+            final Adler32 adler = new Adler32();
+            adler.update(content);
+            this.id = String.format("%08x", adler.getValue());
+        }
+
+        public byte[] getContent() {
+            return this.content;
+        }
+
+        public String getId() {
+            return this.id;
+        }
+    }
+}
@@ -35,12 +35,16 @@ public class CloudSubscriptionRecord {
         return this.qos;
     }
 
-    public boolean matches(final String topic) {
+    public String getTopicFilter() {
         if (topicFilter == null) {
             topicFilter = this.topic.replaceAll(CloudServiceOptions.getTopicAccountToken(), "+")
                     .replaceAll(CloudServiceOptions.getTopicClientIdToken(), "+");
         }
-        return MqttTopicUtil.isMatched(this.topicFilter, topic);
+        return this.topicFilter;
+    }
+
+    public boolean matches(final String topic) {
+        return MqttTopicUtil.isMatched(getTopicFilter(), topic);
     }
 
     @Override
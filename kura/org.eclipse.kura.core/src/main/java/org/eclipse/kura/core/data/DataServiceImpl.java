@@ -12,17 +12,25 @@
  *******************************************************************************/
 package org.eclipse.kura.core.data;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
@@ -37,7 +45,12 @@ import org.eclipse.kura.KuraStoreException;
 import org.eclipse.kura.KuraTooManyInflightMessagesException;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.configuration.ConfigurationService;
+import org.eclipse.kura.core.data.DataServiceOptions.StoreType;
 import org.eclipse.kura.core.data.store.DbDataStore;
+import org.eclipse.kura.core.data.store.SegmentLogDataStore;
+import org.eclipse.kura.core.internal.data.InFlightMessages;
+import org.eclipse.kura.core.internal.data.InFlightMessages.InFlightMessage;
+import org.eclipse.kura.core.internal.data.MessageRingBuffer;
 import org.eclipse.kura.core.internal.data.TokenBucket;
 import org.eclipse.kura.data.DataService;
 import org.eclipse.kura.data.DataTransportService;
@@ -48,6 +61,7 @@ import org.eclipse.kura.db.H2DbService;
 import org.eclipse.kura.status.CloudConnectionStatusComponent;
 import org.eclipse.kura.status.CloudConnectionStatusEnum;
 import org.eclipse.kura.status.CloudConnectionStatusService;
+import org.eclipse.kura.system.SystemService;
 import org.eclipse.kura.watchdog.CriticalComponent;
 import org.eclipse.kura.watchdog.WatchdogService;
 import org.eclipse.paho.client.mqttv3.MqttException;
@@ -69,6 +83,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
     private static final int TRANSPORT_TASK_TIMEOUT = 1; // In seconds
 
+    private static final String DEFAULT_SEGMENT_LOG_DIRECTORY_NAME = "message-store";
+
     private DataServiceOptions dataServiceOptions;
 
     private DataTransportService dataTransportService;
@@ -78,31 +94,54 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     protected ScheduledExecutorService connectionMonitorExecutor;
     private ScheduledFuture<?> connectionMonitorFuture;
 
-    // A dedicated executor for the publishing task
+    // A dedicated executor for the publishing tasks, running one task for each publishing lane
     private ExecutorService publisherExecutor;
+    private volatile List<PublishLane> publishLanes = Collections.emptyList();
 
-    private DataStore store;
+    // Replaced on reconfiguration while the publishing lanes may be using it
+    private volatile DataStore store;
 
-    private Map<DataTransportToken, Integer> inFlightMsgIds;
+    // Optional in-memory tier for QoS 0 messages published while connected
+    private volatile MessageRingBuffer messageBuffer;
 
-    private ScheduledExecutorService congestionExecutor;
-    private ScheduledFuture<?> congestionFuture;
+    // Serializes buffering and moving buffered messages to the store, so that no message is buffered after a spill
+    private final Object messageBufferLock = new Object();
 
-    private CloudConnectionStatusService cloudConnectionStatusService;
-    private CloudConnectionStatusEnum notificationStatus = CloudConnectionStatusEnum.OFF;
+    // The identifier of the next buffered message, carried across buffers so that identifiers are not reused
+    // (guarded by messageBufferLock)
+    private int nextBufferedMessageId = -1;
+
+    // The identifiers returned for buffered messages moved to the store, keyed by their store identifier
+    private final Map<Integer, Integer> spilledMessageIds = new LinkedHashMap<Integer, Integer>() {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+            // The older ones refer to messages no longer in the store
+            return size() > DataServiceImpl.this.dataServiceOptions.getStoreCapacity();
+        }
+    };
+
+    private InFlightMessages inFlightMessages = new InFlightMessages();
 
-    private TokenBucket throttle;
+    // Confirmations are written to the store in batches by a dedicated executor
+    private ExecutorService confirmationExecutor;
+    private final Queue<InFlightMessage> confirmedMessages = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean confirmationPending = new AtomicBoolean();
 
-    private final Lock lock = new ReentrantLock();
-    private boolean notifyPending;
-    private final Condition lockCondition = this.lock.newCondition();
+    private ScheduledExecutorService congestionExecutor;
+    private volatile ScheduledFuture<?> congestionFuture;
+    private final Object congestionLock = new Object();
 
-    private final AtomicBoolean publisherEnabled = new AtomicBoolean();
+    private CloudConnectionStatusService cloudConnectionStatusService;
+    private CloudConnectionStatusEnum notificationStatus = CloudConnectionStatusEnum.OFF;
 
     private ServiceTracker<H2DbService, H2DbService> dbServiceTracker;
     private ComponentContext componentContext;
 
     private WatchdogService watchdogService;
+    private SystemService systemService;
 
     private AtomicInteger connectionAttempts;
 
@@ -121,18 +160,17 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.dataServiceOptions = new DataServiceOptions(properties);
 
         this.connectionMonitorExecutor = Executors.newSingleThreadScheduledExecutor();
-        this.publisherExecutor = Executors.newSingleThreadExecutor();
+        this.publisherExecutor = Executors.newCachedThreadPool();
+        this.confirmationExecutor = Executors.newSingleThreadExecutor();
         this.congestionExecutor = Executors.newSingleThreadScheduledExecutor();
 
-        createThrottle();
-        submitPublishingWork();
-
-        this.store = new DbDataStore(pid);
-
-        restartDbServiceTracker(this.dataServiceOptions.getDbServiceInstancePid());
+        createMessageBuffer();
+        startPublishLanes();
 
         this.dataServiceListeners = new DataServiceListenerS(componentContext);
 
+        startStore();
+
         // Register the component in the CloudConnectionStatus Service
         this.cloudConnectionStatusService.register(this);
 
@@ -141,6 +179,56 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         startConnectionMonitorTask();
     }
 
+    private void startStore() {
+        final String pid = this.dataServiceOptions.getKuraServicePid();
+
+        if (this.dataServiceOptions.getStoreType() == StoreType.SEGMENT_LOG) {
+            this.store = new SegmentLogDataStore(new File(getStoreSegmentLogDirectory(), pid),
+                    this.dataServiceOptions.getStoreSegmentLogSegmentSize(),
+                    this.dataServiceOptions.getStoreSegmentLogSyncInterval());
+            startDbStore();
+        } else {
+            this.store = new DbDataStore(pid);
+            restartDbServiceTracker(this.dataServiceOptions.getDbServiceInstancePid());
+        }
+    }
+
+    private void stopStore() {
+        // Closing the tracker unsets the tracked H2DbService, which stops the H2 based store
+        final boolean stoppedByTracker = this.dbServiceTracker != null && this.dbService != null;
+        stopDbServiceTracker();
+        if (!stoppedByTracker) {
+            this.store.stop();
+        }
+    }
+
+    private String getStoreSegmentLogDirectory() {
+        final String directory = this.dataServiceOptions.getStoreSegmentLogDirectory();
+        if (directory != null && !directory.trim().isEmpty()) {
+            return directory;
+        }
+        return this.systemService.getKuraDataDirectory() + File.separator + DEFAULT_SEGMENT_LOG_DIRECTORY_NAME;
+    }
+
+    private boolean isStoreChanged(DataServiceOptions oldOptions) {
+        final StoreType storeType = this.dataServiceOptions.getStoreType();
+
+        if (storeType != oldOptions.getStoreType()) {
+            return true;
+        }
+        return storeType == StoreType.SEGMENT_LOG
+                && (!Objects.equals(this.dataServiceOptions.getStoreSegmentLogDirectory(),
+                        oldOptions.getStoreSegmentLogDirectory())
+                        || this.dataServiceOptions.getStoreSegmentLogSegmentSize() != oldOptions
+                                .getStoreSegmentLogSegmentSize()
+                        || this.dataServiceOptions.getStoreSegmentLogSyncInterval() != oldOptions
+                                .getStoreSegmentLogSyncInterval());
+    }
+
+    private boolean isStoreAvailable() {
+        return this.dataServiceOptions.getStoreType() != StoreType.H2 || this.dbService != null;
+    }
+
     private void restartDbServiceTracker(String kuraServicePid) {
         stopDbServiceTracker();
         try {
@@ -197,15 +285,16 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             // The initial list of in-flight messages
             List<DataMessage> inFlightMsgs = this.store.allInFlightMessagesNoPayload();
 
-            // The map associating a DataTransportToken with a message ID
-            this.inFlightMsgIds = new ConcurrentHashMap<>();
+            // Track the in-flight messages by their DataTransportToken
+            this.inFlightMessages.clear();
 
             if (inFlightMsgs != null) {
                 for (DataMessage message : inFlightMsgs) {
 
                     DataTransportToken token = new DataTransportToken(message.getPublishedMessageId(),
                             message.getSessionId());
-                    this.inFlightMsgIds.put(token, message.getId());
+                    this.inFlightMessages.restore(token, message.getId(), message.getTopic(),
+                            message.getPriority());
 
                     logger.debug("Restored in-fligh messages from store. Topic: {}, ID: {}, MQTT message ID: {}",
                             new Object[] { message.getTopic(), message.getId(), message.getPublishedMessageId() });
@@ -221,16 +310,26 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
         stopConnectionMonitorTask();
 
-        final String oldDbServicePid = this.dataServiceOptions.getDbServiceInstancePid();
+        final DataServiceOptions oldOptions = this.dataServiceOptions;
+        final String oldDbServicePid = oldOptions.getDbServiceInstancePid();
 
         this.dataServiceOptions = new DataServiceOptions(properties);
 
-        createThrottle();
+        stopPublishLanes();
+        createMessageBuffer();
+        startPublishLanes();
 
         final String currentDbServicePid = this.dataServiceOptions.getDbServiceInstancePid();
 
-        if (oldDbServicePid.equals(currentDbServicePid)) {
-            if (this.dbService != null) {
+        if (isStoreChanged(oldOptions)) {
+            // Messages in the previous store are not migrated
+            logger.info("Message store configuration changed, restarting the store...");
+            disconnect();
+            stopStore();
+            startStore();
+        } else if (this.dataServiceOptions.getStoreType() == StoreType.SEGMENT_LOG
+                || oldDbServicePid.equals(currentDbServicePid)) {
+            if (isStoreAvailable()) {
                 this.store.update(this.dataServiceOptions.getStoreHousekeeperInterval(),
                         this.dataServiceOptions.getStorePurgeAge(), this.dataServiceOptions.getStoreCapacity());
             }
@@ -258,9 +357,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             // Waits to publish latest messages e.g. disconnect message
             Thread.sleep(TRANSPORT_TASK_TIMEOUT * 1000L);
 
-            // Clean publisher thread shutdown
-            this.publisherEnabled.set(false);
-            signalPublisher();
+            // Clean publisher threads shutdown
+            stopPublishLanes();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             logger.info("Interrupted", e);
@@ -269,9 +367,18 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
         this.dataTransportService.removeDataTransportListener(this);
 
-        this.store.stop();
+        // Write pending confirmations before stopping the store
+        this.confirmationExecutor.shutdown();
+        try {
+            this.confirmationExecutor.awaitTermination(TRANSPORT_TASK_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Interrupted", e);
+        }
 
-        stopDbServiceTracker();
+        spillMessageBuffer(this.messageBuffer);
+
+        stopStore();
     }
 
     // ----------------------------------------------------------------
@@ -308,6 +415,14 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.cloudConnectionStatusService = null;
     }
 
+    public void setSystemService(SystemService systemService) {
+        this.systemService = systemService;
+    }
+
+    public void unsetSystemService(SystemService systemService) {
+        this.systemService = null;
+    }
+
     public void setWatchdogService(WatchdogService watchdogService) {
         this.watchdogService = watchdogService;
     }
@@ -332,6 +447,9 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         logger.info("Notified connected");
         this.cloudConnectionStatusService.updateStatus(this, CloudConnectionStatusEnum.ON);
 
+        // The MQTT message identifiers of the previous connection are reused
+        this.inFlightMessages.clearUnmatchedConfirmations();
+
         // On a new session all messages the were in-flight in the previous session
         // would be lost and never confirmed by the DataPublisherService.
         //
@@ -360,7 +478,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                         + "this may cause duplicate messages.");
                 try {
                     this.store.unpublishAllInFlighMessages();
-                    this.inFlightMsgIds.clear();
+                    this.inFlightMessages.clear();
                 } catch (KuraStoreException e) {
                     logger.error("Failed to unpublish in-flight messages", e);
                 }
@@ -368,7 +486,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                 logger.info("New session established. Dropping all in-flight messages.");
                 try {
                     this.store.dropAllInFlightMessages();
-                    this.inFlightMsgIds.clear();
+                    this.inFlightMessages.clear();
                 } catch (KuraStoreException e) {
                     logger.error("Failed to drop in-flight messages", e);
                 }
@@ -394,6 +512,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         logger.info("Notified disconnected");
         this.cloudConnectionStatusService.updateStatus(this, CloudConnectionStatusEnum.OFF);
 
+        spillMessageBuffer(this.messageBuffer);
+
         // Notify the listeners
         this.dataServiceListeners.onDisconnected();
     }
@@ -425,6 +545,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         stopConnectionMonitorTask(); // Just in case...
         startConnectionMonitorTask();
 
+        spillMessageBuffer(this.messageBuffer);
+
         // Notify the listeners
         this.dataServiceListeners.onConnectionLost(cause);
     }
@@ -441,48 +563,78 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     }
 
     @Override
-    // It's very important that the publishInternal and messageConfirmed methods are synchronized
-    public synchronized void onMessageConfirmed(DataTransportToken token) {
+    public void onMessageConfirmed(DataTransportToken token) {
 
         logger.debug("Confirmed message with MQTT message ID: {} on session ID: {}", token.getMessageId(),
                 token.getSessionId());
 
-        Integer messageId = this.inFlightMsgIds.remove(token);
-        if (messageId == null) {
+        InFlightMessage message = this.inFlightMessages.confirm(token);
+        if (message == null) {
             logger.info(
                     "Confirmed message published with MQTT message ID: {} not tracked in the map of in-flight messages",
                     token.getMessageId());
-        } else {
-
-            DataMessage confirmedMessage = null;
-            try {
-                logger.info("Confirmed message ID: {} to store", messageId);
-                this.store.confirmed(messageId);
-                confirmedMessage = this.store.get(messageId);
-            } catch (KuraStoreException e) {
-                logger.error("Cannot confirm message to store", e);
-            }
 
-            // Notify the listeners
-            if (confirmedMessage != null) {
-                String topic = confirmedMessage.getTopic();
-                this.dataServiceListeners.onMessageConfirmed(messageId, topic);
-            } else {
-                logger.error("Confirmed Message with ID {} could not be loaded from the DataStore.", messageId);
+            if (this.inFlightMessages.size() < this.dataServiceOptions.getMaxInFlightMessages()) {
+                handleInFlightDecongestion();
             }
+            signalPublisher();
+            return;
         }
 
-        if (this.inFlightMsgIds.size() < this.dataServiceOptions.getMaxInFlightMessages()) {
+        submitConfirmation(message);
+
+        final PublishLane lane = getPublishLane(message.getPriority());
+        if (lane == null) {
+            return;
+        }
+        if (lane.getInFlightMessages(this.inFlightMessages) < lane.maxInFlightMessages) {
             handleInFlightDecongestion();
         }
+        lane.signal();
+    }
 
-        signalPublisher();
+    private void submitConfirmation(InFlightMessage message) {
+        this.confirmedMessages.add(message);
+
+        if (this.confirmationPending.compareAndSet(false, true)) {
+            this.confirmationExecutor.execute(this::storeConfirmations);
+        }
+    }
+
+    private void storeConfirmations() {
+        this.confirmationPending.set(false);
+
+        List<InFlightMessage> messages = new ArrayList<>();
+        InFlightMessage message;
+        while ((message = this.confirmedMessages.poll()) != null) {
+            messages.add(message);
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        List<Integer> messageIds = new ArrayList<>(messages.size());
+        for (InFlightMessage confirmedMessage : messages) {
+            messageIds.add(confirmedMessage.getId());
+        }
+
+        try {
+            logger.debug("Confirmed message IDs: {} to store", messageIds);
+            this.store.confirmed(messageIds);
+        } catch (KuraStoreException e) {
+            logger.error("Cannot confirm messages to store", e);
+        }
+
+        // Notify the listeners
+        for (InFlightMessage confirmedMessage : messages) {
+            this.dataServiceListeners.onMessageConfirmed(confirmedMessage.getId(), confirmedMessage.getTopic());
+        }
     }
 
     @Override
     public void connect() throws KuraConnectException {
         stopConnectionMonitorTask();
-        if (this.dbService == null) {
+        if (!isStoreAvailable()) {
             throw new KuraConnectException("H2DbService instance not attached, not connecting");
         }
 
@@ -525,12 +677,23 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     @Override
     public int publish(String topic, byte[] payload, int qos, boolean retain, int priority) throws KuraStoreException {
 
+        if (qos == 0 && !retain) {
+            DataMessage bufferedMsg = bufferMessage(topic, payload, priority);
+            if (bufferedMsg != null) {
+                logger.debug("Buffered message on topic: {}, priority: {}", topic, priority);
+
+                signalPublisher(priority);
+
+                return bufferedMsg.getId();
+            }
+        }
+
         logger.info("Storing message on topic: {}, priority: {}", topic, priority);
-        
+
         DataMessage dataMsg = this.store.store(topic, payload, qos, retain, priority);
         logger.info("Stored message on topic: {}, priority: {}", topic, priority);
 
-        signalPublisher();
+        signalPublisher(priority);
 
         return dataMsg.getId();
     }
@@ -554,10 +717,25 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     }
 
     private void signalPublisher() {
-        this.lock.lock();
-        this.notifyPending = true;
-        this.lockCondition.signal();
-        this.lock.unlock();
+        for (PublishLane lane : this.publishLanes) {
+            lane.signal();
+        }
+    }
+
+    private void signalPublisher(int priority) {
+        final PublishLane lane = getPublishLane(priority);
+        if (lane != null) {
+            lane.signal();
+        }
+    }
+
+    private PublishLane getPublishLane(int priority) {
+        for (PublishLane lane : this.publishLanes) {
+            if (lane.contains(priority)) {
+                return lane;
+            }
+        }
+        return null;
     }
 
     private boolean startConnectionMonitorTask() {
@@ -594,7 +772,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                             + DataServiceImpl.this.dataServiceOptions.getKuraServicePid());
                     boolean connected = false;
                     try {
-                        if (DataServiceImpl.this.dbService == null) {
+                        if (!isStoreAvailable()) {
                             logger.warn("H2DbService instance not attached, not connecting");
                             return;
                         }
@@ -651,7 +829,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         return autoConnect;
     }
 
-    private void createThrottle() {
+    private TokenBucket createThrottle() {
         if (this.dataServiceOptions.isRateLimitEnabled()) {
             int publishRate = this.dataServiceOptions.getRateLimitAverageRate();
             int burstLength = this.dataServiceOptions.getRateLimitBurstSize();
@@ -660,7 +838,88 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
             logger.info("Get Throttle with burst length {} and send a message every {} nanoseconds", burstLength,
                     publishPeriod);
-            this.throttle = new TokenBucket(burstLength, publishPeriod);
+            return new TokenBucket(burstLength, publishPeriod);
+        }
+        return null;
+    }
+
+    private DataMessage bufferMessage(String topic, byte[] payload, int priority) {
+        synchronized (this.messageBufferLock) {
+            // Checked under the lock, as the buffer is spilled after the transport is disconnected
+            final MessageRingBuffer buffer = this.messageBuffer;
+            if (buffer == null || !this.dataTransportService.isConnected()) {
+                return null;
+            }
+
+            final DataMessage bufferedMsg = buffer.offer(topic, payload, 0, false, priority);
+            if (bufferedMsg == null) {
+                logger.debug("Memory buffer full for priority: {}, falling back to the store", priority);
+            }
+            return bufferedMsg;
+        }
+    }
+
+    private void createMessageBuffer() {
+        final int capacity = this.dataServiceOptions.getStoreMemoryBufferCapacity();
+
+        synchronized (this.messageBufferLock) {
+            final MessageRingBuffer oldBuffer = this.messageBuffer;
+            if (oldBuffer != null) {
+                if (oldBuffer.getLaneCapacity() == capacity) {
+                    return;
+                }
+                this.nextBufferedMessageId = oldBuffer.getNextId();
+            }
+
+            if (capacity > 0) {
+                logger.info("Using an in-memory buffer of {} messages per priority level for QoS 0 messages",
+                        capacity);
+                this.messageBuffer = new MessageRingBuffer(capacity, this.nextBufferedMessageId);
+            } else {
+                this.messageBuffer = null;
+            }
+
+            spillMessageBuffer(oldBuffer);
+        }
+    }
+
+    private void spillMessageBuffer(MessageRingBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+
+        synchronized (this.messageBufferLock) {
+            List<DataMessage> messages = buffer.drain();
+            if (!messages.isEmpty()) {
+                logger.info("Moving {} buffered messages to the store", messages.size());
+            }
+            for (DataMessage message : messages) {
+                storeBufferedMessage(message);
+            }
+        }
+    }
+
+    private void storeBufferedMessage(DataMessage message) {
+        try {
+            DataMessage storedMessage = this.store.store(message.getTopic(), message.getPayload(), message.getQos(),
+                    message.isRetain(), message.getPriority());
+
+            // Keep notifying the listeners with the identifier returned to the publisher
+            synchronized (this.spilledMessageIds) {
+                this.spilledMessageIds.put(storedMessage.getId(), message.getId());
+            }
+        } catch (Exception e) {
+            logger.warn("Cannot store buffered message on topic: {}, dropping it", message.getTopic(), e);
+        }
+    }
+
+    private int getPublishedMessageId(int storeId) {
+        synchronized (this.spilledMessageIds) {
+            if (this.spilledMessageIds.isEmpty()) {
+                return storeId;
+            }
+            final Integer bufferedId = this.spilledMessageIds.remove(storeId);
+            return bufferedId != null ? bufferedId : storeId;
         }
     }
 
@@ -683,14 +942,65 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.dataTransportService.disconnect(millis);
     }
 
-    private void submitPublishingWork() {
-        this.publisherEnabled.set(true);
+    private void startPublishLanes() {
+        List<Integer> laneBounds;
+        try {
+            laneBounds = this.dataServiceOptions.getPublishPriorityLanes();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid publish priority lanes, publishing all the messages on a single lane", e);
+            laneBounds = Collections.emptyList();
+        }
+
+        // Split the in-flight window among the lanes, giving the remainder to the higher priority ones
+        final int laneCount = laneBounds.size() + 1;
+        final int maxInFlightMessages = this.dataServiceOptions.getMaxInFlightMessages();
+
+        // A single throttle for all the lanes, so that the configured rate applies to the whole service. Messages
+        // with priority lower than 5 are never throttled, so the lanes of the higher priorities do not wait for it
+        final TokenBucket throttle = createThrottle();
+
+        final List<PublishLane> lanes = new ArrayList<>(laneCount);
+        int minPriority = Integer.MIN_VALUE;
+        for (int i = 0; i < laneCount; i++) {
+            final int maxPriority = i < laneBounds.size() ? laneBounds.get(i) - 1 : Integer.MAX_VALUE;
+            final int laneInFlightMessages = Math.max(1,
+                    maxInFlightMessages / laneCount + (i < maxInFlightMessages % laneCount ? 1 : 0));
+
+            lanes.add(new PublishLane(minPriority, maxPriority, laneInFlightMessages, throttle));
+            minPriority = maxPriority + 1;
+        }
+
+        for (PublishLane lane : lanes) {
+            logger.info("Starting publishing lane {} with at most {} in-flight messages", lane.getName(),
+                    lane.maxInFlightMessages);
+            lane.future = this.publisherExecutor.submit(new PublishManager(lane));
+        }
+        this.publishLanes = lanes;
+    }
+
+    private void stopPublishLanes() {
+        final List<PublishLane> lanes = this.publishLanes;
+        this.publishLanes = Collections.emptyList();
+
+        for (PublishLane lane : lanes) {
+            lane.enabled.set(false);
+            lane.signal();
+        }
 
-        this.publisherExecutor.execute(new PublishManager());
+        // Wait for the running publish operations, so that the next lanes cannot publish the same messages
+        for (PublishLane lane : lanes) {
+            try {
+                lane.future.get(TRANSPORT_TASK_TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.info("Interrupted", e);
+            } catch (ExecutionException | TimeoutException e) {
+                logger.warn("Publishing lane {} did not terminate cleanly", lane.getName(), e);
+            }
+        }
     }
 
-    // It's very important that the publishInternal and messageConfirmed methods are synchronized
-    private synchronized void publishInternal(DataMessage message) throws KuraException {
+    private void publishInternal(DataMessage message) throws KuraException {
 
         String topic = message.getTopic();
         byte[] payload = message.getPayload();
@@ -706,17 +1016,70 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             DataServiceImpl.this.store.published(msgId);
             logger.debug("Published message with ID: {}", msgId);
         } else {
+            InFlightMessage confirmedMessage = DataServiceImpl.this.inFlightMessages.track(token, msgId, topic,
+                    message.getPriority());
+            DataServiceImpl.this.store.published(msgId, token.getMessageId(), token.getSessionId());
+            logger.debug("Published message with ID: {} and MQTT message ID: {}", msgId, token.getMessageId());
 
-            // Check if the token is already tracked in the map (in which case we are in trouble)
-            Integer trackedMsgId = DataServiceImpl.this.inFlightMsgIds.get(token);
-            if (trackedMsgId != null) {
-                logger.error("Token already tracked: {} - {}", token.getSessionId(), token.getMessageId());
+            if (confirmedMessage != null) {
+                submitConfirmation(confirmedMessage);
             }
+        }
+    }
 
-            DataServiceImpl.this.inFlightMsgIds.put(token, msgId);
-            DataServiceImpl.this.store.published(msgId, token.getMessageId(), token.getSessionId());
-            logger.debug("Published message with ID: {} and MQTT message ID: {}", msgId, token.getMessageId());
+    private void publishBatchInternal(List<DataMessage> messages) throws KuraException {
+
+        List<DataMessage> publishedMessages = new ArrayList<>(messages.size());
+        List<InFlightMessage> confirmedMessages = new ArrayList<>();
+
+        try {
+            for (DataMessage message : messages) {
+                int msgId = message.getId();
+
+                logger.debug("Publishing message with ID: {} on topic: {}, priority: {}", msgId, message.getTopic(),
+                        message.getPriority());
+
+                DataTransportToken token = this.dataTransportService.publish(message.getTopic(), message.getPayload(),
+                        message.getQos(), message.isRetain());
+
+                if (token == null) {
+                    publishedMessages.add(new DataMessage.Builder(msgId).withPublishedMessageId(-1).build());
+                } else {
+                    InFlightMessage confirmedMessage = this.inFlightMessages.track(token, msgId, message.getTopic(),
+                            message.getPriority());
+                    if (confirmedMessage != null) {
+                        confirmedMessages.add(confirmedMessage);
+                    }
+                    publishedMessages.add(new DataMessage.Builder(msgId).withPublishedMessageId(token.getMessageId())
+                            .withSessionId(token.getSessionId()).build());
+                }
+            }
+        } finally {
+            // Mark as published whatever made it to the transport, even if the batch was interrupted
+            this.store.published(publishedMessages);
+            logger.debug("Published batch of {} messages", publishedMessages.size());
+
+            for (InFlightMessage confirmedMessage : confirmedMessages) {
+                submitConfirmation(confirmedMessage);
+            }
+        }
+    }
+
+    private void publishBufferedMessage(DataMessage message) throws KuraException {
+
+        logger.debug("Publishing buffered message with ID: {} on topic: {}, priority: {}", message.getId(),
+                message.getTopic(), message.getPriority());
+
+        try {
+            this.dataTransportService.publish(message.getTopic(), message.getPayload(), message.getQos(),
+                    message.isRetain());
+        } catch (KuraException e) {
+            storeBufferedMessage(message);
+            throw e;
         }
+
+        // Notify the listeners
+        this.dataServiceListeners.onMessagePublished(message.getId(), message.getTopic());
     }
 
     private List<Integer> buildMessageIds(List<DataMessage> messages, String topicRegex) {
@@ -727,7 +1090,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             for (DataMessage message : messages) {
                 String topic = message.getTopic();
                 if (topicPattern.matcher(topic).matches()) {
-                    ids.add(message.getId());
+                    ids.add(getMessageId(message.getId()));
                 }
             }
         }
@@ -735,9 +1098,34 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         return ids;
     }
 
+    private int getMessageId(int storeId) {
+        synchronized (this.spilledMessageIds) {
+            return this.spilledMessageIds.getOrDefault(storeId, storeId);
+        }
+    }
+
+    private void handleInFlightCongestion() {
+        int timeout = this.dataServiceOptions.getInFlightMessagesCongestionTimeout();
+
+        // Do not schedule more that one task at a time, lanes can be congested concurrently
+        synchronized (this.congestionLock) {
+            if (timeout != 0 && (this.congestionFuture == null || this.congestionFuture.isDone())) {
+                logger.warn("In-flight message congestion timeout started");
+                this.congestionFuture = this.congestionExecutor.schedule(() -> {
+                    Thread.currentThread().setName("DataServiceImpl:InFlightCongestion");
+                    logger.warn("In-flight message congestion timeout elapsed. Disconnecting and reconnecting again");
+                    disconnect();
+                    startConnectionMonitorTask();
+                }, timeout, TimeUnit.SECONDS);
+            }
+        }
+    }
+
     private void handleInFlightDecongestion() {
-        if (this.congestionFuture != null && !this.congestionFuture.isDone()) {
-            this.congestionFuture.cancel(true);
+        synchronized (this.congestionLock) {
+            if (this.congestionFuture != null && !this.congestionFuture.isDone()) {
+                this.congestionFuture.cancel(true);
+            }
         }
     }
 
@@ -758,27 +1146,72 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
     private final class PublishManager implements Runnable {
 
+        private final PublishLane lane;
+
+        private boolean batchPending;
+        private long batchDeadline;
+
+        PublishManager(PublishLane lane) {
+            this.lane = lane;
+        }
+
         @Override
         public void run() {
-            Thread.currentThread().setName("DataServiceImpl:Submit");
-            while (DataServiceImpl.this.publisherEnabled.get()) {
+            String threadName = "DataServiceImpl:Submit";
+            if (!this.lane.isUnbounded()) {
+                threadName += ":" + this.lane.getName();
+            }
+            Thread.currentThread().setName(threadName);
+            while (this.lane.enabled.get()) {
                 long sleepingTime = -1;
                 boolean messagePublished = false;
 
                 if (DataServiceImpl.this.dataTransportService.isConnected()) {
                     try {
-                        DataMessage message = DataServiceImpl.this.store.getNextMessage();
-
-                        if (message != null) {
-                            checkInFlightMessages(message);
-
-                            if (DataServiceImpl.this.dataServiceOptions.isRateLimitEnabled()
-                                    && message.getPriority() >= 5) {
-                                messagePublished = publishMessageTokenBucket(message);
-                                sleepingTime = DataServiceImpl.this.throttle.getTokenWaitTime();
-                            } else {
-                                publishMessageUnbound(message);
-                                messagePublished = true;
+                        final int batchSize = DataServiceImpl.this.dataServiceOptions.getPublishBatchSize();
+
+                        if (batchSize > 1) {
+                            List<DataMessage> messages = getNextMessages(batchSize);
+                            DataMessage bufferedMessage = peekBufferedMessage(
+                                    messages.isEmpty() ? null : messages.get(0));
+
+                            if (bufferedMessage != null) {
+                                messagePublished = publishBufferedMessageTokenBucket(bufferedMessage);
+                                if (!messagePublished) {
+                                    sleepingTime = this.lane.throttle.getTokenWaitTime();
+                                }
+                            } else if (!messages.isEmpty()) {
+                                long batchWaitTime = getBatchWaitTime(messages.size(), batchSize);
+
+                                if (batchWaitTime > 0) {
+                                    sleepingTime = batchWaitTime;
+                                } else {
+                                    messagePublished = publishMessageBatch(messages);
+                                    if (!messagePublished) {
+                                        sleepingTime = this.lane.throttle.getTokenWaitTime();
+                                    }
+                                }
+                            }
+                        } else {
+                            DataMessage message = getNextMessage();
+                            DataMessage bufferedMessage = peekBufferedMessage(message);
+
+                            if (bufferedMessage != null) {
+                                messagePublished = publishBufferedMessageTokenBucket(bufferedMessage);
+                                if (!messagePublished) {
+                                    sleepingTime = this.lane.throttle.getTokenWaitTime();
+                                }
+                            } else if (message != null) {
+                                checkInFlightMessages(message);
+
+                                if (DataServiceImpl.this.dataServiceOptions.isRateLimitEnabled()
+                                        && message.getPriority() >= 5) {
+                                    messagePublished = publishMessageTokenBucket(message);
+                                    sleepingTime = this.lane.throttle.getTokenWaitTime();
+                                } else {
+                                    publishMessageUnbound(message);
+                                    messagePublished = true;
+                                }
                             }
                         }
                     } catch (KuraNotConnectedException e) {
@@ -800,45 +1233,61 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             logger.debug("Exited publisher loop.");
         }
 
+        private DataMessage getNextMessage() throws KuraStoreException {
+            if (this.lane.isUnbounded()) {
+                return DataServiceImpl.this.store.getNextMessage();
+            }
+            List<DataMessage> messages = getNextMessages(1);
+            return messages.isEmpty() ? null : messages.get(0);
+        }
+
+        private List<DataMessage> getNextMessages(int count) throws KuraStoreException {
+            if (this.lane.isUnbounded()) {
+                return DataServiceImpl.this.store.getNextMessages(count);
+            }
+            return DataServiceImpl.this.store.getNextMessages(count, this.lane.minPriority, this.lane.maxPriority);
+        }
+
         private void checkInFlightMessages(DataMessage message) throws KuraTooManyInflightMessagesException {
-            if (message.getQos() > 0 && DataServiceImpl.this.inFlightMsgIds
-                    .size() >= DataServiceImpl.this.dataServiceOptions.getMaxInFlightMessages()) {
+            if (message.getQos() > 0 && this.lane
+                    .getInFlightMessages(DataServiceImpl.this.inFlightMessages) >= this.lane.maxInFlightMessages) {
                 logger.warn("The configured maximum number of in-flight messages has been reached");
                 throw new KuraTooManyInflightMessagesException("Too many in-flight messages");
             }
         }
 
         private void suspendPublisher(long timeout, TimeUnit timeUnit) {
-            if (!DataServiceImpl.this.publisherEnabled.get()) {
+            if (!this.lane.enabled.get()) {
                 return;
             }
             try {
-                DataServiceImpl.this.lock.lock();
-                if (!DataServiceImpl.this.notifyPending) {
+                this.lane.lock.lock();
+                if (!this.lane.notifyPending) {
                     if (timeout == -1) {
                         logger.debug("Suspending publishing thread indefinitely");
-                        DataServiceImpl.this.lockCondition.await();
+                        this.lane.lockCondition.await();
                     } else {
                         logger.debug("Suspending publishing thread for {} nanoseconds", timeout);
-                        DataServiceImpl.this.lockCondition.await(timeout, timeUnit);
+                        this.lane.lockCondition.await(timeout, timeUnit);
                     }
                 }
-                DataServiceImpl.this.notifyPending = false;
+                this.lane.notifyPending = false;
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             } finally {
-                DataServiceImpl.this.lock.unlock();
+                this.lane.lock.unlock();
             }
         }
 
         private void publishMessageUnbound(DataMessage message) throws KuraException {
             publishInternal(message);
             // Notify the listeners
-            DataServiceImpl.this.dataServiceListeners.onMessagePublished(message.getId(), message.getTopic());
+            DataServiceImpl.this.dataServiceListeners.onMessagePublished(getPublishedMessageId(message.getId()),
+                    message.getTopic());
         }
 
         private boolean publishMessageTokenBucket(DataMessage message) throws KuraException {
-            boolean tokenAvailable = DataServiceImpl.this.throttle.getToken();
+            boolean tokenAvailable = this.lane.throttle.getToken();
 
             if (tokenAvailable) {
                 publishMessageUnbound(message);
@@ -847,20 +1296,137 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             return false;
         }
 
-        private void handleInFlightCongestion() {
-            int timeout = DataServiceImpl.this.dataServiceOptions.getInFlightMessagesCongestionTimeout();
+        private DataMessage peekBufferedMessage(DataMessage nextStoredMessage) {
+            final MessageRingBuffer buffer = DataServiceImpl.this.messageBuffer;
+            if (buffer == null) {
+                return null;
+            }
+            // Stored messages go first within the same priority level, as they are older
+            return buffer.peek(this.lane.minPriority,
+                    nextStoredMessage == null ? this.lane.maxPriority : nextStoredMessage.getPriority() - 1);
+        }
 
-            // Do not schedule more that one task at a time
-            if (timeout != 0 && (DataServiceImpl.this.congestionFuture == null
-                    || DataServiceImpl.this.congestionFuture.isDone())) {
-                logger.warn("In-flight message congestion timeout started");
-                DataServiceImpl.this.congestionFuture = DataServiceImpl.this.congestionExecutor.schedule(() -> {
-                    Thread.currentThread().setName("DataServiceImpl:InFlightCongestion");
-                    logger.warn("In-flight message congestion timeout elapsed. Disconnecting and reconnecting again");
-                    disconnect();
-                    startConnectionMonitorTask();
-                }, timeout, TimeUnit.SECONDS);
+        private boolean publishBufferedMessageTokenBucket(DataMessage message) throws KuraException {
+            if (DataServiceImpl.this.dataServiceOptions.isRateLimitEnabled() && message.getPriority() >= 5
+                    && !this.lane.throttle.getToken()) {
+                return false;
+            }
+
+            // Remove the message before publishing it, so that it cannot be also moved to the store
+            // by a concurrent disconnection
+            if (DataServiceImpl.this.messageBuffer.remove(message)) {
+                publishBufferedMessage(message);
+            }
+            return true;
+        }
+
+        private boolean publishMessageBatch(List<DataMessage> messages) throws KuraException {
+            checkInFlightMessages(messages.get(0));
+
+            final boolean rateLimitEnabled = DataServiceImpl.this.dataServiceOptions.isRateLimitEnabled();
+            final int maxInFlightMessages = this.lane.maxInFlightMessages;
+            int inFlightMessages = this.lane.getInFlightMessages(DataServiceImpl.this.inFlightMessages);
+
+            // Publish the longest prefix of the batch allowed by the in-flight window and the throttle,
+            // so that the store ordering is preserved
+            List<DataMessage> batch = new ArrayList<>(messages.size());
+            for (DataMessage message : messages) {
+                if (message.getQos() > 0) {
+                    if (inFlightMessages >= maxInFlightMessages) {
+                        break;
+                    }
+                    inFlightMessages++;
+                }
+                if (rateLimitEnabled && message.getPriority() >= 5 && !this.lane.throttle.getToken()) {
+                    break;
+                }
+                batch.add(message);
+            }
+
+            if (batch.isEmpty()) {
+                return false;
+            }
+
+            publishBatchInternal(batch);
+
+            // Notify the listeners
+            for (DataMessage message : batch) {
+                DataServiceImpl.this.dataServiceListeners.onMessagePublished(getPublishedMessageId(message.getId()),
+                        message.getTopic());
+            }
+            return true;
+        }
+
+        private long getBatchWaitTime(int available, int batchSize) {
+            final long maxLatency = TimeUnit.MILLISECONDS
+                    .toNanos(DataServiceImpl.this.dataServiceOptions.getPublishBatchMaxLatency());
+
+            if (available >= batchSize || maxLatency <= 0) {
+                this.batchPending = false;
+                return 0;
+            }
+
+            final long now = System.nanoTime();
+            if (!this.batchPending) {
+                this.batchPending = true;
+                this.batchDeadline = now + maxLatency;
+            }
+
+            final long waitTime = this.batchDeadline - now;
+            if (waitTime <= 0) {
+                this.batchPending = false;
+                return 0;
+            }
+            return waitTime;
+        }
+    }
+
+    private static final class PublishLane {
+
+        private final int minPriority;
+        private final int maxPriority;
+        private final int maxInFlightMessages;
+        private final TokenBucket throttle;
+
+        private final AtomicBoolean enabled = new AtomicBoolean(true);
+        private final Lock lock = new ReentrantLock();
+        private final Condition lockCondition = this.lock.newCondition();
+        private boolean notifyPending;
+        private Future<?> future;
+
+        PublishLane(int minPriority, int maxPriority, int maxInFlightMessages, TokenBucket throttle) {
+            this.minPriority = minPriority;
+            this.maxPriority = maxPriority;
+            this.maxInFlightMessages = maxInFlightMessages;
+            this.throttle = throttle;
+        }
+
+        boolean contains(int priority) {
+            return priority >= this.minPriority && priority <= this.maxPriority;
+        }
+
+        boolean isUnbounded() {
+            return this.minPriority == Integer.MIN_VALUE && this.maxPriority == Integer.MAX_VALUE;
+        }
+
+        int getInFlightMessages(InFlightMessages inFlightMessages) {
+            return isUnbounded() ? inFlightMessages.size()
+                    : inFlightMessages.size(this.minPriority, this.maxPriority);
+        }
+
+        void signal() {
+            this.lock.lock();
+            this.notifyPending = true;
+            this.lockCondition.signal();
+            this.lock.unlock();
+        }
+
+        String getName() {
+            if (isUnbounded()) {
+                return "all";
             }
+            return (this.minPriority == Integer.MIN_VALUE ? "" : Integer.toString(this.minPriority)) + "-"
+                    + (this.maxPriority == Integer.MAX_VALUE ? "" : Integer.toString(this.maxPriority));
         }
     }
 
@@ -880,6 +1446,12 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         result.put("Account", this.dataTransportService.getAccountName());
         result.put("Username", this.dataTransportService.getUsername());
         result.put("Client ID", this.dataTransportService.getClientId());
+        result.put("In-flight Messages", Integer.toString(this.inFlightMessages.size()));
+        result.put("Confirmed Messages", Long.toString(this.inFlightMessages.getConfirmedCount()));
+        result.put("Average Confirm Latency (ms)",
+                Long.toString(this.inFlightMessages.getAverageConfirmLatency(TimeUnit.MILLISECONDS)));
+        result.put("Max Confirm Latency (ms)",
+                Long.toString(this.inFlightMessages.getMaxConfirmLatency(TimeUnit.MILLISECONDS)));
         return result;
     }
 }
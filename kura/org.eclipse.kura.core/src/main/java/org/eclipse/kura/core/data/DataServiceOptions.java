@@ -14,7 +14,9 @@ package org.eclipse.kura.core.data;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -26,10 +28,15 @@ public class DataServiceOptions {
     private static final String AUTOCONNECT_PROP_NAME = "connect.auto-on-startup";
     private static final String CONNECT_DELAY_PROP_NAME = "connect.retry-interval";
     private static final String DISCONNECT_DELAY_PROP_NAME = "disconnect.quiesce-timeout";
+    private static final String STORE_TYPE_PROP_NAME = "store.type";
     private static final String STORE_DB_SERVICE_INSTANCE_PROP_NAME = "store.db.service.pid";
+    private static final String STORE_SEGMENT_LOG_DIRECTORY_PROP_NAME = "store.segment-log.directory";
+    private static final String STORE_SEGMENT_LOG_SEGMENT_SIZE_PROP_NAME = "store.segment-log.segment-size";
+    private static final String STORE_SEGMENT_LOG_SYNC_INTERVAL_PROP_NAME = "store.segment-log.sync-interval";
     private static final String STORE_HOUSEKEEPER_INTERVAL_PROP_NAME = "store.housekeeper-interval";
     private static final String STORE_PURGE_AGE_PROP_NAME = "store.purge-age";
     private static final String STORE_CAPACITY_PROP_NAME = "store.capacity";
+    private static final String STORE_MEMORY_BUFFER_CAPACITY_PROP_NAME = "store.memory-buffer.capacity";
     private static final String REPUBLISH_IN_FLIGHT_MSGS_PROP_NAME = "in-flight-messages.republish-on-new-session";
     private static final String MAX_IN_FLIGHT_MSGS_PROP_NAME = "in-flight-messages.max-number";
     private static final String IN_FLIGHT_MSGS_CONGESTION_TIMEOUT_PROP_NAME = "in-flight-messages.congestion-timeout";
@@ -39,14 +46,22 @@ public class DataServiceOptions {
     private static final String RATE_LIMIT_BURST_SIZE_PROP_NAME = "rate.limit.burst.size";
     private static final String RECOVERY_ENABLE_PROP_NAME = "enable.recovery.on.connection.failure";
     private static final String RECOVERY_MAX_FAILURES_PROP_NAME = "connection.recovery.max.failures";
+    private static final String PUBLISH_BATCH_SIZE_PROP_NAME = "publish.batch-size";
+    private static final String PUBLISH_BATCH_MAX_LATENCY_PROP_NAME = "publish.batch-max-latency";
+    private static final String PUBLISH_PRIORITY_LANES_PROP_NAME = "publish.priority-lanes";
 
     private static final boolean AUTOCONNECT_PROP_DEFAULT = false;
     private static final int CONNECT_DELAY_DEFAULT = 60;
     private static final int DISCONNECT_DELAY_DEFAULT = 10;
+    private static final String STORE_TYPE_DEFAULT = StoreType.H2.name();
     private static final String DB_SERVICE_INSTANCE_DEFAULT = H2DbService.DEFAULT_INSTANCE_PID;
+    private static final String STORE_SEGMENT_LOG_DIRECTORY_DEFAULT = "";
+    private static final int STORE_SEGMENT_LOG_SEGMENT_SIZE_DEFAULT = 1048576;
+    private static final int STORE_SEGMENT_LOG_SYNC_INTERVAL_DEFAULT = 1;
     private static final int STORE_HOUSEKEEPER_INTERVAL_DEFAULT = 900;
     private static final int STORE_PURGE_AGE_DEFAULT = 60;
     private static final int STORE_CAPACITY_DEFAULT = 10000;
+    private static final int STORE_MEMORY_BUFFER_CAPACITY_DEFAULT = 0;
     private static final boolean REPUBLISH_IN_FLIGHT_MSGS_DEFAULT = true;
     private static final int MAX_IN_FLIGHT_MSGS_DEFAULT = 9;
     private static final int IN_FLIGHT_MSGS_CONGESTION_TIMEOUT_DEFAULT = 0;
@@ -56,9 +71,17 @@ public class DataServiceOptions {
     private static final int RATE_LIMIT_BURST_SIZE_DEFAULT = 1;
     private static final boolean RECOVERY_ENABLE_DEFAULT = true;
     private static final int RECOVERY_MAX_FAILURES_DEFAULT = 10;
+    private static final int PUBLISH_BATCH_SIZE_DEFAULT = 1;
+    private static final int PUBLISH_BATCH_MAX_LATENCY_DEFAULT = 0;
+    private static final String PUBLISH_PRIORITY_LANES_DEFAULT = "";
 
     private static final int CONNECT_CRITICAL_COMPONENT_TIMEOUT_MULTIPLIER = 5000;
 
+    enum StoreType {
+        H2,
+        SEGMENT_LOG
+    }
+
     private final Map<String, Object> properties;
 
     DataServiceOptions(Map<String, Object> properties) {
@@ -79,6 +102,11 @@ public class DataServiceOptions {
         return (int) this.properties.getOrDefault(STORE_CAPACITY_PROP_NAME, STORE_CAPACITY_DEFAULT);
     }
 
+    int getStoreMemoryBufferCapacity() {
+        return (int) this.properties.getOrDefault(STORE_MEMORY_BUFFER_CAPACITY_PROP_NAME,
+                STORE_MEMORY_BUFFER_CAPACITY_DEFAULT);
+    }
+
     boolean isPublishInFlightMessages() {
         return (boolean) this.properties.getOrDefault(REPUBLISH_IN_FLIGHT_MSGS_PROP_NAME,
                 REPUBLISH_IN_FLIGHT_MSGS_DEFAULT);
@@ -139,6 +167,32 @@ public class DataServiceOptions {
         return timeUnit.toNanos(1);
     }
 
+    StoreType getStoreType() {
+        return StoreType.valueOf((String) this.properties.getOrDefault(STORE_TYPE_PROP_NAME, STORE_TYPE_DEFAULT));
+    }
+
+    /**
+     * @return the configured directory of the segment log store, empty to use the default one in the Kura data
+     *         directory
+     */
+    String getStoreSegmentLogDirectory() {
+        return (String) this.properties.getOrDefault(STORE_SEGMENT_LOG_DIRECTORY_PROP_NAME,
+                STORE_SEGMENT_LOG_DIRECTORY_DEFAULT);
+    }
+
+    int getStoreSegmentLogSegmentSize() {
+        return (int) this.properties.getOrDefault(STORE_SEGMENT_LOG_SEGMENT_SIZE_PROP_NAME,
+                STORE_SEGMENT_LOG_SEGMENT_SIZE_DEFAULT);
+    }
+
+    /**
+     * @return the interval in seconds for flushing the segment log store to the storage device
+     */
+    int getStoreSegmentLogSyncInterval() {
+        return (int) this.properties.getOrDefault(STORE_SEGMENT_LOG_SYNC_INTERVAL_PROP_NAME,
+                STORE_SEGMENT_LOG_SYNC_INTERVAL_DEFAULT);
+    }
+
     String getDbServiceInstancePid() {
         return (String) this.properties.getOrDefault(STORE_DB_SERVICE_INSTANCE_PROP_NAME, DB_SERVICE_INSTANCE_DEFAULT);
     }
@@ -155,6 +209,39 @@ public class DataServiceOptions {
         return (int) this.properties.getOrDefault(RECOVERY_MAX_FAILURES_PROP_NAME, RECOVERY_MAX_FAILURES_DEFAULT);
     }
 
+    int getPublishBatchSize() {
+        return (int) this.properties.getOrDefault(PUBLISH_BATCH_SIZE_PROP_NAME, PUBLISH_BATCH_SIZE_DEFAULT);
+    }
+
+    int getPublishBatchMaxLatency() {
+        return (int) this.properties.getOrDefault(PUBLISH_BATCH_MAX_LATENCY_PROP_NAME,
+                PUBLISH_BATCH_MAX_LATENCY_DEFAULT);
+    }
+
+    /**
+     * Returns the numerically lowest priority of each publishing lane after the first one, in ascending order.
+     * An empty list means that all the messages are published by a single lane.
+     */
+    List<Integer> getPublishPriorityLanes() {
+        String lanesString = (String) this.properties.getOrDefault(PUBLISH_PRIORITY_LANES_PROP_NAME,
+                PUBLISH_PRIORITY_LANES_DEFAULT);
+
+        List<Integer> lanes = new ArrayList<>();
+        if (lanesString == null || lanesString.trim().isEmpty()) {
+            return lanes;
+        }
+
+        for (String lane : lanesString.split(",")) {
+            int minPriority = Integer.parseInt(lane.trim());
+            if (!lanes.isEmpty() && minPriority <= lanes.get(lanes.size() - 1)) {
+                throw new IllegalArgumentException("Publish priority lanes must be in ascending order");
+            }
+            lanes.add(minPriority);
+        }
+
+        return lanes;
+    }
+
     int getCriticalComponentTimeout() {
         return getConnectDelay() * CONNECT_CRITICAL_COMPONENT_TIMEOUT_MULTIPLIER;
     }
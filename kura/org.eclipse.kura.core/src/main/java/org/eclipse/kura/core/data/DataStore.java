@@ -72,6 +72,16 @@ public interface DataStore {
      */
     public void published(int msgId) throws KuraStoreException;
 
+    /**
+     * Acknowledges the publication of a batch of DataMessages in a single transaction.
+     * For each message the ID, the protocol (e.g. MQTT) message ID and the session ID are recorded;
+     * messages published with QoS = 0 carry a protocol message ID of -1 and a null session ID.
+     *
+     * @param messages
+     * @throws KuraStoreException
+     */
+    public void published(List<DataMessage> messages) throws KuraStoreException;
+
     /**
      * Acknowledges the delivery of the DataMessage published with the given
      * protocol (e.g. MQTT) message ID. This method is only called for messages
@@ -82,6 +92,15 @@ public interface DataStore {
      */
     public void confirmed(int msgId) throws KuraStoreException;
 
+    /**
+     * Acknowledges the delivery of a list of DataMessages in a single operation.
+     * This method is only called for messages published with QoS > 0.
+     *
+     * @param msgIds
+     * @throws KuraStoreException
+     */
+    public void confirmed(List<Integer> msgIds) throws KuraStoreException;
+
     /**
      * Gets the next unpublished message. Messages with higher
      * priority (0 is the highest priority) are returned first. Within each
@@ -92,6 +111,32 @@ public interface DataStore {
      */
     public DataMessage getNextMessage() throws KuraStoreException;
 
+    /**
+     * Gets up to {@code count} unpublished messages, ordered as for {@link #getNextMessage()}:
+     * higher priority first and, within each priority level, oldest first.
+     *
+     * @param count
+     *            the maximum number of messages to be returned
+     * @return the list of messages, empty if there are no unpublished messages
+     * @throws KuraStoreException
+     */
+    public List<DataMessage> getNextMessages(int count) throws KuraStoreException;
+
+    /**
+     * Gets up to {@code count} unpublished messages whose priority is between {@code minPriority} and
+     * {@code maxPriority}, both inclusive, ordered as for {@link #getNextMessage()}.
+     *
+     * @param count
+     *            the maximum number of messages to be returned
+     * @param minPriority
+     *            the numerically lowest priority of interest
+     * @param maxPriority
+     *            the numerically greatest priority of interest
+     * @return the list of messages, empty if there are no such unpublished messages
+     * @throws KuraStoreException
+     */
+    public List<DataMessage> getNextMessages(int count, int minPriority, int maxPriority) throws KuraStoreException;
+
     /**
      * Returns a message from the DataStore by its message id.
      *
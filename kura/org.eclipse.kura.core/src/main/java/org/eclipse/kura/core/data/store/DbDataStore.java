@@ -75,6 +75,8 @@ public class DbDataStore implements DataStore {
     private final String sqlStore;
     private final String sqlGetMessage;
     private final String sqlGetNextMessage;
+    private final String sqlGetNextMessages;
+    private final String sqlGetNextMessagesInRange;
     private final String sqlSetPublished;
     private final String sqlSetPublished2;
     private final String sqlSetConfirmed;
@@ -117,6 +119,13 @@ public class DbDataStore implements DataStore {
                 + this.sanitizedTableName + " AS a JOIN (SELECT id, publishedOn FROM " + this.sanitizedTableName
                 + " ORDER BY publishedOn ASC NULLS FIRST, priority ASC, createdOn ASC LIMIT 1) AS b "
                 + "WHERE a.id = b.id AND b.publishedOn IS NULL;";
+        this.sqlGetNextMessages = "SELECT id, topic, qos, retain, createdOn, publishedOn, publishedMessageId, "
+                + "confirmedOn, payload, priority, sessionId, droppedOn FROM " + this.sanitizedTableName
+                + " WHERE publishedOn IS NULL ORDER BY priority ASC, createdOn ASC LIMIT ?;";
+        this.sqlGetNextMessagesInRange = "SELECT id, topic, qos, retain, createdOn, publishedOn, publishedMessageId, "
+                + "confirmedOn, payload, priority, sessionId, droppedOn FROM " + this.sanitizedTableName
+                + " WHERE publishedOn IS NULL AND priority >= ? AND priority <= ? "
+                + "ORDER BY priority ASC, createdOn ASC LIMIT ?;";
         this.sqlSetPublished = UPDATE + this.sanitizedTableName
                 + " SET publishedOn = ?, publishedMessageId = ?, sessionId = ? WHERE id = ?;";
         this.sqlSetPublished2 = UPDATE + this.sanitizedTableName + " SET publishedOn = ? WHERE id = ?;";
@@ -372,6 +381,43 @@ public class DbDataStore implements DataStore {
         }, "Cannot get message next message");
     }
 
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int count) throws KuraStoreException {
+
+        return withConnection(c -> {
+            try (PreparedStatement stmt = c.prepareStatement(this.sqlGetNextMessages)) {
+                stmt.setInt(1, count);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    List<DataMessage> messages = new ArrayList<>();
+                    while (rs.next()) {
+                        messages.add(buildDataMessage(rs));
+                    }
+                    return messages;
+                }
+            }
+        }, "Cannot get next messages");
+    }
+
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int count, int minPriority, int maxPriority)
+            throws KuraStoreException {
+
+        return withConnection(c -> {
+            try (PreparedStatement stmt = c.prepareStatement(this.sqlGetNextMessagesInRange)) {
+                stmt.setInt(1, minPriority);
+                stmt.setInt(2, maxPriority);
+                stmt.setInt(3, count);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    List<DataMessage> messages = new ArrayList<>();
+                    while (rs.next()) {
+                        messages.add(buildDataMessage(rs));
+                    }
+                    return messages;
+                }
+            }
+        }, "Cannot get next messages");
+    }
+
     @Override
     public synchronized void published(int msgId, int publishedMsgId, String sessionId) throws KuraStoreException {
         final Timestamp now = new Timestamp(new Date().getTime());
@@ -396,11 +442,59 @@ public class DbDataStore implements DataStore {
         updateTimestamp(this.sqlSetPublished2, msgId);
     }
 
+    @Override
+    public synchronized void published(List<DataMessage> messages) throws KuraStoreException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        final Timestamp now = new Timestamp(new Date().getTime());
+
+        withConnection(c -> {
+            try (final PreparedStatement stmt = c.prepareStatement(this.sqlSetPublished)) {
+                for (DataMessage message : messages) {
+                    stmt.setTimestamp(1, now, this.utcCalendar); // timestamp
+                    stmt.setInt(2, message.getPublishedMessageId());
+                    stmt.setString(3, message.getSessionId());
+                    stmt.setInt(4, message.getId());
+                    stmt.addBatch();
+                }
+
+                stmt.executeBatch();
+                c.commit();
+                return (Void) null;
+            }
+        }, "Cannot update timestamps");
+    }
+
     @Override
     public synchronized void confirmed(int msgId) throws KuraStoreException {
         updateTimestamp(this.sqlSetConfirmed, msgId);
     }
 
+    @Override
+    public synchronized void confirmed(List<Integer> msgIds) throws KuraStoreException {
+        if (msgIds.isEmpty()) {
+            return;
+        }
+
+        final Timestamp now = new Timestamp(new Date().getTime());
+
+        withConnection(c -> {
+            try (final PreparedStatement stmt = c.prepareStatement(this.sqlSetConfirmed)) {
+                for (Integer msgId : msgIds) {
+                    stmt.setTimestamp(1, now, this.utcCalendar); // timestamp
+                    stmt.setInt(2, msgId);
+                    stmt.addBatch();
+                }
+
+                stmt.executeBatch();
+                c.commit();
+                return (Void) null;
+            }
+        }, "Cannot update timestamps");
+    }
+
     @Override
     public synchronized List<DataMessage> allUnpublishedMessagesNoPayload() throws KuraStoreException {
         // Order by priority, createdOn
@@ -0,0 +1,883 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.core.data.DataStore;
+import org.eclipse.kura.db.H2DbService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of the DataStore which appends messages to memory-mapped, fixed-size segment files.
+ * <p>
+ * Each priority level has its own log, stored in a sub-directory named after the priority. A log is a sequence
+ * of segments, each named after the sequence number of its first record. Every record starts with a fixed-size
+ * header holding the message state (published, confirmed and dropped timestamps), which is updated in place.
+ * <p>
+ * The message metadata is read from the mapped record headers: the only state kept on the heap is an index for
+ * each segment, holding the identifier and the offset of its records and the set of its unpublished records,
+ * rebuilt by scanning the segment on start.
+ * <p>
+ * Stale messages are only marked as deleted; a segment file is unmapped and removed as a whole once all of its
+ * records have been deleted.
+ * <p>
+ * The changes to the mapped segments survive a crash of the process, as they are in the page cache of the operating
+ * system. They are flushed to the storage device every sync interval, by the housekeeper task and on stop: on a power
+ * loss, the messages stored and the state changes made in the last sync interval can be lost.
+ */
+public class SegmentLogDataStore implements DataStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentLogDataStore.class);
+
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+    private static final String SESSIONS_FILE_NAME = "sessions";
+
+    private static final int LENGTH_OFFSET = 0;
+    private static final int ID_OFFSET = 4;
+    private static final int FLAGS_OFFSET = 8;
+    private static final int QOS_OFFSET = 9;
+    private static final int RETAIN_OFFSET = 10;
+    private static final int CREATED_ON_OFFSET = 12;
+    private static final int PUBLISHED_ON_OFFSET = 20;
+    private static final int PUBLISHED_MESSAGE_ID_OFFSET = 28;
+    private static final int SESSION_OFFSET = 32;
+    private static final int CONFIRMED_ON_OFFSET = 36;
+    private static final int DROPPED_ON_OFFSET = 44;
+    private static final int TOPIC_LENGTH_OFFSET = 52;
+    private static final int HEADER_SIZE = 56;
+
+    private static final byte FLAG_DELETED = 1;
+
+    public static final int DEFAULT_SYNC_INTERVAL = 1;
+
+    private final File directory;
+    private final int segmentSize;
+    private final int syncInterval;
+
+    private final TreeMap<Integer, PriorityLog> logs = new TreeMap<>();
+    private final List<String> sessions = new ArrayList<>();
+    private final Map<String, Integer> sessionIndexes = new HashMap<>();
+
+    private ScheduledExecutorService houseKeeperExecutor;
+    private ScheduledFuture<?> houseKeeperTask;
+    private ScheduledFuture<?> syncTask;
+    private int capacity;
+    private int messageCount;
+    private long nextSequence;
+    private int nextId = 1;
+    private boolean started;
+    // whether the segments have been changed since the last flush
+    private boolean dirty;
+
+    public SegmentLogDataStore(File directory, int segmentSize) {
+        this(directory, segmentSize, DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * @param syncInterval
+     *            the interval in seconds for flushing the changed segments to the storage device, at least 1
+     */
+    public SegmentLogDataStore(File directory, int segmentSize, int syncInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncInterval = Math.max(1, syncInterval);
+    }
+
+    // ----------------------------------------------------------
+    //
+    // Start/Stop
+    //
+    // ----------------------------------------------------------
+
+    /**
+     * Opens the segment logs. The provided {@link H2DbService} is not used by this implementation.
+     */
+    @Override
+    public synchronized void start(H2DbService dbService, int houseKeeperInterval, int purgeAge, int capacity)
+            throws KuraStoreException {
+        try {
+            Files.createDirectories(this.directory.toPath());
+            loadSessions();
+            loadLogs();
+        } catch (IOException e) {
+            closeLogs();
+            throw new KuraStoreException(e, "Cannot open message store in " + this.directory);
+        }
+
+        logger.info("Opened message store in {} with {} messages", this.directory, this.messageCount);
+
+        this.started = true;
+        this.houseKeeperExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.syncTask = this.houseKeeperExecutor.scheduleWithFixedDelay(this::sync, this.syncInterval,
+                this.syncInterval, TimeUnit.SECONDS);
+
+        update(houseKeeperInterval, purgeAge, capacity);
+    }
+
+    @Override
+    public synchronized void update(int houseKeeperInterval, int purgeAge, int capacity) {
+        this.capacity = capacity;
+
+        if (!this.started) {
+            return;
+        }
+
+        if (this.houseKeeperTask != null) {
+            this.houseKeeperTask.cancel(true);
+        }
+
+        // Start the Housekeeper task
+        this.houseKeeperTask = this.houseKeeperExecutor.scheduleWithFixedDelay(
+                new HouseKeeperTask(this, purgeAge, false), 1, houseKeeperInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        logger.info("Canceling the Housekeeper Task...");
+        if (this.houseKeeperExecutor != null) {
+            this.houseKeeperExecutor.shutdownNow();
+            this.houseKeeperExecutor = null;
+            this.houseKeeperTask = null;
+            this.syncTask = null;
+        }
+
+        closeLogs();
+        this.started = false;
+    }
+
+    // ----------------------------------------------------------
+    //
+    // Message APIs
+    //
+    // ----------------------------------------------------------
+
+    @Override
+    public synchronized DataMessage store(String topic, byte[] payload, int qos, boolean retain, int priority)
+            throws KuraStoreException {
+        checkStarted();
+        if (topic == null || topic.trim().length() == 0) {
+            throw new IllegalArgumentException("topic");
+        }
+
+        // Priority 0 and 1 messages bypass the capacity check, see DbDataStore
+        if (priority != 0 && priority != 1 && this.messageCount >= this.capacity) {
+            logger.error("Store capacity exceeded");
+            throw new KuraStoreCapacityReachedException("Store capacity exceeded");
+        }
+
+        final byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        final int payloadLength = payload != null ? payload.length : -1;
+        final int recordLength = HEADER_SIZE + topicBytes.length + 4 + Math.max(payloadLength, 0);
+
+        final PriorityLog log = getOrCreateLog(priority);
+        final Segment segment;
+        try {
+            segment = log.segmentFor(recordLength);
+        } catch (IOException e) {
+            throw new KuraStoreException(e, "Cannot create segment");
+        }
+
+        final int id = generateId();
+        final int offset = segment.writePosition;
+
+        final ByteBuffer buffer = segment.buffer;
+        buffer.putInt(offset + ID_OFFSET, id);
+        buffer.put(offset + FLAGS_OFFSET, (byte) 0);
+        buffer.put(offset + QOS_OFFSET, (byte) qos);
+        buffer.put(offset + RETAIN_OFFSET, (byte) (retain ? 1 : 0));
+        buffer.putLong(offset + CREATED_ON_OFFSET, System.currentTimeMillis());
+        buffer.putLong(offset + PUBLISHED_ON_OFFSET, 0);
+        buffer.putInt(offset + PUBLISHED_MESSAGE_ID_OFFSET, -1);
+        buffer.putInt(offset + SESSION_OFFSET, -1);
+        buffer.putLong(offset + CONFIRMED_ON_OFFSET, 0);
+        buffer.putLong(offset + DROPPED_ON_OFFSET, 0);
+        buffer.putInt(offset + TOPIC_LENGTH_OFFSET, topicBytes.length);
+
+        final ByteBuffer body = buffer.duplicate();
+        body.position(offset + HEADER_SIZE);
+        body.put(topicBytes);
+        body.putInt(payloadLength);
+        if (payload != null) {
+            body.put(payload);
+        }
+
+        // The length is written last, a record is only visible once it has been completely written
+        buffer.putInt(offset + LENGTH_OFFSET, recordLength);
+
+        segment.writePosition += recordLength;
+        this.nextSequence++;
+        this.dirty = true;
+
+        final int index = segment.add(id, offset);
+        segment.liveRecords++;
+        segment.unpublished.set(index);
+        this.messageCount++;
+
+        return buildDataMessage(segment, index, payload);
+    }
+
+    @Override
+    public synchronized DataMessage get(int msgId) throws KuraStoreException {
+        checkStarted();
+        final Record record = findRecord(msgId);
+        return record != null
+                ? buildDataMessage(record.segment, record.index, readPayload(record.segment, record.index))
+                : null;
+    }
+
+    @Override
+    public synchronized DataMessage getNextMessage() throws KuraStoreException {
+        final List<DataMessage> messages = getNextMessages(1);
+        return messages.isEmpty() ? null : messages.get(0);
+    }
+
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int count) throws KuraStoreException {
+        return getNextMessages(count, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int count, int minPriority, int maxPriority)
+            throws KuraStoreException {
+        checkStarted();
+        final List<DataMessage> messages = new ArrayList<>(count);
+        if (minPriority > maxPriority) {
+            return messages;
+        }
+        for (PriorityLog log : this.logs.subMap(minPriority, true, maxPriority, true).values()) {
+            for (Segment segment : log.segments) {
+                for (int i = segment.unpublished.nextSetBit(0); i >= 0; i = segment.unpublished.nextSetBit(i + 1)) {
+                    if (messages.size() >= count) {
+                        return messages;
+                    }
+                    messages.add(buildDataMessage(segment, i, readPayload(segment, i)));
+                }
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public synchronized void published(int msgId, int publishedMsgId, String sessionId) throws KuraStoreException {
+        checkStarted();
+        setPublished(msgId, publishedMsgId, sessionId, System.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized void published(int msgId) throws KuraStoreException {
+        checkStarted();
+        setPublished(msgId, -1, null, System.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized void published(List<DataMessage> messages) throws KuraStoreException {
+        checkStarted();
+        final long now = System.currentTimeMillis();
+        for (DataMessage message : messages) {
+            setPublished(message.getId(), message.getPublishedMessageId(), message.getSessionId(), now);
+        }
+    }
+
+    @Override
+    public synchronized void confirmed(int msgId) throws KuraStoreException {
+        checkStarted();
+        final Record record = findRecord(msgId);
+        if (record != null) {
+            record.segment.buffer.putLong(record.segment.offsets[record.index] + CONFIRMED_ON_OFFSET,
+                    System.currentTimeMillis());
+            this.dirty = true;
+        }
+    }
+
+    @Override
+    public synchronized void confirmed(List<Integer> msgIds) throws KuraStoreException {
+        for (Integer msgId : msgIds) {
+            confirmed(msgId.intValue());
+        }
+    }
+
+    @Override
+    public synchronized List<DataMessage> allUnpublishedMessagesNoPayload() throws KuraStoreException {
+        checkStarted();
+        final List<DataMessage> messages = new ArrayList<>();
+        for (PriorityLog log : this.logs.values()) {
+            for (Segment segment : log.segments) {
+                for (int i = segment.unpublished.nextSetBit(0); i >= 0; i = segment.unpublished.nextSetBit(i + 1)) {
+                    messages.add(buildDataMessage(segment, i, null));
+                }
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public synchronized List<DataMessage> allInFlightMessagesNoPayload() throws KuraStoreException {
+        checkStarted();
+        final List<DataMessage> messages = new ArrayList<>();
+        forEachRecord((segment, index) -> {
+            if (isInFlight(segment, index)) {
+                messages.add(buildDataMessage(segment, index, null));
+            }
+        });
+        return messages;
+    }
+
+    @Override
+    public synchronized List<DataMessage> allDroppedInFlightMessagesNoPayload() throws KuraStoreException {
+        checkStarted();
+        final List<DataMessage> messages = new ArrayList<>();
+        forEachRecord((segment, index) -> {
+            if (segment.buffer.getLong(segment.offsets[index] + DROPPED_ON_OFFSET) != 0) {
+                messages.add(buildDataMessage(segment, index, null));
+            }
+        });
+        return messages;
+    }
+
+    @Override
+    public synchronized void unpublishAllInFlighMessages() throws KuraStoreException {
+        checkStarted();
+        forEachRecord((segment, index) -> {
+            if (isInFlight(segment, index)) {
+                segment.buffer.putLong(segment.offsets[index] + PUBLISHED_ON_OFFSET, 0);
+                segment.unpublished.set(index);
+            }
+        });
+        this.dirty = true;
+    }
+
+    @Override
+    public synchronized void dropAllInFlightMessages() throws KuraStoreException {
+        checkStarted();
+        final long now = System.currentTimeMillis();
+        forEachRecord((segment, index) -> {
+            if (isInFlight(segment, index)) {
+                segment.buffer.putLong(segment.offsets[index] + DROPPED_ON_OFFSET, now);
+            }
+        });
+        this.dirty = true;
+    }
+
+    @Override
+    public synchronized void deleteStaleMessages(int purgeAge) throws KuraStoreException {
+        checkStarted();
+        final long limit = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(purgeAge);
+
+        final int count = this.messageCount;
+        forEachRecord((segment, index) -> {
+            if (isStale(segment, index, limit)) {
+                segment.buffer.put(segment.offsets[index] + FLAGS_OFFSET, FLAG_DELETED);
+                segment.unpublished.clear(index);
+                segment.liveRecords--;
+                this.messageCount--;
+            }
+        });
+
+        for (PriorityLog log : this.logs.values()) {
+            log.removeEmptySegments();
+            log.force();
+        }
+        this.dirty = false;
+
+        logger.info("Deleted {} stale messages", count - this.messageCount);
+    }
+
+    /**
+     * Flushes the mapped segments to the storage device. There is no further check to perform.
+     */
+    @Override
+    public synchronized void repair() throws KuraStoreException {
+        checkStarted();
+        for (PriorityLog log : this.logs.values()) {
+            log.force();
+        }
+        this.dirty = false;
+    }
+
+    private synchronized void sync() {
+        if (!this.started || !this.dirty) {
+            return;
+        }
+        try {
+            for (PriorityLog log : this.logs.values()) {
+                log.force();
+            }
+            this.dirty = false;
+        } catch (Exception e) {
+            logger.warn("Cannot flush the message store", e);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods
+    //
+    // ------------------------------------------------------------------
+
+    private void checkStarted() throws KuraStoreException {
+        if (!this.started) {
+            throw new KuraStoreException("Message store not started");
+        }
+    }
+
+    private static boolean isInFlight(Segment segment, int index) {
+        final ByteBuffer buffer = segment.buffer;
+        final int offset = segment.offsets[index];
+        return buffer.getLong(offset + PUBLISHED_ON_OFFSET) != 0 && buffer.get(offset + QOS_OFFSET) > 0
+                && buffer.getLong(offset + CONFIRMED_ON_OFFSET) == 0 && buffer.getLong(offset + DROPPED_ON_OFFSET) == 0;
+    }
+
+    private static boolean isStale(Segment segment, int index, long limit) {
+        final ByteBuffer buffer = segment.buffer;
+        final int offset = segment.offsets[index];
+
+        final long droppedOn = buffer.getLong(offset + DROPPED_ON_OFFSET);
+        if (droppedOn != 0) {
+            return droppedOn <= limit;
+        }
+        final long confirmedOn = buffer.getLong(offset + CONFIRMED_ON_OFFSET);
+        if (confirmedOn != 0) {
+            return confirmedOn <= limit;
+        }
+        final long publishedOn = buffer.getLong(offset + PUBLISHED_ON_OFFSET);
+        return buffer.get(offset + QOS_OFFSET) == 0 && publishedOn != 0 && publishedOn <= limit;
+    }
+
+    private void setPublished(int msgId, int publishedMsgId, String sessionId, long timestamp) {
+        final Record record = findRecord(msgId);
+        if (record == null) {
+            return;
+        }
+
+        final ByteBuffer buffer = record.segment.buffer;
+        final int offset = record.segment.offsets[record.index];
+        buffer.putLong(offset + PUBLISHED_ON_OFFSET, timestamp);
+        buffer.putInt(offset + PUBLISHED_MESSAGE_ID_OFFSET, publishedMsgId);
+        buffer.putInt(offset + SESSION_OFFSET, getSessionIndex(sessionId));
+
+        record.segment.unpublished.clear(record.index);
+        this.dirty = true;
+    }
+
+    /**
+     * Visits the records not deleted, ordered by priority and by sequence number.
+     */
+    private void forEachRecord(ObjIntConsumer<Segment> visitor) {
+        for (PriorityLog log : this.logs.values()) {
+            for (Segment segment : log.segments) {
+                for (int i = 0; i < segment.recordCount; i++) {
+                    if (!segment.isDeleted(i)) {
+                        visitor.accept(segment, i);
+                    }
+                }
+            }
+        }
+    }
+
+    private Record findRecord(int id) {
+        for (PriorityLog log : this.logs.values()) {
+            for (Segment segment : log.segments) {
+                final int index = segment.indexOf(id);
+                if (index >= 0) {
+                    return new Record(segment, index);
+                }
+            }
+        }
+        return null;
+    }
+
+    private int generateId() {
+        int id;
+        do {
+            id = this.nextId;
+            this.nextId = id == Integer.MAX_VALUE ? 1 : id + 1;
+        } while (findRecord(id) != null);
+        return id;
+    }
+
+    private PriorityLog getOrCreateLog(int priority) {
+        return this.logs.computeIfAbsent(priority,
+                p -> new PriorityLog(new File(this.directory, Integer.toString(p))));
+    }
+
+    private static byte[] readPayload(Segment segment, int index) {
+        final int offset = segment.offsets[index];
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset + HEADER_SIZE + buffer.getInt(offset + TOPIC_LENGTH_OFFSET));
+
+        final int payloadLength = buffer.getInt();
+        if (payloadLength < 0) {
+            return null;
+        }
+        final byte[] payload = new byte[payloadLength];
+        buffer.get(payload);
+        return payload;
+    }
+
+    private static String readTopic(ByteBuffer buffer, int offset) {
+        final byte[] topic = new byte[buffer.getInt(offset + TOPIC_LENGTH_OFFSET)];
+        final ByteBuffer body = buffer.duplicate();
+        body.position(offset + HEADER_SIZE);
+        body.get(topic);
+        return new String(topic, StandardCharsets.UTF_8);
+    }
+
+    private DataMessage buildDataMessage(Segment segment, int index, byte[] payload) {
+        final ByteBuffer buffer = segment.buffer;
+        final int offset = segment.offsets[index];
+        return new DataMessage.Builder(segment.ids[index]).withTopic(readTopic(buffer, offset))
+                .withQos(buffer.get(offset + QOS_OFFSET)).withRetain(buffer.get(offset + RETAIN_OFFSET) != 0)
+                .withCreatedOn(new Date(buffer.getLong(offset + CREATED_ON_OFFSET)))
+                .withPublishedOn(toDate(buffer.getLong(offset + PUBLISHED_ON_OFFSET)))
+                .withPublishedMessageId(buffer.getInt(offset + PUBLISHED_MESSAGE_ID_OFFSET))
+                .withConfirmedOn(toDate(buffer.getLong(offset + CONFIRMED_ON_OFFSET))).withPayload(payload)
+                .withPriority(segment.priority).withSessionId(getSession(buffer.getInt(offset + SESSION_OFFSET)))
+                .withDroppedOn(toDate(buffer.getLong(offset + DROPPED_ON_OFFSET))).build();
+    }
+
+    private static Date toDate(long timestamp) {
+        return timestamp != 0 ? new Date(timestamp) : null;
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods: Sessions
+    //
+    // ------------------------------------------------------------------
+
+    private int getSessionIndex(String sessionId) {
+        if (sessionId == null) {
+            return -1;
+        }
+
+        Integer index = this.sessionIndexes.get(sessionId);
+        if (index == null) {
+            try {
+                Files.write(new File(this.directory, SESSIONS_FILE_NAME).toPath(),
+                        (sessionId + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                logger.warn("Cannot persist session ID {}", sessionId, e);
+            }
+            index = this.sessions.size();
+            this.sessions.add(sessionId);
+            this.sessionIndexes.put(sessionId, index);
+        }
+        return index;
+    }
+
+    private String getSession(int index) {
+        return index >= 0 && index < this.sessions.size() ? this.sessions.get(index) : null;
+    }
+
+    private void loadSessions() throws IOException {
+        final File sessionsFile = new File(this.directory, SESSIONS_FILE_NAME);
+        if (!sessionsFile.exists()) {
+            return;
+        }
+        for (String sessionId : Files.readAllLines(sessionsFile.toPath(), StandardCharsets.UTF_8)) {
+            this.sessionIndexes.put(sessionId, this.sessions.size());
+            this.sessions.add(sessionId);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods: Segment Management
+    //
+    // ------------------------------------------------------------------
+
+    private void loadLogs() throws IOException {
+        final File[] logDirectories = this.directory.listFiles(File::isDirectory);
+        if (logDirectories == null) {
+            return;
+        }
+
+        int maxId = 0;
+        for (File logDirectory : logDirectories) {
+            final int priority;
+            try {
+                priority = Integer.parseInt(logDirectory.getName());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring unexpected directory {}", logDirectory);
+                continue;
+            }
+
+            final PriorityLog log = getOrCreateLog(priority);
+            final File[] segmentFiles = logDirectory.listFiles((dir, name) -> name.endsWith(SEGMENT_FILE_SUFFIX));
+            if (segmentFiles == null) {
+                continue;
+            }
+            Arrays.sort(segmentFiles, Comparator.comparing(File::getName));
+
+            for (File segmentFile : segmentFiles) {
+                final String name = segmentFile.getName();
+                final long baseSequence = Long
+                        .parseLong(name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length()));
+                final Segment segment = new Segment(segmentFile, priority, baseSequence, (int) segmentFile.length());
+                log.segments.add(segment);
+                maxId = Math.max(maxId, loadSegment(segment));
+            }
+            log.removeEmptySegments();
+        }
+
+        this.nextId = maxId == Integer.MAX_VALUE ? 1 : maxId + 1;
+    }
+
+    private int loadSegment(Segment segment) {
+        final ByteBuffer buffer = segment.buffer;
+        long sequence = segment.baseSequence;
+        int maxId = 0;
+        int position = 0;
+
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            final int length = buffer.getInt(position + LENGTH_OFFSET);
+            if (length < HEADER_SIZE || position + length > buffer.capacity()) {
+                break;
+            }
+
+            final int id = buffer.getInt(position + ID_OFFSET);
+            final int index = segment.add(id, position);
+            if (buffer.get(position + FLAGS_OFFSET) != FLAG_DELETED) {
+                if (buffer.getLong(position + PUBLISHED_ON_OFFSET) == 0) {
+                    segment.unpublished.set(index);
+                }
+                segment.liveRecords++;
+                this.messageCount++;
+                maxId = Math.max(maxId, id);
+            }
+
+            sequence++;
+            position += length;
+        }
+
+        segment.writePosition = position;
+        this.nextSequence = Math.max(this.nextSequence, sequence);
+        return maxId;
+    }
+
+    private void closeLogs() {
+        for (PriorityLog log : this.logs.values()) {
+            log.close();
+        }
+        this.logs.clear();
+        this.messageCount = 0;
+        this.sessions.clear();
+        this.sessionIndexes.clear();
+    }
+
+    /**
+     * Releases the mapping of a segment without waiting for the buffer to be garbage collected, so that the address
+     * space and, for a deleted file, the disk blocks are released immediately. The buffer must not be accessed
+     * afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            // Java 9 and later
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe", false, null);
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (NoSuchMethodException e) {
+            unmapWithCleaner(buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Cannot unmap segment, it will be unmapped when garbage collected", e);
+        }
+    }
+
+    private static void unmapWithCleaner(MappedByteBuffer buffer) {
+        try {
+            final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Cannot unmap segment, it will be unmapped when garbage collected", e);
+        }
+    }
+
+    private final class PriorityLog {
+
+        private final int priority;
+        private final File directory;
+        private final List<Segment> segments = new ArrayList<>();
+
+        PriorityLog(File directory) {
+            this.priority = Integer.parseInt(directory.getName());
+            this.directory = directory;
+        }
+
+        Segment segmentFor(int recordLength) throws IOException {
+            if (!this.segments.isEmpty()) {
+                final Segment active = this.segments.get(this.segments.size() - 1);
+                // leave room for the zeroed length that terminates the segment
+                if (active.writePosition + recordLength + 4 <= active.buffer.capacity()) {
+                    return active;
+                }
+            }
+
+            Files.createDirectories(this.directory.toPath());
+            final long baseSequence = SegmentLogDataStore.this.nextSequence;
+            final File file = new File(this.directory, String.format("%019d", baseSequence) + SEGMENT_FILE_SUFFIX);
+            final Segment segment = new Segment(file, this.priority, baseSequence,
+                    Math.max(SegmentLogDataStore.this.segmentSize, recordLength + 4));
+            this.segments.add(segment);
+
+            logger.debug("Created segment {}", file);
+            return segment;
+        }
+
+        void removeEmptySegments() {
+            final Iterator<Segment> iterator = this.segments.iterator();
+            while (iterator.hasNext()) {
+                final Segment segment = iterator.next();
+                if (segment.liveRecords == 0) {
+                    iterator.remove();
+                    unmap(segment.buffer);
+                    if (!segment.file.delete()) {
+                        logger.warn("Cannot delete segment {}", segment.file);
+                    }
+                }
+            }
+        }
+
+        void force() {
+            for (Segment segment : this.segments) {
+                segment.buffer.force();
+            }
+        }
+
+        void close() {
+            for (Segment segment : this.segments) {
+                segment.buffer.force();
+                unmap(segment.buffer);
+            }
+            this.segments.clear();
+        }
+    }
+
+    /**
+     * A mapped segment file and the index of its records: their identifiers and offsets, ordered by sequence
+     * number, including the deleted ones, and the set of the unpublished ones.
+     */
+    private static final class Segment {
+
+        private static final int INITIAL_INDEX_CAPACITY = 64;
+
+        private final File file;
+        private final int priority;
+        private final long baseSequence;
+        private final MappedByteBuffer buffer;
+        private final BitSet unpublished = new BitSet();
+        private int[] ids = new int[INITIAL_INDEX_CAPACITY];
+        private int[] offsets = new int[INITIAL_INDEX_CAPACITY];
+        private int recordCount;
+        private boolean idsAscending = true;
+        private int writePosition;
+        private int liveRecords;
+
+        Segment(File file, int priority, long baseSequence, int size) throws IOException {
+            this.file = file;
+            this.priority = priority;
+            this.baseSequence = baseSequence;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                    FileChannel channel = raf.getChannel()) {
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        int add(int id, int offset) {
+            if (this.recordCount == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.recordCount * 2);
+                this.offsets = Arrays.copyOf(this.offsets, this.recordCount * 2);
+            }
+            // The identifiers only decrease when they wrap around
+            if (this.recordCount > 0 && id <= this.ids[this.recordCount - 1]) {
+                this.idsAscending = false;
+            }
+            this.ids[this.recordCount] = id;
+            this.offsets[this.recordCount] = offset;
+            return this.recordCount++;
+        }
+
+        boolean isDeleted(int index) {
+            return this.buffer.get(this.offsets[index] + FLAGS_OFFSET) == FLAG_DELETED;
+        }
+
+        /**
+         * @return the index of the record not deleted with the provided identifier, or -1 if not found
+         */
+        int indexOf(int id) {
+            if (this.liveRecords == 0) {
+                return -1;
+            }
+            if (this.idsAscending) {
+                if (id < this.ids[0] || id > this.ids[this.recordCount - 1]) {
+                    return -1;
+                }
+                final int index = Arrays.binarySearch(this.ids, 0, this.recordCount, id);
+                return index >= 0 && !isDeleted(index) ? index : -1;
+            }
+            for (int i = 0; i < this.recordCount; i++) {
+                if (this.ids[i] == id && !isDeleted(i)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Record {
+
+        private final Segment segment;
+        private final int index;
+
+        Record(Segment segment, int index) {
+            this.segment = segment;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.internal.data;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.kura.data.DataTransportToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the messages published with QoS > 0 that are waiting for a confirmation, without locking.
+ * <p>
+ * The publisher registers a message with {@link #track(DataTransportToken, int, String, int)} after the transport has
+ * returned its token, while confirmations are reported by the transport callback thread through
+ * {@link #confirm(DataTransportToken)}. A confirmation can therefore arrive before the corresponding message is
+ * tracked: in that case it is recorded as unmatched and it is consumed by the following
+ * {@link #track(DataTransportToken, int, String, int)} call for the same token. Whichever thread removes the message
+ * from the tracking map owns its confirmation, so that every message is confirmed exactly once.
+ * <p>
+ * Messages and unmatched confirmations are keyed by {@link DataTransportToken}, that is by session identifier and
+ * MQTT message identifier. As the transport reuses the MQTT message identifiers, unmatched confirmations are
+ * discarded by {@link #clearUnmatchedConfirmations()} when a connection is established, and the ones that are not
+ * claimed within {@link #UNMATCHED_CONFIRMATION_TIMEOUT_NANOS} are discarded, as they are not related to a message
+ * being published.
+ */
+public class InFlightMessages {
+
+    private static final Logger logger = LoggerFactory.getLogger(InFlightMessages.class);
+
+    private static final long UNMATCHED_CONFIRMATION_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final ConcurrentHashMap<DataTransportToken, InFlightMessage> messages = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<DataTransportToken, Long> unmatchedConfirmations = new ConcurrentHashMap<>();
+
+    private final LongAdder confirmedCount = new LongAdder();
+    private final LongAdder totalConfirmLatency = new LongAdder();
+    private final AtomicLong maxConfirmLatency = new AtomicLong();
+
+    /**
+     * Tracks a message restored from the store, for which no confirmation latency is available.
+     */
+    public void restore(DataTransportToken token, int msgId, String topic, int priority) {
+        this.messages.put(token, new InFlightMessage(msgId, topic, priority, 0, true));
+    }
+
+    /**
+     * Tracks a message that has just been published.
+     *
+     * @return the message if its confirmation has already been received, null otherwise
+     */
+    public InFlightMessage track(DataTransportToken token, int msgId, String topic, int priority) {
+        final InFlightMessage message = new InFlightMessage(msgId, topic, priority, System.nanoTime(), false);
+        final InFlightMessage previous = this.messages.put(token, message);
+        if (previous != null) {
+            logger.error("Token already tracked: {} - {}", token.getSessionId(), token.getMessageId());
+        }
+
+        final Long confirmedOn = this.unmatchedConfirmations.remove(token);
+        if (confirmedOn != null && System.nanoTime() - confirmedOn < UNMATCHED_CONFIRMATION_TIMEOUT_NANOS
+                && this.messages.remove(token, message)) {
+            recordConfirmation(message);
+            return message;
+        }
+        return null;
+    }
+
+    /**
+     * Confirms the message published with the given token.
+     *
+     * @return the confirmed message, or null if no message is tracked for the token
+     */
+    public InFlightMessage confirm(DataTransportToken token) {
+        InFlightMessage message = this.messages.remove(token);
+
+        if (message == null) {
+            purgeUnmatchedConfirmations();
+            this.unmatchedConfirmations.put(token, System.nanoTime());
+
+            // The message might have been tracked in the meantime
+            message = this.messages.remove(token);
+            if (message == null) {
+                return null;
+            }
+            this.unmatchedConfirmations.remove(token);
+        }
+
+        recordConfirmation(message);
+        return message;
+    }
+
+    public int size() {
+        return this.messages.size();
+    }
+
+    /**
+     * Returns the number of tracked messages whose priority is between the given bounds, both inclusive.
+     */
+    public int size(int minPriority, int maxPriority) {
+        int count = 0;
+        for (InFlightMessage message : this.messages.values()) {
+            if (message.priority >= minPriority && message.priority <= maxPriority) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void clear() {
+        this.messages.clear();
+        this.unmatchedConfirmations.clear();
+    }
+
+    /**
+     * Discards the confirmations received before their message was tracked, so that they cannot be matched with a
+     * message published later with a reused MQTT message identifier.
+     */
+    public void clearUnmatchedConfirmations() {
+        this.unmatchedConfirmations.clear();
+    }
+
+    public long getConfirmedCount() {
+        return this.confirmedCount.sum();
+    }
+
+    public long getAverageConfirmLatency(TimeUnit timeUnit) {
+        final long count = this.confirmedCount.sum();
+        return count == 0 ? 0 : timeUnit.convert(this.totalConfirmLatency.sum() / count, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxConfirmLatency(TimeUnit timeUnit) {
+        return timeUnit.convert(this.maxConfirmLatency.get(), TimeUnit.NANOSECONDS);
+    }
+
+    private void recordConfirmation(InFlightMessage message) {
+        if (message.restored) {
+            return;
+        }
+
+        final long latency = System.nanoTime() - message.publishedOn;
+        this.confirmedCount.increment();
+        this.totalConfirmLatency.add(latency);
+        this.maxConfirmLatency.accumulateAndGet(latency, Math::max);
+    }
+
+    private void purgeUnmatchedConfirmations() {
+        final long now = System.nanoTime();
+        this.unmatchedConfirmations.values().removeIf(t -> now - t >= UNMATCHED_CONFIRMATION_TIMEOUT_NANOS);
+    }
+
+    public static final class InFlightMessage {
+
+        private final int id;
+        private final String topic;
+        private final int priority;
+        private final long publishedOn;
+        private final boolean restored;
+
+        private InFlightMessage(int id, String topic, int priority, long publishedOn, boolean restored) {
+            this.id = id;
+            this.topic = topic;
+            this.priority = priority;
+            this.publishedOn = publishedOn;
+            this.restored = restored;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public String getTopic() {
+            return this.topic;
+        }
+
+        public int getPriority() {
+            return this.priority;
+        }
+    }
+}
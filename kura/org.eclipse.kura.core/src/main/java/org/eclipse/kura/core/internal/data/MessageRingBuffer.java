@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.internal.data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.kura.core.data.DataMessage;
+
+/**
+ * A bounded in-memory message store with one FIFO ring buffer for each priority level.
+ * Messages are returned ordered by priority (0 being the highest priority) and, within
+ * each priority level, by insertion order.
+ * <p>
+ * Identifiers of buffered messages are negative, so that they never clash with the
+ * identifiers generated by the persistent store.
+ */
+public class MessageRingBuffer {
+
+    private final TreeMap<Integer, Lane> lanes = new TreeMap<>();
+    private final int laneCapacity;
+    private int nextId;
+    private int size;
+
+    public MessageRingBuffer(int laneCapacity) {
+        this(laneCapacity, -1);
+    }
+
+    /**
+     * Creates a buffer whose identifiers continue the sequence of a previous buffer.
+     *
+     * @param nextId
+     *            the identifier of the first buffered message, see {@link #getNextId()}
+     */
+    public MessageRingBuffer(int laneCapacity, int nextId) {
+        this.laneCapacity = laneCapacity;
+        this.nextId = nextId < 0 ? nextId : -1;
+    }
+
+    public int getLaneCapacity() {
+        return this.laneCapacity;
+    }
+
+    /**
+     * Returns the identifier that will be assigned to the next buffered message.
+     */
+    public synchronized int getNextId() {
+        return this.nextId;
+    }
+
+    /**
+     * Appends a message to the lane of the given priority.
+     *
+     * @return the buffered message, or null if the lane is full
+     */
+    public synchronized DataMessage offer(String topic, byte[] payload, int qos, boolean retain, int priority) {
+        final Lane lane = this.lanes.computeIfAbsent(priority, p -> new Lane(this.laneCapacity));
+        if (lane.isFull()) {
+            return null;
+        }
+
+        final DataMessage message = new DataMessage.Builder(generateId()).withTopic(topic).withPayload(payload)
+                .withQos(qos).withRetain(retain).withPriority(priority).withCreatedOn(new Date()).build();
+        lane.add(message);
+        this.size++;
+        return message;
+    }
+
+    /**
+     * Returns, without removing it, the oldest message with the highest priority, provided that
+     * its priority is not lower than the given one.
+     *
+     * @param maxPriority
+     *            the numerically greatest priority of interest
+     * @return the message or null if no such message exists
+     */
+    public synchronized DataMessage peek(int maxPriority) {
+        return peek(Integer.MIN_VALUE, maxPriority);
+    }
+
+    /**
+     * Returns, without removing it, the oldest message with the highest priority among the
+     * messages whose priority is between the given bounds, both inclusive.
+     *
+     * @param minPriority
+     *            the numerically lowest priority of interest
+     * @param maxPriority
+     *            the numerically greatest priority of interest
+     * @return the message or null if no such message exists
+     */
+    public synchronized DataMessage peek(int minPriority, int maxPriority) {
+        if (minPriority > maxPriority) {
+            return null;
+        }
+        for (Entry<Integer, Lane> entry : this.lanes.subMap(minPriority, true, maxPriority, true).entrySet()) {
+            final DataMessage message = entry.getValue().peek();
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given message if it is at the head of its lane.
+     */
+    public synchronized boolean remove(DataMessage message) {
+        final Lane lane = this.lanes.get(message.getPriority());
+        if (lane == null || lane.peek() != message) {
+            return false;
+        }
+        lane.poll();
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Removes all the buffered messages, ordered by priority.
+     */
+    public synchronized List<DataMessage> drain() {
+        final List<DataMessage> result = new ArrayList<>(this.size);
+        for (Lane lane : this.lanes.values()) {
+            DataMessage message;
+            while ((message = lane.poll()) != null) {
+                result.add(message);
+            }
+        }
+        this.size = 0;
+        return result;
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    private int generateId() {
+        final int id = this.nextId;
+        this.nextId = id == Integer.MIN_VALUE ? -1 : id - 1;
+        return id;
+    }
+
+    private static final class Lane {
+
+        private final DataMessage[] messages;
+        private int head;
+        private int count;
+
+        Lane(int capacity) {
+            this.messages = new DataMessage[capacity];
+        }
+
+        boolean isFull() {
+            return this.count == this.messages.length;
+        }
+
+        void add(DataMessage message) {
+            this.messages[(this.head + this.count) % this.messages.length] = message;
+            this.count++;
+        }
+
+        DataMessage peek() {
+            return this.count == 0 ? null : this.messages[this.head];
+        }
+
+        DataMessage poll() {
+            if (this.count == 0) {
+                return null;
+            }
+            final DataMessage message = this.messages[this.head];
+            this.messages[this.head] = null;
+            this.head = (this.head + 1) % this.messages.length;
+            this.count--;
+            return message;
+        }
+    }
+}
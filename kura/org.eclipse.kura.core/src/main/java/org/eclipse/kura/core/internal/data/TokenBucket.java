@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -12,6 +12,9 @@
  *******************************************************************************/
 package org.eclipse.kura.core.internal.data;
 
+/**
+ * A token bucket rate limiter, shared by the threads publishing the messages.
+ */
 public class TokenBucket {
 
     private final int capacity;
@@ -26,7 +29,7 @@ public class TokenBucket {
         this.lastRefillTime = System.nanoTime();
     }
 
-    public boolean getToken() {
+    public synchronized boolean getToken() {
         boolean result = false;
         refill();
         if (isTokenAvailable()) {
@@ -50,7 +53,7 @@ public class TokenBucket {
         }
     }
 
-    public long getTokenWaitTime() {
+    public synchronized long getTokenWaitTime() {
         long now = System.nanoTime();
         long timeToRefill = this.lastRefillTime + this.refillPeriod - now;
         return Math.max(0, timeToRefill);
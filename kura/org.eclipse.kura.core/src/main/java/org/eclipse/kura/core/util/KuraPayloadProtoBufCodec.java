@@ -0,0 +1,594 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.util;
+
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_FIXED32;
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_FIXED64;
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_LENGTH_DELIMITED;
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_VARINT;
+import static org.eclipse.kura.core.util.ProtoBufWriter.computeLengthDelimitedSize;
+import static org.eclipse.kura.core.util.ProtoBufWriter.computeTagSize;
+import static org.eclipse.kura.core.util.ProtoBufWriter.computeVarint32Size;
+import static org.eclipse.kura.core.util.ProtoBufWriter.computeVarint64Size;
+import static org.eclipse.kura.core.util.ProtoBufWriter.makeTag;
+import static org.eclipse.kura.core.util.ProtoBufWriter.utf8Length;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.kura.KuraInvalidMessageException;
+import org.eclipse.kura.KuraInvalidMetricTypeException;
+import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.message.KuraPosition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Encodes and decodes a {@link KuraPayload} in the Kura protocol buffers format, defined by
+ * {@code kurapayload.proto}, without building the intermediate generated message objects.
+ * <p>
+ * Encoding writes the payload straight to a per thread buffer that is reused across messages, so that the only
+ * allocation is the returned array. Decoding reads the timestamp, position and body immediately and materializes the
+ * metrics only when they are first accessed.
+ */
+public final class KuraPayloadProtoBufCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(KuraPayloadProtoBufCodec.class);
+
+    // KuraPayload fields
+    private static final int PAYLOAD_TIMESTAMP = 1;
+    private static final int PAYLOAD_POSITION = 2;
+    private static final int PAYLOAD_METRIC = 5000;
+    private static final int PAYLOAD_BODY = 5001;
+
+    // KuraMetric fields
+    private static final int METRIC_NAME = 1;
+    private static final int METRIC_TYPE = 2;
+    private static final int METRIC_DOUBLE_VALUE = 3;
+    private static final int METRIC_FLOAT_VALUE = 4;
+    private static final int METRIC_LONG_VALUE = 5;
+    private static final int METRIC_INT_VALUE = 6;
+    private static final int METRIC_BOOL_VALUE = 7;
+    private static final int METRIC_STRING_VALUE = 8;
+    private static final int METRIC_BYTES_VALUE = 9;
+
+    // KuraMetric.ValueType values
+    private static final int TYPE_DOUBLE = 0;
+    private static final int TYPE_FLOAT = 1;
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_INT32 = 3;
+    private static final int TYPE_BOOL = 4;
+    private static final int TYPE_STRING = 5;
+    private static final int TYPE_BYTES = 6;
+
+    // KuraPosition fields
+    private static final int POSITION_LATITUDE = 1;
+    private static final int POSITION_LONGITUDE = 2;
+    private static final int POSITION_ALTITUDE = 3;
+    private static final int POSITION_PRECISION = 4;
+    private static final int POSITION_HEADING = 5;
+    private static final int POSITION_SPEED = 6;
+    private static final int POSITION_TIMESTAMP = 7;
+    private static final int POSITION_SATELLITES = 8;
+    private static final int POSITION_STATUS = 9;
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<ProtoBufWriter> encodeBuffer = ThreadLocal
+            .withInitial(() -> new ProtoBufWriter(INITIAL_BUFFER_SIZE, MAX_RETAINED_BUFFER_SIZE));
+    private static final ThreadLocal<ProtoBufWriter> compressBuffer = ThreadLocal
+            .withInitial(() -> new ProtoBufWriter(INITIAL_BUFFER_SIZE, MAX_RETAINED_BUFFER_SIZE));
+
+    private KuraPayloadProtoBufCodec() {
+    }
+
+    /**
+     * Encodes the payload in the protocol buffers format.
+     *
+     * @throws RuntimeException
+     *             if a metric value has an unsupported type
+     */
+    public static byte[] encode(final KuraPayload payload) {
+        final ProtoBufWriter writer = encodeBuffer.get();
+        try {
+            write(payload, writer);
+            return writer.toByteArray();
+        } finally {
+            writer.reset();
+        }
+    }
+
+    /**
+     * Encodes the payload in the protocol buffers format and, if requested, compresses it with gzip. The compressed
+     * data is returned only if shorter than the uncompressed one.
+     */
+    public static byte[] encode(final KuraPayload payload, final boolean compress) throws IOException {
+        if (!compress) {
+            return encode(payload);
+        }
+
+        final ProtoBufWriter writer = encodeBuffer.get();
+        final ProtoBufWriter compressed = compressBuffer.get();
+        try {
+            write(payload, writer);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                writer.writeTo(gzip);
+            }
+            return compressed.size() < writer.size() ? compressed.toByteArray() : writer.toByteArray();
+        } finally {
+            writer.reset();
+            compressed.reset();
+        }
+    }
+
+    /**
+     * Encodes the payload in the protocol buffers format to the given stream.
+     */
+    public static void encode(final KuraPayload payload, final OutputStream out) throws IOException {
+        final ProtoBufWriter writer = encodeBuffer.get();
+        try {
+            write(payload, writer);
+            writer.writeTo(out);
+        } finally {
+            writer.reset();
+        }
+    }
+
+    /**
+     * Decodes a payload in the protocol buffers format. The returned payload keeps a copy of the encoded metrics until
+     * they are accessed, so the given array can be reused by the caller.
+     *
+     * @throws KuraInvalidMessageException
+     *             if the data is not a valid payload
+     */
+    public static KuraPayload decode(final byte[] bytes) {
+        try {
+            return new LazyKuraPayload(bytes);
+        } catch (IOException e) {
+            throw new KuraInvalidMessageException(e);
+        }
+    }
+
+    //
+    // Encoding
+    //
+    private static void write(final KuraPayload payload, final ProtoBufWriter writer) {
+        if (payload.getTimestamp() != null) {
+            writer.writeTag(PAYLOAD_TIMESTAMP, WIRETYPE_VARINT);
+            writer.writeVarint64(payload.getTimestamp().getTime());
+        }
+
+        final KuraPosition position = payload.getPosition();
+        if (position != null) {
+            writer.writeTag(PAYLOAD_POSITION, WIRETYPE_LENGTH_DELIMITED);
+            writer.writeVarint32(computePositionSize(position));
+            writePosition(position, writer);
+        }
+
+        for (final Map.Entry<String, Object> entry : payload.metrics().entrySet()) {
+            final String name = entry.getKey();
+            final Object value = entry.getValue();
+
+            if (value == null) {
+                logger.warn("Received a metric with a null value!");
+                continue;
+            }
+
+            final int type = getMetricType(name, value);
+            writer.writeTag(PAYLOAD_METRIC, WIRETYPE_LENGTH_DELIMITED);
+            writer.writeVarint32(computeMetricSize(name, type, value));
+            writeMetric(name, type, value, writer);
+        }
+
+        if (payload.getBody() != null) {
+            writer.writeTag(PAYLOAD_BODY, WIRETYPE_LENGTH_DELIMITED);
+            writer.writeBytes(payload.getBody());
+        }
+    }
+
+    private static int getMetricType(final String name, final Object value) {
+        if (value instanceof String) {
+            return TYPE_STRING;
+        } else if (value instanceof Double) {
+            return TYPE_DOUBLE;
+        } else if (value instanceof Integer) {
+            return TYPE_INT32;
+        } else if (value instanceof Float) {
+            return TYPE_FLOAT;
+        } else if (value instanceof Long) {
+            return TYPE_INT64;
+        } else if (value instanceof Boolean) {
+            return TYPE_BOOL;
+        } else if (value instanceof byte[]) {
+            return TYPE_BYTES;
+        }
+
+        logger.error("During serialization, ignoring metric named: {}. Unrecognized value type: {}.", name,
+                value.getClass().getName());
+        throw new RuntimeException(new KuraInvalidMetricTypeException(value.getClass().getName()));
+    }
+
+    private static int computeMetricSize(final String name, final int type, final Object value) {
+        int size = computeTagSize(METRIC_NAME) + computeLengthDelimitedSize(utf8Length(name));
+        size += computeTagSize(METRIC_TYPE) + computeVarint32Size(type);
+
+        switch (type) {
+        case TYPE_DOUBLE:
+            return size + computeTagSize(METRIC_DOUBLE_VALUE) + 8;
+        case TYPE_FLOAT:
+            return size + computeTagSize(METRIC_FLOAT_VALUE) + 4;
+        case TYPE_INT64:
+            return size + computeTagSize(METRIC_LONG_VALUE) + computeVarint64Size((Long) value);
+        case TYPE_INT32:
+            return size + computeTagSize(METRIC_INT_VALUE) + computeVarint32Size((Integer) value);
+        case TYPE_BOOL:
+            return size + computeTagSize(METRIC_BOOL_VALUE) + 1;
+        case TYPE_STRING:
+            return size + computeTagSize(METRIC_STRING_VALUE)
+                    + computeLengthDelimitedSize(utf8Length((String) value));
+        default:
+            return size + computeTagSize(METRIC_BYTES_VALUE) + computeLengthDelimitedSize(((byte[]) value).length);
+        }
+    }
+
+    private static void writeMetric(final String name, final int type, final Object value,
+            final ProtoBufWriter writer) {
+        writer.writeTag(METRIC_NAME, WIRETYPE_LENGTH_DELIMITED);
+        writer.writeString(name);
+        writer.writeTag(METRIC_TYPE, WIRETYPE_VARINT);
+        writer.writeVarint32(type);
+
+        switch (type) {
+        case TYPE_DOUBLE:
+            writer.writeTag(METRIC_DOUBLE_VALUE, WIRETYPE_FIXED64);
+            writer.writeDouble((Double) value);
+            break;
+        case TYPE_FLOAT:
+            writer.writeTag(METRIC_FLOAT_VALUE, WIRETYPE_FIXED32);
+            writer.writeFloat((Float) value);
+            break;
+        case TYPE_INT64:
+            writer.writeTag(METRIC_LONG_VALUE, WIRETYPE_VARINT);
+            writer.writeVarint64((Long) value);
+            break;
+        case TYPE_INT32:
+            writer.writeTag(METRIC_INT_VALUE, WIRETYPE_VARINT);
+            writer.writeVarint32((Integer) value);
+            break;
+        case TYPE_BOOL:
+            writer.writeTag(METRIC_BOOL_VALUE, WIRETYPE_VARINT);
+            writer.writeBool((Boolean) value);
+            break;
+        case TYPE_STRING:
+            writer.writeTag(METRIC_STRING_VALUE, WIRETYPE_LENGTH_DELIMITED);
+            writer.writeString((String) value);
+            break;
+        default:
+            writer.writeTag(METRIC_BYTES_VALUE, WIRETYPE_LENGTH_DELIMITED);
+            writer.writeBytes((byte[]) value);
+            break;
+        }
+    }
+
+    private static int computePositionSize(final KuraPosition position) {
+        if (position.getLatitude() == null || position.getLongitude() == null) {
+            throw new IllegalArgumentException("Position latitude and longitude are required");
+        }
+
+        int size = 2 * (computeTagSize(POSITION_LATITUDE) + 8);
+        size += position.getAltitude() != null ? computeTagSize(POSITION_ALTITUDE) + 8 : 0;
+        size += position.getPrecision() != null ? computeTagSize(POSITION_PRECISION) + 8 : 0;
+        size += position.getHeading() != null ? computeTagSize(POSITION_HEADING) + 8 : 0;
+        size += position.getSpeed() != null ? computeTagSize(POSITION_SPEED) + 8 : 0;
+        if (position.getTimestamp() != null) {
+            size += computeTagSize(POSITION_TIMESTAMP) + computeVarint64Size(position.getTimestamp().getTime());
+        }
+        if (position.getSatellites() != null) {
+            size += computeTagSize(POSITION_SATELLITES) + computeVarint32Size(position.getSatellites());
+        }
+        if (position.getStatus() != null) {
+            size += computeTagSize(POSITION_STATUS) + computeVarint32Size(position.getStatus());
+        }
+        return size;
+    }
+
+    private static void writePosition(final KuraPosition position, final ProtoBufWriter writer) {
+        writeDouble(POSITION_LATITUDE, position.getLatitude(), writer);
+        writeDouble(POSITION_LONGITUDE, position.getLongitude(), writer);
+        writeDouble(POSITION_ALTITUDE, position.getAltitude(), writer);
+        writeDouble(POSITION_PRECISION, position.getPrecision(), writer);
+        writeDouble(POSITION_HEADING, position.getHeading(), writer);
+        writeDouble(POSITION_SPEED, position.getSpeed(), writer);
+        if (position.getTimestamp() != null) {
+            writer.writeTag(POSITION_TIMESTAMP, WIRETYPE_VARINT);
+            writer.writeVarint64(position.getTimestamp().getTime());
+        }
+        if (position.getSatellites() != null) {
+            writer.writeTag(POSITION_SATELLITES, WIRETYPE_VARINT);
+            writer.writeVarint32(position.getSatellites());
+        }
+        if (position.getStatus() != null) {
+            writer.writeTag(POSITION_STATUS, WIRETYPE_VARINT);
+            writer.writeVarint32(position.getStatus());
+        }
+    }
+
+    private static void writeDouble(final int fieldNumber, final Double value, final ProtoBufWriter writer) {
+        if (value != null) {
+            writer.writeTag(fieldNumber, WIRETYPE_FIXED64);
+            writer.writeDouble(value);
+        }
+    }
+
+    //
+    // Decoding
+    //
+    private static KuraPosition readPosition(final ProtoBufReader reader) throws IOException {
+        final KuraPosition position = new KuraPosition();
+
+        while (reader.hasRemaining()) {
+            final int tag = reader.readTag();
+            if (tag == makeTag(POSITION_LATITUDE, WIRETYPE_FIXED64)) {
+                position.setLatitude(reader.readDouble());
+            } else if (tag == makeTag(POSITION_LONGITUDE, WIRETYPE_FIXED64)) {
+                position.setLongitude(reader.readDouble());
+            } else if (tag == makeTag(POSITION_ALTITUDE, WIRETYPE_FIXED64)) {
+                position.setAltitude(reader.readDouble());
+            } else if (tag == makeTag(POSITION_PRECISION, WIRETYPE_FIXED64)) {
+                position.setPrecision(reader.readDouble());
+            } else if (tag == makeTag(POSITION_HEADING, WIRETYPE_FIXED64)) {
+                position.setHeading(reader.readDouble());
+            } else if (tag == makeTag(POSITION_SPEED, WIRETYPE_FIXED64)) {
+                position.setSpeed(reader.readDouble());
+            } else if (tag == makeTag(POSITION_TIMESTAMP, WIRETYPE_VARINT)) {
+                position.setTimestamp(new Date(reader.readVarint64()));
+            } else if (tag == makeTag(POSITION_SATELLITES, WIRETYPE_VARINT)) {
+                position.setSatellites(reader.readVarint32());
+            } else if (tag == makeTag(POSITION_STATUS, WIRETYPE_VARINT)) {
+                position.setStatus(reader.readVarint32());
+            } else {
+                reader.skipField(tag);
+            }
+        }
+
+        if (position.getLatitude() == null || position.getLongitude() == null) {
+            throw new IOException("Missing position latitude or longitude");
+        }
+        return position;
+    }
+
+    /**
+     * Checks that a metric is well formed, without decoding its name and value.
+     */
+    private static void validateMetric(final ProtoBufReader reader) throws IOException {
+        boolean hasName = false;
+        boolean hasType = false;
+
+        while (reader.hasRemaining()) {
+            final int tag = reader.readTag();
+            if (tag == makeTag(METRIC_NAME, WIRETYPE_LENGTH_DELIMITED)) {
+                reader.skip(reader.readLength());
+                hasName = true;
+            } else if (tag == makeTag(METRIC_TYPE, WIRETYPE_VARINT)) {
+                final int type = reader.readVarint32();
+                // unknown enum values are treated as unknown fields, leaving the type unset
+                hasType = type >= TYPE_DOUBLE && type <= TYPE_BYTES;
+            } else {
+                reader.skipField(tag);
+            }
+        }
+
+        if (!hasName || !hasType) {
+            throw new IOException("Missing metric name or type");
+        }
+    }
+
+    private static void readMetric(final ProtoBufReader reader, final Map<String, Object> metrics)
+            throws IOException {
+        String name = null;
+        int type = -1;
+        double doubleValue = 0;
+        float floatValue = 0;
+        long longValue = 0;
+        int intValue = 0;
+        boolean boolValue = false;
+        String stringValue = "";
+        byte[] bytesValue = null;
+
+        while (reader.hasRemaining()) {
+            final int tag = reader.readTag();
+            if (tag == makeTag(METRIC_NAME, WIRETYPE_LENGTH_DELIMITED)) {
+                name = reader.readString();
+            } else if (tag == makeTag(METRIC_TYPE, WIRETYPE_VARINT)) {
+                final int value = reader.readVarint32();
+                type = value >= TYPE_DOUBLE && value <= TYPE_BYTES ? value : type;
+            } else if (tag == makeTag(METRIC_DOUBLE_VALUE, WIRETYPE_FIXED64)) {
+                doubleValue = reader.readDouble();
+            } else if (tag == makeTag(METRIC_FLOAT_VALUE, WIRETYPE_FIXED32)) {
+                floatValue = reader.readFloat();
+            } else if (tag == makeTag(METRIC_LONG_VALUE, WIRETYPE_VARINT)) {
+                longValue = reader.readVarint64();
+            } else if (tag == makeTag(METRIC_INT_VALUE, WIRETYPE_VARINT)) {
+                intValue = reader.readVarint32();
+            } else if (tag == makeTag(METRIC_BOOL_VALUE, WIRETYPE_VARINT)) {
+                boolValue = reader.readBool();
+            } else if (tag == makeTag(METRIC_STRING_VALUE, WIRETYPE_LENGTH_DELIMITED)) {
+                stringValue = reader.readString();
+            } else if (tag == makeTag(METRIC_BYTES_VALUE, WIRETYPE_LENGTH_DELIMITED)) {
+                bytesValue = reader.readBytes();
+            } else {
+                reader.skipField(tag);
+            }
+        }
+
+        switch (type) {
+        case TYPE_DOUBLE:
+            metrics.put(name, doubleValue);
+            break;
+        case TYPE_FLOAT:
+            metrics.put(name, floatValue);
+            break;
+        case TYPE_INT64:
+            metrics.put(name, longValue);
+            break;
+        case TYPE_INT32:
+            metrics.put(name, intValue);
+            break;
+        case TYPE_BOOL:
+            metrics.put(name, boolValue);
+            break;
+        case TYPE_STRING:
+            metrics.put(name, stringValue);
+            break;
+        default:
+            metrics.put(name, bytesValue != null ? bytesValue : new byte[0]);
+            break;
+        }
+    }
+
+    /**
+     * A payload whose metrics are decoded on first access. Only a copy of the encoded metrics and their offsets are
+     * kept until then.
+     */
+    private static final class LazyKuraPayload extends KuraPayload {
+
+        private byte[] metricBytes;
+        private volatile int[] metricOffsets;
+        private int[] metricLengths;
+        private int metricCount;
+
+        LazyKuraPayload(final byte[] bytes) throws IOException {
+            int[] offsets = new int[8];
+            int[] lengths = new int[8];
+
+            final ProtoBufReader reader = new ProtoBufReader(bytes, 0, bytes.length);
+            while (reader.hasRemaining()) {
+                final int tag = reader.readTag();
+                if (tag == makeTag(PAYLOAD_TIMESTAMP, WIRETYPE_VARINT)) {
+                    super.setTimestamp(new Date(reader.readVarint64()));
+                } else if (tag == makeTag(PAYLOAD_POSITION, WIRETYPE_LENGTH_DELIMITED)) {
+                    final int length = reader.readLength();
+                    super.setPosition(readPosition(new ProtoBufReader(bytes, reader.getPosition(), length)));
+                    reader.skip(length);
+                } else if (tag == makeTag(PAYLOAD_METRIC, WIRETYPE_LENGTH_DELIMITED)) {
+                    final int length = reader.readLength();
+                    validateMetric(new ProtoBufReader(bytes, reader.getPosition(), length));
+                    if (this.metricCount == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                        lengths = Arrays.copyOf(lengths, lengths.length * 2);
+                    }
+                    offsets[this.metricCount] = reader.getPosition();
+                    lengths[this.metricCount] = length;
+                    this.metricCount++;
+                    reader.skip(length);
+                } else if (tag == makeTag(PAYLOAD_BODY, WIRETYPE_LENGTH_DELIMITED)) {
+                    super.setBody(reader.readBytes());
+                } else {
+                    reader.skipField(tag);
+                }
+            }
+
+            if (this.metricCount == 0) {
+                return;
+            }
+
+            // copy the span holding the metrics, so that the caller keeps the ownership of the array
+            final int start = offsets[0];
+            final int end = offsets[this.metricCount - 1] + lengths[this.metricCount - 1];
+            for (int i = 0; i < this.metricCount; i++) {
+                offsets[i] -= start;
+            }
+            this.metricBytes = Arrays.copyOfRange(bytes, start, end);
+            this.metricLengths = lengths;
+            this.metricOffsets = offsets;
+        }
+
+        private void materializeMetrics() {
+            if (this.metricOffsets == null) {
+                return;
+            }
+            synchronized (this) {
+                final int[] offsets = this.metricOffsets;
+                if (offsets == null) {
+                    return;
+                }
+                // the metrics are published only once all of them have been decoded, so that a failure can be retried
+                final Map<String, Object> decoded = new HashMap<>(this.metricCount * 4 / 3 + 1);
+                try {
+                    for (int i = 0; i < this.metricCount; i++) {
+                        readMetric(new ProtoBufReader(this.metricBytes, offsets[i], this.metricLengths[i]), decoded);
+                    }
+                } catch (IOException e) {
+                    // the metrics have been validated while decoding the payload
+                    throw new KuraInvalidMessageException(e);
+                }
+                for (final Map.Entry<String, Object> metric : decoded.entrySet()) {
+                    super.addMetric(metric.getKey(), metric.getValue());
+                }
+                this.metricBytes = null;
+                this.metricLengths = null;
+                this.metricOffsets = null;
+            }
+        }
+
+        @Override
+        public Object getMetric(String name) {
+            materializeMetrics();
+            return super.getMetric(name);
+        }
+
+        @Override
+        public void addMetric(String name, Object value) {
+            materializeMetrics();
+            super.addMetric(name, value);
+        }
+
+        @Override
+        public void removeMetric(String name) {
+            materializeMetrics();
+            super.removeMetric(name);
+        }
+
+        @Override
+        public void removeAllMetrics() {
+            materializeMetrics();
+            super.removeAllMetrics();
+        }
+
+        @Override
+        public Set<String> metricNames() {
+            materializeMetrics();
+            return super.metricNames();
+        }
+
+        @Override
+        public Iterator<String> metricsIterator() {
+            materializeMetrics();
+            return super.metricsIterator();
+        }
+
+        @Override
+        public Map<String, Object> metrics() {
+            materializeMetrics();
+            return super.metrics();
+        }
+    }
+}
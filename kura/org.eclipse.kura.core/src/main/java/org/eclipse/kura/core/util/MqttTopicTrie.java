@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A trie of MQTT topic filters, supporting the single level ({@code +}) and multi level ({@code #}) wildcards.
+ * <p>
+ * Each topic filter level is a node of the trie, so that the values whose filter matches a topic are found with a
+ * cost proportional to the topic depth rather than to the number of registered filters.
+ * <p>
+ * Lookups do not lock and can run concurrently with modifications, which are serialized.
+ *
+ * @param <T>
+ *            the type of the values associated with the topic filters
+ */
+public class MqttTopicTrie<T> {
+
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Associates a value with the given topic filter. A value can be added more than once for the same filter.
+     */
+    public synchronized void add(final String topicFilter, final T value) {
+        Node<T> node = this.root;
+        for (final String level : split(topicFilter)) {
+            node = node.children.computeIfAbsent(level, l -> new Node<>());
+        }
+        node.values.add(value);
+    }
+
+    /**
+     * Removes one association of the given value with the given topic filter.
+     *
+     * @return true if the value was associated with the topic filter
+     */
+    public synchronized boolean remove(final String topicFilter, final T value) {
+        final String[] levels = split(topicFilter);
+        final List<Node<T>> path = new ArrayList<>(levels.length + 1);
+
+        Node<T> node = this.root;
+        path.add(node);
+        for (final String level : levels) {
+            node = node.children.get(level);
+            if (node == null) {
+                return false;
+            }
+            path.add(node);
+        }
+
+        if (!node.values.remove(value)) {
+            return false;
+        }
+
+        // Prune the nodes left empty, starting from the deepest one
+        for (int i = levels.length; i > 0 && path.get(i).isEmpty(); i--) {
+            path.get(i - 1).children.remove(levels[i - 1]);
+        }
+        return true;
+    }
+
+    /**
+     * Passes to the consumer every value whose topic filter matches the given topic name. A value associated with
+     * several matching filters is passed once for each of them.
+     */
+    public void match(final String topicName, final Consumer<T> consumer) {
+        match(this.root, split(topicName), 0, consumer);
+    }
+
+    /**
+     * Returns the values whose topic filter matches the given topic name.
+     */
+    public List<T> match(final String topicName) {
+        final List<T> result = new ArrayList<>();
+        match(topicName, result::add);
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return this.root.isEmpty();
+    }
+
+    private static <T> void match(final Node<T> node, final String[] levels, final int index,
+            final Consumer<T> consumer) {
+        // The multi level wildcard also matches the parent level
+        final Node<T> multiLevel = node.children.get(MULTI_LEVEL_WILDCARD);
+        if (multiLevel != null) {
+            multiLevel.values.forEach(consumer);
+        }
+
+        if (index == levels.length) {
+            node.values.forEach(consumer);
+            return;
+        }
+
+        final Node<T> exact = node.children.get(levels[index]);
+        if (exact != null) {
+            match(exact, levels, index + 1, consumer);
+        }
+
+        final Node<T> singleLevel = node.children.get(SINGLE_LEVEL_WILDCARD);
+        if (singleLevel != null) {
+            match(singleLevel, levels, index + 1, consumer);
+        }
+    }
+
+    private static String[] split(final String topic) {
+        final List<String> levels = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = topic.indexOf('/', start)) != -1) {
+            levels.add(topic.substring(start, end));
+            start = end + 1;
+        }
+        levels.add(topic.substring(start));
+        return levels.toArray(new String[levels.size()]);
+    }
+
+    private static final class Node<T> {
+
+        private final Map<String, Node<T>> children = new ConcurrentHashMap<>();
+        private final List<T> values = new CopyOnWriteArrayList<>();
+
+        boolean isEmpty() {
+            return this.children.isEmpty() && this.values.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.util;
+
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_END_GROUP;
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_FIXED32;
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_FIXED64;
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_LENGTH_DELIMITED;
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_START_GROUP;
+import static org.eclipse.kura.core.util.ProtoBufWriter.WIRETYPE_VARINT;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads values in the protocol buffers wire format from a region of a byte array, without copying it.
+ */
+final class ProtoBufReader {
+
+    private static final int TAG_TYPE_MASK = 7;
+    private static final int MAX_VARINT_SIZE = 10;
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    ProtoBufReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    boolean hasRemaining() {
+        return this.position < this.limit;
+    }
+
+    int getPosition() {
+        return this.position;
+    }
+
+    int readTag() throws IOException {
+        final int tag = readVarint32();
+        if (tag >>> 3 == 0) {
+            throw new IOException("Invalid tag " + tag);
+        }
+        return tag;
+    }
+
+    static int getFieldNumber(int tag) {
+        return tag >>> 3;
+    }
+
+    static int getWireType(int tag) {
+        return tag & TAG_TYPE_MASK;
+    }
+
+    int readVarint32() throws IOException {
+        return (int) readVarint64();
+    }
+
+    long readVarint64() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < MAX_VARINT_SIZE * 7; shift += 7) {
+            final byte b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    int readFixed32() throws IOException {
+        checkRemaining(4);
+        final byte[] b = this.buffer;
+        final int p = this.position;
+        this.position += 4;
+        return b[p] & 0xFF | (b[p + 1] & 0xFF) << 8 | (b[p + 2] & 0xFF) << 16 | (b[p + 3] & 0xFF) << 24;
+    }
+
+    long readFixed64() throws IOException {
+        checkRemaining(8);
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result |= (this.buffer[this.position++] & 0xFFL) << i * 8;
+        }
+        return result;
+    }
+
+    double readDouble() throws IOException {
+        return Double.longBitsToDouble(readFixed64());
+    }
+
+    float readFloat() throws IOException {
+        return Float.intBitsToFloat(readFixed32());
+    }
+
+    boolean readBool() throws IOException {
+        return readVarint64() != 0;
+    }
+
+    /**
+     * Reads the length of a length delimited field, checking that its content is available.
+     */
+    int readLength() throws IOException {
+        final int length = readVarint32();
+        if (length < 0) {
+            throw new IOException("Negative field length");
+        }
+        checkRemaining(length);
+        return length;
+    }
+
+    String readString() throws IOException {
+        final int length = readLength();
+        final String result = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+        this.position += length;
+        return result;
+    }
+
+    byte[] readBytes() throws IOException {
+        final int length = readLength();
+        final byte[] result = Arrays.copyOfRange(this.buffer, this.position, this.position + length);
+        this.position += length;
+        return result;
+    }
+
+    void skip(int length) throws IOException {
+        checkRemaining(length);
+        this.position += length;
+    }
+
+    /**
+     * Skips the content of the field introduced by the given tag.
+     */
+    void skipField(int tag) throws IOException {
+        switch (getWireType(tag)) {
+        case WIRETYPE_VARINT:
+            readVarint64();
+            break;
+        case WIRETYPE_FIXED64:
+            skip(8);
+            break;
+        case WIRETYPE_LENGTH_DELIMITED:
+            skip(readLength());
+            break;
+        case WIRETYPE_START_GROUP:
+            final int endTag = getFieldNumber(tag) << 3 | WIRETYPE_END_GROUP;
+            int nested;
+            while ((nested = readTag()) != endTag) {
+                skipField(nested);
+            }
+            break;
+        case WIRETYPE_FIXED32:
+            skip(4);
+            break;
+        default:
+            throw new IOException("Invalid wire type in tag " + tag);
+        }
+    }
+
+    private byte readByte() throws IOException {
+        checkRemaining(1);
+        return this.buffer[this.position++];
+    }
+
+    private void checkRemaining(int length) throws IOException {
+        if (this.limit - this.position < length) {
+            throw new IOException("Truncated message");
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes values in the protocol buffers wire format to a growable byte array, that can be reused across messages.
+ */
+final class ProtoBufWriter extends OutputStream {
+
+    static final int WIRETYPE_VARINT = 0;
+    static final int WIRETYPE_FIXED64 = 1;
+    static final int WIRETYPE_LENGTH_DELIMITED = 2;
+    static final int WIRETYPE_START_GROUP = 3;
+    static final int WIRETYPE_END_GROUP = 4;
+    static final int WIRETYPE_FIXED32 = 5;
+
+    private static final int TAG_TYPE_BITS = 3;
+
+    private final int initialCapacity;
+    private final int maxRetainedCapacity;
+
+    private byte[] buffer;
+    private int position;
+
+    ProtoBufWriter(int initialCapacity, int maxRetainedCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Discards the written data. The buffer is kept for the next message, unless it grew too large.
+     */
+    void reset() {
+        this.position = 0;
+        if (this.buffer.length > this.maxRetainedCapacity) {
+            this.buffer = new byte[this.initialCapacity];
+        }
+    }
+
+    int size() {
+        return this.position;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.position);
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(this.buffer, 0, this.position);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        this.buffer[this.position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, this.buffer, this.position, len);
+        this.position += len;
+    }
+
+    void writeTag(int fieldNumber, int wireType) {
+        writeVarint32(makeTag(fieldNumber, wireType));
+    }
+
+    void writeVarint32(int value) {
+        if (value < 0) {
+            // negative int32 values are sign extended to ten bytes
+            writeVarint64(value);
+            return;
+        }
+        ensureCapacity(5);
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            this.buffer[this.position++] = (byte) (v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        this.buffer[this.position++] = (byte) v;
+    }
+
+    void writeVarint64(long value) {
+        ensureCapacity(10);
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            this.buffer[this.position++] = (byte) (v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        this.buffer[this.position++] = (byte) v;
+    }
+
+    void writeFixed32(int value) {
+        ensureCapacity(4);
+        this.buffer[this.position++] = (byte) value;
+        this.buffer[this.position++] = (byte) (value >> 8);
+        this.buffer[this.position++] = (byte) (value >> 16);
+        this.buffer[this.position++] = (byte) (value >> 24);
+    }
+
+    void writeFixed64(long value) {
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            this.buffer[this.position++] = (byte) (value >> i * 8);
+        }
+    }
+
+    void writeDouble(double value) {
+        writeFixed64(Double.doubleToRawLongBits(value));
+    }
+
+    void writeFloat(float value) {
+        writeFixed32(Float.floatToRawIntBits(value));
+    }
+
+    void writeBool(boolean value) {
+        write(value ? 1 : 0);
+    }
+
+    void writeBytes(byte[] value) {
+        writeVarint32(value.length);
+        write(value, 0, value.length);
+    }
+
+    /**
+     * Writes the string length and its UTF-8 encoding, without creating an intermediate array. Unpaired surrogates
+     * are replaced with {@code '?'}, as done by {@link String#getBytes(java.nio.charset.Charset)}.
+     */
+    void writeString(String value) {
+        final int length = utf8Length(value);
+        writeVarint32(length);
+        ensureCapacity(length);
+
+        final byte[] b = this.buffer;
+        int p = this.position;
+        final int chars = value.length();
+        for (int i = 0; i < chars; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                b[p++] = (byte) c;
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | c >> 6);
+                b[p++] = (byte) (0x80 | c & 0x3F);
+            } else if (!Character.isSurrogate(c)) {
+                b[p++] = (byte) (0xE0 | c >> 12);
+                b[p++] = (byte) (0x80 | c >> 6 & 0x3F);
+                b[p++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                b[p++] = (byte) (0xF0 | codePoint >> 18);
+                b[p++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                b[p++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                b[p++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                b[p++] = (byte) '?';
+            }
+        }
+        this.position = p;
+    }
+
+    static int makeTag(int fieldNumber, int wireType) {
+        return fieldNumber << TAG_TYPE_BITS | wireType;
+    }
+
+    static int computeTagSize(int fieldNumber) {
+        return computeVarint32Size(makeTag(fieldNumber, WIRETYPE_VARINT));
+    }
+
+    static int computeVarint32Size(int value) {
+        if (value < 0) {
+            return 10;
+        }
+        int size = 1;
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            size++;
+            v >>>= 7;
+        }
+        return size;
+    }
+
+    static int computeVarint64Size(long value) {
+        int size = 1;
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            size++;
+            v >>>= 7;
+        }
+        return size;
+    }
+
+    static int computeLengthDelimitedSize(int length) {
+        return computeVarint32Size(length) + length;
+    }
+
+    static int utf8Length(String value) {
+        final int chars = value.length();
+        int length = chars;
+        for (int i = 0; i < chars; i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length += 1;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < chars
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // the two chars of the pair are encoded in four bytes
+                    length += 2;
+                    i++;
+                }
+            }
+        }
+        return length;
+    }
+
+    private void ensureCapacity(int required) {
+        if (this.buffer.length - this.position < required) {
+            final int minCapacity = this.position + required;
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(minCapacity, this.buffer.length * 2));
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -53,5 +53,67 @@ public interface BinaryData<T> {
      */
     public abstract T read(Buffer buf, int offset);
 
+    /**
+     * Reads the value at the provided offset as an int. The result is the same as
+     * {@code ((Number) read(buf, offset)).intValue()}, implementations should override this method in order to
+     * decode the value without allocating a boxed instance.
+     *
+     * @param buf
+     *            a {@link Buffer} from which the data needs to be read
+     * @param offset
+     *            offset from which the data will be read
+     * @return the obtained value
+     * @throws UnsupportedOperationException
+     *             if the value type is not a {@link Number}
+     */
+    public default int readInt(Buffer buf, int offset) {
+        return TypeUtil.toNumber(read(buf, offset)).intValue();
+    }
+
+    /**
+     * Reads the value at the provided offset as a long, see {@link #readInt(Buffer, int)}.
+     *
+     * @param buf
+     *            a {@link Buffer} from which the data needs to be read
+     * @param offset
+     *            offset from which the data will be read
+     * @return the obtained value
+     * @throws UnsupportedOperationException
+     *             if the value type is not a {@link Number}
+     */
+    public default long readLong(Buffer buf, int offset) {
+        return TypeUtil.toNumber(read(buf, offset)).longValue();
+    }
+
+    /**
+     * Reads the value at the provided offset as a float, see {@link #readInt(Buffer, int)}.
+     *
+     * @param buf
+     *            a {@link Buffer} from which the data needs to be read
+     * @param offset
+     *            offset from which the data will be read
+     * @return the obtained value
+     * @throws UnsupportedOperationException
+     *             if the value type is not a {@link Number}
+     */
+    public default float readFloat(Buffer buf, int offset) {
+        return TypeUtil.toNumber(read(buf, offset)).floatValue();
+    }
+
+    /**
+     * Reads the value at the provided offset as a double, see {@link #readInt(Buffer, int)}.
+     *
+     * @param buf
+     *            a {@link Buffer} from which the data needs to be read
+     * @param offset
+     *            offset from which the data will be read
+     * @return the obtained value
+     * @throws UnsupportedOperationException
+     *             if the value type is not a {@link Number}
+     */
+    public default double readDouble(Buffer buf, int offset) {
+        return TypeUtil.toNumber(read(buf, offset)).doubleValue();
+    }
+
     public abstract Class<T> getValueType();
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -39,6 +39,70 @@ public interface Buffer {
         read(offset, data.length, data);
     }
 
+    /**
+     * Returns the 16 bit value at the specified offset. The default implementation composes the value from the
+     * single bytes, implementations can override this method to avoid the per byte access.
+     *
+     * @param offset
+     *            the offset of the value
+     * @param endianness
+     *            the endianness of the value
+     * @return the value
+     */
+    public default short getShort(int offset, Endianness endianness) {
+        if (endianness == Endianness.BIG_ENDIAN) {
+            return (short) ((get(offset) & 0xff) << 8 | get(offset + 1) & 0xff);
+        } else {
+            return (short) (get(offset) & 0xff | (get(offset + 1) & 0xff) << 8);
+        }
+    }
+
+    /**
+     * Returns the 32 bit value at the specified offset, see {@link #getShort(int, Endianness)}.
+     *
+     * @param offset
+     *            the offset of the value
+     * @param endianness
+     *            the endianness of the value
+     * @return the value
+     */
+    public default int getInt(int offset, Endianness endianness) {
+        int result = 0;
+        if (endianness == Endianness.BIG_ENDIAN) {
+            for (int i = 0; i < 4; i++) {
+                result = result << 8 | get(offset + i) & 0xff;
+            }
+        } else {
+            for (int i = 3; i >= 0; i--) {
+                result = result << 8 | get(offset + i) & 0xff;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the 64 bit value at the specified offset, see {@link #getShort(int, Endianness)}.
+     *
+     * @param offset
+     *            the offset of the value
+     * @param endianness
+     *            the endianness of the value
+     * @return the value
+     */
+    public default long getLong(int offset, Endianness endianness) {
+        long result = 0;
+        if (endianness == Endianness.BIG_ENDIAN) {
+            for (int i = 0; i < 8; i++) {
+                result = result << 8 | get(offset + i) & 0xffL;
+            }
+        } else {
+            for (int i = 7; i >= 0; i--) {
+                result = result << 8 | get(offset + i) & 0xffL;
+            }
+        }
+        return result;
+    }
+
     public default byte[] toArray() {
         byte[] result = new byte[getLength()];
         read(0, result);
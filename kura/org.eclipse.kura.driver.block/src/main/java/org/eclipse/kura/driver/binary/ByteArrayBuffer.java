@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -13,9 +13,15 @@
 
 package org.eclipse.kura.driver.binary;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 public class ByteArrayBuffer implements Buffer {
 
     private final byte[] data;
+    // created on the first multi-byte read, most buffers are only accessed byte by byte or copied
+    private ByteBuffer bigEndianView;
+    private ByteBuffer littleEndianView;
 
     public ByteArrayBuffer(byte[] data) {
         this.data = data;
@@ -31,6 +37,21 @@ public class ByteArrayBuffer implements Buffer {
         return this.data[offset];
     }
 
+    @Override
+    public short getShort(int offset, Endianness endianness) {
+        return view(endianness).getShort(offset);
+    }
+
+    @Override
+    public int getInt(int offset, Endianness endianness) {
+        return view(endianness).getInt(offset);
+    }
+
+    @Override
+    public long getLong(int offset, Endianness endianness) {
+        return view(endianness).getLong(offset);
+    }
+
     @Override
     public int getLength() {
         return this.data.length;
@@ -49,4 +70,17 @@ public class ByteArrayBuffer implements Buffer {
     public byte[] getBackingArray() {
         return this.data;
     }
+
+    private ByteBuffer view(Endianness endianness) {
+        if (endianness == Endianness.BIG_ENDIAN) {
+            if (this.bigEndianView == null) {
+                this.bigEndianView = ByteBuffer.wrap(this.data);
+            }
+            return this.bigEndianView;
+        }
+        if (this.littleEndianView == null) {
+            this.littleEndianView = ByteBuffer.wrap(this.data).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return this.littleEndianView;
+    }
 }
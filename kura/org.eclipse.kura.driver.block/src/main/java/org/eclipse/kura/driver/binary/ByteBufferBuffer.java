@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.driver.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A {@link Buffer} backed by a {@link ByteBuffer}, that can be either a heap or a direct buffer. The {@link Buffer}
+ * covers the bytes between the position and the limit of the provided {@link ByteBuffer} at creation time, the offset
+ * 0 corresponds to the position. Changing the position or the limit of the provided {@link ByteBuffer} after the
+ * creation of this instance has no effect.
+ */
+public class ByteBufferBuffer implements Buffer {
+
+    private final ByteBuffer bigEndianView;
+    private final ByteBuffer littleEndianView;
+
+    public ByteBufferBuffer(ByteBuffer buffer) {
+        this.bigEndianView = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        this.littleEndianView = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void put(int offset, byte value) {
+        this.bigEndianView.put(offset, value);
+    }
+
+    @Override
+    public byte get(int offset) {
+        return this.bigEndianView.get(offset);
+    }
+
+    @Override
+    public short getShort(int offset, Endianness endianness) {
+        return view(endianness).getShort(offset);
+    }
+
+    @Override
+    public int getInt(int offset, Endianness endianness) {
+        return view(endianness).getInt(offset);
+    }
+
+    @Override
+    public long getLong(int offset, Endianness endianness) {
+        return view(endianness).getLong(offset);
+    }
+
+    @Override
+    public void write(int offset, int length, byte[] data) {
+        final ByteBuffer target = this.bigEndianView.duplicate();
+        target.position(offset);
+        target.put(data, 0, length);
+    }
+
+    @Override
+    public void read(int offset, int length, byte[] data) {
+        final ByteBuffer source = this.bigEndianView.duplicate();
+        source.position(offset);
+        source.get(data, 0, length);
+    }
+
+    @Override
+    public int getLength() {
+        return this.bigEndianView.capacity();
+    }
+
+    public ByteBuffer getBackingBuffer() {
+        return this.bigEndianView.duplicate();
+    }
+
+    private ByteBuffer view(Endianness endianness) {
+        return endianness == Endianness.BIG_ENDIAN ? this.bigEndianView : this.littleEndianView;
+    }
+}
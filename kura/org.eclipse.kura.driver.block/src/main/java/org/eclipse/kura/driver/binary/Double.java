@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -45,27 +45,27 @@ class Double extends AbstractBinaryData<java.lang.Double> {
 
     @Override
     public java.lang.Double read(Buffer buf, int offset) {
-        long tmp;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            tmp = buf.get(offset + 7) & 0xffL;
-            tmp |= (buf.get(offset + 6) & 0xffL) << 8;
-            tmp |= (buf.get(offset + 5) & 0xffL) << 16;
-            tmp |= (buf.get(offset + 4) & 0xffL) << 24;
-            tmp |= (buf.get(offset + 3) & 0xffL) << 32;
-            tmp |= (buf.get(offset + 2) & 0xffL) << 40;
-            tmp |= (buf.get(offset + 1) & 0xffL) << 48;
-            tmp |= (buf.get(offset) & 0xffL) << 56;
-        } else {
-            tmp = buf.get(offset) & 0xffL;
-            tmp |= (buf.get(offset + 1) & 0xffL) << 8;
-            tmp |= (buf.get(offset + 2) & 0xffL) << 16;
-            tmp |= (buf.get(offset + 3) & 0xffL) << 24;
-            tmp |= (buf.get(offset + 4) & 0xffL) << 32;
-            tmp |= (buf.get(offset + 5) & 0xffL) << 40;
-            tmp |= (buf.get(offset + 6) & 0xffL) << 48;
-            tmp |= (buf.get(offset + 7) & 0xffL) << 56;
-        }
-        return java.lang.Double.longBitsToDouble(tmp);
+        return readDouble(buf, offset);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return java.lang.Double.longBitsToDouble(buf.getLong(offset, this.endianness));
+    }
+
+    @Override
+    public int readInt(Buffer buf, int offset) {
+        return (int) readDouble(buf, offset);
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return (long) readDouble(buf, offset);
+    }
+
+    @Override
+    public float readFloat(Buffer buf, int offset) {
+        return (float) readDouble(buf, offset);
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -37,19 +37,27 @@ class Float extends AbstractBinaryData<java.lang.Float> {
 
     @Override
     public java.lang.Float read(Buffer buf, int offset) {
-        int tmp;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            tmp = buf.get(offset + 3) & 0xff;
-            tmp |= (buf.get(offset + 2) & 0xff) << 8;
-            tmp |= (buf.get(offset + 1) & 0xff) << 16;
-            tmp |= (buf.get(offset) & 0xff) << 24;
-        } else {
-            tmp = buf.get(offset) & 0xff;
-            tmp |= (buf.get(offset + 1) & 0xff) << 8;
-            tmp |= (buf.get(offset + 2) & 0xff) << 16;
-            tmp |= (buf.get(offset + 3) & 0xff) << 24;
-        }
-        return java.lang.Float.intBitsToFloat(tmp);
+        return readFloat(buf, offset);
+    }
+
+    @Override
+    public float readFloat(Buffer buf, int offset) {
+        return java.lang.Float.intBitsToFloat(buf.getInt(offset, this.endianness));
+    }
+
+    @Override
+    public int readInt(Buffer buf, int offset) {
+        return (int) readFloat(buf, offset);
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return (long) readFloat(buf, offset);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return readFloat(buf, offset);
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -33,15 +33,27 @@ class Int16 extends AbstractBinaryData<Integer> {
 
     @Override
     public Integer read(Buffer buf, int offset) {
-        short result;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            result = (short) (buf.get(offset + 1) & 0xff);
-            result |= (buf.get(offset) & 0xff) << 8;
-        } else {
-            result = (short) (buf.get(offset) & 0xff);
-            result |= (buf.get(offset + 1) & 0xff) << 8;
-        }
-        return (int) result;
+        return readInt(buf, offset);
+    }
+
+    @Override
+    public int readInt(Buffer buf, int offset) {
+        return buf.getShort(offset, this.endianness);
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return readInt(buf, offset);
+    }
+
+    @Override
+    public float readFloat(Buffer buf, int offset) {
+        return readInt(buf, offset);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return readInt(buf, offset);
     }
 
     @Override
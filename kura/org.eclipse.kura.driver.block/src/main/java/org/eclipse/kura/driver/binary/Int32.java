@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -36,19 +36,27 @@ class Int32 extends AbstractBinaryData<Integer> {
 
     @Override
     public Integer read(Buffer buf, int offset) {
-        int result;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            result = buf.get(offset + 3) & 0xff;
-            result |= (buf.get(offset + 2) & 0xff) << 8;
-            result |= (buf.get(offset + 1) & 0xff) << 16;
-            result |= (buf.get(offset) & 0xff) << 24;
-        } else {
-            result = buf.get(offset) & 0xff;
-            result |= (buf.get(offset + 1) & 0xff) << 8;
-            result |= (buf.get(offset + 2) & 0xff) << 16;
-            result |= (buf.get(offset + 3) & 0xff) << 24;
-        }
-        return result;
+        return readInt(buf, offset);
+    }
+
+    @Override
+    public int readInt(Buffer buf, int offset) {
+        return buf.getInt(offset, this.endianness);
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return readInt(buf, offset);
+    }
+
+    @Override
+    public float readFloat(Buffer buf, int offset) {
+        return readInt(buf, offset);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return readInt(buf, offset);
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -44,27 +44,27 @@ class Int64 extends AbstractBinaryData<Long> {
 
     @Override
     public Long read(Buffer buf, int offset) {
-        long result;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            result = buf.get(offset + 7) & 0xffL;
-            result |= (buf.get(offset + 6) & 0xffL) << 8;
-            result |= (buf.get(offset + 5) & 0xffL) << 16;
-            result |= (buf.get(offset + 4) & 0xffL) << 24;
-            result |= (buf.get(offset + 3) & 0xffL) << 32;
-            result |= (buf.get(offset + 2) & 0xffL) << 40;
-            result |= (buf.get(offset + 1) & 0xffL) << 48;
-            result |= (buf.get(offset) & 0xffL) << 56;
-        } else {
-            result = buf.get(offset) & 0xffL;
-            result |= (buf.get(offset + 1) & 0xffL) << 8;
-            result |= (buf.get(offset + 2) & 0xffL) << 16;
-            result |= (buf.get(offset + 3) & 0xffL) << 24;
-            result |= (buf.get(offset + 4) & 0xffL) << 32;
-            result |= (buf.get(offset + 5) & 0xffL) << 40;
-            result |= (buf.get(offset + 6) & 0xffL) << 48;
-            result |= (buf.get(offset + 7) & 0xffL) << 56;
-        }
-        return result;
+        return readLong(buf, offset);
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return buf.getLong(offset, this.endianness);
+    }
+
+    @Override
+    public int readInt(Buffer buf, int offset) {
+        return (int) readLong(buf, offset);
+    }
+
+    @Override
+    public float readFloat(Buffer buf, int offset) {
+        return readLong(buf, offset);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return readLong(buf, offset);
     }
 
     @Override
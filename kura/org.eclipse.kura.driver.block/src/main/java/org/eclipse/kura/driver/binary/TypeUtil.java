@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2018, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -36,6 +36,15 @@ public final class TypeUtil {
     private TypeUtil() {
     }
 
+    static Number toNumber(final Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        throw new UnsupportedOperationException(
+                CANNOT_CONVERT_FROM_NATIVE_TYPE_MESSAGE + (value == null ? "null" : value.getClass().getSimpleName())
+                        + " to " + Number.class.getSimpleName());
+    }
+
     public static <T> Function<T, TypedValue<?>> toTypedValue(final Class<T> sourceType, final DataType targetType) {
         if (targetType == DataType.STRING) {
             return toStringTypedValue(sourceType);
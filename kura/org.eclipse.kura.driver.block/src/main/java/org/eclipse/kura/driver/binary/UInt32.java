@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -36,19 +36,27 @@ class UInt32 extends AbstractBinaryData<Long> {
 
     @Override
     public Long read(Buffer buf, int offset) {
-        long result;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            result = (long) buf.get(offset + 3) & 0xff;
-            result |= (long) (buf.get(offset + 2) & 0xff) << 8;
-            result |= (long) (buf.get(offset + 1) & 0xff) << 16;
-            result |= (long) (buf.get(offset) & 0xff) << 24;
-        } else {
-            result = buf.get(offset) & 0xff;
-            result |= (long) (buf.get(offset + 1) & 0xff) << 8;
-            result |= (long) (buf.get(offset + 2) & 0xff) << 16;
-            result |= (long) (buf.get(offset + 3) & 0xff) << 24;
-        }
-        return result;
+        return readLong(buf, offset);
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return buf.getInt(offset, this.endianness) & 0xffffffffL;
+    }
+
+    @Override
+    public int readInt(Buffer buf, int offset) {
+        return (int) readLong(buf, offset);
+    }
+
+    @Override
+    public float readFloat(Buffer buf, int offset) {
+        return readLong(buf, offset);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return readLong(buf, offset);
     }
 
     @Override
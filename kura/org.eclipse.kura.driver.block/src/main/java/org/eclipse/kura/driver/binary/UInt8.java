@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -26,7 +26,27 @@ class UInt8 extends AbstractBinaryData<Integer> {
 
     @Override
     public Integer read(Buffer buf, int offset) {
-        return (int) (buf.get(offset) & 0xff);
+        return readInt(buf, offset);
+    }
+
+    @Override
+    public int readInt(Buffer buf, int offset) {
+        return buf.get(offset) & 0xff;
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return readInt(buf, offset);
+    }
+
+    @Override
+    public float readFloat(Buffer buf, int offset) {
+        return readInt(buf, offset);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return readInt(buf, offset);
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2018, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -32,6 +32,62 @@ public class UnsignedIntegerLE extends AbstractBinaryData<BigInteger> {
 
     @Override
     public BigInteger read(final Buffer buf, final int offset) {
+        if (this.sizeBits < Long.SIZE) {
+            return BigInteger.valueOf(readLong(buf, offset));
+        }
+        return readBigInteger(buf, offset);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the size of this data is 64 bits, the returned value has the same bits as the unsigned value and can be
+     * negative. If the size is greater than 64 bits, the value is truncated to its least significant 64 bits.
+     * </p>
+     */
+    @Override
+    public long readLong(final Buffer buf, final int offset) {
+        final int startBit = offset * 8 + this.startBitOffset;
+        final int firstByte = startBit / 8;
+        final int shift = startBit % 8;
+        final int sizeBits = Math.min(this.sizeBits, Long.SIZE);
+        final int byteCount = (shift + sizeBits + 7) / 8;
+
+        long result = 0;
+        for (int i = 0; i < byteCount; i++) {
+            final long value = buf.get(firstByte + i) & 0xffL;
+            final int position = i * 8 - shift;
+            result |= position >= 0 ? value << position : value >>> -position;
+        }
+
+        if (sizeBits < Long.SIZE) {
+            result &= (1L << sizeBits) - 1;
+        }
+        return result;
+    }
+
+    @Override
+    public int readInt(final Buffer buf, final int offset) {
+        return (int) readLong(buf, offset);
+    }
+
+    @Override
+    public float readFloat(final Buffer buf, final int offset) {
+        if (this.sizeBits < Long.SIZE) {
+            return readLong(buf, offset);
+        }
+        return readBigInteger(buf, offset).floatValue();
+    }
+
+    @Override
+    public double readDouble(final Buffer buf, final int offset) {
+        if (this.sizeBits < Long.SIZE) {
+            return readLong(buf, offset);
+        }
+        return readBigInteger(buf, offset).doubleValue();
+    }
+
+    private BigInteger readBigInteger(final Buffer buf, final int offset) {
         final int sizeBytes = getSize();
 
         final byte[] raw = new byte[sizeBytes];
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2018, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -40,6 +40,11 @@ public class GainOffset implements BinaryData<Double> {
 
     @Override
     public Double read(Buffer buf, int offset) {
+        return readDouble(buf, offset);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
         return adapter.read(buf, offset) * gain + off;
     }
 
@@ -93,8 +98,8 @@ public class GainOffset implements BinaryData<Double> {
             wrapped.write(buf, offset, fromDouble.apply(value));
         }
 
-        public Double read(final Buffer buf, final int offset) {
-            return wrapped.read(buf, offset).doubleValue();
+        public double read(final Buffer buf, final int offset) {
+            return wrapped.readDouble(buf, offset);
         }
 
         public BinaryData<T> getWrapped() {
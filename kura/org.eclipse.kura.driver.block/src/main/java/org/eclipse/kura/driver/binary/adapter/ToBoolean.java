@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2018, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -31,7 +31,7 @@ public class ToBoolean implements BinaryData<Boolean> {
 
     @Override
     public Boolean read(final Buffer buf, int offset) {
-        return ((Number) wrapped.read(buf, offset)).doubleValue() != 0;
+        return wrapped.readDouble(buf, offset) != 0;
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -65,6 +65,15 @@ import java.util.stream.StreamSupport;
  * transfered.
  * </p>
  *
+ * <p>
+ * Alternatively a {@link BlockCostModel} can be specified using the
+ * {@link BlockAggregator#setCostModel(BlockCostModel)} method. In this case the output blocks are the partition of the
+ * input blocks with the minimum total cost according to the model: a gap shorter than {@code minimumGapSize} is
+ * transferred only if this is cheaper than performing an additional request, and adjacent blocks are split if needed.
+ * The output blocks are not longer than the maximum block length of the model, unless they are obtained from
+ * overlapping input blocks, that are never split.
+ * </p>
+ *
  * @param <T>
  *            The type of the blocks obtained as result of the aggregation process.
  */
@@ -73,6 +82,7 @@ public class BlockAggregator<T extends Block> {
     protected List<Block> blocks;
     private final BlockFactory<T> factory;
     private int minimumGapSize;
+    private BlockCostModel costModel;
 
     /**
      * Creates a new {@link BlockAggregator} instance that operates on the given list of blocks.
@@ -113,6 +123,10 @@ public class BlockAggregator<T extends Block> {
     @SuppressWarnings("unchecked")
     public Stream<T> stream() {
         this.blocks.sort((Block o1, Block o2) -> o1.getStart() - o2.getStart());
+        if (this.costModel != null) {
+            return CostBasedPartitioner
+                    .partition(this.blocks, this.factory, this.costModel, this.minimumGapSize).stream();
+        }
         return (Stream<T>) StreamSupport
                 .stream(Spliterators.spliteratorUnknownSize(new AggregatingIterator(this.blocks.listIterator()),
                         Spliterator.ORDERED), false)
@@ -133,6 +147,19 @@ public class BlockAggregator<T extends Block> {
         this.minimumGapSize = minimumGapSize;
     }
 
+    /**
+     * Specifies the {@link BlockCostModel} used for the aggregation. If a cost model is specified, the
+     * {@code minimumGapSize} parameter is the upper bound for the gaps that can be transferred, the cost model decides
+     * if they are actually transferred. The default is {@code null}, no cost model.
+     *
+     * @param costModel
+     *            the cost model, or {@code null} for aggregating the blocks according to the {@code minimumGapSize}
+     *            parameter
+     */
+    public void setCostModel(BlockCostModel costModel) {
+        this.costModel = costModel;
+    }
+
     /**
      * Inserts a new {@link Block} into the input blocks list.
      *
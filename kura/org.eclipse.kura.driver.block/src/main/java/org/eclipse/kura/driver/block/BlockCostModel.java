@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.driver.block;
+
+/**
+ * Describes the cost of transferring a block with a single request, it can be used to configure a
+ * {@link BlockAggregator} for computing the block partition with the minimum total cost.
+ * <p>
+ * The cost of a request transferring a block of length {@code l} is {@code requestCost + l * unitCost}. The request
+ * cost represents the fixed overhead of a request, for example the round trip time and the protocol headers, the unit
+ * cost represents the cost of transferring a single address unit. The costs can be expressed in any unit, for example
+ * in microseconds or in bytes, provided that the same unit is used for both.
+ * </p>
+ * <p>
+ * The maximum block length is a hard limit on the length of the blocks produced by the aggregation, it can be used to
+ * represent the maximum PDU size of the protocol, for example 125 registers for a Modbus read request.
+ * </p>
+ */
+public final class BlockCostModel {
+
+    private final double requestCost;
+    private final double unitCost;
+    private final int maximumBlockLength;
+
+    /**
+     * Creates a new {@link BlockCostModel} instance with no limit on the block length.
+     *
+     * @param requestCost
+     *            the fixed cost of a request
+     * @param unitCost
+     *            the cost of transferring a single address unit
+     * @throws IllegalArgumentException
+     *             If any of the provided costs is negative
+     */
+    public BlockCostModel(double requestCost, double unitCost) {
+        this(requestCost, unitCost, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new {@link BlockCostModel} instance.
+     *
+     * @param requestCost
+     *            the fixed cost of a request
+     * @param unitCost
+     *            the cost of transferring a single address unit
+     * @param maximumBlockLength
+     *            the maximum length of a block
+     * @throws IllegalArgumentException
+     *             If any of the provided costs is negative or if the maximum block length is not positive
+     */
+    public BlockCostModel(double requestCost, double unitCost, int maximumBlockLength) {
+        if (!(requestCost >= 0) || !(unitCost >= 0)) {
+            throw new IllegalArgumentException("Request and unit costs must be non negative");
+        }
+        if (maximumBlockLength <= 0) {
+            throw new IllegalArgumentException("Maximum block length must be positive");
+        }
+        this.requestCost = requestCost;
+        this.unitCost = unitCost;
+        this.maximumBlockLength = maximumBlockLength;
+    }
+
+    /**
+     * Returns the fixed cost of a request
+     *
+     * @return the request cost
+     */
+    public double getRequestCost() {
+        return this.requestCost;
+    }
+
+    /**
+     * Returns the cost of transferring a single address unit
+     *
+     * @return the unit cost
+     */
+    public double getUnitCost() {
+        return this.unitCost;
+    }
+
+    /**
+     * Returns the maximum length of a block
+     *
+     * @return the maximum block length, {@link Integer#MAX_VALUE} if there is no limit
+     */
+    public int getMaximumBlockLength() {
+        return this.maximumBlockLength;
+    }
+
+    /**
+     * Returns the cost of a request transferring a block of the given length
+     *
+     * @param length
+     *            the block length
+     * @return the cost
+     */
+    public double getCost(int length) {
+        return this.requestCost + length * this.unitCost;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockCostModel [requestCost=" + this.requestCost + ", unitCost=" + this.unitCost
+                + ", maximumBlockLength=" + this.maximumBlockLength + "]";
+    }
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.driver.block;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Computes the partition of a list of blocks with the minimum total cost according to a {@link BlockCostModel}.
+ * <p>
+ * The blocks, sorted by start address, are split into groups of consecutive blocks, each group is transferred by a
+ * single request spanning from the start of its first block to the maximum end of its blocks. A group can be split
+ * only between two blocks that do not overlap, cannot span a prohibited block or a gap not shorter than the minimum
+ * gap size and cannot be longer than the maximum block length, unless it cannot be split any further.
+ * </p>
+ * <p>
+ * The optimal partition is found by dynamic programming over the possible split points. The groups ending at a split
+ * point are examined backwards, the search stops as soon as the cost of transferring the addresses spanned by the
+ * group exceeds the best solution found so far, so the cost is linear in the number of blocks for realistic cost
+ * models.
+ * </p>
+ */
+final class CostBasedPartitioner {
+
+    private final int[] starts;
+    private final int[] ends;
+    // splittable[k]: the group boundary can be placed before block k
+    private final boolean[] splittable;
+    // barrier[k]: the gap before block k cannot be transferred
+    private final boolean[] barrier;
+
+    private CostBasedPartitioner(final List<Block> sortedBlocks, final int minimumGapSize) {
+        final List<Block> prohibited = new ArrayList<>();
+        int count = 0;
+        for (final Block block : sortedBlocks) {
+            if (block instanceof ProhibitedBlock) {
+                prohibited.add(block);
+            } else {
+                count++;
+            }
+        }
+
+        this.starts = new int[count];
+        this.ends = new int[count];
+        this.splittable = new boolean[count + 1];
+        this.barrier = new boolean[count + 1];
+
+        int i = 0;
+        for (final Block block : sortedBlocks) {
+            if (!(block instanceof ProhibitedBlock)) {
+                this.starts[i] = block.getStart();
+                this.ends[i] = block.getEnd();
+                i++;
+            }
+        }
+
+        // maxEnds[k]: the maximum end address of the first k blocks
+        final int[] maxEnds = new int[count + 1];
+        maxEnds[0] = Integer.MIN_VALUE;
+        for (int k = 0; k < count; k++) {
+            maxEnds[k + 1] = Math.max(maxEnds[k], this.ends[k]);
+            this.splittable[k] = maxEnds[k] <= this.starts[k];
+            final int gap = this.starts[k] - maxEnds[k];
+            this.barrier[k] = gap > 0 && gap >= minimumGapSize;
+        }
+        this.splittable[0] = true;
+        this.splittable[count] = true;
+
+        for (final Block block : prohibited) {
+            // the blocks before k start before the end of the prohibited block
+            final int k = firstStartingFrom(block.getEnd());
+            if (maxEnds[k] > block.getStart()) {
+                throw new IllegalArgumentException("Conflicting blocks: " + findConflict(block, k) + " " + block);
+            }
+            this.barrier[k] = true;
+        }
+    }
+
+    private int firstStartingFrom(final int address) {
+        int low = 0;
+        int high = this.starts.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (this.starts[middle] < address) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Block findConflict(final Block prohibited, final int k) {
+        for (int i = 0; i < k; i++) {
+            if (this.ends[i] > prohibited.getStart()) {
+                return new Block(this.starts[i], this.ends[i]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes the optimal partition of the given blocks.
+     *
+     * @param sortedBlocks
+     *            the blocks sorted by start address, can contain prohibited blocks
+     * @param factory
+     *            the factory used for creating the resulting blocks
+     * @param costModel
+     *            the cost model
+     * @param minimumGapSize
+     *            only the gaps shorter than this value can be transferred
+     * @return the blocks of the optimal partition, sorted by start address
+     * @throws IllegalArgumentException
+     *             If a block overlaps a prohibited block
+     */
+    static <T extends Block> List<T> partition(final List<Block> sortedBlocks, final BlockFactory<T> factory,
+            final BlockCostModel costModel, final int minimumGapSize) {
+        return new CostBasedPartitioner(sortedBlocks, minimumGapSize).partition(factory, costModel);
+    }
+
+    private <T extends Block> List<T> partition(final BlockFactory<T> factory, final BlockCostModel costModel) {
+        final int count = this.starts.length;
+        final double requestCost = costModel.getRequestCost();
+        final double unitCost = costModel.getUnitCost();
+        final int maximumBlockLength = costModel.getMaximumBlockLength();
+
+        // cost[j]: minimum cost of transferring the first j blocks, first[j]: first block of the last group
+        final double[] cost = new double[count + 1];
+        final int[] first = new int[count + 1];
+
+        for (int j = 1; j <= count; j++) {
+            if (!this.splittable[j]) {
+                continue;
+            }
+            double best = Double.POSITIVE_INFINITY;
+            int groupEnd = Integer.MIN_VALUE;
+            boolean minimalGroup = true;
+
+            for (int i = j - 1; i >= 0; i--) {
+                groupEnd = Math.max(groupEnd, this.ends[i]);
+                if (!this.splittable[i]) {
+                    continue;
+                }
+                final int length = groupEnd - this.starts[i];
+                if (!minimalGroup && length > maximumBlockLength) {
+                    break;
+                }
+                final double groupCost = requestCost + length * unitCost;
+                if (groupCost >= best) {
+                    break;
+                }
+                if (cost[i] + groupCost < best) {
+                    best = cost[i] + groupCost;
+                    first[j] = i;
+                }
+                minimalGroup = false;
+                if (this.barrier[i]) {
+                    break;
+                }
+            }
+            cost[j] = best;
+        }
+
+        final List<T> result = new ArrayList<>();
+        for (int j = count; j > 0; j = first[j]) {
+            int groupEnd = Integer.MIN_VALUE;
+            for (int i = first[j]; i < j; i++) {
+                groupEnd = Math.max(groupEnd, this.ends[i]);
+            }
+            result.add(factory.build(this.starts[first[j]], groupEnd));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -18,8 +18,17 @@ import static java.util.Objects.requireNonNull;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -34,6 +43,7 @@ import org.eclipse.kura.channel.listener.ChannelListener;
 import org.eclipse.kura.driver.Driver;
 import org.eclipse.kura.driver.PreparedRead;
 import org.eclipse.kura.driver.block.Block;
+import org.eclipse.kura.driver.block.BlockCostModel;
 import org.eclipse.kura.driver.block.BlockFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +74,11 @@ import org.slf4j.LoggerFactory;
  * This class provides a default implementation for the {@link #read(List)}, {@link #write(List)} and
  * {@link #prepareRead(List)} methods of the {@link Driver} interface.
  * </p>
+ * <p>
+ * By default the resulting tasks are executed sequentially. Implementors that use a connection supporting multiple
+ * outstanding requests can enable the concurrent execution of the tasks by overriding the
+ * {@link #getMaxConcurrentTasks()} and {@link #getMaxConcurrentTasksForDomain(Object)} methods.
+ * </p>
  *
  * @param <T>
  *            the type of the domain, can be any type suitable for being used as an {@link java.util.HashMap} key
@@ -122,6 +137,72 @@ public abstract class AbstractBlockDriver<T> implements Driver {
         return 0;
     }
 
+    /**
+     * Returns the {@link BlockCostModel} that will be used to aggregate tasks for the specified domain and mode, see
+     * {@link org.eclipse.kura.driver.block.BlockAggregator#setCostModel(BlockCostModel)}. The cost model can be used to
+     * limit the length of the requests to the maximum PDU size supported by the protocol. The default is {@code null},
+     * the tasks are aggregated using the minimum gap size only.
+     * <p>
+     * Tasks in {@link Mode#READ} mode are aggregated transferring only the gaps shorter than the value returned by
+     * {@link #getReadMinimumGapSizeForDomain(Object)}, implementors that want the cost model alone to decide should
+     * return {@link Integer#MAX_VALUE} from that method.
+     * </p>
+     *
+     * @param domain
+     *            the domain
+     * @param mode
+     *            the {@link Mode} of the aggregated tasks, can be either {@link Mode#READ} or {@link Mode#WRITE}
+     * @return the cost model for the provided domain and mode, or {@code null}
+     */
+    protected BlockCostModel getCostModelForDomain(T domain, Mode mode) {
+        return null;
+    }
+
+    /**
+     * Returns the maximum number of {@link ToplevelBlockTask} instances that can be executed concurrently by a single
+     * {@link #read(List)}, {@link #write(List)} or {@link PreparedRead#execute()} call. The default is 1, the tasks are
+     * executed sequentially in the calling thread.
+     * <p>
+     * If a value greater than 1 is returned, the tasks are executed using the {@link Executor} returned by
+     * {@link #getTaskExecutor()} and the {@link #runTask(BlockTask)} method can be called concurrently, implementors
+     * must make sure that the underlying connection supports multiple outstanding requests. The number of tasks
+     * executed concurrently for a given domain is further limited by {@link #getMaxConcurrentTasksForDomain(Object)}.
+     * </p>
+     *
+     * @return the maximum number of tasks executed concurrently
+     */
+    protected int getMaxConcurrentTasks() {
+        return 1;
+    }
+
+    /**
+     * Returns the maximum number of {@link ToplevelBlockTask} instances that can be executed concurrently for the
+     * specified domain, this method is used only if {@link #getMaxConcurrentTasks()} returns a value greater than 1.
+     * The default is 1, the tasks of a domain are executed sequentially but concurrently with the tasks of other
+     * domains.
+     * <p>
+     * The tasks of a domain that contains read-update-write operations are always executed sequentially.
+     * </p>
+     *
+     * @param domain
+     *            the domain
+     * @return the maximum number of tasks executed concurrently for the provided domain
+     */
+    protected int getMaxConcurrentTasksForDomain(T domain) {
+        return 1;
+    }
+
+    /**
+     * Returns the {@link Executor} used for the concurrent execution of tasks, see {@link #getMaxConcurrentTasks()}.
+     * The calling thread always takes part in the execution. The default implementation returns an executor backed by
+     * a cached pool of daemon threads shared by all drivers.
+     *
+     * @return the {@link Executor}
+     */
+    protected Executor getTaskExecutor() {
+        return SharedExecutorHolder.EXECUTOR;
+    }
+
     /**
      * This method is called immediately before an aggregation is performed for the specific domain and mode. This
      * method can be overridden by implementors in order to customize the {@link BlockTaskAggregator} provided as
@@ -147,7 +228,8 @@ public abstract class AbstractBlockDriver<T> implements Driver {
      * tasks in {@link Mode#UPDATE} mode are found in a domain, the aggregation will be performed using a
      * {@link UpdateBlockTaskAggregator}. Otherwise a {@link BlockTaskAggregator} will be used.<br>
      * The {@link BlockFactory} instances used for the aggregation will be obtained using the
-     * {@link #getTaskFactoryForDomain(Object, Mode)} method.</li>
+     * {@link #getTaskFactoryForDomain(Object, Mode)} method, the {@link BlockCostModel} returned by
+     * {@link #getCostModelForDomain(Object, Mode)}, if any, will be applied to the aggregation.</li>
      * <li>The {@link ToplevelBlockTask} instances for all domains will be returned in the result list.</li>
      * </ol>
      *
@@ -160,10 +242,28 @@ public abstract class AbstractBlockDriver<T> implements Driver {
      *             if any exception is thrown during the process
      */
     protected List<BlockTask> optimize(List<ChannelRecord> records, Mode mode) throws KuraException {
+        final ArrayList<BlockTask> resultTasks = new ArrayList<>();
+        optimizeByDomain(records, mode).values().forEach(resultTasks::addAll);
+        return resultTasks;
+    }
+
+    /**
+     * Performs the same operations as {@link #optimize(List, Mode)} but returns the resulting {@link BlockTask}
+     * instances grouped by domain. This method is used instead of {@link #optimize(List, Mode)} if the concurrent
+     * execution of tasks is enabled, see {@link #getMaxConcurrentTasks()}.
+     *
+     * @param records
+     *            the {@link ChannelRecord} instances to be converted to {@link BlockTask} instances.
+     * @param mode
+     *            the mode
+     * @return the {@link BlockTask} instances resulting from the aggregation, grouped by domain
+     * @throws KuraException
+     *             if any exception is thrown during the process
+     */
+    protected Map<T, List<BlockTask>> optimizeByDomain(List<ChannelRecord> records, Mode mode) throws KuraException {
         try {
-            final ArrayList<BlockTask> resultTasks = new ArrayList<>();
+            final LinkedHashMap<T, List<BlockTask>> resultTasks = new LinkedHashMap<>();
             final HashSet<T> domainsWithUpdateTasks = new HashSet<>();
-
             final Function<Pair<T, BlockTask>, T> classifier;
             if (mode == Mode.READ) {
                 classifier = pair -> pair.first;
@@ -183,17 +283,21 @@ public abstract class AbstractBlockDriver<T> implements Driver {
                 final T domain = entry.getKey();
                 final BlockTaskAggregator aggregator;
                 if (domainsWithUpdateTasks.contains(domain)) {
-                    aggregator = new UpdateBlockTaskAggregator(entry.getValue(),
+                    final UpdateBlockTaskAggregator updateAggregator = new UpdateBlockTaskAggregator(entry.getValue(),
                             getTaskFactoryForDomain(domain, Mode.READ), getTaskFactoryForDomain(domain, Mode.WRITE));
-                    aggregator.setMinimumGapSize(getReadMinimumGapSizeForDomain(domain));
+                    updateAggregator.setMinimumGapSize(getReadMinimumGapSizeForDomain(domain));
+                    updateAggregator.setCostModel(getCostModelForDomain(domain, Mode.WRITE));
+                    updateAggregator.setReadCostModel(getCostModelForDomain(domain, Mode.READ));
+                    aggregator = updateAggregator;
                 } else {
                     aggregator = new BlockTaskAggregator(entry.getValue(), getTaskFactoryForDomain(domain, mode));
                     if (mode == Mode.READ) {
                         aggregator.setMinimumGapSize(getReadMinimumGapSizeForDomain(domain));
                     }
+                    aggregator.setCostModel(getCostModelForDomain(domain, mode));
                 }
                 beforeAggregation(domain, mode, aggregator);
-                aggregator.stream().forEach(resultTasks::add);
+                resultTasks.put(domain, aggregator.stream().collect(Collectors.toList()));
             });
 
             return resultTasks;
@@ -232,7 +336,7 @@ public abstract class AbstractBlockDriver<T> implements Driver {
     public synchronized void read(final List<ChannelRecord> records) throws ConnectionException {
         connect();
         try {
-            optimize(records, Mode.READ).forEach(this::runTask);
+            execute(records, Mode.READ);
         } catch (Exception e) {
             logger.warn("Unexpected exception during read", e);
             for (ChannelRecord record : records) {
@@ -246,7 +350,7 @@ public abstract class AbstractBlockDriver<T> implements Driver {
     public synchronized void write(final List<ChannelRecord> records) throws ConnectionException {
         connect();
         try {
-            optimize(records, Mode.WRITE).forEach(this::runTask);
+            execute(records, Mode.WRITE);
         } catch (Exception e) {
             logger.warn("Unexpected exception during write", e);
             for (ChannelRecord record : records) {
@@ -256,13 +360,136 @@ public abstract class AbstractBlockDriver<T> implements Driver {
         }
     }
 
+    private void execute(final List<ChannelRecord> records, final Mode mode) throws KuraException {
+        if (getMaxConcurrentTasks() > 1) {
+            runTasks(optimizeByDomain(records, mode));
+        } else {
+            optimize(records, mode).forEach(this::runTask);
+        }
+    }
+
+    /**
+     * Executes the provided {@link BlockTask} instances, grouped by domain, running at most
+     * {@link #getMaxConcurrentTasks()} tasks concurrently and at most {@link #getMaxConcurrentTasksForDomain(Object)}
+     * tasks concurrently for each domain. The tasks of a domain are started in the order of the provided list. This
+     * method returns when all tasks have been executed.
+     *
+     * @param tasksByDomain
+     *            the tasks to be executed, grouped by domain
+     */
+    protected void runTasks(Map<T, List<BlockTask>> tasksByDomain) {
+        final int maxConcurrentTasks = getMaxConcurrentTasks();
+        if (maxConcurrentTasks <= 1) {
+            tasksByDomain.values().forEach(tasks -> tasks.forEach(this::runTask));
+            return;
+        }
+
+        // each lane runs the tasks of a domain sequentially, the lanes of the same domain share the task queue
+        final List<List<Runnable>> lanesByDomain = new ArrayList<>(tasksByDomain.size());
+        int maxLanes = 0;
+        for (final Entry<T, List<BlockTask>> entry : tasksByDomain.entrySet()) {
+            final List<BlockTask> tasks = entry.getValue();
+            if (tasks.isEmpty()) {
+                continue;
+            }
+            final int laneCount = isSequential(tasks) ? 1
+                    : Math.max(1, Math.min(getMaxConcurrentTasksForDomain(entry.getKey()), tasks.size()));
+            final Queue<BlockTask> queue = new ConcurrentLinkedQueue<>(tasks);
+            final List<Runnable> lanes = new ArrayList<>(laneCount);
+            for (int i = 0; i < laneCount; i++) {
+                lanes.add(() -> {
+                    BlockTask task;
+                    while ((task = queue.poll()) != null) {
+                        runTask(task);
+                    }
+                });
+            }
+            lanesByDomain.add(lanes);
+            maxLanes = Math.max(maxLanes, laneCount);
+        }
+
+        // the first lane of every domain is started before the second lane of any domain
+        final Queue<Runnable> pendingLanes = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < maxLanes; i++) {
+            for (final List<Runnable> lanes : lanesByDomain) {
+                if (i < lanes.size()) {
+                    pendingLanes.add(lanes.get(i));
+                }
+            }
+        }
+
+        final Runnable worker = () -> {
+            Runnable lane;
+            while ((lane = pendingLanes.poll()) != null) {
+                lane.run();
+            }
+        };
+
+        final int workerCount = Math.min(maxConcurrentTasks, pendingLanes.size());
+        final CountDownLatch completed = new CountDownLatch(Math.max(0, workerCount - 1));
+        final Executor executor = getTaskExecutor();
+        for (int i = 1; i < workerCount; i++) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        worker.run();
+                    } finally {
+                        completed.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.debug("Task execution rejected, running in the calling thread", e);
+                completed.countDown();
+            }
+        }
+
+        try {
+            worker.run();
+        } finally {
+            awaitUninterruptibly(completed);
+        }
+    }
+
+    private static boolean isSequential(final List<BlockTask> tasks) {
+        // read-update-write operations require the read tasks to complete before the write tasks
+        final Mode firstMode = tasks.get(0).getMode();
+        for (final BlockTask task : tasks) {
+            if (task.getMode() != firstMode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     protected PreparedRead createPreparedRead(List<ChannelRecord> records, List<BlockTask> tasks) {
         return new BlockPreparedRead(records, tasks);
     }
 
+    protected PreparedRead createPreparedRead(List<ChannelRecord> records, Map<T, List<BlockTask>> tasksByDomain) {
+        return new BlockPreparedRead(records, tasksByDomain);
+    }
+
     @Override
     public synchronized PreparedRead prepareRead(List<ChannelRecord> records) {
         try {
+            if (getMaxConcurrentTasks() > 1) {
+                return createPreparedRead(records, optimizeByDomain(records, Mode.READ));
+            }
             return createPreparedRead(records, optimize(records, Mode.READ));
         } catch (KuraException e) {
             for (ChannelRecord record : records) {
@@ -277,10 +504,18 @@ public abstract class AbstractBlockDriver<T> implements Driver {
 
         private final List<ChannelRecord> records;
         private final List<BlockTask> tasks;
+        private final Map<T, List<BlockTask>> tasksByDomain;
 
         public BlockPreparedRead(List<ChannelRecord> records, List<BlockTask> tasks) {
             this.records = records;
             this.tasks = tasks;
+            this.tasksByDomain = null;
+        }
+
+        public BlockPreparedRead(List<ChannelRecord> records, Map<T, List<BlockTask>> tasksByDomain) {
+            this.records = records;
+            this.tasks = null;
+            this.tasksByDomain = tasksByDomain;
         }
 
         @Override
@@ -291,8 +526,12 @@ public abstract class AbstractBlockDriver<T> implements Driver {
         public List<ChannelRecord> execute() throws ConnectionException, KuraException {
             synchronized (AbstractBlockDriver.this) {
                 connect();
-                for (BlockTask task : this.tasks) {
-                    runTask(task);
+                if (this.tasksByDomain != null) {
+                    runTasks(this.tasksByDomain);
+                } else {
+                    for (BlockTask task : this.tasks) {
+                        runTask(task);
+                    }
                 }
                 return this.records;
             }
@@ -305,6 +544,20 @@ public abstract class AbstractBlockDriver<T> implements Driver {
 
     }
 
+    private static final class SharedExecutorHolder {
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        private static final Executor EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "BlockDriverTask-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private SharedExecutorHolder() {
+        }
+    }
+
     public static final class Pair<U, V> {
 
         private final U first;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -21,6 +21,10 @@ import org.eclipse.kura.driver.binary.BinaryData;
 import org.eclipse.kura.driver.binary.Buffer;
 import org.eclipse.kura.driver.binary.TypeUtil;
 import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.DoubleValue;
+import org.eclipse.kura.type.FloatValue;
+import org.eclipse.kura.type.IntegerValue;
+import org.eclipse.kura.type.LongValue;
 import org.eclipse.kura.type.TypedValue;
 import org.eclipse.kura.type.TypedValues;
 import org.slf4j.Logger;
@@ -34,6 +38,7 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
 
     private Function<T, TypedValue<?>> toTypedValue;
     private Function<TypedValue<?>, T> fromTypedValue;
+    private TypedValueReader reader;
 
     @SuppressWarnings("unchecked")
     public BinaryDataTask(ChannelRecord record, int offset, BinaryData<T> dataType, Mode mode) {
@@ -44,6 +49,9 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
             Mode mode) {
         this(record, offset, binaryDataType, TypeUtil.toTypedValue(binaryDataType.getValueType(), dataType),
                 TypeUtil.fromTypedValue(binaryDataType.getValueType(), dataType), mode);
+        if (Number.class.isAssignableFrom(binaryDataType.getValueType())) {
+            this.reader = primitiveReader(binaryDataType, dataType);
+        }
     }
 
     public BinaryDataTask(ChannelRecord record, int offset, BinaryData<T> dataType,
@@ -52,6 +60,23 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
         this.dataType = dataType;
         this.toTypedValue = toTypedValue;
         this.fromTypedValue = fromTypedValue;
+        this.reader = (buffer, bufferOffset) -> this.toTypedValue.apply(this.dataType.read(buffer, bufferOffset));
+    }
+
+    private TypedValueReader primitiveReader(final BinaryData<T> binaryDataType, final DataType dataType) {
+        // numeric values are decoded without boxing, the conversion is the same performed by TypeUtil
+        switch (dataType) {
+        case INTEGER:
+            return (buffer, bufferOffset) -> new IntegerValue(binaryDataType.readInt(buffer, bufferOffset));
+        case LONG:
+            return (buffer, bufferOffset) -> new LongValue(binaryDataType.readLong(buffer, bufferOffset));
+        case FLOAT:
+            return (buffer, bufferOffset) -> new FloatValue(binaryDataType.readFloat(buffer, bufferOffset));
+        case DOUBLE:
+            return (buffer, bufferOffset) -> new DoubleValue(binaryDataType.readDouble(buffer, bufferOffset));
+        default:
+            return this.reader;
+        }
     }
 
     @Override
@@ -60,14 +85,16 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
         Buffer buffer = parent.getBuffer();
 
         if (getMode() == Mode.READ) {
-            logger.debug("Read {}: offset: {}", this.dataType.getClass().getSimpleName(), getStart());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Read {}: offset: {}", this.dataType.getClass().getSimpleName(), getStart());
+            }
 
-            final T result = this.dataType.read(buffer, getStart() - parent.getStart());
-
-            this.record.setValue(this.toTypedValue.apply(result));
+            this.record.setValue(this.reader.read(buffer, getStart() - parent.getStart()));
             onSuccess();
         } else {
-            logger.debug("Write {}: offset: {}", this.dataType.getClass().getSimpleName(), getStart());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Write {}: offset: {}", this.dataType.getClass().getSimpleName(), getStart());
+            }
 
             T value = this.fromTypedValue.apply(this.record.getValue());
 
@@ -75,4 +102,9 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
         }
     }
 
+    private interface TypedValueReader {
+
+        public TypedValue<?> read(Buffer buffer, int offset);
+    }
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -21,6 +21,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.kura.driver.block.Block;
+import org.eclipse.kura.driver.block.BlockCostModel;
 import org.eclipse.kura.driver.block.BlockFactory;
 import org.eclipse.kura.driver.block.ProhibitedBlock;
 
@@ -106,6 +107,28 @@ public class UpdateBlockTaskAggregator extends BlockTaskAggregator {
         this.readTaskAggregator.setMinimumGapSize(minimumGapSize);
     }
 
+    /**
+     * Sets the {@link BlockCostModel} that will be used for aggregating both the {@link ToplevelBlockTask} tasks in
+     * {@link Mode#READ} and {@link Mode#WRITE} modes. The gaps between the tasks in {@link Mode#WRITE} will never be
+     * transferred.
+     */
+    @Override
+    public void setCostModel(BlockCostModel costModel) {
+        super.setCostModel(costModel);
+        this.readTaskAggregator.setCostModel(costModel);
+    }
+
+    /**
+     * Sets the {@link BlockCostModel} that will be used for aggregating the {@link ToplevelBlockTask} tasks in
+     * {@link Mode#READ} mode only.
+     *
+     * @param costModel
+     *            the cost model, can be {@code null}
+     */
+    public void setReadCostModel(BlockCostModel costModel) {
+        this.readTaskAggregator.setCostModel(costModel);
+    }
+
     /**
      * {@inheritDoc}
      *
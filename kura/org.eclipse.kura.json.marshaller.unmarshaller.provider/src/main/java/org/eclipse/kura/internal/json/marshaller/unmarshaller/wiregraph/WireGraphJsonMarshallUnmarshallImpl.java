@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2019, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -46,6 +46,11 @@ public class WireGraphJsonMarshallUnmarshallImpl {
     private static final String EMITTER_PORT_KEY = "emitterPort";
     private static final String WIRES_KEY = "wires";
     private static final String COMPONENTS_KEY = "components";
+    private static final String MAILBOX_KEY = "mailbox";
+    private static final String MAILBOX_CAPACITY_KEY = "capacity";
+    private static final String MAILBOX_OVERFLOW_POLICY_KEY = "overflowPolicy";
+    private static final String MAILBOX_CAPACITY_PROPERTY = MAILBOX_KEY + "." + MAILBOX_CAPACITY_KEY;
+    private static final String MAILBOX_OVERFLOW_POLICY_PROPERTY = MAILBOX_KEY + "." + MAILBOX_OVERFLOW_POLICY_KEY;
     
     public WireGraphJsonMarshallUnmarshallImpl() {
         // Public for testing purposes
@@ -112,9 +117,29 @@ public class WireGraphJsonMarshallUnmarshallImpl {
         result.add(OUTPUT_PORT_COUNT_KEY, (int) componentProperties.get(OUTPUT_PORT_COUNT_KEY));
         result.add(RENDERING_PROPERTIES_KEY, resultElems);
 
+        final JsonObject mailbox = marshalMailbox(componentProperties);
+        if (!mailbox.isEmpty()) {
+            result.add(MAILBOX_KEY, mailbox);
+        }
+
         return result;
     }
 
+    private static JsonObject marshalMailbox(Map<String, Object> componentProperties) {
+        JsonObject mailboxElems = new JsonObject();
+
+        final Object capacity = componentProperties.get(MAILBOX_CAPACITY_PROPERTY);
+        if (capacity instanceof Integer) {
+            mailboxElems.add(MAILBOX_CAPACITY_KEY, (int) capacity);
+        }
+        final Object overflowPolicy = componentProperties.get(MAILBOX_OVERFLOW_POLICY_PROPERTY);
+        if (overflowPolicy instanceof String) {
+            mailboxElems.add(MAILBOX_OVERFLOW_POLICY_KEY, (String) overflowPolicy);
+        }
+
+        return mailboxElems;
+    }
+
     private static JsonObject marshalPosition(Map<String, Object> componentProperties) {
         JsonObject positionElems = new JsonObject();
         positionElems.add("x", (float) componentProperties.get("position.x"));
@@ -225,6 +250,8 @@ public class WireGraphJsonMarshallUnmarshallImpl {
                     properties.putAll(renderingProperties);
                 } else if (PID_KEY.equalsIgnoreCase(name) && value.isString()) {
                     componentPid = value.asString();
+                } else if (MAILBOX_KEY.equalsIgnoreCase(name) && value.isObject()) {
+                    properties.putAll(unmarshalMailbox(value.asObject()));
                 }
             }
             if (componentPid != null) {
@@ -261,6 +288,22 @@ public class WireGraphJsonMarshallUnmarshallImpl {
         return renderingProps;
     }
 
+    private static Map<String, Object> unmarshalMailbox(JsonObject jsonMailbox) {
+        Map<String, Object> mailboxMap = new HashMap<>();
+
+        for (JsonObject.Member member : jsonMailbox) {
+            String name = member.getName();
+            JsonValue value = member.getValue();
+            if (MAILBOX_CAPACITY_KEY.equalsIgnoreCase(name) && value.isNumber()) {
+                mailboxMap.put(MAILBOX_CAPACITY_PROPERTY, value.asInt());
+            } else if (MAILBOX_OVERFLOW_POLICY_KEY.equalsIgnoreCase(name) && value.isString()) {
+                mailboxMap.put(MAILBOX_OVERFLOW_POLICY_PROPERTY, value.asString());
+            }
+        }
+
+        return mailboxMap;
+    }
+
     private static Map<String, Object> unmarshalInputPortNames(JsonObject jsonInputPortNames) {
         Map<String, Object> inputPortNamesMap = new HashMap<>();
 
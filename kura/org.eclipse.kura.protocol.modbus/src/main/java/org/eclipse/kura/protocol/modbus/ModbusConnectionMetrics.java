@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.modbus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the counters of a Modbus TCP connection, as returned by
+ * {@link ModbusProtocolDeviceService#getConnectionMetrics()}.
+ * <p>
+ * The counters are cumulative since the connection has been opened. The error count includes the exception responses,
+ * the timeouts and the transactions failed by the loss of the connection. The latency is measured from the
+ * transmission of a request to the reception of its response.
+ *
+ * @since 1.1
+ */
+public final class ModbusConnectionMetrics {
+
+    private final String gateway;
+    private final int connectionId;
+    private final boolean connected;
+    private final int outstandingRequests;
+    private final long requestCount;
+    private final long responseCount;
+    private final long errorCount;
+    private final long timeoutCount;
+    private final long averageLatencyNanos;
+    private final long maxLatencyNanos;
+
+    ModbusConnectionMetrics(String gateway, int connectionId, boolean connected, int outstandingRequests,
+            long requestCount, long responseCount, long errorCount, long timeoutCount, long averageLatencyNanos,
+            long maxLatencyNanos) {
+        this.gateway = gateway;
+        this.connectionId = connectionId;
+        this.connected = connected;
+        this.outstandingRequests = outstandingRequests;
+        this.requestCount = requestCount;
+        this.responseCount = responseCount;
+        this.errorCount = errorCount;
+        this.timeoutCount = timeoutCount;
+        this.averageLatencyNanos = averageLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    /**
+     * @return the address of the gateway or field device, in the <i>host:port</i> form
+     */
+    public String getGateway() {
+        return this.gateway;
+    }
+
+    /**
+     * @return an identifier of the connection, unique among the connections opened towards the same gateway
+     */
+    public int getConnectionId() {
+        return this.connectionId;
+    }
+
+    public boolean isConnected() {
+        return this.connected;
+    }
+
+    /**
+     * @return the number of transactions waiting for a response when the snapshot was taken
+     */
+    public int getOutstandingRequests() {
+        return this.outstandingRequests;
+    }
+
+    public long getRequestCount() {
+        return this.requestCount;
+    }
+
+    public long getResponseCount() {
+        return this.responseCount;
+    }
+
+    public long getErrorCount() {
+        return this.errorCount;
+    }
+
+    public long getTimeoutCount() {
+        return this.timeoutCount;
+    }
+
+    /**
+     * @param unit
+     *            the time unit of the returned value
+     * @return the average latency of the responses received, 0 if no response has been received
+     */
+    public long getAverageLatency(TimeUnit unit) {
+        return unit.convert(this.averageLatencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit
+     *            the time unit of the returned value
+     * @return the maximum latency of the responses received, 0 if no response has been received
+     */
+    public long getMaxLatency(TimeUnit unit) {
+        return unit.convert(this.maxLatencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "ModbusConnectionMetrics [gateway=" + this.gateway + ", connectionId=" + this.connectionId
+                + ", connected=" + this.connected + ", outstandingRequests=" + this.outstandingRequests
+                + ", requestCount=" + this.requestCount + ", responseCount=" + this.responseCount + ", errorCount="
+                + this.errorCount + ", timeoutCount=" + this.timeoutCount + ", averageLatencyNanos="
+                + this.averageLatencyNanos + ", maxLatencyNanos=" + this.maxLatencyNanos + "]";
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2011, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -20,8 +20,12 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kura.KuraConnectionStatus;
 import org.eclipse.kura.comm.CommConnection;
@@ -39,7 +43,14 @@ import org.slf4j.LoggerFactory;
  * pairings to hold 32 bit data (see the configureDataMap for more detail).
  * <p>
  * The protocol supports RTU and ASCII mode operation.
- *
+ * <p>
+ * In real MODBUS-TCP/IP mode, setting the <b>maxOutstandingRequests</b> connection property to a value greater than 1
+ * lets several transactions wait for their responses at the same time on the connection, the requests submitted with
+ * {@link #readBatch(List)} and by concurrent callers are then pipelined and the responses are matched to the requests
+ * by transaction identifier.
+ * <p>
+ * Setting the <b>maxConnections</b> connection property makes the device use the connections of a pool shared with
+ * the other devices configured for the same gateway address and port, see {@link ModbusTcpConnectionManager}.
  */
 public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
 
@@ -59,6 +70,7 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
     private String connType = null;
     private Communicate comm;
     private Properties modbusProperties = null;
+    private final ModbusTcpConnectionManager connectionManager = ModbusTcpConnectionManager.getDefault();
     private static int transactionIndex = 0;
 
     public void setConnectionFactory(ConnectionFactory connectionFactory) {
@@ -189,6 +201,15 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
      * <td>port</td>
      * <td>port on the field device to connect to</td>
      * </tr>
+     * <tr>
+     * <td>maxOutstandingRequests</td>
+     * <td>optional, maximum number of pipelined transactions waiting for a response, defaults to 1</td>
+     * </tr>
+     * <tr>
+     * <td>maxConnections</td>
+     * <td>optional, enables the sharing of the connections towards the same ipAddress and port between the
+     * devices and sets the maximum number of connections to open</td>
+     * </tr>
      * </table>
      */
     @Override
@@ -229,6 +250,12 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
                 throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_AVAILABLE);
             }
             this.comm = new SerialCommunicate(this.connectionFactory, connectionConfig);
+        } else if (PROTOCOL_CONNECTION_TYPE_ETHER_TCP.equals(this.connType)
+                && connectionConfig.getProperty("maxConnections") != null) {
+            this.comm = new PooledEthernetCommunicate(connectionConfig);
+        } else if (PROTOCOL_CONNECTION_TYPE_ETHER_TCP.equals(this.connType)
+                && getMaxOutstandingRequests(connectionConfig) > 1) {
+            this.comm = new PipelinedEthernetCommunicate(connectionConfig);
         } else if (PROTOCOL_CONNECTION_TYPE_ETHER_TCP.equals(this.connType)
                 || PROTOCOL_CONNECTION_TYPE_ETHER_RTU.equals(this.connType)) {
             this.comm = new EthernetCommunicate(this.connectionFactory, connectionConfig);
@@ -239,6 +266,27 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         this.connConfigd = true;
     }
 
+    private static int getMaxOutstandingRequests(Properties connectionConfig) throws ModbusProtocolException {
+        return getPositiveIntProperty(connectionConfig, "maxOutstandingRequests", 1, 0xffff);
+    }
+
+    private static int getPositiveIntProperty(Properties connectionConfig, String key, int defaultValue, int maxValue)
+            throws ModbusProtocolException {
+        String sValue = connectionConfig.getProperty(key);
+        if (sValue == null) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(sValue.trim());
+            if (value < 1 || value > maxValue) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_CONFIGURATION);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_CONFIGURATION);
+        }
+    }
+
     /**
      * get the name "modbus" for this protocol
      *
@@ -290,6 +338,23 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         abstract public byte[] msgTransaction(byte[] msg) throws ModbusProtocolException;
     }
 
+    /**
+     * A connection that can have several transactions waiting for a
+     * response, the transactions are submitted without waiting for the
+     * previous ones to complete.
+     */
+    abstract private class AsyncCommunicate extends Communicate {
+
+        abstract CompletableFuture<byte[]> submit(byte[] msg) throws ModbusProtocolException;
+
+        abstract List<ModbusConnectionMetrics> getMetrics();
+
+        @Override
+        public byte[] msgTransaction(byte[] msg) throws ModbusProtocolException {
+            return ModbusTcpTransport.await(submit(msg));
+        }
+    }
+
     /**
      * Installation of a serial connection to communicate, using javax.comm.SerialPort
      * <p>
@@ -322,7 +387,15 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
      * <td>bitsPerWord</td>
      * <td>only RTU mode supported, bitsPerWord must be 8</td>
      * </tr>
+     * <tr>
+     * <td>interFrameSilence</td>
+     * <td>optional, RTU mode only, idle time in milliseconds that ends a frame, defaults to 3.5 character times and
+     * never less than 20 ms</td>
+     * </tr>
      * </table>
+     * In RTU mode the port is opened with a receive timeout equal to the inter-frame silence, the responses are read
+     * with blocking reads and reassembled by a {@link RtuFramer}.
+     * <p>
      * see {@link org.eclipse.kura.comm.CommConnection CommConnection} package for more detail.
      */
     private final class SerialCommunicate extends Communicate {
@@ -354,8 +427,20 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
             int parity = Integer.valueOf(sParity).intValue();
             int bits = Integer.valueOf(sBits).intValue();
 
-            String uri = new CommURI.Builder(sPort).withBaudRate(baud).withDataBits(bits).withStopBits(stop)
-                    .withParity(parity).withTimeout(2000).build().toString();
+            CommURI.Builder uriBuilder = new CommURI.Builder(sPort).withBaudRate(baud).withDataBits(bits)
+                    .withStopBits(stop).withParity(parity).withOpenTimeout(2000);
+
+            if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.RTU_MODE) {
+                String sSilence = connectionConfig.getProperty("interFrameSilence");
+                int interFrameSilence = sSilence != null ? Integer.valueOf(sSilence.trim()).intValue()
+                        : RtuFramer.getInterFrameSilence(baud);
+                if (interFrameSilence <= 0) {
+                    throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_CONFIGURATION);
+                }
+                uriBuilder.withReceiveTimeout(interFrameSilence);
+            }
+
+            String uri = uriBuilder.build().toString();
 
             try {
                 this.conn = (CommConnection) connFactory.createConnection(uri, 1, false);
@@ -460,28 +545,84 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         }
 
         /**
-         * msgTransaction must be called with a byte array having two extra
-         * bytes for the CRC. It will return a byte array of the response to the
-         * message. Validation will include checking the CRC and verifying the
-         * command matches.
+         * msgTransaction must be called with a byte array containing the unit
+         * address and the PDU, the CRC or LRC is added by this method. It will
+         * return a byte array of the response to the message. Validation will
+         * include checking the CRC and verifying the command matches.
          */
         @Override
         public byte[] msgTransaction(byte[] msg) throws ModbusProtocolException {
+            if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.RTU_MODE) {
+                return rtuTransaction(msg);
+            }
+            return asciiTransaction(msg);
+        }
 
-            byte[] cmd = null;
+        /**
+         * RTU transaction: the response is read with blocking reads that
+         * return when data is available or after the inter-frame silence
+         * configured as receive timeout of the port.
+         */
+        private byte[] rtuTransaction(byte[] msg) throws ModbusProtocolException {
+            byte[] cmd = new byte[msg.length + 2];
+            System.arraycopy(msg, 0, cmd, 0, msg.length);
+            // Add crc calculation to end of message
+            int crc = Crc16.getCrc16(msg, msg.length, 0x0ffff);
+            cmd[msg.length] = (byte) crc;
+            cmd[msg.length + 1] = (byte) (crc >> 8);
 
-            if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.RTU_MODE) {
-                cmd = new byte[msg.length + 2];
-                for (int i = 0; i < msg.length; i++) {
-                    cmd[i] = msg[i];
+            RtuFramer framer = new RtuFramer(msg[0], msg[1]);
+            byte[] buffer = new byte[RtuFramer.MAX_FRAME_LENGTH];
+
+            try {
+                synchronized (this.out) {
+                    synchronized (this.in) {
+                        // flush input
+                        while (this.in.available() > 0) {
+                            this.in.read(buffer, 0, Math.min(this.in.available(), buffer.length));
+                        }
+                        // send all data
+                        this.out.write(cmd, 0, cmd.length);
+                        this.out.flush();
+
+                        long start = System.nanoTime();
+                        long timeOut = TimeUnit.MILLISECONDS.toNanos(ModbusProtocolDevice.this.respTout);
+                        while (true) {
+                            int read = this.in.read(buffer, 0, buffer.length);
+                            if (read > 0) {
+                                byte[] response = framer.accept(buffer, 0, read);
+                                if (response != null) {
+                                    if ((response[1] & 0x80) == 0x80) {
+                                        throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                                                "Exception response = " + Byte.toString(response[2]));
+                                    }
+                                    return response;
+                                }
+                            } else if (framer.getLength() > 0) {
+                                logger.debug("Inter-frame silence, discarding {} bytes", framer.getLength());
+                                framer.silence();
+                            }
+
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                                        "Thread interrupted");
+                            }
+                            long elapsed = System.nanoTime() - start;
+                            if (elapsed > timeOut) {
+                                String failMsg = "Recv timeout";
+                                logger.warn(failMsg + " : " + TimeUnit.NANOSECONDS.toMillis(elapsed));
+                                throw new ModbusProtocolException(ModbusProtocolErrorCode.RESPONSE_TIMEOUT, failMsg);
+                            }
+                        }
+                    }
                 }
-                // Add crc calculation to end of message
-                int crc = Crc16.getCrc16(msg, msg.length, 0x0ffff);
-                cmd[msg.length] = (byte) crc;
-                cmd[msg.length + 1] = (byte) (crc >> 8);
-            } else if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.ASCII_MODE) {
-                cmd = convertCommandToAscii(msg);
+            } catch (IOException e) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE, e.getMessage());
             }
+        }
+
+        private byte[] asciiTransaction(byte[] msg) throws ModbusProtocolException {
+            byte[] cmd = convertCommandToAscii(msg);
 
             // Send the message
             try {
@@ -499,10 +640,7 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
                         // wait for and process response
                         byte[] response = new byte[262]; // response buffer
                         int respIndex = 0;
-                        int minimumLength = 5; // default minimum message length
-                        if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.ASCII_MODE) {
-                            minimumLength = 11;
-                        }
+                        int minimumLength = 11; // default minimum message length
                         int timeOut = ModbusProtocolDevice.this.respTout;
                         for (int maxLoop = 0; maxLoop < 1000; maxLoop++) {
                             boolean endFrame = false;
@@ -528,48 +666,30 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
                                 }
                                 // address byte must match first
                                 if (respIndex == 0) {
-                                    if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.ASCII_MODE) {
-                                        if ((response[0] = (byte) this.in.read()) == ':') {
-                                            respIndex++;
-                                        }
-                                    } else {
-                                        if ((response[0] = (byte) this.in.read()) == msg[0]) {
-                                            respIndex++;
-                                        }
+                                    if ((response[0] = (byte) this.in.read()) == ':') {
+                                        respIndex++;
                                     }
                                 } else {
                                     response[respIndex++] = (byte) this.in.read();
                                 }
 
-                                if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.RTU_MODE) {
-                                    timeOut = 100; // move to character timeout
-                                    if (respIndex >= minimumLength) {
-                                        endFrame = true;
-                                    }
-                                } else {
-                                    if (response[respIndex - 1] == 10 && response[respIndex - 2] == 13) {
-                                        endFrame = true;
-                                    }
+                                if (response[respIndex - 1] == 10 && response[respIndex - 2] == 13) {
+                                    endFrame = true;
                                 }
                             }
-                            // if ASCII mode convert response
-                            if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.ASCII_MODE) {
-                                byte lrcRec = asciiLrcCalc(response, respIndex);
-                                response = convertAsciiResponseToBin(response, respIndex);
-                                byte lrcCalc = (byte) binLrcCalc(response);
-                                if (lrcRec != lrcCalc) {
-                                    throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
-                                            "Bad LRC");
-                                }
+                            // convert response
+                            byte lrcRec = asciiLrcCalc(response, respIndex);
+                            response = convertAsciiResponseToBin(response, respIndex);
+                            byte lrcCalc = (byte) binLrcCalc(response);
+                            if (lrcRec != lrcCalc) {
+                                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                                        "Bad LRC");
                             }
 
                             // Check first for an Exception response
                             if ((response[1] & 0x80) == 0x80) {
-                                if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.ASCII_MODE
-                                        || Crc16.getCrc16(response, 5, 0xffff) == 0) {
-                                    throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
-                                            "Exception response = " + Byte.toString(response[2]));
-                                }
+                                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                                        "Exception response = " + Byte.toString(response[2]));
                             } else {
                                 // then check for a valid message
                                 switch (response[1]) {
@@ -580,8 +700,7 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
                                     if (respIndex < 8) {
                                         // wait for more data
                                         minimumLength = 8;
-                                    } else if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.ASCII_MODE
-                                            || Crc16.getCrc16(response, 8, 0xffff) == 0) {
+                                    } else {
                                         byte[] ret = new byte[6];
                                         for (int i = 0; i < 6; i++) {
                                             ret[i] = response[i];
@@ -593,17 +712,11 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
                                 case ModbusFunctionCodes.READ_INPUT_STATUS:
                                 case ModbusFunctionCodes.READ_INPUT_REGS:
                                 case ModbusFunctionCodes.READ_HOLDING_REGS:
-                                    int byteCnt;
-                                    if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.ASCII_MODE) {
-                                        byteCnt = (response[2] & 0xff) + 3;
-                                    } else {
-                                        byteCnt = (response[2] & 0xff) + 5;
-                                    }
+                                    int byteCnt = (response[2] & 0xff) + 3;
                                     if (respIndex < byteCnt) {
                                         // wait for more data
                                         minimumLength = byteCnt;
-                                    } else if (ModbusProtocolDevice.this.txMode == ModbusTransmissionMode.ASCII_MODE
-                                            || Crc16.getCrc16(response, byteCnt, 0xffff) == 0) {
+                                    } else {
                                         byte[] ret = new byte[byteCnt];
                                         for (int i = 0; i < byteCnt; i++) {
                                             ret[i] = response[i];
@@ -883,114 +996,324 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         }
     }
 
+    /**
+     * Installation of a real MODBUS-TCP/IP connection that pipelines the
+     * transactions, see {@link ModbusTcpTransport}.
+     */
+    private final class PipelinedEthernetCommunicate extends AsyncCommunicate {
+
+        final InetSocketAddress address;
+        final int maxOutstandingRequests;
+        ModbusTcpTransport transport;
+
+        public PipelinedEthernetCommunicate(Properties connectionConfig) throws ModbusProtocolException {
+            logger.debug("Configure pipelined TCP connection");
+            String sPort;
+            String ipAddress;
+
+            if ((sPort = connectionConfig.getProperty("ethport")) == null
+                    || (ipAddress = connectionConfig.getProperty("ipAddress")) == null) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_CONFIGURATION);
+            }
+            if (ModbusProtocolDevice.this.txMode != ModbusTransmissionMode.RTU_MODE) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.METHOD_NOT_SUPPORTED,
+                        "Only RTU over TCP/IP supported");
+            }
+            this.address = InetSocketAddress.createUnresolved(ipAddress, Integer.valueOf(sPort).intValue());
+            this.maxOutstandingRequests = getMaxOutstandingRequests(connectionConfig);
+        }
+
+        @Override
+        public synchronized void connect() {
+            if (this.transport != null && this.transport.isOpen()) {
+                return;
+            }
+            try {
+                this.transport = new ModbusTcpTransport(
+                        new InetSocketAddress(this.address.getHostString(), this.address.getPort()),
+                        this.maxOutstandingRequests, ModbusProtocolDevice.this.respTout);
+                logger.info("TCP connected, up to {} outstanding requests", this.maxOutstandingRequests);
+            } catch (IOException e) {
+                this.transport = null;
+                logger.error("Failed to connect to remote: " + e);
+            }
+        }
+
+        @Override
+        public synchronized void disconnect() {
+            if (this.transport != null) {
+                this.transport.close();
+                this.transport = null;
+            }
+        }
+
+        @Override
+        public synchronized int getConnectStatus() {
+            if (this.transport != null && this.transport.isOpen()) {
+                return KuraConnectionStatus.CONNECTED;
+            }
+            return KuraConnectionStatus.DISCONNECTED;
+        }
+
+        @Override
+        synchronized List<ModbusConnectionMetrics> getMetrics() {
+            if (this.transport == null) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(this.transport
+                    .getMetrics(this.address.getHostString() + ":" + this.address.getPort(), 0));
+        }
+
+        @Override
+        CompletableFuture<byte[]> submit(byte[] msg) throws ModbusProtocolException {
+            ModbusTcpTransport currentTransport;
+            synchronized (this) {
+                connect();
+                currentTransport = this.transport;
+            }
+            if (currentTransport == null) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                        "Cannot transact on closed socket");
+            }
+            return currentTransport.submit(msg);
+        }
+    }
+
+    /**
+     * Installation of a real MODBUS-TCP/IP connection that uses the
+     * connections of the pool shared by the devices configured for the same
+     * gateway, see {@link ModbusTcpConnectionManager}.
+     */
+    private final class PooledEthernetCommunicate extends AsyncCommunicate {
+
+        final String ipAddress;
+        final int port;
+        final int maxConnections;
+        final int maxOutstandingRequests;
+        ModbusTcpConnectionManager.GatewayPool pool;
+
+        public PooledEthernetCommunicate(Properties connectionConfig) throws ModbusProtocolException {
+            logger.debug("Configure pooled TCP connection");
+            String sPort;
+
+            if ((sPort = connectionConfig.getProperty("ethport")) == null
+                    || (this.ipAddress = connectionConfig.getProperty("ipAddress")) == null) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_CONFIGURATION);
+            }
+            if (ModbusProtocolDevice.this.txMode != ModbusTransmissionMode.RTU_MODE) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.METHOD_NOT_SUPPORTED,
+                        "Only RTU over TCP/IP supported");
+            }
+            this.port = Integer.valueOf(sPort).intValue();
+            this.maxConnections = getPositiveIntProperty(connectionConfig, "maxConnections", 1, Integer.MAX_VALUE);
+            this.maxOutstandingRequests = getMaxOutstandingRequests(connectionConfig);
+        }
+
+        @Override
+        public synchronized void connect() {
+            if (this.pool == null) {
+                this.pool = ModbusProtocolDevice.this.connectionManager.acquire(this.ipAddress, this.port,
+                        this.maxConnections, this.maxOutstandingRequests, ModbusProtocolDevice.this.respTout);
+            }
+            this.pool.connect();
+        }
+
+        @Override
+        public synchronized void disconnect() {
+            if (this.pool != null) {
+                ModbusProtocolDevice.this.connectionManager.release(this.pool);
+                this.pool = null;
+            }
+        }
+
+        @Override
+        public synchronized int getConnectStatus() {
+            if (this.pool != null && this.pool.isConnected()) {
+                return KuraConnectionStatus.CONNECTED;
+            }
+            return KuraConnectionStatus.DISCONNECTED;
+        }
+
+        @Override
+        synchronized List<ModbusConnectionMetrics> getMetrics() {
+            if (this.pool == null) {
+                return Collections.emptyList();
+            }
+            return this.pool.getMetrics();
+        }
+
+        @Override
+        CompletableFuture<byte[]> submit(byte[] msg) throws ModbusProtocolException {
+            ModbusTcpConnectionManager.GatewayPool currentPool;
+            synchronized (this) {
+                if (this.pool == null) {
+                    connect();
+                }
+                currentPool = this.pool;
+            }
+            return currentPool.submit(msg, ModbusProtocolDevice.this.respTout);
+        }
+    }
+
     @Override
-    public boolean[] readCoils(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
+    public List<ModbusConnectionMetrics> getConnectionMetrics() {
+        Communicate currentComm = this.comm;
+        if (currentComm instanceof AsyncCommunicate) {
+            return ((AsyncCommunicate) currentComm).getMetrics();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Executes the batch with the single read methods, unless the
+     * connection pipelines the transactions or uses a connection pool: in
+     * that case all the requests are submitted before waiting for the
+     * responses.
+     */
+    @Override
+    public List<ModbusReadResult> readBatch(List<ModbusReadRequest> requests) throws ModbusProtocolException {
         if (!this.connConfigd) {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
         }
 
-        boolean[] ret = new boolean[count];
-        int index = 0;
+        Communicate currentComm = this.comm;
+        if (!(currentComm instanceof AsyncCommunicate)) {
+            return ModbusProtocolDeviceService.super.readBatch(requests);
+        }
 
-        byte[] resp;
-        /*
-         * construct the command issue and get results
-         */
+        AsyncCommunicate asyncComm = (AsyncCommunicate) currentComm;
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>(requests.size());
+
+        for (ModbusReadRequest request : requests) {
+            try {
+                responses.add(asyncComm.submit(buildReadCommand(request.getUnitAddr(), request.getFunctionCode(),
+                        request.getDataAddress(), request.getCount())));
+            } catch (ModbusProtocolException e) {
+                CompletableFuture<byte[]> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                responses.add(failed);
+            }
+        }
+
+        List<ModbusReadResult> results = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            ModbusReadRequest request = requests.get(i);
+            try {
+                byte[] resp = ModbusTcpTransport.await(responses.get(i));
+                if (request.isBitRead()) {
+                    results.add(ModbusReadResult.ofBits(request, parseBits(resp, request.getCount())));
+                } else {
+                    results.add(ModbusReadResult.ofRegisters(request, parseRegisters(resp, request.getCount())));
+                }
+            } catch (ModbusProtocolException e) {
+                results.add(ModbusReadResult.ofError(request, e));
+            }
+        }
+
+        return results;
+    }
+
+    private static byte[] buildReadCommand(int unitAddr, int functionCode, int dataAddress, int count) {
         byte[] cmd = new byte[6];
         cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) ModbusFunctionCodes.READ_COIL_STATUS;
+        cmd[1] = (byte) functionCode;
         cmd[2] = (byte) (dataAddress / 256);
         cmd[3] = (byte) (dataAddress % 256);
         cmd[4] = (byte) (count / 256);
         cmd[5] = (byte) (count % 256);
+        return cmd;
+    }
 
-        /*
-         * send the message and get the response
-         */
-        resp = this.comm.msgTransaction(cmd);
-
-        /*
-         * process the response (address & CRC already confirmed)
-         */
+    /**
+     * process the response of a read coils or read discrete inputs
+     * function (address & CRC already confirmed)
+     */
+    private static boolean[] parseBits(byte[] resp, int count) throws ModbusProtocolException {
         if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
         }
-        if ((resp[2] & 0xff) == (count + 7) / 8) {
-            byte mask = 1;
-            int byteOffset = 3;
-            for (int j = 0; j < count; j++, index++) {
-                // get this point's value
-                if ((resp[byteOffset] & mask) == mask) {
-                    ret[index] = true;
-                } else {
-                    ret[index] = false;
-                }
-                // advance the mask and offset index
-                if ((mask <<= 1) == 0) {
-                    mask = 1;
-                    byteOffset++;
-                }
+        if ((resp[2] & 0xff) != (count + 7) / 8) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
+        }
+
+        boolean[] ret = new boolean[count];
+        byte mask = 1;
+        int byteOffset = 3;
+        for (int index = 0; index < count; index++) {
+            // get this point's value
+            ret[index] = (resp[byteOffset] & mask) == mask;
+            // advance the mask and offset index
+            if ((mask <<= 1) == 0) {
+                mask = 1;
+                byteOffset++;
             }
-        } else {
+        }
+        return ret;
+    }
+
+    /**
+     * process the response of a read holding registers or read input
+     * registers function (address & CRC already confirmed)
+     */
+    private static int[] parseRegisters(byte[] resp, int count) throws ModbusProtocolException {
+        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+        }
+        if ((resp[2] & 0xff) != count * 2) {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
         }
 
+        int[] ret = new int[count];
+        int byteOffset = 3;
+        for (int index = 0; index < count; index++) {
+            int val = resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(0) - '1'] & 0xff;
+            val <<= 8;
+            val += resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(1) - '1'] & 0xff;
+
+            ret[index] = val;
+
+            byteOffset += 2;
+        }
         return ret;
     }
 
     @Override
-    public boolean[] readDiscreteInputs(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
+    public boolean[] readCoils(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
         if (!this.connConfigd) {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
         }
 
-        boolean[] ret = new boolean[count];
-        int index = 0;
-
-        byte[] resp;
         /*
          * construct the command issue and get results
          */
-        byte[] cmd = new byte[6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) ModbusFunctionCodes.READ_INPUT_STATUS;
-        cmd[2] = (byte) (dataAddress / 256);
-        cmd[3] = (byte) (dataAddress % 256);
-        cmd[4] = (byte) (count / 256);
-        cmd[5] = (byte) (count % 256);
+        byte[] cmd = buildReadCommand(unitAddr, ModbusFunctionCodes.READ_COIL_STATUS, dataAddress, count);
 
         /*
          * send the message and get the response
          */
-        resp = this.comm.msgTransaction(cmd);
+        byte[] resp = this.comm.msgTransaction(cmd);
+
+        return parseBits(resp, count);
+    }
+
+    @Override
+    public boolean[] readDiscreteInputs(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
+        if (!this.connConfigd) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
+        }
 
         /*
-         * process the response (address & CRC already confirmed)
+         * construct the command issue and get results
          */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) == (count + 7) / 8) {
-            byte mask = 1;
-            int byteOffset = 3;
-            for (int j = 0; j < count; j++, index++) {
-                // get this point's value
-                if ((resp[byteOffset] & mask) == mask) {
-                    ret[index] = true;
-                } else {
-                    ret[index] = false;
-                }
-                // advance the mask and offset index
-                if ((mask <<= 1) == 0) {
-                    mask = 1;
-                    byteOffset++;
-                }
-            }
-        } else {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
+        byte[] cmd = buildReadCommand(unitAddr, ModbusFunctionCodes.READ_INPUT_STATUS, dataAddress, count);
 
-        return ret;
+        /*
+         * send the message and get the response
+         */
+        byte[] resp = this.comm.msgTransaction(cmd);
+
+        return parseBits(resp, count);
     }
 
     @Override
@@ -1094,99 +1417,36 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
         }
 
-        int[] ret = new int[count];
-        int index = 0;
-
-        byte[] resp;
         /*
-         * construct the command issue and get results, putting the results
-         * away at index and then incrementing index for the next command
+         * construct the command issue and get results
          */
-        byte[] cmd = new byte[6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) ModbusFunctionCodes.READ_HOLDING_REGS;
-        cmd[2] = (byte) (dataAddress / 256);
-        cmd[3] = (byte) (dataAddress % 256);
-        cmd[4] = 0;
-        cmd[5] = (byte) count;
+        byte[] cmd = buildReadCommand(unitAddr, ModbusFunctionCodes.READ_HOLDING_REGS, dataAddress, count);
 
         /*
          * send the message and get the response
          */
-        resp = this.comm.msgTransaction(cmd);
-
-        /*
-         * process the response (address & CRC already confirmed)
-         */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) == count * 2) {
-            int byteOffset = 3;
-            for (int j = 0; j < count; j++, index++) {
-                int val = resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(0) - '1'] & 0xff;
-                val <<= 8;
-                val += resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(1) - '1'] & 0xff;
-
-                ret[index] = val;
+        byte[] resp = this.comm.msgTransaction(cmd);
 
-                byteOffset += 2;
-            }
-        } else {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
-        return ret;
+        return parseRegisters(resp, count);
     }
 
     @Override
     public int[] readInputRegisters(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
-
         if (!this.connConfigd) {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
         }
 
-        int[] ret = new int[count];
-        int index = 0;
-
-        byte[] resp;
         /*
-         * construct the command issue and get results, putting the results
-         * away at index and then incrementing index for the next command
+         * construct the command issue and get results
          */
-        byte[] cmd = new byte[6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) ModbusFunctionCodes.READ_INPUT_REGS;
-        cmd[2] = (byte) (dataAddress / 256);
-        cmd[3] = (byte) (dataAddress % 256);
-        cmd[4] = 0;
-        cmd[5] = (byte) count;
+        byte[] cmd = buildReadCommand(unitAddr, ModbusFunctionCodes.READ_INPUT_REGS, dataAddress, count);
 
         /*
          * send the message and get the response
          */
-        resp = this.comm.msgTransaction(cmd);
-
-        /*
-         * process the response (address & CRC already confirmed)
-         */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) == count * 2) {
-            int byteOffset = 3;
-            for (int j = 0; j < count; j++, index++) {
-                int val = resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(0) - '1'] & 0xff;
-                val <<= 8;
-                val += resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(1) - '1'] & 0xff;
-
-                ret[index] = val;
+        byte[] resp = this.comm.msgTransaction(cmd);
 
-                byteOffset += 2;
-            }
-        } else {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
-        return ret;
+        return parseRegisters(resp, count);
     }
 
     @Override
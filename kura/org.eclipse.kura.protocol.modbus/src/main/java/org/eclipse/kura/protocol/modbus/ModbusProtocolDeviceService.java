@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2011, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -12,6 +12,9 @@
  *******************************************************************************/
 package org.eclipse.kura.protocol.modbus;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 import org.eclipse.kura.KuraConnectionStatus;
@@ -57,6 +60,12 @@ import org.eclipse.kura.KuraConnectionStatus;
  * in the attached
  * field device.
  * </ul>
+ * <p>
+ * Several read functions can be submitted at once with {@link #readBatch(List)}. In real MODBUS-TCP/IP mode the
+ * requests of a batch are pipelined on the connection, up to the number of outstanding transactions configured with
+ * the <b>maxOutstandingRequests</b> connection property. The <b>maxConnections</b> connection property makes the
+ * devices configured for the same gateway share a pool of connections, so that the units behind the gateway can be
+ * polled in parallel, the activity of the connections is reported by {@link #getConnectionMetrics()}.
  */
 
 public interface ModbusProtocolDeviceService {
@@ -105,12 +114,20 @@ public interface ModbusProtocolDeviceService {
      *            <li>stopBits : number of stopbits
      *            <li>parity : parity mode (0=none, 1=odd, 2=even)
      *            <li>bitsPerWord : number of bits per word
+     *            <li>interFrameSilence : (optional, RTU only) idle time in milliseconds that ends a frame, defaults to
+     *            3.5 character times and never less than 20 ms
      *            </ul>
      *            <br>
      *            for ETHERNET mode :
      *            <ul>
      *            <li>port : TCP port to be used
      *            <li>ipAddress : the 4 bytes IP address of the field device (xxx.xxx.xxx.xxx)
+     *            <li>maxOutstandingRequests : (optional, "TCP/IP" only) maximum number of transactions waiting for a
+     *            response on the connection, defaults to 1. Values greater than 1 enable the pipelining of the
+     *            requests, the field device must support concurrent transactions.
+     *            <li>maxConnections : (optional, "TCP/IP" only) if set, the connections towards the same ipAddress and
+     *            port are shared by all the configured devices, and up to maxConnections connections are opened to
+     *            execute concurrent requests. The largest value configured for a gateway applies.
      *            </ul>
      *            <br>
      *            Modbus properties :
@@ -402,4 +419,66 @@ public interface ModbusProtocolDeviceService {
      *             the cause of the exception
      */
     public void writeMultipleRegister(int unitAddr, int dataAddress, int[] data) throws ModbusProtocolException;
+
+    /**
+     * Executes a batch of read functions and returns their results in the order of the requests.
+     * <p>
+     * The failure of a request is reported by its {@link ModbusReadResult} and does not prevent the execution of the
+     * remaining ones. Implementations can overlap the transactions of a batch, the default implementation executes
+     * them sequentially with the single read methods.
+     *
+     * @param requests
+     *            the read requests
+     * @return a list of results, one for each request
+     * @throws ModbusProtocolException
+     *             with a {@link ModbusProtocolErrorCode#NOT_CONNECTED}
+     *             current connection is in a status other than <b>CONNECTED</b>
+     * @since 1.1
+     */
+    public default List<ModbusReadResult> readBatch(List<ModbusReadRequest> requests) throws ModbusProtocolException {
+        final List<ModbusReadResult> results = new ArrayList<>(requests.size());
+
+        for (final ModbusReadRequest request : requests) {
+            final int unitAddr = request.getUnitAddr();
+            final int dataAddress = request.getDataAddress();
+            final int count = request.getCount();
+
+            try {
+                switch (request.getFunctionCode()) {
+                case ModbusFunctionCodes.READ_COIL_STATUS:
+                    results.add(ModbusReadResult.ofBits(request, readCoils(unitAddr, dataAddress, count)));
+                    break;
+                case ModbusFunctionCodes.READ_INPUT_STATUS:
+                    results.add(ModbusReadResult.ofBits(request, readDiscreteInputs(unitAddr, dataAddress, count)));
+                    break;
+                case ModbusFunctionCodes.READ_HOLDING_REGS:
+                    results.add(
+                            ModbusReadResult.ofRegisters(request, readHoldingRegisters(unitAddr, dataAddress, count)));
+                    break;
+                default:
+                    results.add(
+                            ModbusReadResult.ofRegisters(request, readInputRegisters(unitAddr, dataAddress, count)));
+                    break;
+                }
+            } catch (ModbusProtocolException e) {
+                if (e.getCode() == ModbusProtocolErrorCode.NOT_CONNECTED) {
+                    throw e;
+                }
+                results.add(ModbusReadResult.ofError(request, e));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the metrics of the Modbus TCP connections used by this device. When the connections are shared with
+     * other devices (see the <b>maxConnections</b> connection property) the metrics include their activity.
+     *
+     * @return the metrics of the open connections, an empty list if the device does not track them
+     * @since 1.1
+     */
+    public default List<ModbusConnectionMetrics> getConnectionMetrics() {
+        return Collections.emptyList();
+    }
 }
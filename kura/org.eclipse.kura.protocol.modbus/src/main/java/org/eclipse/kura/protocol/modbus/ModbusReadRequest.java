@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.modbus;
+
+/**
+ * Describes a single read operation of a batch submitted to
+ * {@link ModbusProtocolDeviceService#readBatch(java.util.List)}.
+ * <p>
+ * Instances are created with the factory methods matching the supported Modbus read functions:
+ * <ul>
+ * <li>01 (0x01) {@link #readCoils(int, int, int)}
+ * <li>02 (0x02) {@link #readDiscreteInputs(int, int, int)}
+ * <li>03 (0x03) {@link #readHoldingRegisters(int, int, int)}
+ * <li>04 (0x04) {@link #readInputRegisters(int, int, int)}
+ * </ul>
+ *
+ * @since 1.1
+ */
+public final class ModbusReadRequest {
+
+    private final int unitAddr;
+    private final int functionCode;
+    private final int dataAddress;
+    private final int count;
+
+    private ModbusReadRequest(int unitAddr, int functionCode, int dataAddress, int count) {
+        this.unitAddr = unitAddr;
+        this.functionCode = functionCode;
+        this.dataAddress = dataAddress;
+        this.count = count;
+    }
+
+    /**
+     * Creates a request for the <b>Modbus function 01</b>.
+     *
+     * @param unitAddr
+     *            modbus slave address (must be unique in the range 1 - 247)
+     * @param dataAddress
+     *            starting address
+     * @param count
+     *            quantity of coils
+     * @return the request
+     */
+    public static ModbusReadRequest readCoils(int unitAddr, int dataAddress, int count) {
+        return new ModbusReadRequest(unitAddr, ModbusFunctionCodes.READ_COIL_STATUS, dataAddress, count);
+    }
+
+    /**
+     * Creates a request for the <b>Modbus function 02</b>.
+     *
+     * @param unitAddr
+     *            modbus slave address (must be unique in the range 1 - 247)
+     * @param dataAddress
+     *            starting address
+     * @param count
+     *            quantity of inputs
+     * @return the request
+     */
+    public static ModbusReadRequest readDiscreteInputs(int unitAddr, int dataAddress, int count) {
+        return new ModbusReadRequest(unitAddr, ModbusFunctionCodes.READ_INPUT_STATUS, dataAddress, count);
+    }
+
+    /**
+     * Creates a request for the <b>Modbus function 03</b>.
+     *
+     * @param unitAddr
+     *            modbus slave address (must be unique in the range 1 - 247)
+     * @param dataAddress
+     *            starting address
+     * @param count
+     *            quantity of registers (maximum 0x7D)
+     * @return the request
+     */
+    public static ModbusReadRequest readHoldingRegisters(int unitAddr, int dataAddress, int count) {
+        return new ModbusReadRequest(unitAddr, ModbusFunctionCodes.READ_HOLDING_REGS, dataAddress, count);
+    }
+
+    /**
+     * Creates a request for the <b>Modbus function 04</b>.
+     *
+     * @param unitAddr
+     *            modbus slave address (must be unique in the range 1 - 247)
+     * @param dataAddress
+     *            starting address
+     * @param count
+     *            quantity of registers (maximum 0x7D)
+     * @return the request
+     */
+    public static ModbusReadRequest readInputRegisters(int unitAddr, int dataAddress, int count) {
+        return new ModbusReadRequest(unitAddr, ModbusFunctionCodes.READ_INPUT_REGS, dataAddress, count);
+    }
+
+    public int getUnitAddr() {
+        return this.unitAddr;
+    }
+
+    /**
+     * @return the Modbus function code of the request, one of the read function codes defined in
+     *         {@link ModbusFunctionCodes}
+     */
+    public int getFunctionCode() {
+        return this.functionCode;
+    }
+
+    public int getDataAddress() {
+        return this.dataAddress;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return <b>true</b> if the request reads coils or discrete inputs, <b>false</b> if it reads registers
+     */
+    public boolean isBitRead() {
+        return this.functionCode == ModbusFunctionCodes.READ_COIL_STATUS
+                || this.functionCode == ModbusFunctionCodes.READ_INPUT_STATUS;
+    }
+
+    @Override
+    public String toString() {
+        return "ModbusReadRequest [unitAddr=" + this.unitAddr + ", functionCode=" + this.functionCode
+                + ", dataAddress=" + this.dataAddress + ", count=" + this.count + "]";
+    }
+}
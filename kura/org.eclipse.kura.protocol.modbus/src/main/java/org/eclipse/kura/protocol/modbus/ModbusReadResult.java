@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.modbus;
+
+/**
+ * The outcome of a single {@link ModbusReadRequest} executed as part of a batch.
+ * <p>
+ * A failed request does not abort the batch, its result reports the {@link ModbusProtocolException} that would have
+ * been thrown by the corresponding single read method.
+ *
+ * @since 1.1
+ */
+public final class ModbusReadResult {
+
+    private final ModbusReadRequest request;
+    private final boolean[] bits;
+    private final int[] registers;
+    private final ModbusProtocolException error;
+
+    private ModbusReadResult(ModbusReadRequest request, boolean[] bits, int[] registers,
+            ModbusProtocolException error) {
+        this.request = request;
+        this.bits = bits;
+        this.registers = registers;
+        this.error = error;
+    }
+
+    public static ModbusReadResult ofBits(ModbusReadRequest request, boolean[] bits) {
+        return new ModbusReadResult(request, bits, null, null);
+    }
+
+    public static ModbusReadResult ofRegisters(ModbusReadRequest request, int[] registers) {
+        return new ModbusReadResult(request, null, registers, null);
+    }
+
+    public static ModbusReadResult ofError(ModbusReadRequest request, ModbusProtocolException error) {
+        return new ModbusReadResult(request, null, null, error);
+    }
+
+    public ModbusReadRequest getRequest() {
+        return this.request;
+    }
+
+    public boolean isSuccessful() {
+        return this.error == null;
+    }
+
+    /**
+     * @return the coils or discrete inputs read, or <b>null</b> if the request failed or read registers
+     */
+    public boolean[] getBits() {
+        return this.bits;
+    }
+
+    /**
+     * @return the registers read, or <b>null</b> if the request failed or read coils or discrete inputs
+     */
+    public int[] getRegisters() {
+        return this.registers;
+    }
+
+    /**
+     * @return the reason of the failure, or <b>null</b> if the request succeeded
+     */
+    public ModbusProtocolException getError() {
+        return this.error;
+    }
+}
@@ -0,0 +1,380 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.modbus;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares the Modbus TCP connections towards the same gateway among the {@link ModbusProtocolDevice} instances.
+ * <p>
+ * The connections are grouped in a {@link GatewayPool} for each <i>host:port</i> address, that lives as long as
+ * at least one device holds it. A pool opens up to <i>maxConnections</i> {@link ModbusTcpTransport} connections, a
+ * new one only when all the open connections have a full window of outstanding transactions, and submits each request
+ * on the least loaded connection, so that the unit identifiers behind the same gateway can be polled in parallel.
+ * <p>
+ * A background task periodically drops the connections closed by the remote end or by an I/O error, closes the
+ * connections whose last {@value #MAX_CONSECUTIVE_TIMEOUTS} transactions have expired without any response, and
+ * reopens a connection for the pools left without one, so that the next request does not pay the connection setup.
+ */
+final class ModbusTcpConnectionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusTcpConnectionManager.class);
+
+    static final long DEFAULT_HEALTH_CHECK_INTERVAL = 10000;
+    static final int MAX_CONSECUTIVE_TIMEOUTS = 3;
+
+    private static final ModbusTcpConnectionManager DEFAULT_INSTANCE = new ModbusTcpConnectionManager(
+            DEFAULT_HEALTH_CHECK_INTERVAL);
+
+    private final long healthCheckInterval;
+    private final Map<String, GatewayPool> pools = new HashMap<>();
+    private ScheduledExecutorService healthCheckExecutor;
+
+    ModbusTcpConnectionManager(long healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    static ModbusTcpConnectionManager getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Returns the pool of the provided gateway, creating it if needed. Every call must be paired with a call to
+     * {@link #release(GatewayPool)}.
+     * <p>
+     * A pool shared by devices configured with different parameters uses the largest values.
+     */
+    synchronized GatewayPool acquire(String host, int port, int maxConnections, int maxOutstandingRequests,
+            int connectTimeout) {
+        final String key = host + ":" + port;
+
+        GatewayPool pool = this.pools.get(key);
+        if (pool == null) {
+            pool = new GatewayPool(key, host, port);
+            this.pools.put(key, pool);
+            logger.info("Created connection pool for {}", key);
+        }
+        pool.retain(maxConnections, maxOutstandingRequests, connectTimeout);
+
+        if (this.healthCheckExecutor == null) {
+            this.healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "ModbusTcpConnectionManager");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.healthCheckExecutor.scheduleWithFixedDelay(this::checkHealth, this.healthCheckInterval,
+                    this.healthCheckInterval, TimeUnit.MILLISECONDS);
+        }
+
+        return pool;
+    }
+
+    /**
+     * Releases a pool returned by {@link #acquire(String, int, int, int, int)}, closing its connections if no other
+     * device holds it.
+     */
+    synchronized void release(GatewayPool pool) {
+        if (pool.release() > 0) {
+            return;
+        }
+
+        this.pools.remove(pool.key, pool);
+        pool.close();
+        logger.info("Closed connection pool for {}", pool.key);
+
+        if (this.pools.isEmpty() && this.healthCheckExecutor != null) {
+            this.healthCheckExecutor.shutdown();
+            this.healthCheckExecutor = null;
+        }
+    }
+
+    void checkHealth() {
+        final List<GatewayPool> currentPools;
+        synchronized (this) {
+            currentPools = new ArrayList<>(this.pools.values());
+        }
+
+        for (final GatewayPool pool : currentPools) {
+            try {
+                pool.checkHealth();
+            } catch (RuntimeException e) {
+                logger.warn("Health check failed for {}", pool.key, e);
+            }
+        }
+    }
+
+    /**
+     * The connections towards a gateway.
+     */
+    static final class GatewayPool {
+
+        private final String key;
+        private final String host;
+        private final int port;
+        private final List<PooledConnection> connections = new ArrayList<>();
+
+        private int references;
+        private int maxConnections;
+        private int maxOutstandingRequests;
+        private int connectTimeout;
+        private int nextConnectionId;
+        private int pendingConnections;
+        private boolean closed;
+
+        GatewayPool(String key, String host, int port) {
+            this.key = key;
+            this.host = host;
+            this.port = port;
+        }
+
+        String getKey() {
+            return this.key;
+        }
+
+        /**
+         * Submits a request on the least loaded connection, opening a new one if all the connections are busy and
+         * the pool is not full.
+         */
+        CompletableFuture<byte[]> submit(byte[] request, int responseTimeout) throws ModbusProtocolException {
+            return select().transport.submit(request, responseTimeout);
+        }
+
+        /**
+         * Opens a connection if none is open.
+         */
+        void connect() {
+            synchronized (this) {
+                removeClosed();
+                if (this.closed || !this.connections.isEmpty() || this.pendingConnections > 0) {
+                    return;
+                }
+                this.pendingConnections++;
+            }
+
+            try {
+                open();
+            } catch (IOException e) {
+                logger.error("Failed to connect to remote: " + e);
+            }
+        }
+
+        synchronized boolean isConnected() {
+            for (final PooledConnection connection : this.connections) {
+                if (connection.transport.isOpen()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized List<ModbusConnectionMetrics> getMetrics() {
+            final List<ModbusConnectionMetrics> metrics = new ArrayList<>(this.connections.size());
+            for (final PooledConnection connection : this.connections) {
+                metrics.add(connection.transport.getMetrics(this.key, connection.id));
+            }
+            return metrics;
+        }
+
+        private synchronized void retain(int maxConnections, int maxOutstandingRequests, int connectTimeout) {
+            this.references++;
+            this.maxConnections = Math.max(this.maxConnections, maxConnections);
+            this.maxOutstandingRequests = Math.max(this.maxOutstandingRequests, maxOutstandingRequests);
+            this.connectTimeout = Math.max(this.connectTimeout, connectTimeout);
+        }
+
+        private synchronized int release() {
+            return --this.references;
+        }
+
+        private void close() {
+            final List<PooledConnection> closing;
+            synchronized (this) {
+                this.closed = true;
+                closing = new ArrayList<>(this.connections);
+                this.connections.clear();
+                notifyAll();
+            }
+
+            for (final PooledConnection connection : closing) {
+                connection.transport.close();
+            }
+        }
+
+        private PooledConnection select() throws ModbusProtocolException {
+            PooledConnection selected;
+
+            synchronized (this) {
+                while (true) {
+                    if (this.closed) {
+                        throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                                "Connection pool closed");
+                    }
+                    removeClosed();
+
+                    selected = null;
+                    for (final PooledConnection connection : this.connections) {
+                        if (selected == null || connection.transport.getOutstandingRequests() < selected.transport
+                                .getOutstandingRequests()) {
+                            selected = connection;
+                        }
+                    }
+
+                    final boolean busy = selected == null
+                            || selected.transport.getOutstandingRequests() >= this.maxOutstandingRequests;
+                    if (busy && this.connections.size() + this.pendingConnections < this.maxConnections) {
+                        this.pendingConnections++;
+                        break;
+                    }
+                    if (selected != null || this.pendingConnections == 0) {
+                        return checkSelected(selected);
+                    }
+
+                    // the only connection allowed is being opened by another thread
+                    try {
+                        wait(this.connectTimeout);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                                "Thread interrupted");
+                    }
+                }
+            }
+
+            try {
+                final PooledConnection opened = open();
+                if (opened != null) {
+                    selected = opened;
+                }
+            } catch (IOException e) {
+                logger.error("Failed to connect to remote: " + e);
+            }
+            return checkSelected(selected);
+        }
+
+        private PooledConnection checkSelected(PooledConnection selected) throws ModbusProtocolException {
+            if (selected == null) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                        "Cannot transact on closed socket");
+            }
+            return selected;
+        }
+
+        private void checkHealth() {
+            final List<PooledConnection> unresponsive = new ArrayList<>();
+
+            synchronized (this) {
+                final Iterator<PooledConnection> iterator = this.connections.iterator();
+                while (iterator.hasNext()) {
+                    final PooledConnection connection = iterator.next();
+                    if (!connection.transport.isOpen()) {
+                        logger.info("Connection {} to {} lost", connection.id, this.key);
+                        iterator.remove();
+                    } else if (connection.transport.getConsecutiveTimeouts() >= MAX_CONSECUTIVE_TIMEOUTS) {
+                        logger.warn("Connection {} to {} is not responding, closing it", connection.id, this.key);
+                        iterator.remove();
+                        unresponsive.add(connection);
+                    }
+                }
+            }
+
+            for (final PooledConnection connection : unresponsive) {
+                connection.transport.close();
+            }
+
+            synchronized (this) {
+                if (this.closed || this.references <= 0 || !this.connections.isEmpty()
+                        || this.pendingConnections > 0) {
+                    return;
+                }
+                this.pendingConnections++;
+            }
+
+            try {
+                if (open() != null) {
+                    logger.info("Reconnected to {}", this.key);
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to reconnect to {}: {}", this.key, e.getMessage());
+            }
+        }
+
+        private void removeClosed() {
+            this.connections.removeIf(connection -> !connection.transport.isOpen());
+        }
+
+        /**
+         * Opens a connection for a slot reserved by incrementing {@link #pendingConnections}, without holding the
+         * pool monitor while connecting.
+         *
+         * @return the connection, or {@code null} if the pool has been closed in the meantime
+         */
+        private PooledConnection open() throws IOException {
+            final int window;
+            final int timeout;
+            synchronized (this) {
+                window = this.maxOutstandingRequests;
+                timeout = this.connectTimeout;
+            }
+
+            final ModbusTcpTransport transport;
+            try {
+                transport = new ModbusTcpTransport(new InetSocketAddress(this.host, this.port), window, timeout);
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    this.pendingConnections--;
+                    notifyAll();
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                this.pendingConnections--;
+                notifyAll();
+                if (!this.closed) {
+                    final PooledConnection connection = new PooledConnection(this.nextConnectionId++, transport);
+                    this.connections.add(connection);
+                    logger.info("TCP connected to {}, connection {} of {}", this.key, this.connections.size(),
+                            this.maxConnections);
+                    return connection;
+                }
+            }
+
+            transport.close();
+            return null;
+        }
+    }
+
+    private static final class PooledConnection {
+
+        private final int id;
+        private final ModbusTcpTransport transport;
+
+        PooledConnection(int id, ModbusTcpTransport transport) {
+            this.id = id;
+            this.transport = transport;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.modbus;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Modbus TCP client connection that allows several transactions to be outstanding at the same time.
+ * <p>
+ * Requests are framed with an MBAP header carrying a transaction identifier allocated by the transport and are
+ * written by a single I/O thread, that also reads the responses from the non blocking channel and completes the
+ * pending transaction with the same identifier, regardless of the order in which the field device answers. The
+ * number of pending transactions is bounded by the window size provided at construction: {@link #submit(byte[])}
+ * blocks while the window is full. Transactions not answered within the response timeout fail with a
+ * {@link ModbusProtocolErrorCode#RESPONSE_TIMEOUT} error, responses received after the timeout are discarded.
+ * <p>
+ * The transport keeps the counters reported by {@link #getMetrics(String, int)}: the latency is measured from the
+ * submission of the request to the reception of its response.
+ */
+final class ModbusTcpTransport implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusTcpTransport.class);
+
+    private static final int MBAP_HEADER_LENGTH = 6;
+    private static final int MAX_PDU_LENGTH = 254;
+    private static final long SELECT_TIMEOUT_MILLIS = 50;
+
+    private final InetSocketAddress address;
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final Semaphore window;
+    private final long responseTimeoutNanos;
+
+    private final Map<Integer, Transaction> pending = new ConcurrentHashMap<>();
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextTransactionId = new AtomicInteger();
+    private final ByteBuffer inbound = ByteBuffer.allocate(4 * (MBAP_HEADER_LENGTH + MAX_PDU_LENGTH));
+    private final Thread ioThread;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong responseCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+
+    private ByteBuffer currentOutbound;
+    private volatile boolean closed;
+
+    ModbusTcpTransport(InetSocketAddress address, int maxOutstandingRequests, int responseTimeout)
+            throws IOException {
+        this.address = address;
+        this.window = new Semaphore(maxOutstandingRequests);
+        this.responseTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(responseTimeout);
+
+        this.channel = SocketChannel.open();
+        try {
+            this.channel.socket().connect(address, responseTimeout);
+            this.channel.socket().setTcpNoDelay(true);
+            this.channel.configureBlocking(false);
+            this.selector = Selector.open();
+            this.key = this.channel.register(this.selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+
+        this.ioThread = new Thread(this::run, "ModbusTcpTransport-" + address);
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    InetSocketAddress getAddress() {
+        return this.address;
+    }
+
+    boolean isOpen() {
+        return !this.closed;
+    }
+
+    int getOutstandingRequests() {
+        return this.pending.size();
+    }
+
+    /**
+     * @return the number of transactions that expired since the last response received
+     */
+    int getConsecutiveTimeouts() {
+        return this.consecutiveTimeouts.get();
+    }
+
+    ModbusConnectionMetrics getMetrics(String gateway, int connectionId) {
+        final long responses = this.responseCount.get();
+        return new ModbusConnectionMetrics(gateway, connectionId, isOpen(), getOutstandingRequests(),
+                this.requestCount.get(), responses, this.errorCount.get(), this.timeoutCount.get(),
+                responses > 0 ? this.totalLatencyNanos.get() / responses : 0, this.maxLatencyNanos.get());
+    }
+
+    /**
+     * Sends a request without waiting for its response.
+     *
+     * @param request
+     *            the unit identifier followed by the PDU of the request
+     * @return a future completed with the unit identifier followed by the PDU of the response, or with a
+     *         {@link ModbusProtocolException}
+     * @throws ModbusProtocolException
+     *             if the transport is closed or if no transaction completes within the response timeout while the
+     *             window is full
+     */
+    CompletableFuture<byte[]> submit(byte[] request) throws ModbusProtocolException {
+        return submit(request, this.responseTimeoutNanos);
+    }
+
+    /**
+     * Sends a request without waiting for its response, failing it if no response is received within the provided
+     * timeout in milliseconds.
+     */
+    CompletableFuture<byte[]> submit(byte[] request, int responseTimeout) throws ModbusProtocolException {
+        return submit(request, TimeUnit.MILLISECONDS.toNanos(responseTimeout));
+    }
+
+    private CompletableFuture<byte[]> submit(byte[] request, long timeoutNanos) throws ModbusProtocolException {
+        if (request.length < 2 || request.length > MAX_PDU_LENGTH + 1) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_LENGTH);
+        }
+
+        try {
+            if (!this.window.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.RESPONSE_TIMEOUT,
+                        "No transaction slot available");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE, "Thread interrupted");
+        }
+
+        if (this.closed) {
+            this.window.release();
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                    "Cannot transact on closed socket");
+        }
+
+        final long now = System.nanoTime();
+        final Transaction transaction = new Transaction(this.nextTransactionId.getAndIncrement() & 0xffff,
+                request[0], request[1], now, now + timeoutNanos);
+
+        final ByteBuffer frame = ByteBuffer.allocate(MBAP_HEADER_LENGTH + request.length);
+        frame.putShort((short) transaction.id);
+        frame.putShort((short) 0);
+        frame.putShort((short) request.length);
+        frame.put(request);
+        frame.flip();
+
+        this.requestCount.incrementAndGet();
+        this.pending.put(transaction.id, transaction);
+        this.outbound.add(frame);
+        this.selector.wakeup();
+
+        if (this.closed) {
+            fail(transaction, new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                    "Cannot transact on closed socket"));
+        }
+
+        return transaction.future;
+    }
+
+    /**
+     * Sends a request and waits for its response.
+     */
+    byte[] transact(byte[] request) throws ModbusProtocolException {
+        return await(submit(request));
+    }
+
+    static byte[] await(CompletableFuture<byte[]> future) throws ModbusProtocolException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE, "Thread interrupted");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ModbusProtocolException) {
+                throw (ModbusProtocolException) cause;
+            }
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE, cause.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.selector.wakeup();
+        if (Thread.currentThread() != this.ioThread) {
+            try {
+                this.ioThread.join(TimeUnit.NANOSECONDS.toMillis(this.responseTimeoutNanos) + SELECT_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (!this.closed) {
+                this.selector.select(SELECT_TIMEOUT_MILLIS);
+
+                final Iterator<SelectionKey> selected = this.selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    final SelectionKey selectedKey = selected.next();
+                    selected.remove();
+                    if (selectedKey.isValid() && selectedKey.isReadable()) {
+                        read();
+                    }
+                }
+
+                write();
+                expire();
+            }
+        } catch (IOException e) {
+            if (!this.closed) {
+                logger.error("Socket disconnect from {}", this.address, e);
+            }
+        } finally {
+            this.closed = true;
+            closeChannel();
+            failAll();
+        }
+    }
+
+    private void write() throws IOException {
+        while (true) {
+            if (this.currentOutbound == null) {
+                this.currentOutbound = this.outbound.poll();
+                if (this.currentOutbound == null) {
+                    this.key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+            }
+
+            this.channel.write(this.currentOutbound);
+
+            if (this.currentOutbound.hasRemaining()) {
+                this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            this.currentOutbound = null;
+        }
+    }
+
+    private void read() throws IOException {
+        if (this.channel.read(this.inbound) < 0) {
+            throw new EOFException("Connection closed by the remote end");
+        }
+
+        this.inbound.flip();
+
+        while (this.inbound.remaining() >= MBAP_HEADER_LENGTH) {
+            final int start = this.inbound.position();
+            final int transactionId = this.inbound.getShort(start) & 0xffff;
+            final int length = this.inbound.getShort(start + 4) & 0xffff;
+
+            if (length < 2 || length > MAX_PDU_LENGTH + 1) {
+                throw new IOException("Invalid MBAP length " + length);
+            }
+            if (this.inbound.remaining() < MBAP_HEADER_LENGTH + length) {
+                break;
+            }
+
+            final byte[] response = new byte[length];
+            this.inbound.position(start + MBAP_HEADER_LENGTH);
+            this.inbound.get(response);
+
+            dispatch(transactionId, response);
+        }
+
+        this.inbound.compact();
+    }
+
+    private void dispatch(int transactionId, byte[] response) {
+        final Transaction transaction = this.pending.get(transactionId);
+
+        if (transaction == null) {
+            logger.debug("Discarding response for unknown transaction {}", transactionId);
+            return;
+        }
+
+        recordResponse(transaction);
+
+        if (response[0] != transaction.unitAddr) {
+            fail(transaction, new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                    "incorrect modbus id " + String.format("%02X", response[0])));
+        } else if ((response[1] & 0x7f) != transaction.functionCode) {
+            fail(transaction, new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                    "incorrect function number " + String.format("%02X", response[1])));
+        } else if ((response[1] & 0x80) == 0x80) {
+            fail(transaction, new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                    "Modbus responds an error = " + String.format("%02X", response.length > 2 ? response[2] : 0)));
+        } else if (this.pending.remove(transactionId, transaction)) {
+            this.window.release();
+            transaction.future.complete(response);
+        }
+    }
+
+    private void recordResponse(Transaction transaction) {
+        final long latency = System.nanoTime() - transaction.start;
+
+        this.responseCount.incrementAndGet();
+        this.totalLatencyNanos.addAndGet(latency);
+        this.maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        this.consecutiveTimeouts.set(0);
+    }
+
+    private void expire() {
+        final long now = System.nanoTime();
+
+        for (final Transaction transaction : this.pending.values()) {
+            if (now - transaction.deadline >= 0) {
+                logger.warn("Recv timeout for transaction {} on {}", transaction.id, this.address);
+                this.timeoutCount.incrementAndGet();
+                this.consecutiveTimeouts.incrementAndGet();
+                fail(transaction, new ModbusProtocolException(ModbusProtocolErrorCode.RESPONSE_TIMEOUT,
+                        "Recv timeout"));
+            }
+        }
+    }
+
+    private void fail(Transaction transaction, ModbusProtocolException e) {
+        if (this.pending.remove(transaction.id, transaction)) {
+            this.errorCount.incrementAndGet();
+            this.window.release();
+            transaction.future.completeExceptionally(e);
+        }
+    }
+
+    private void failAll() {
+        for (final Transaction transaction : this.pending.values()) {
+            fail(transaction, new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE, "Recv failure"));
+        }
+        this.outbound.clear();
+    }
+
+    private void closeChannel() {
+        try {
+            this.selector.close();
+        } catch (IOException e) {
+            logger.debug("Error closing selector", e);
+        }
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            logger.error("Error closing TCP: " + e);
+        }
+    }
+
+    private static final class Transaction {
+
+        private final int id;
+        private final byte unitAddr;
+        private final byte functionCode;
+        private final long start;
+        private final long deadline;
+        private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        Transaction(int id, byte unitAddr, byte functionCode, long start, long deadline) {
+            this.id = id;
+            this.unitAddr = unitAddr;
+            this.functionCode = functionCode;
+            this.start = start;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.modbus;
+
+import java.util.Arrays;
+
+/**
+ * Reassembles the response to a Modbus RTU request from the bytes received on a serial line.
+ * <p>
+ * The bytes are supplied by {@link #accept(byte[], int, int)} as they are read from the port, the framer discards
+ * the bytes that cannot start the expected response and returns the frame as soon as the length announced by its
+ * header has been received with a valid CRC. The caller reports the idle periods of the line, detected with the
+ * receive timeout of the port, through {@link #silence()}: as defined by the RTU transmission mode, a silent interval
+ * ends the current frame, so a partial frame is dropped and the next byte starts a new one.
+ */
+final class RtuFramer {
+
+    static final int MAX_FRAME_LENGTH = 256;
+    static final int MIN_INTER_FRAME_SILENCE = 20;
+
+    private static final int BITS_PER_CHARACTER = 11;
+    private static final int FIXED_SILENCE_BAUD_RATE = 19200;
+    private static final double FIXED_SILENCE_MICROS = 1750;
+
+    private final byte unitAddr;
+    private final int functionCode;
+    private final byte[] frame = new byte[MAX_FRAME_LENGTH];
+    private int length;
+
+    RtuFramer(int unitAddr, int functionCode) {
+        this.unitAddr = (byte) unitAddr;
+        this.functionCode = functionCode & 0x7f;
+    }
+
+    /**
+     * Returns the silent interval in milliseconds that ends a frame on a line running at the provided baud rate: 3.5
+     * character times, or 1.75 ms above 19200 baud, never less than {@value #MIN_INTER_FRAME_SILENCE} ms to
+     * tolerate the delivery latency of the serial drivers and USB adapters.
+     */
+    static int getInterFrameSilence(int baudRate) {
+        final double micros;
+        if (baudRate <= 0 || baudRate > FIXED_SILENCE_BAUD_RATE) {
+            micros = FIXED_SILENCE_MICROS;
+        } else {
+            micros = 3.5 * BITS_PER_CHARACTER * 1000000 / baudRate;
+        }
+        return Math.max(MIN_INTER_FRAME_SILENCE, (int) Math.ceil(micros / 1000));
+    }
+
+    /**
+     * Appends the received bytes to the current frame.
+     *
+     * @return the complete frame, including the CRC, or <b>null</b> if more bytes are needed
+     */
+    byte[] accept(byte[] data, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            final byte[] result = accept(data[i]);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Notifies that the line has been idle for the inter-frame silence.
+     */
+    void silence() {
+        this.length = 0;
+    }
+
+    int getLength() {
+        return this.length;
+    }
+
+    private byte[] accept(byte value) {
+        if (this.length == 0 && value != this.unitAddr) {
+            return null;
+        }
+
+        this.frame[this.length++] = value;
+
+        if (this.length == 2 && (value & 0x7f) != this.functionCode) {
+            return resync();
+        }
+
+        final int expectedLength = getExpectedLength();
+
+        if (expectedLength < 0 || this.length < expectedLength) {
+            return null;
+        }
+
+        if (Crc16.getCrc16(this.frame, expectedLength, 0xffff) == 0) {
+            final byte[] result = Arrays.copyOf(this.frame, expectedLength);
+            this.length = 0;
+            return result;
+        }
+
+        return resync();
+    }
+
+    private int getExpectedLength() {
+        if (this.length < 2) {
+            return -1;
+        }
+
+        if ((this.frame[1] & 0x80) != 0) {
+            return 5;
+        }
+
+        switch (this.frame[1]) {
+        case ModbusFunctionCodes.FORCE_SINGLE_COIL:
+        case ModbusFunctionCodes.PRESET_SINGLE_REG:
+        case ModbusFunctionCodes.FORCE_MULTIPLE_COILS:
+        case ModbusFunctionCodes.PRESET_MULTIPLE_REGS:
+        case ModbusFunctionCodes.GET_COMM_EVENT_COUNTER:
+            return 8;
+        case ModbusFunctionCodes.READ_EXCEPTION_STATUS:
+            return 5;
+        default:
+            if (this.length < 3) {
+                return -1;
+            }
+            return Math.min((this.frame[2] & 0xff) + 5, MAX_FRAME_LENGTH);
+        }
+    }
+
+    /**
+     * Drops the first byte of a frame that failed the validation and restarts from the next byte that can start the
+     * expected response.
+     *
+     * @return a valid frame found in the retained bytes, or <b>null</b>
+     */
+    private byte[] resync() {
+        int start = 1;
+        while (start < this.length && this.frame[start] != this.unitAddr) {
+            start++;
+        }
+
+        final int remaining = this.length - start;
+        System.arraycopy(this.frame, start, this.frame, 0, remaining);
+        this.length = 0;
+
+        for (int i = 0; i < remaining; i++) {
+            final byte[] result = accept(this.frame[i]);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.util.expression;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+
+import org.eclipse.kura.wire.WireRecord;
+
+/**
+ * An expression over the properties of wire records, parsed once and compiled to a tree of closures.
+ * <p>
+ * The language supports:
+ * <ul>
+ * <li>literals: numbers, such as 10 or 2.5e3, strings in single or double quotes, true, false and null</li>
+ * <li>the arithmetic operators +, -, *, / and %; integer operands are computed as long values, with integer
+ * division, otherwise as double values; + concatenates if one of the operands is a string</li>
+ * <li>the comparison operators ==, !=, &lt;, &lt;=, &gt; and &gt;=; === and !== are accepted as synonyms of == and
+ * !=</li>
+ * <li>the boolean operators &amp;&amp;, || and !, and the conditional operator condition ? a : b</li>
+ * <li>the fields of the current record: TIMER, record.TIMER or record['a name']</li>
+ * <li>the fields of the other records of the envelope: records[0].TIMER or records[0]['a name'], and the number
+ * of records, records.length</li>
+ * </ul>
+ * Fields are evaluated to the value of their {@link org.eclipse.kura.type.TypedValue}. A missing field is null, an
+ * arithmetic operation with a null operand is null, a comparison with a null operand is false and null is false when
+ * used as a condition.
+ * <p>
+ * Instances are immutable and can be evaluated concurrently.
+ */
+public final class Expression {
+
+    private final String source;
+    private final Node root;
+
+    private Expression(final String source, final Node root) {
+        this.source = source;
+        this.root = root;
+    }
+
+    /**
+     * Parses an expression.
+     *
+     * @param source
+     *            the expression source
+     * @return the compiled expression
+     * @throws ExpressionException
+     *             if the source is not a valid expression
+     */
+    public static Expression compile(final String source) throws ExpressionException {
+        requireNonNull(source, "Expression source cannot be null");
+        return new Expression(source, new ExpressionParser(source).parse());
+    }
+
+    /**
+     * Evaluates the expression.
+     *
+     * @param records
+     *            the records of the envelope
+     * @param current
+     *            the index of the current record, whose fields can be accessed by name
+     * @return the result, a Boolean, Long, Double, String, byte array or null
+     * @throws IllegalArgumentException
+     *             if an operator is applied to values of unsupported types
+     * @throws ArithmeticException
+     *             in case of integer division by zero
+     */
+    public Object evaluate(final List<WireRecord> records, final int current) {
+        final Object result = this.root.evaluate(records, current);
+        return result instanceof Integer ? (Object) ((Integer) result).longValue() : result;
+    }
+
+    /**
+     * Evaluates the expression as a condition.
+     *
+     * @param records
+     *            the records of the envelope
+     * @param current
+     *            the index of the current record, whose fields can be accessed by name
+     * @return the result of the expression, false if the result is null
+     * @throws IllegalArgumentException
+     *             if the result is not a boolean or an operator is applied to values of unsupported types
+     * @throws ArithmeticException
+     *             in case of integer division by zero
+     */
+    public boolean test(final List<WireRecord> records, final int current) {
+        final Object result = this.root.evaluate(records, current);
+        if (result == null) {
+            return false;
+        }
+        if (!(result instanceof Boolean)) {
+            throw new IllegalArgumentException("Expression result is not a boolean: " + result);
+        }
+        return (Boolean) result;
+    }
+
+    @Override
+    public String toString() {
+        return this.source;
+    }
+}
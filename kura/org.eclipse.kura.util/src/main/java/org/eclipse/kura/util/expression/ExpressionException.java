@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.util.expression;
+
+/**
+ * Reports a syntax error in the source of an {@link Expression}.
+ */
+public class ExpressionException extends Exception {
+
+    private static final long serialVersionUID = 4817297361585396743L;
+
+    private final int position;
+
+    public ExpressionException(final String message, final int position) {
+        super(message + " at position " + position);
+        this.position = position;
+    }
+
+    /**
+     * Returns the position in the source where the error has been detected.
+     */
+    public int getPosition() {
+        return this.position;
+    }
+}
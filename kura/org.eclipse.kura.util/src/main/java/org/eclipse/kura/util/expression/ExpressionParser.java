@@ -0,0 +1,459 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.util.expression;
+
+import java.util.List;
+import java.util.function.BinaryOperator;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.util.expression.Node.Constant;
+import org.eclipse.kura.wire.WireRecord;
+
+/**
+ * A recursive descent parser that builds the closure tree of an {@link Expression}. Sub-expressions with constant
+ * operands are evaluated at compile time.
+ */
+final class ExpressionParser {
+
+    private static final String RECORD = "record";
+    private static final String RECORDS = "records";
+    private static final String LENGTH = "length";
+
+    private final String source;
+    private int position;
+
+    ExpressionParser(final String source) {
+        this.source = source;
+    }
+
+    Node parse() throws ExpressionException {
+        final Node result = parseConditional();
+        skipWhitespace();
+        // a trailing semicolon is accepted, as in the JavaScript conditions
+        if (this.position < this.source.length() && this.source.charAt(this.position) == ';') {
+            this.position++;
+            skipWhitespace();
+        }
+        if (this.position < this.source.length()) {
+            throw error("Unexpected character '" + this.source.charAt(this.position) + "'");
+        }
+        return result;
+    }
+
+    private Node parseConditional() throws ExpressionException {
+        final Node condition = parseOr();
+        if (!match("?")) {
+            return condition;
+        }
+        final Node whenTrue = parseConditional();
+        expect(":");
+        final Node whenFalse = parseConditional();
+
+        final Node node = (records, current) -> Operators.toBoolean(condition.evaluate(records, current), "?")
+                ? whenTrue.evaluate(records, current)
+                : whenFalse.evaluate(records, current);
+        return fold(node, condition, whenTrue, whenFalse);
+    }
+
+    private Node parseOr() throws ExpressionException {
+        Node result = parseAnd();
+        while (match("||")) {
+            final Node left = result;
+            final Node right = parseAnd();
+            result = fold((records, current) -> Operators.toBoolean(left.evaluate(records, current), "||")
+                    || Operators.toBoolean(right.evaluate(records, current), "||"), left, right);
+        }
+        return result;
+    }
+
+    private Node parseAnd() throws ExpressionException {
+        Node result = parseEquality();
+        while (match("&&")) {
+            final Node left = result;
+            final Node right = parseEquality();
+            result = fold((records, current) -> Operators.toBoolean(left.evaluate(records, current), "&&")
+                    && Operators.toBoolean(right.evaluate(records, current), "&&"), left, right);
+        }
+        return result;
+    }
+
+    private Node parseEquality() throws ExpressionException {
+        Node result = parseComparison();
+        while (true) {
+            final boolean negated;
+            if (match("===") || match("==")) {
+                negated = false;
+            } else if (match("!==") || match("!=")) {
+                negated = true;
+            } else {
+                return result;
+            }
+            final Node left = result;
+            final Node right = parseComparison();
+            result = fold((records, current) -> negated
+                    ^ Operators.equal(left.evaluate(records, current), right.evaluate(records, current)), left,
+                    right);
+        }
+    }
+
+    private Node parseComparison() throws ExpressionException {
+        Node result = parseAdditive();
+        while (true) {
+            final String operator;
+            if (match("<=")) {
+                operator = "<=";
+            } else if (match(">=")) {
+                operator = ">=";
+            } else if (match("<")) {
+                operator = "<";
+            } else if (match(">")) {
+                operator = ">";
+            } else {
+                return result;
+            }
+            final Node left = result;
+            final Node right = parseAdditive();
+            result = fold(comparison(left, right, operator), left, right);
+        }
+    }
+
+    private Node parseAdditive() throws ExpressionException {
+        Node result = parseMultiplicative();
+        while (true) {
+            if (match("+")) {
+                result = binary(result, parseMultiplicative(), Operators::add);
+            } else if (match("-")) {
+                result = binary(result, parseMultiplicative(), Operators::subtract);
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Node parseMultiplicative() throws ExpressionException {
+        Node result = parseUnary();
+        while (true) {
+            if (match("*")) {
+                result = binary(result, parseUnary(), Operators::multiply);
+            } else if (match("/")) {
+                result = binary(result, parseUnary(), Operators::divide);
+            } else if (match("%")) {
+                result = binary(result, parseUnary(), Operators::remainder);
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Node parseUnary() throws ExpressionException {
+        skipWhitespace();
+        if (peek('!') && !peek("!=")) {
+            this.position++;
+            final Node operand = parseUnary();
+            return fold((records, current) -> !Operators.toBoolean(operand.evaluate(records, current), "!"),
+                    operand);
+        }
+        if (peek('-')) {
+            this.position++;
+            final Node operand = parseUnary();
+            return fold((records, current) -> Operators.negate(operand.evaluate(records, current)), operand);
+        }
+        return parsePrimary();
+    }
+
+    private Node parsePrimary() throws ExpressionException {
+        skipWhitespace();
+        if (this.position >= this.source.length()) {
+            throw error("Unexpected end of expression");
+        }
+
+        final char c = this.source.charAt(this.position);
+        if (c == '(') {
+            this.position++;
+            final Node result = parseConditional();
+            expect(")");
+            return result;
+        }
+        if (c == '\'' || c == '"') {
+            return new Constant(parseString());
+        }
+        if (Character.isDigit(c) || c == '.') {
+            return new Constant(parseNumber());
+        }
+        if (!Character.isJavaIdentifierStart(c)) {
+            throw error("Unexpected character '" + c + "'");
+        }
+
+        final int start = this.position;
+        final String identifier = parseIdentifier();
+        switch (identifier) {
+        case "true":
+            return new Constant(Boolean.TRUE);
+        case "false":
+            return new Constant(Boolean.FALSE);
+        case "null":
+            return new Constant(null);
+        case RECORD:
+            return currentField(parseFieldName());
+        case RECORDS:
+            return parseRecordsAccess();
+        default:
+            if (peek('(')) {
+                this.position = start;
+                throw error("Unknown function '" + identifier + "'");
+            }
+            return currentField(identifier);
+        }
+    }
+
+    private Node parseRecordsAccess() throws ExpressionException {
+        if (match(".")) {
+            final String member = parseIdentifier();
+            if (!LENGTH.equals(member)) {
+                throw error("Unknown member '" + member + "' of records");
+            }
+            return (records, current) -> (long) records.size();
+        }
+
+        expect("[");
+        final Node index = parseConditional();
+        expect("]");
+
+        if (index instanceof Constant) {
+            final int constantIndex;
+            try {
+                constantIndex = toIndex(((Constant) index).value);
+            } catch (IllegalArgumentException e) {
+                throw error(e.getMessage());
+            }
+            final String name = parseFieldName();
+            return (records, current) -> field(records, constantIndex, name);
+        }
+        final String name = parseFieldName();
+        return (records, current) -> field(records, toIndex(index.evaluate(records, current)), name);
+    }
+
+    /**
+     * Parses a field access in the form .name or ['name'].
+     */
+    private String parseFieldName() throws ExpressionException {
+        if (match(".")) {
+            return parseIdentifier();
+        }
+        expect("[");
+        skipWhitespace();
+        if (!peek('\'') && !peek('"')) {
+            throw error("Expected a field name");
+        }
+        final String name = parseString();
+        expect("]");
+        return name;
+    }
+
+    private String parseIdentifier() throws ExpressionException {
+        skipWhitespace();
+        final int start = this.position;
+        if (start >= this.source.length() || !Character.isJavaIdentifierStart(this.source.charAt(start))) {
+            throw error("Expected an identifier");
+        }
+        this.position++;
+        while (this.position < this.source.length()
+                && Character.isJavaIdentifierPart(this.source.charAt(this.position))) {
+            this.position++;
+        }
+        return this.source.substring(start, this.position);
+    }
+
+    private String parseString() throws ExpressionException {
+        final char quote = this.source.charAt(this.position++);
+        final StringBuilder builder = new StringBuilder();
+        while (this.position < this.source.length()) {
+            char c = this.source.charAt(this.position++);
+            if (c == quote) {
+                return builder.toString();
+            }
+            if (c == '\\') {
+                if (this.position >= this.source.length()) {
+                    break;
+                }
+                c = this.source.charAt(this.position++);
+                switch (c) {
+                case 'n':
+                    c = '\n';
+                    break;
+                case 't':
+                    c = '\t';
+                    break;
+                case 'r':
+                    c = '\r';
+                    break;
+                default:
+                    break;
+                }
+            }
+            builder.append(c);
+        }
+        throw error("Unterminated string");
+    }
+
+    private Object parseNumber() throws ExpressionException {
+        final int start = this.position;
+        boolean floating = false;
+        while (this.position < this.source.length()) {
+            final char c = this.source.charAt(this.position);
+            if (c == '.' || c == 'e' || c == 'E') {
+                floating = true;
+            } else if ((c == '+' || c == '-') && floating && isExponent(this.source.charAt(this.position - 1))) {
+                // sign of the exponent
+            } else if (!Character.isDigit(c)) {
+                break;
+            }
+            this.position++;
+        }
+
+        final String text = this.source.substring(start, this.position);
+        try {
+            return floating ? (Object) Double.parseDouble(text) : (Object) Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            this.position = start;
+            throw error("Invalid number '" + text + "'");
+        }
+    }
+
+    private static boolean isExponent(final char c) {
+        return c == 'e' || c == 'E';
+    }
+
+    private void skipWhitespace() {
+        while (this.position < this.source.length() && Character.isWhitespace(this.source.charAt(this.position))) {
+            this.position++;
+        }
+    }
+
+    private boolean peek(final char c) {
+        return this.position < this.source.length() && this.source.charAt(this.position) == c;
+    }
+
+    private boolean peek(final String token) {
+        return this.source.startsWith(token, this.position);
+    }
+
+    private boolean match(final String token) {
+        skipWhitespace();
+        if (!peek(token)) {
+            return false;
+        }
+        // do not split the longer operators
+        final int end = this.position + token.length();
+        if (end < this.source.length() && isOperatorContinuation(token, this.source.charAt(end))) {
+            return false;
+        }
+        this.position = end;
+        return true;
+    }
+
+    private static boolean isOperatorContinuation(final String token, final char next) {
+        switch (token) {
+        case "<":
+        case ">":
+        case "==":
+        case "!=":
+            return next == '=';
+        case "|":
+        case "&":
+            return next == token.charAt(0);
+        default:
+            return false;
+        }
+    }
+
+    private void expect(final String token) throws ExpressionException {
+        if (!match(token)) {
+            throw error("Expected '" + token + "'");
+        }
+    }
+
+    private ExpressionException error(final String message) {
+        return new ExpressionException(message, this.position);
+    }
+
+    private static Node binary(final Node left, final Node right, final BinaryOperator<Object> operator) {
+        return fold((records, current) -> operator.apply(left.evaluate(records, current),
+                right.evaluate(records, current)), left, right);
+    }
+
+    private static Node comparison(final Node left, final Node right, final String operator) {
+        switch (operator) {
+        case "<":
+            return (records, current) -> {
+                final Integer result = Operators.compare(left.evaluate(records, current),
+                        right.evaluate(records, current), operator);
+                return result != null && result < 0;
+            };
+        case "<=":
+            return (records, current) -> {
+                final Integer result = Operators.compare(left.evaluate(records, current),
+                        right.evaluate(records, current), operator);
+                return result != null && result <= 0;
+            };
+        case ">":
+            return (records, current) -> {
+                final Integer result = Operators.compare(left.evaluate(records, current),
+                        right.evaluate(records, current), operator);
+                return result != null && result > 0;
+            };
+        default:
+            return (records, current) -> {
+                final Integer result = Operators.compare(left.evaluate(records, current),
+                        right.evaluate(records, current), operator);
+                return result != null && result >= 0;
+            };
+        }
+    }
+
+    /**
+     * Replaces the node with its value if all its operands are constants.
+     */
+    private static Node fold(final Node node, final Node... operands) {
+        for (final Node operand : operands) {
+            if (!(operand instanceof Constant)) {
+                return node;
+            }
+        }
+        try {
+            return new Constant(node.evaluate(null, 0));
+        } catch (RuntimeException e) {
+            // report the error when evaluated
+            return node;
+        }
+    }
+
+    private static Node currentField(final String name) {
+        return (records, current) -> field(records, current, name);
+    }
+
+    private static Object field(final List<WireRecord> records, final int index, final String name) {
+        if (index < 0 || index >= records.size()) {
+            return null;
+        }
+        final TypedValue<?> value = records.get(index).getProperties().get(name);
+        return value != null ? value.getValue() : null;
+    }
+
+    private static int toIndex(final Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            return ((Number) value).intValue();
+        }
+        throw new IllegalArgumentException("Record index must be an integer: " + value);
+    }
+}
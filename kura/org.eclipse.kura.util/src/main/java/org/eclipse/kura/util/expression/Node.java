@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.util.expression;
+
+import java.util.List;
+
+import org.eclipse.kura.wire.WireRecord;
+
+/**
+ * A node of the closure tree built by the {@link ExpressionParser}.
+ */
+@FunctionalInterface
+interface Node {
+
+    Object evaluate(List<WireRecord> records, int current);
+
+    /**
+     * A node with a value known at compile time.
+     */
+    final class Constant implements Node {
+
+        final Object value;
+
+        Constant(final Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(final List<WireRecord> records, final int current) {
+            return this.value;
+        }
+    }
+}
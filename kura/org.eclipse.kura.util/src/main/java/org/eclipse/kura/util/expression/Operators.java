@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.util.expression;
+
+import java.util.Arrays;
+
+/**
+ * The semantics of the expression operators.
+ * <p>
+ * Integer and long operands are computed as long values, if one of the operands is a float or double the operation
+ * is computed on double values. An arithmetic operation with a null operand returns null, a comparison with a null
+ * operand returns false.
+ */
+final class Operators {
+
+    private Operators() {
+    }
+
+    static Object add(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (left instanceof String || right instanceof String) {
+            return String.valueOf(left) + right;
+        }
+        if (isIntegral(left) && isIntegral(right)) {
+            return ((Number) left).longValue() + ((Number) right).longValue();
+        }
+        return toDouble(left, "+") + toDouble(right, "+");
+    }
+
+    static Object subtract(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (isIntegral(left) && isIntegral(right)) {
+            return ((Number) left).longValue() - ((Number) right).longValue();
+        }
+        return toDouble(left, "-") - toDouble(right, "-");
+    }
+
+    static Object multiply(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (isIntegral(left) && isIntegral(right)) {
+            return ((Number) left).longValue() * ((Number) right).longValue();
+        }
+        return toDouble(left, "*") * toDouble(right, "*");
+    }
+
+    static Object divide(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (isIntegral(left) && isIntegral(right)) {
+            return ((Number) left).longValue() / ((Number) right).longValue();
+        }
+        return toDouble(left, "/") / toDouble(right, "/");
+    }
+
+    static Object remainder(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (isIntegral(left) && isIntegral(right)) {
+            return ((Number) left).longValue() % ((Number) right).longValue();
+        }
+        return toDouble(left, "%") % toDouble(right, "%");
+    }
+
+    static Object negate(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (isIntegral(value)) {
+            return -((Number) value).longValue();
+        }
+        return -toDouble(value, "-");
+    }
+
+    static boolean equal(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return left == right;
+        }
+        if (left instanceof Number && right instanceof Number) {
+            if (isIntegral(left) && isIntegral(right)) {
+                return ((Number) left).longValue() == ((Number) right).longValue();
+            }
+            return ((Number) left).doubleValue() == ((Number) right).doubleValue();
+        }
+        if (left instanceof byte[] && right instanceof byte[]) {
+            return Arrays.equals((byte[]) left, (byte[]) right);
+        }
+        return left.equals(right);
+    }
+
+    /**
+     * Returns a negative value, zero or a positive value if left is less than, equal or greater than right, or null
+     * if one of the operands is null.
+     */
+    static Integer compare(final Object left, final Object right, final String operator) {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (left instanceof Number && right instanceof Number) {
+            if (isIntegral(left) && isIntegral(right)) {
+                return Long.compare(((Number) left).longValue(), ((Number) right).longValue());
+            }
+            final double leftValue = ((Number) left).doubleValue();
+            final double rightValue = ((Number) right).doubleValue();
+            // comparisons with NaN are false, as for Java and JavaScript
+            if (Double.isNaN(leftValue) || Double.isNaN(rightValue)) {
+                return null;
+            }
+            return Double.compare(leftValue, rightValue);
+        }
+        if (left instanceof String && right instanceof String) {
+            return ((String) left).compareTo((String) right);
+        }
+        throw new IllegalArgumentException(
+                "Cannot apply " + operator + " to " + typeName(left) + " and " + typeName(right));
+    }
+
+    static boolean toBoolean(final Object value, final String operator) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new IllegalArgumentException("Cannot apply " + operator + " to " + typeName(value));
+    }
+
+    private static boolean isIntegral(final Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    private static double toDouble(final Object value, final String operator) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        throw new IllegalArgumentException("Cannot apply " + operator + " to " + typeName(value));
+    }
+
+    static String typeName(final Object value) {
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -27,6 +27,7 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
 import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.util.expression.Expression;
 import org.eclipse.kura.wire.WireComponent;
 import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireEnvelope;
@@ -46,7 +47,9 @@ import jdk.nashorn.api.scripting.NashornScriptEngineFactory;
 
 /**
  * The Class Conditional is a specific Wire Component to apply a condition
- * on the received {@link WireEnvelope}
+ * on the received {@link WireEnvelope}. The condition is either a JavaScript
+ * expression, evaluated one envelope at a time, or an {@link Expression},
+ * evaluated on the first record of the envelope without locking.
  */
 public final class Conditional implements WireReceiver, WireEmitter, ConfigurableComponent {
 
@@ -64,6 +67,7 @@ public final class Conditional implements WireReceiver, WireEmitter, Configurabl
 
     private ConditionalOptions conditionalOptions;
     private Optional<CompiledScript> script = Optional.empty();
+    private volatile Optional<Expression> expression = Optional.empty();
 
     public void bindWireHelperService(final WireHelperService wireHelperService) {
         if (isNull(this.wireHelperService)) {
@@ -101,11 +105,16 @@ public final class Conditional implements WireReceiver, WireEmitter, Configurabl
     public synchronized void updated(final Map<String, Object> properties) {
         logger.info("Updating Conditional component...");
         this.conditionalOptions = new ConditionalOptions(properties);
+        this.script = Optional.empty();
+        this.expression = Optional.empty();
         try {
-            this.script = Optional.of(tryCompileScript(this.conditionalOptions.getBooleanExpression()));
+            if (this.conditionalOptions.isExpressionLanguage()) {
+                this.expression = Optional.of(Expression.compile(this.conditionalOptions.getBooleanExpression()));
+            } else {
+                this.script = Optional.of(tryCompileScript(this.conditionalOptions.getBooleanExpression()));
+            }
         } catch (Exception e) {
             logger.warn("Failed to compile boolean expression", e);
-            this.script = Optional.empty();
         }
         logger.info("Updating Conditional component...done");
     }
@@ -118,14 +127,38 @@ public final class Conditional implements WireReceiver, WireEmitter, Configurabl
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void onWireReceive(final WireEnvelope wireEnvelope) {
+    public void onWireReceive(final WireEnvelope wireEnvelope) {
         requireNonNull(wireEnvelope, "Wire Envelope cannot be null");
 
+        final Optional<Expression> currentExpression = this.expression;
+        if (currentExpression.isPresent()) {
+            evaluateExpression(currentExpression.get(), wireEnvelope);
+        } else {
+            evaluateScript(wireEnvelope);
+        }
+    }
+
+    private void evaluateExpression(final Expression condition, final WireEnvelope wireEnvelope) {
+        try {
+            final List<WireRecord> inputRecords = wireEnvelope.getRecords();
+            final WireEnvelope outputEnvelope = this.wireSupport.createWireEnvelope(inputRecords);
+
+            if (condition.test(inputRecords, 0)) {
+                this.thenPort.emit(outputEnvelope);
+            } else {
+                this.elsePort.emit(outputEnvelope);
+            }
+        } catch (Exception e) {
+            logger.warn("Exception while performing decision.", e);
+        }
+    }
+
+    private synchronized void evaluateScript(final WireEnvelope wireEnvelope) {
         try {
 
             if (!this.script.isPresent()) {
-                logger.warn(
-                        "The script compilation failed during component configuration update, please review the script.");
+                logger.warn("The script compilation failed during component configuration update, "
+                        + "please review the script.");
                 return;
             }
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -21,6 +21,9 @@ import javax.script.ScriptException;
 public class ConditionalOptions {
 
     private static final String CONDITION_PROPERTY_KEY = "condition";
+    private static final String CONDITION_LANGUAGE_PROPERTY_KEY = "condition.language";
+
+    private static final String EXPRESSION_LANGUAGE = "EXPRESSION";
 
     private static final String DEFAULT_CONDITION = "records[0].TIMER !== null && "
             + "records[0].TIMER.getValue() > 10 && records[0]['TIMER'].getValue() < 30;";
@@ -42,4 +45,12 @@ public class ConditionalOptions {
         return (String) booleanExpression;
     }
 
+    /**
+     * Returns true if the condition is written in the expression language of
+     * {@link org.eclipse.kura.util.expression.Expression}, false if it is a JavaScript expression.
+     */
+    boolean isExpressionLanguage() {
+        return EXPRESSION_LANGUAGE.equals(this.properties.get(CONDITION_LANGUAGE_PROPERTY_KEY));
+    }
+
 }
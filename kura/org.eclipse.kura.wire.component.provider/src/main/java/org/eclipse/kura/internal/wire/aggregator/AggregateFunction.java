@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import java.util.function.Function;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+
+/**
+ * The functions computed over the samples of a window. The result of each function is emitted in a property named
+ * after the aggregated property, with the function suffix, for example temperature_mean.
+ */
+enum AggregateFunction {
+
+    MIN("_min", s -> TypedValues.newDoubleValue(s.getMin())),
+    MAX("_max", s -> TypedValues.newDoubleValue(s.getMax())),
+    MEAN("_mean", s -> TypedValues.newDoubleValue(s.getMean())),
+    SUM("_sum", s -> TypedValues.newDoubleValue(s.getSum())),
+    COUNT("_count", s -> TypedValues.newLongValue(s.getCount())),
+    LAST("_last", s -> TypedValues.newDoubleValue(s.getLast())),
+    STDDEV("_stddev", s -> TypedValues.newDoubleValue(s.getStandardDeviation()));
+
+    private final String suffix;
+    private final Function<StreamingStatistics, TypedValue<?>> extractor;
+
+    private AggregateFunction(final String suffix, final Function<StreamingStatistics, TypedValue<?>> extractor) {
+        this.suffix = suffix;
+        this.extractor = extractor;
+    }
+
+    String getSuffix() {
+        return this.suffix;
+    }
+
+    TypedValue<?> apply(final StreamingStatistics statistics) {
+        return this.extractor.apply(statistics);
+    }
+}
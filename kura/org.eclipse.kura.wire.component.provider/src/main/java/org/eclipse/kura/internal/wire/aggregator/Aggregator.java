@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.configuration.ConfigurationService;
+import org.eclipse.kura.internal.wire.aggregator.AggregatorOptions.WindowMode;
+import org.eclipse.kura.internal.wire.timer.TimerScheduler;
+import org.eclipse.kura.internal.wire.timer.TimerScheduler.ScheduledTimer;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEmitter;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.wireadmin.Wire;
+
+/**
+ * The Class {@link Aggregator} represents a {@link WireComponent} that reduces the numeric properties of the received
+ * records over tumbling or sliding windows, and emits a single record with the aggregated values for each window.
+ * <p>
+ * Count windows are closed by the received records, time windows are closed by a timer of the shared
+ * {@link TimerScheduler}.
+ */
+public final class Aggregator implements WireEmitter, WireReceiver, ConfigurableComponent {
+
+    private static final Logger logger = LogManager.getLogger(Aggregator.class);
+
+    private volatile WireHelperService wireHelperService;
+    private WireSupport wireSupport;
+
+    private final Object lock = new Object();
+
+    // guarded by lock
+    private Window window;
+    private WindowMode windowMode;
+    private int slide;
+    private int paneRecordCount;
+
+    private ScheduledTimer timer;
+
+    public void bindWireHelperService(final WireHelperService wireHelperService) {
+        if (isNull(this.wireHelperService)) {
+            this.wireHelperService = wireHelperService;
+        }
+    }
+
+    public void unbindWireHelperService(final WireHelperService wireHelperService) {
+        if (this.wireHelperService == wireHelperService) {
+            this.wireHelperService = null;
+        }
+    }
+
+    public void activate(final Map<String, Object> properties, ComponentContext componentContext) {
+        logger.info("Activating Aggregator...");
+        this.wireSupport = this.wireHelperService.newWireSupport(this,
+                (ServiceReference<WireComponent>) componentContext.getServiceReference());
+        updated(properties);
+        logger.info("Activating Aggregator... Done");
+    }
+
+    public void deactivate() {
+        logger.info("Deactivating Aggregator...");
+        cancelTimer();
+        logger.info("Deactivating Aggregator... Done");
+    }
+
+    public synchronized void updated(final Map<String, Object> properties) {
+        logger.info("Updating Aggregator...");
+        cancelTimer();
+
+        final AggregatorOptions options = new AggregatorOptions(properties);
+        final int size = options.getWindowSize();
+        final int windowSlide = options.getWindowSlide();
+        if (size % windowSlide != 0) {
+            logger.warn("The window size {} is not a multiple of the slide {}, the window will span {} slides", size,
+                    windowSlide, size / windowSlide);
+        }
+
+        synchronized (this.lock) {
+            this.windowMode = options.getWindowMode();
+            this.slide = windowSlide;
+            this.paneRecordCount = 0;
+            this.window = new Window(size / windowSlide, options.getFunctions(), options.getIgnoredProperties(),
+                    System.currentTimeMillis());
+        }
+
+        if (options.getWindowMode() == WindowMode.TIME) {
+            final String name = (String) properties.getOrDefault(ConfigurationService.KURA_SERVICE_PID, "Aggregator");
+            this.timer = TimerScheduler.getDefault().scheduleAtFixedRate(name, this::closeTimeWindow, windowSlide,
+                    windowSlide, TimeUnit.SECONDS);
+        }
+
+        logger.info("Updating Aggregator... Done");
+    }
+
+    private synchronized void cancelTimer() {
+        if (this.timer != null) {
+            this.timer.cancel();
+            this.timer = null;
+        }
+    }
+
+    @Override
+    public void onWireReceive(final WireEnvelope wireEnvelope) {
+        requireNonNull(wireEnvelope, "Wire Envelope cannot be null");
+
+        for (final WireRecord wireRecord : wireEnvelope.getRecords()) {
+            final WireRecord result;
+            synchronized (this.lock) {
+                this.window.add(wireRecord);
+                if (this.windowMode != WindowMode.COUNT || ++this.paneRecordCount < this.slide) {
+                    continue;
+                }
+                this.paneRecordCount = 0;
+                result = this.window.closePane(System.currentTimeMillis());
+            }
+            emit(result);
+        }
+    }
+
+    private void closeTimeWindow() {
+        final WireRecord result;
+        synchronized (this.lock) {
+            result = this.window.closePane(System.currentTimeMillis());
+        }
+        emit(result);
+    }
+
+    private void emit(final WireRecord wireRecord) {
+        if (wireRecord != null) {
+            this.wireSupport.emit(Collections.singletonList(wireRecord));
+        }
+    }
+
+    @Override
+    public Object polled(final Wire wire) {
+        return this.wireSupport.polled(wire);
+    }
+
+    @Override
+    public void consumersConnected(final Wire[] wires) {
+        this.wireSupport.consumersConnected(wires);
+    }
+
+    @Override
+    public void updated(final Wire wire, final Object value) {
+        this.wireSupport.updated(wire, value);
+    }
+
+    @Override
+    public void producersConnected(final Wire[] wires) {
+        this.wireSupport.producersConnected(wires);
+    }
+}
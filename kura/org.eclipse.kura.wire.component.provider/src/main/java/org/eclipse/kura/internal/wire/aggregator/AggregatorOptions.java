@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Class AggregatorOptions is responsible to provide all the required
+ * options for the Aggregator Wire Component
+ */
+final class AggregatorOptions {
+
+    private static final Logger logger = LogManager.getLogger(AggregatorOptions.class);
+
+    private static final String CONF_WINDOW_TYPE = "window.type";
+    private static final String CONF_WINDOW_MODE = "window.mode";
+    private static final String CONF_WINDOW_SIZE = "window.size";
+    private static final String CONF_WINDOW_SLIDE = "window.slide";
+    private static final String CONF_FUNCTIONS = "functions";
+    private static final String CONF_IGNORED_PROPERTIES = "ignored.properties";
+
+    private static final String DEFAULT_FUNCTIONS = "min,max,mean,count";
+    private static final String DEFAULT_IGNORED_PROPERTIES = "assetTimestamp|.*_timestamp";
+    private static final int DEFAULT_WINDOW_SIZE = 60;
+
+    enum WindowType {
+        TUMBLING,
+        SLIDING
+    }
+
+    enum WindowMode {
+        COUNT,
+        TIME
+    }
+
+    private final Map<String, Object> properties;
+
+    AggregatorOptions(final Map<String, Object> properties) {
+        requireNonNull(properties, "Properties cannot be null");
+        this.properties = properties;
+    }
+
+    WindowType getWindowType() {
+        return getEnum(CONF_WINDOW_TYPE, WindowType.class, WindowType.TUMBLING);
+    }
+
+    WindowMode getWindowMode() {
+        return getEnum(CONF_WINDOW_MODE, WindowMode.class, WindowMode.TIME);
+    }
+
+    /**
+     * Returns the window size, in records for {@link WindowMode#COUNT} windows or in seconds for
+     * {@link WindowMode#TIME} windows.
+     */
+    int getWindowSize() {
+        return getPositiveInt(CONF_WINDOW_SIZE, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Returns the distance between the start of two consecutive windows, in the unit of the window size. The slide of
+     * a tumbling window is equal to its size.
+     */
+    int getWindowSlide() {
+        final int size = getWindowSize();
+        if (getWindowType() == WindowType.TUMBLING) {
+            return size;
+        }
+        return Math.min(size, getPositiveInt(CONF_WINDOW_SLIDE, size));
+    }
+
+    Set<AggregateFunction> getFunctions() {
+        final Object value = this.properties.get(CONF_FUNCTIONS);
+        final String functions = value instanceof String ? (String) value : DEFAULT_FUNCTIONS;
+
+        final Set<AggregateFunction> result = EnumSet.noneOf(AggregateFunction.class);
+        for (final String function : functions.split(",")) {
+            final String name = function.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                result.add(AggregateFunction.valueOf(name.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unknown aggregate function: {}", name);
+            }
+        }
+        return result;
+    }
+
+    Optional<Pattern> getIgnoredProperties() {
+        final Object value = this.properties.get(CONF_IGNORED_PROPERTIES);
+        final String regex = value instanceof String ? (String) value : DEFAULT_IGNORED_PROPERTIES;
+        if (regex.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Pattern.compile(regex));
+        } catch (PatternSyntaxException e) {
+            logger.warn("Cannot parse the ignored properties expression, all the numeric properties are aggregated",
+                    e);
+            return Optional.empty();
+        }
+    }
+
+    private int getPositiveInt(final String key, final int defaultValue) {
+        final Object value = this.properties.get(key);
+        if (value instanceof Integer && (Integer) value > 0) {
+            return (Integer) value;
+        }
+        return defaultValue;
+    }
+
+    private <T extends Enum<T>> T getEnum(final String key, final Class<T> type, final T defaultValue) {
+        final Object value = this.properties.get(key);
+        if (!(value instanceof String)) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, (String) value);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Cannot parse the provided {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+}
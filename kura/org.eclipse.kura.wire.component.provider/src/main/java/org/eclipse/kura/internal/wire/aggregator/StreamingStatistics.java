@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+/**
+ * Accumulates the statistics of a stream of samples in constant space, without allocations.
+ * <p>
+ * The mean and the variance are computed with the Welford algorithm, partial results are combined with the parallel
+ * variant by Chan et al.
+ */
+final class StreamingStatistics {
+
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+    private double last;
+    private double mean;
+    private double m2;
+
+    StreamingStatistics() {
+        reset();
+    }
+
+    void reset() {
+        this.count = 0;
+        this.sum = 0;
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+        this.last = Double.NaN;
+        this.mean = 0;
+        this.m2 = 0;
+    }
+
+    void add(final double value) {
+        this.count++;
+        this.sum += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+        this.last = value;
+
+        final double delta = value - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (value - this.mean);
+    }
+
+    /**
+     * Adds the samples accumulated by other, that must be more recent than the ones of this instance.
+     */
+    void merge(final StreamingStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (this.count == 0) {
+            copy(other);
+            return;
+        }
+
+        final long total = this.count + other.count;
+        final double delta = other.mean - this.mean;
+        this.mean += delta * other.count / total;
+        this.m2 += other.m2 + delta * delta * this.count * other.count / total;
+        this.count = total;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+        this.last = other.last;
+    }
+
+    private void copy(final StreamingStatistics other) {
+        this.count = other.count;
+        this.sum = other.sum;
+        this.min = other.min;
+        this.max = other.max;
+        this.last = other.last;
+        this.mean = other.mean;
+        this.m2 = other.m2;
+    }
+
+    long getCount() {
+        return this.count;
+    }
+
+    double getSum() {
+        return this.sum;
+    }
+
+    double getMin() {
+        return this.count > 0 ? this.min : Double.NaN;
+    }
+
+    double getMax() {
+        return this.count > 0 ? this.max : Double.NaN;
+    }
+
+    double getLast() {
+        return this.last;
+    }
+
+    double getMean() {
+        return this.count > 0 ? this.mean : Double.NaN;
+    }
+
+    /**
+     * Returns the sample standard deviation, 0 for a single sample.
+     */
+    double getStandardDeviation() {
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        return this.count > 1 ? Math.sqrt(Math.max(0, this.m2 / (this.count - 1))) : 0;
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireRecord;
+
+/**
+ * A window split in panes of equal length, the slide of the window. Each property has a ring of accumulators, one for
+ * each pane; closing a pane merges the panes of the window into the result and clears the oldest pane, that becomes
+ * the current one. The accumulators are reused, adding a sample does not allocate.
+ * <p>
+ * A tumbling window has a single pane. This class is not thread safe.
+ */
+final class Window {
+
+    static final String WINDOW_START = "windowStart";
+    static final String WINDOW_END = "windowEnd";
+
+    private final int paneCount;
+    private final Set<AggregateFunction> functions;
+    private final Optional<Pattern> ignoredProperties;
+
+    // null values are the ignored properties
+    private final Map<String, StreamingStatistics[]> accumulators = new LinkedHashMap<>();
+    private final long[] paneStartTimes;
+    private final StreamingStatistics merged = new StreamingStatistics();
+
+    private int currentPane;
+    private int closedPaneCount;
+
+    Window(final int paneCount, final Set<AggregateFunction> functions, final Optional<Pattern> ignoredProperties,
+            final long startTime) {
+        if (paneCount < 1) {
+            throw new IllegalArgumentException("Pane count must be positive");
+        }
+        this.paneCount = paneCount;
+        this.functions = functions;
+        this.ignoredProperties = ignoredProperties;
+        this.paneStartTimes = new long[paneCount];
+        this.paneStartTimes[0] = startTime;
+    }
+
+    /**
+     * Adds the numeric properties of the record to the current pane.
+     */
+    void add(final WireRecord wireRecord) {
+        for (final Entry<String, TypedValue<?>> entry : wireRecord.getProperties().entrySet()) {
+            final Object value = entry.getValue() != null ? entry.getValue().getValue() : null;
+            if (!(value instanceof Number)) {
+                continue;
+            }
+            final StreamingStatistics[] panes = getPanes(entry.getKey());
+            if (panes != null) {
+                panes[this.currentPane].add(((Number) value).doubleValue());
+            }
+        }
+    }
+
+    /**
+     * Closes the current pane.
+     *
+     * @return the aggregated record of the window ending with the closed pane, or null if the window is not complete
+     *         yet or has no samples
+     */
+    WireRecord closePane(final long time) {
+        WireRecord result = null;
+        if (this.closedPaneCount < this.paneCount) {
+            this.closedPaneCount++;
+        }
+        if (this.closedPaneCount == this.paneCount) {
+            result = aggregate(time);
+        }
+
+        this.currentPane = (this.currentPane + 1) % this.paneCount;
+        this.paneStartTimes[this.currentPane] = time;
+        for (final StreamingStatistics[] panes : this.accumulators.values()) {
+            if (panes != null) {
+                panes[this.currentPane].reset();
+            }
+        }
+        return result;
+    }
+
+    private WireRecord aggregate(final long time) {
+        final Map<String, TypedValue<?>> properties = new HashMap<>();
+
+        final Iterator<Entry<String, StreamingStatistics[]>> iterator = this.accumulators.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Entry<String, StreamingStatistics[]> entry = iterator.next();
+            final StreamingStatistics[] panes = entry.getValue();
+            if (panes == null) {
+                continue;
+            }
+
+            // the oldest pane is the one after the current one
+            this.merged.reset();
+            for (int i = 1; i <= this.paneCount; i++) {
+                this.merged.merge(panes[(this.currentPane + i) % this.paneCount]);
+            }
+            if (this.merged.getCount() == 0) {
+                // the property has not been received for a whole window
+                iterator.remove();
+                continue;
+            }
+            for (final AggregateFunction function : this.functions) {
+                properties.put(entry.getKey() + function.getSuffix(), function.apply(this.merged));
+            }
+        }
+
+        if (properties.isEmpty()) {
+            return null;
+        }
+        final int oldestPane = (this.currentPane + 1) % this.paneCount;
+        properties.put(WINDOW_START, TypedValues.newLongValue(this.paneStartTimes[oldestPane]));
+        properties.put(WINDOW_END, TypedValues.newLongValue(time));
+        return new WireRecord(properties);
+    }
+
+    private StreamingStatistics[] getPanes(final String name) {
+        StreamingStatistics[] panes = this.accumulators.get(name);
+        if (panes == null && !this.accumulators.containsKey(name)) {
+            if (!isIgnored(name)) {
+                panes = new StreamingStatistics[this.paneCount];
+                for (int i = 0; i < this.paneCount; i++) {
+                    panes[i] = new StreamingStatistics();
+                }
+            }
+            this.accumulators.put(name, panes);
+        }
+        return panes;
+    }
+
+    private boolean isIgnored(final String name) {
+        return this.ignoredProperties.isPresent() && this.ignoredProperties.get().matcher(name).matches();
+    }
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.asset;
+
+import static org.eclipse.kura.internal.wire.asset.WireAssetConstants.DEADBAND_ABSOLUTE_PROP_NAME;
+import static org.eclipse.kura.internal.wire.asset.WireAssetConstants.DEADBAND_PERCENT_PROP_NAME;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.kura.channel.Channel;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.type.TypedValue;
+
+/**
+ * Suppresses the channel records whose value has not changed since the last emitted one.
+ * <p>
+ * A numeric value is reported if it differs from the last reported value by more than the absolute deadband of the
+ * channel and by more than the percentage deadband of the channel, relative to the last reported value. Other values
+ * are reported if they are not equal to the last reported one. Errors are always reported, and a value is reported
+ * anyway if nothing has been reported for the channel for the max silence interval.
+ * <p>
+ * The state of the channels is kept in arrays indexed by the position of the channel in the asset configuration.
+ */
+final class ReportByExceptionFilter {
+
+    private static final Logger logger = LogManager.getLogger(ReportByExceptionFilter.class);
+
+    private final Map<String, Integer> channelIndexes;
+    private final long maxSilenceMillis;
+
+    private final double[] absoluteDeadbands;
+    private final double[] relativeDeadbands;
+
+    private final boolean[] reported;
+    private final long[] lastReportTimes;
+    private final double[] lastNumericValues;
+    private final Object[] lastValues;
+
+    ReportByExceptionFilter(final Collection<Channel> channels, final long maxSilenceMillis) {
+        final int channelCount = channels.size();
+        this.channelIndexes = new HashMap<>(channelCount * 2);
+        this.maxSilenceMillis = maxSilenceMillis;
+        this.absoluteDeadbands = new double[channelCount];
+        this.relativeDeadbands = new double[channelCount];
+        this.reported = new boolean[channelCount];
+        this.lastReportTimes = new long[channelCount];
+        this.lastNumericValues = new double[channelCount];
+        this.lastValues = new Object[channelCount];
+
+        int index = 0;
+        for (final Channel channel : channels) {
+            final Map<String, Object> configuration = channel.getConfiguration();
+            this.channelIndexes.put(channel.getName(), index);
+            this.absoluteDeadbands[index] = getDeadband(configuration, DEADBAND_ABSOLUTE_PROP_NAME.value());
+            this.relativeDeadbands[index] = getDeadband(configuration, DEADBAND_PERCENT_PROP_NAME.value()) / 100;
+            index++;
+        }
+    }
+
+    /**
+     * Returns the records that must be reported and records them as reported.
+     *
+     * @return the provided list if all the records must be reported, otherwise a new list
+     */
+    synchronized List<ChannelRecord> filter(final List<ChannelRecord> channelRecords, final long now) {
+        List<ChannelRecord> result = null;
+
+        final int size = channelRecords.size();
+        for (int i = 0; i < size; i++) {
+            final ChannelRecord channelRecord = channelRecords.get(i);
+            final boolean report = report(channelRecord, now);
+
+            if (report && result != null) {
+                result.add(channelRecord);
+            } else if (!report && result == null) {
+                result = new ArrayList<>(size);
+                result.addAll(channelRecords.subList(0, i));
+            }
+        }
+
+        return result != null ? result : channelRecords;
+    }
+
+    private boolean report(final ChannelRecord channelRecord, final long now) {
+        final Integer index = this.channelIndexes.get(channelRecord.getChannelName());
+        if (index == null) {
+            return true;
+        }
+        final int i = index;
+
+        final ChannelStatus status = channelRecord.getChannelStatus();
+        final TypedValue<?> typedValue = channelRecord.getValue();
+        if (status == null || status.getChannelFlag() != ChannelFlag.SUCCESS || typedValue == null) {
+            // the next value after an error is always reported
+            this.reported[i] = false;
+            return true;
+        }
+
+        final Object value = typedValue.getValue();
+        final boolean report = !this.reported[i] || isSilenceExceeded(i, now) || isChanged(i, value);
+
+        if (report) {
+            this.reported[i] = true;
+            this.lastReportTimes[i] = now;
+            if (value instanceof Number) {
+                this.lastNumericValues[i] = ((Number) value).doubleValue();
+            } else {
+                this.lastValues[i] = value;
+            }
+        }
+        return report;
+    }
+
+    private boolean isSilenceExceeded(final int index, final long now) {
+        return this.maxSilenceMillis > 0 && now - this.lastReportTimes[index] >= this.maxSilenceMillis;
+    }
+
+    private boolean isChanged(final int index, final Object value) {
+        if (!(value instanceof Number)) {
+            if (value instanceof byte[] && this.lastValues[index] instanceof byte[]) {
+                return !Arrays.equals((byte[]) value, (byte[]) this.lastValues[index]);
+            }
+            return !value.equals(this.lastValues[index]);
+        }
+
+        final double current = ((Number) value).doubleValue();
+        final double last = this.lastNumericValues[index];
+        if (Double.isNaN(current) || Double.isNaN(last)) {
+            return Double.isNaN(current) != Double.isNaN(last);
+        }
+
+        final double delta = Math.abs(current - last);
+        return delta > this.absoluteDeadbands[index] && delta > this.relativeDeadbands[index] * Math.abs(last);
+    }
+
+    private static double getDeadband(final Map<String, Object> configuration, final String key) {
+        final Object value = configuration.get(key);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            final double deadband = value instanceof Number ? ((Number) value).doubleValue()
+                    : Double.parseDouble(value.toString());
+            return Math.max(0, deadband);
+        } catch (NumberFormatException e) {
+            logger.warn("Failed to parse the \"{}\" property from channel configuration", key);
+            return 0;
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2016, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -87,6 +88,10 @@ import org.osgi.service.wireadmin.Wire;
  * contains the typed value of this channel in the received {@link WireRecord} will be
  * considered as a WRITE Value in that specific channel in B and this value will
  * be written to {@code B}'s channel
+ * <br/>
+ * <br/>
+ * If {@code report.by.exception} is enabled, the channels whose value has not changed since
+ * the last emission, within the deadbands configured for the channel, are not emitted.
  *
  * @see Channel
  * @see ChannelRecord
@@ -105,6 +110,8 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
 
     private PreparedEmit preparedEmit;
 
+    private volatile ReportByExceptionFilter reportByExceptionFilter;
+
     /**
      * Binds the Wire Helper Service.
      *
@@ -157,6 +164,13 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
         logger.debug("Updating Wire Asset...");
         this.options = new WireAssetOptions(properties);
         super.updated(properties);
+        if (this.options.reportByException()) {
+            this.reportByExceptionFilter = new ReportByExceptionFilter(
+                    getAssetConfiguration().getAssetChannels().values(),
+                    TimeUnit.SECONDS.toMillis(this.options.getMaxSilence()));
+        } else {
+            this.reportByExceptionFilter = null;
+        }
         logger.debug("Updating Wire Asset...Done");
     }
 
@@ -290,12 +304,21 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
             throw new IllegalArgumentException("Channel Records cannot be empty");
         }
 
+        final ReportByExceptionFilter filter = this.reportByExceptionFilter;
+        final List<ChannelRecord> recordsToEmit = filter != null
+                ? filter.filter(channelRecords, System.currentTimeMillis())
+                : channelRecords;
+        if (recordsToEmit.isEmpty()) {
+            logger.debug("No channel value changed, nothing to emit");
+            return;
+        }
+
         final Map<String, TypedValue<?>> wireRecordProperties;
 
         if (this.preparedEmit != null) {
-            wireRecordProperties = this.preparedEmit.execute(channelRecords);
+            wireRecordProperties = this.preparedEmit.execute(recordsToEmit);
         } else {
-            wireRecordProperties = Utils.toWireRecordProperties(channelRecords, this.options);
+            wireRecordProperties = Utils.toWireRecordProperties(recordsToEmit, this.options);
         }
 
         try {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2018, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,8 @@
 
 package org.eclipse.kura.internal.wire.asset;
 
+import static org.eclipse.kura.internal.wire.asset.WireAssetConstants.DEADBAND_ABSOLUTE_PROP_NAME;
+import static org.eclipse.kura.internal.wire.asset.WireAssetConstants.DEADBAND_PERCENT_PROP_NAME;
 import static org.eclipse.kura.internal.wire.asset.WireAssetConstants.LISTEN_PROP_NAME;
 
 import org.eclipse.kura.asset.provider.BaseChannelDescriptor;
@@ -36,6 +38,30 @@ public class WireAssetChannelDescriptor extends BaseChannelDescriptor {
 
         this.defaultElements.add(listen);
 
+        final Tad deadbandAbsolute = new Tad();
+        deadbandAbsolute.setName(DEADBAND_ABSOLUTE_PROP_NAME.value().substring(1));
+        deadbandAbsolute.setId(DEADBAND_ABSOLUTE_PROP_NAME.value());
+        deadbandAbsolute.setDescription("If report.by.exception is enabled, a numeric value is emitted only if it "
+                + "differs from the last emitted value by more than this amount");
+        deadbandAbsolute.setType(Tscalar.DOUBLE);
+        deadbandAbsolute.setRequired(true);
+        deadbandAbsolute.setDefault("0");
+        deadbandAbsolute.setMin("0");
+
+        this.defaultElements.add(deadbandAbsolute);
+
+        final Tad deadbandPercent = new Tad();
+        deadbandPercent.setName(DEADBAND_PERCENT_PROP_NAME.value().substring(1));
+        deadbandPercent.setId(DEADBAND_PERCENT_PROP_NAME.value());
+        deadbandPercent.setDescription("If report.by.exception is enabled, a numeric value is emitted only if it "
+                + "differs from the last emitted value by more than this percentage of the last emitted value");
+        deadbandPercent.setType(Tscalar.DOUBLE);
+        deadbandPercent.setRequired(true);
+        deadbandPercent.setDefault("0");
+        deadbandPercent.setMin("0");
+
+        this.defaultElements.add(deadbandPercent);
+
     }
 
     public static WireAssetChannelDescriptor get() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2018, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,8 @@ import org.eclipse.kura.asset.provider.AssetConstants;
 public enum WireAssetConstants {
 
     LISTEN_PROP_NAME(AssetConstants.CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "listen"),
+    DEADBAND_ABSOLUTE_PROP_NAME(AssetConstants.CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "deadband.absolute"),
+    DEADBAND_PERCENT_PROP_NAME(AssetConstants.CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "deadband.percent"),
 
     PROPERTY_SEPARATOR("_"),
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2018, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -39,6 +39,14 @@ public class WireAssetOCD extends BaseAssetOCD {
     private static final String EMIT_ERRORS_DESCRIPTION = "Specifies wheter errors should be included or not "
             + "in the emitted envelope";
 
+    private static final String REPORT_BY_EXCEPTION_DESCRIPTION = "If set to true, the value of a channel is "
+            + "emitted only if it has changed since the last emitted value, by more than the deadband configured "
+            + "for the channel in case of numeric values. Channels in error are always emitted.";
+
+    private static final String MAX_SILENCE_DESCRIPTION = "If report.by.exception is enabled and greater than zero, "
+            + "the maximum interval in seconds without emitting the value of a channel."
+            + " After this interval the value is emitted even if it has not changed.";
+
     private static void addOptions(Tad target, Enum<?>[] values) {
         final List<Option> options = target.getOption();
         for (Enum<?> value : values) {
@@ -88,6 +96,29 @@ public class WireAssetOCD extends BaseAssetOCD {
 
         addAD(emitErrorsAd);
 
+        final Tad reportByExceptionAd = new Tad();
+        reportByExceptionAd.setId(WireAssetOptions.REPORT_BY_EXCEPTION_PROP_NAME);
+        reportByExceptionAd.setName(WireAssetOptions.REPORT_BY_EXCEPTION_PROP_NAME);
+        reportByExceptionAd.setCardinality(0);
+        reportByExceptionAd.setType(Tscalar.BOOLEAN);
+        reportByExceptionAd.setDescription(REPORT_BY_EXCEPTION_DESCRIPTION);
+        reportByExceptionAd.setRequired(true);
+        reportByExceptionAd.setDefault("false");
+
+        addAD(reportByExceptionAd);
+
+        final Tad maxSilenceAd = new Tad();
+        maxSilenceAd.setId(WireAssetOptions.MAX_SILENCE_PROP_NAME);
+        maxSilenceAd.setName(WireAssetOptions.MAX_SILENCE_PROP_NAME);
+        maxSilenceAd.setCardinality(0);
+        maxSilenceAd.setType(Tscalar.INTEGER);
+        maxSilenceAd.setDescription(MAX_SILENCE_DESCRIPTION);
+        maxSilenceAd.setRequired(true);
+        maxSilenceAd.setDefault("0");
+        maxSilenceAd.setMin("0");
+
+        addAD(maxSilenceAd);
+
     }
 
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2018, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -20,10 +20,14 @@ class WireAssetOptions {
     public static final String EMIT_ALL_CHANNELS_PROP_NAME = "emit.all.channels";
     public static final String TIMESTAMP_MODE_PROP_NAME = "timestamp.mode";
     public static final String EMIT_ERRORS_PROP_NAME = "emit.errors";
+    public static final String REPORT_BY_EXCEPTION_PROP_NAME = "report.by.exception";
+    public static final String MAX_SILENCE_PROP_NAME = "max.silence";
 
     private boolean emitAllChannels;
     private TimestampMode timestampMode;
     private boolean emitErrors;
+    private boolean reportByException;
+    private int maxSilence;
 
     public WireAssetOptions() {
     }
@@ -31,9 +35,13 @@ class WireAssetOptions {
     public WireAssetOptions(Map<String, Object> properties) {
         final Object emitAllChannelsProp = properties.get(EMIT_ALL_CHANNELS_PROP_NAME);
         final Object emitErrorsProp = properties.get(EMIT_ERRORS_PROP_NAME);
+        final Object reportByExceptionProp = properties.get(REPORT_BY_EXCEPTION_PROP_NAME);
+        final Object maxSilenceProp = properties.get(MAX_SILENCE_PROP_NAME);
 
         this.emitAllChannels = emitAllChannelsProp instanceof Boolean && (Boolean) emitAllChannelsProp;
         this.emitErrors = emitErrorsProp instanceof Boolean && (Boolean) emitErrorsProp;
+        this.reportByException = reportByExceptionProp instanceof Boolean && (Boolean) reportByExceptionProp;
+        this.maxSilence = maxSilenceProp instanceof Integer ? Math.max(0, (Integer) maxSilenceProp) : 0;
 
         this.timestampMode = extractTimestampMode(properties);
     }
@@ -50,6 +58,14 @@ class WireAssetOptions {
         return this.emitErrors;
     }
 
+    public boolean reportByException() {
+        return this.reportByException;
+    }
+
+    public int getMaxSilence() {
+        return this.maxSilence;
+    }
+
     private static TimestampMode extractTimestampMode(final Map<String, Object> properties) {
         try {
             return TimestampMode.valueOf(properties.get(TIMESTAMP_MODE_PROP_NAME).toString());
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -16,10 +16,12 @@ import static java.util.Objects.isNull;
 import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
@@ -31,6 +33,7 @@ import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireHelperService;
 import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireRecord;
 import org.eclipse.kura.wire.WireSupport;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.ComponentContext;
@@ -40,13 +43,15 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
 
     private static final String DISCARD_ENVELOPES_PROP_NAME = "discard.envelopes";
     private static final String QUEUE_CAPACITY_PROP_NAME = "queue.capacity";
+    private static final String COALESCE_ENVELOPES_PROP_NAME = "coalesce.envelopes";
+    private static final String STATISTICS_INTERVAL_PROP_NAME = "statistics.log.interval";
 
     private static final Logger logger = LogManager.getLogger(Fifo.class);
 
     private volatile WireHelperService wireHelperService;
     private WireSupport wireSupport;
 
-    private FifoEmitterThread emitterThread;
+    private volatile FifoEmitterThread emitterThread;
 
     public void bindWireHelperService(final WireHelperService wireHelperService) {
         if (isNull(this.wireHelperService)) {
@@ -81,8 +86,11 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
                 + "-EmitterThread";
         int queueCapacity = (Integer) properties.getOrDefault(QUEUE_CAPACITY_PROP_NAME, 50);
         boolean discardEnvelopes = (Boolean) properties.getOrDefault(DISCARD_ENVELOPES_PROP_NAME, false);
+        boolean coalesceEnvelopes = (Boolean) properties.getOrDefault(COALESCE_ENVELOPES_PROP_NAME, false);
+        int statisticsInterval = (Integer) properties.getOrDefault(STATISTICS_INTERVAL_PROP_NAME, 0);
 
-        restartEmitterThread(threadName, queueCapacity, discardEnvelopes);
+        restartEmitterThread(threadName, Math.max(1, queueCapacity), discardEnvelopes, coalesceEnvelopes,
+                statisticsInterval);
 
         logger.info("Updating Fifo... Done");
     }
@@ -94,12 +102,14 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
         }
     }
 
-    private synchronized void restartEmitterThread(String threadName, int queueCapacity, boolean discardEnvelopes) {
+    private synchronized void restartEmitterThread(String threadName, int queueCapacity, boolean discardEnvelopes,
+            boolean coalesceEnvelopes, int statisticsInterval) {
         stopEmitterThread();
 
-        logger.debug("Creating new emitter thread: {}, queue capacity: {}, discard envelopes: {}", threadName,
-                queueCapacity, discardEnvelopes);
-        this.emitterThread = new FifoEmitterThread(threadName, queueCapacity, discardEnvelopes);
+        logger.debug("Creating new emitter thread: {}, queue capacity: {}, discard envelopes: {}, "
+                + "coalesce envelopes: {}", threadName, queueCapacity, discardEnvelopes, coalesceEnvelopes);
+        this.emitterThread = new FifoEmitterThread(threadName, queueCapacity, discardEnvelopes, coalesceEnvelopes,
+                statisticsInterval);
         this.emitterThread.start();
     }
 
@@ -131,22 +141,46 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
         this.wireSupport.producersConnected(wires);
     }
 
+    /**
+     * Returns the number of envelopes currently queued.
+     */
+    public int getQueueSize() {
+        final FifoEmitterThread thread = this.emitterThread;
+        return thread != null ? thread.queue.size() : 0;
+    }
+
+    /**
+     * Returns the number of envelopes discarded because the queue was full, since the last configuration update.
+     */
+    public long getDiscardedEnvelopeCount() {
+        final FifoEmitterThread thread = this.emitterThread;
+        return thread != null ? thread.discardedCount.get() : 0;
+    }
+
     private class FifoEmitterThread extends Thread {
 
-        private final Lock lock = new ReentrantLock();
+        private final MpscRingBuffer<WireEnvelope> queue;
+        private final boolean coalesceEnvelopes;
+        private final long statisticsIntervalNanos;
+
+        private volatile boolean run = true;
+        private volatile boolean consumerWaiting;
 
-        private final Condition producer = this.lock.newCondition();
-        private final Condition consumer = this.lock.newCondition();
+        // producers blocked on a full queue wait on this
+        private final Object notFull = new Object();
+        private final AtomicInteger blockedProducers = new AtomicInteger();
 
-        private boolean run = true;
-        private final ArrayList<WireEnvelope> queue;
-        private final int queueCapacity;
+        private final AtomicLong discardedCount = new AtomicLong();
+        private long emittedCount;
+        private int maxQueueSize;
 
-        private Consumer<WireEnvelope> submitter;
+        private final Consumer<WireEnvelope> submitter;
 
-        public FifoEmitterThread(String threadName, int queueCapacity, boolean discardEnvelopes) {
-            this.queue = new ArrayList<>();
-            this.queueCapacity = queueCapacity;
+        public FifoEmitterThread(String threadName, int queueCapacity, boolean discardEnvelopes,
+                boolean coalesceEnvelopes, int statisticsInterval) {
+            this.queue = new MpscRingBuffer<>(queueCapacity);
+            this.coalesceEnvelopes = coalesceEnvelopes;
+            this.statisticsIntervalNanos = TimeUnit.SECONDS.toNanos(statisticsInterval);
             setName(threadName);
             if (discardEnvelopes) {
                 this.submitter = getEnvelopeDiscardingSubmitter();
@@ -156,53 +190,64 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
         }
 
         private Consumer<WireEnvelope> getEnvelopeDiscardingSubmitter() {
-            return (envelope) -> {
-                try {
-                    this.lock.lock();
-                    if (!this.run || this.queue.size() >= this.queueCapacity) {
-                        logger.debug("envelope discarded");
-                        return;
-                    } else {
-                        this.queue.add(envelope);
-                        this.producer.signal();
-                        logger.debug("envelope submitted");
-                    }
-                } finally {
-                    this.lock.unlock();
+            return envelope -> {
+                if (!this.run || !this.queue.offer(envelope)) {
+                    this.discardedCount.incrementAndGet();
+                    logger.debug("envelope discarded");
+                    return;
                 }
+                signalConsumer();
+                logger.debug("envelope submitted");
             };
         }
 
         private Consumer<WireEnvelope> getEmitterBlockingSubmitter() {
-            return (envelope) -> {
-                try {
-                    this.lock.lock();
-                    while (this.run && this.queue.size() >= this.queueCapacity) {
-                        this.consumer.await();
+            return envelope -> {
+                if (!this.queue.offer(envelope)) {
+                    try {
+                        synchronized (this.notFull) {
+                            this.blockedProducers.incrementAndGet();
+                            try {
+                                while (this.run && !this.queue.offer(envelope)) {
+                                    this.notFull.wait();
+                                }
+                            } finally {
+                                this.blockedProducers.decrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        logger.warn("Interrupted while adding new envelope to queue", e);
+                        return;
                     }
                     if (!this.run) {
                         return;
                     }
-                    this.queue.add(envelope);
-                    this.producer.signal();
-                    logger.debug("envelope submitted");
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    logger.warn("Interrupted while adding new envelope to queue", e);
-                } finally {
-                    this.lock.unlock();
                 }
+                signalConsumer();
+                logger.debug("envelope submitted");
             };
         }
 
+        private void signalConsumer() {
+            if (this.consumerWaiting) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        private void signalProducers() {
+            if (this.blockedProducers.get() > 0) {
+                synchronized (this.notFull) {
+                    this.notFull.notifyAll();
+                }
+            }
+        }
+
         public void shutdown() {
-            try {
-                this.lock.lock();
-                this.run = false;
-                this.producer.signalAll();
-                this.consumer.signalAll();
-            } finally {
-                this.lock.unlock();
+            this.run = false;
+            LockSupport.unpark(this);
+            synchronized (this.notFull) {
+                this.notFull.notifyAll();
             }
         }
 
@@ -212,28 +257,71 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
 
         @Override
         public void run() {
+            long nextStatisticsLog = System.nanoTime() + this.statisticsIntervalNanos;
             while (this.run) {
                 try {
-                    WireEnvelope next = null;
-                    try {
-                        this.lock.lock();
-                        while (this.run && this.queue.isEmpty()) {
-                            this.producer.await();
-                        }
-                        if (!this.run) {
-                            break;
-                        }
-                        next = this.queue.remove(0);
-                        this.consumer.signal();
-                    } finally {
-                        this.lock.unlock();
+                    if (this.statisticsIntervalNanos > 0 && System.nanoTime() - nextStatisticsLog >= 0) {
+                        logStatistics();
+                        nextStatisticsLog += this.statisticsIntervalNanos;
+                    }
+
+                    this.maxQueueSize = Math.max(this.maxQueueSize, this.queue.size());
+                    final List<WireRecord> records = this.coalesceEnvelopes ? pollAll() : pollNext();
+                    if (records == null) {
+                        awaitEnvelopes(nextStatisticsLog);
+                        continue;
                     }
-                    Fifo.this.wireSupport.emit(next.getRecords());
+                    Fifo.this.wireSupport.emit(records);
                 } catch (Exception e) {
                     logger.warn("Unexpected exception while dispatching envelope", e);
                 }
             }
             logger.debug("exiting");
         }
+
+        private List<WireRecord> pollNext() {
+            final WireEnvelope next = this.queue.poll();
+            if (next == null) {
+                return null;
+            }
+            signalProducers();
+            this.emittedCount++;
+            return next.getRecords();
+        }
+
+        private List<WireRecord> pollAll() {
+            final WireEnvelope first = this.queue.poll();
+            if (first == null) {
+                return null;
+            }
+            final List<WireRecord> records = new ArrayList<>(first.getRecords());
+            final int count = 1 + this.queue.drain(envelope -> records.addAll(envelope.getRecords()));
+            signalProducers();
+            this.emittedCount += count;
+            return records;
+        }
+
+        private void awaitEnvelopes(final long nextStatisticsLog) {
+            this.consumerWaiting = true;
+            try {
+                if (!this.run || !this.queue.isEmpty()) {
+                    return;
+                }
+                if (this.statisticsIntervalNanos > 0) {
+                    LockSupport.parkNanos(this, nextStatisticsLog - System.nanoTime());
+                } else {
+                    LockSupport.park(this);
+                }
+            } finally {
+                this.consumerWaiting = false;
+            }
+        }
+
+        private void logStatistics() {
+            logger.info("{}: queued envelopes: {}/{}, max queued: {}, emitted: {}, discarded: {}", getName(),
+                    this.queue.size(), this.queue.capacity(), this.maxQueueSize, this.emittedCount,
+                    this.discardedCount.get());
+            this.maxQueueSize = 0;
+        }
     }
 }
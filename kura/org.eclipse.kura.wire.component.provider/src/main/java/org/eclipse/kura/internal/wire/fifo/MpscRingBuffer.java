@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.fifo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded lock-free queue for many producer threads and a single consumer thread.
+ * <p>
+ * Each slot has a sequence number: a producer claims the next position with a CAS on the tail and publishes the
+ * element by advancing the sequence of the slot, the consumer releases the slot by advancing the sequence by a full
+ * lap. The queue is full when the slot at the tail has not been released yet.
+ */
+final class MpscRingBuffer<T> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    // written only by the consumer
+    private volatile long head;
+
+    MpscRingBuffer(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Adds an element, can be called by any thread.
+     *
+     * @return false if the queue is full
+     */
+    boolean offer(final T element) {
+        long position = this.tail.get();
+        while (true) {
+            final int index = index(position);
+            final long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.elements.lazySet(index, element);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the first element, must be called only by the consumer thread.
+     *
+     * @return the element, or null if the queue is empty
+     */
+    T poll() {
+        final long position = this.head;
+        final int index = index(position);
+        if (this.sequences.get(index) != position + 1) {
+            return null;
+        }
+        final T element = this.elements.get(index);
+        this.elements.lazySet(index, null);
+        this.sequences.set(index, position + this.capacity);
+        this.head = position + 1;
+        return element;
+    }
+
+    /**
+     * Removes the elements currently in the queue, must be called only by the consumer thread.
+     *
+     * @return the number of removed elements
+     */
+    int drain(final Consumer<? super T> consumer) {
+        int count = 0;
+        T element;
+        while (count < this.capacity && (element = poll()) != null) {
+            consumer.accept(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of elements in the queue, the result is approximate while the queue is being modified.
+     */
+    int size() {
+        final long size = this.tail.get() - this.head;
+        return (int) Math.max(0, Math.min(size, this.capacity));
+    }
+
+    boolean isEmpty() {
+        return this.sequences.get(index(this.head)) != this.head + 1;
+    }
+
+    private int index(final long position) {
+        return (int) (position % this.capacity);
+    }
+}
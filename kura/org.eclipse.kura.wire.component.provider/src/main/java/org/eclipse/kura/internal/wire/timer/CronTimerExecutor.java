@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2020, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -13,112 +13,117 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.wire.timer;
 
+import java.text.ParseException;
+import java.util.Date;
 import java.util.Dictionary;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kura.clock.ClockEvent;
+import org.eclipse.kura.internal.wire.timer.TimerScheduler.ScheduledTimer;
 import org.eclipse.kura.wire.WireSupport;
-import org.osgi.framework.BundleContext;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
-import org.quartz.CronScheduleBuilder;
-import org.quartz.JobBuilder;
-import org.quartz.JobDetail;
-import org.quartz.JobKey;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
-import org.quartz.Trigger;
-import org.quartz.TriggerBuilder;
-import org.quartz.TriggerKey;
-import org.quartz.impl.StdSchedulerFactory;
-import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.CronExpression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Emits at the times of a cron expression. The next fire time is computed on the system clock and scheduled as a
+ * delay on the {@link TimerScheduler}, the timers are rescheduled when the system time changes.
+ */
 public class CronTimerExecutor implements TimerExecutor {
 
     private static final Logger logger = LoggerFactory.getLogger(CronTimerExecutor.class);
-    private static final String GROUP_ID = "wires";
 
-    private static AtomicInteger nextJobId = new AtomicInteger(0);
-    private static SchedulerManager schedulerManager = new SchedulerManager();
+    private static ClockChangeManager clockChangeManager = new ClockChangeManager();
 
-    private final JobKey jobKey;
+    private final String name;
+    private final CronExpression cronExpression;
+    private final Runnable task;
+    private final TimerScheduler scheduler;
 
-    public CronTimerExecutor(final TimerOptions options, final WireSupport wireSupport) throws SchedulerException {
+    // guarded by this
+    private ScheduledTimer timer;
+    private boolean shutdown;
 
-        final String expression = options.getCronExpression();
-        final int id = nextJobId.incrementAndGet();
+    // only accessed by the scheduler, that must not wait on this
+    private volatile long lastFireTime;
 
-        this.jobKey = new JobKey("emitJob" + id, GROUP_ID);
-        final Trigger trigger = TriggerBuilder.newTrigger().withIdentity("emitTrigger" + id, GROUP_ID)
-                .withSchedule(CronScheduleBuilder.cronSchedule(expression)).build();
+    public CronTimerExecutor(final TimerOptions options, final WireSupport wireSupport) throws ParseException {
+        this(options, wireSupport, TimerScheduler.getDefault());
+    }
 
-        final TimerJobDataMap jobDataMap = new TimerJobDataMap();
-        jobDataMap.putWireSupport(wireSupport);
-        final JobDetail job = JobBuilder.newJob(EmitJob.class).withIdentity(this.jobKey).setJobData(jobDataMap).build();
+    CronTimerExecutor(final TimerOptions options, final WireSupport wireSupport, final TimerScheduler scheduler)
+            throws ParseException {
+        this.name = options.getOwnPid();
+        this.cronExpression = new CronExpression(options.getCronExpression());
+        this.task = () -> Timer.emit(wireSupport);
+        this.scheduler = scheduler;
 
-        try {
-            schedulerManager.onInstanceCreated();
-            schedulerManager.scheduleJob(job, trigger);
-        } catch (final Exception e) {
-            schedulerManager.onInstanceDestroyed();
-            throw e;
-        }
+        schedule();
+        clockChangeManager.onInstanceCreated(this);
     }
 
     @Override
     public void shutdown() {
-        try {
-            schedulerManager.deleteJob(this.jobKey);
-        } catch (final Exception e) {
-            logger.warn("failed to delete job", e);
+        clockChangeManager.onInstanceDestroyed(this);
+        synchronized (this) {
+            this.shutdown = true;
+            this.timer.cancel();
         }
-        schedulerManager.onInstanceDestroyed();
     }
 
-    private static class SchedulerManager {
-
-        private int instanceCount;
-        private Optional<Scheduler> scheduler = Optional.empty();
-        private Optional<ServiceRegistration<EventHandler>> clockChangeEventHandler = Optional.empty();
-
-        Scheduler getScheduler() throws SchedulerException {
-            if (this.scheduler.isPresent()) {
-                return this.scheduler.get();
-            }
+    private synchronized void schedule() {
+        if (this.shutdown) {
+            return;
+        }
+        if (this.timer != null) {
+            this.timer.cancel();
+        }
+        this.lastFireTime = 0;
+        this.timer = this.scheduler.schedule(this.name, this.task, this::nextDelayNanos);
+    }
 
-            final Scheduler newScheduler = new StdSchedulerFactory().getScheduler();
-            newScheduler.start();
+    private long nextDelayNanos() {
+        final long now = System.currentTimeMillis();
+        // the wheel runs on the monotonic clock and can fire slightly before the system clock reaches the fire time
+        final Date next = this.cronExpression.getNextValidTimeAfter(new Date(Math.max(now, this.lastFireTime)));
+        if (next == null) {
+            return -1;
+        }
+        this.lastFireTime = next.getTime();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, next.getTime() - now));
+    }
 
-            this.scheduler = Optional.of(newScheduler);
+    private static class ClockChangeManager {
 
-            return newScheduler;
-        }
+        private final Set<CronTimerExecutor> instances = new HashSet<>();
+        private Optional<ServiceRegistration<EventHandler>> clockChangeEventHandler = Optional.empty();
 
-        synchronized void onInstanceCreated() {
-            this.instanceCount++;
+        synchronized void onInstanceCreated(final CronTimerExecutor instance) {
+            this.instances.add(instance);
 
-            if (!this.clockChangeEventHandler.isPresent()) {
+            final Bundle bundle = FrameworkUtil.getBundle(CronTimerExecutor.class);
+            if (!this.clockChangeEventHandler.isPresent() && bundle != null) {
                 final Dictionary<String, Object> eventHandlerProperties = new Hashtable<>();
                 eventHandlerProperties.put(EventConstants.EVENT_TOPIC, ClockEvent.CLOCK_EVENT_TOPIC);
 
-                final BundleContext bundleContext = FrameworkUtil.getBundle(CronTimerExecutor.class).getBundleContext();
-
-                this.clockChangeEventHandler = Optional.of(bundleContext.registerService(EventHandler.class,
-                        e -> rescheduleTriggers(), eventHandlerProperties));
+                this.clockChangeEventHandler = Optional.of(bundle.getBundleContext()
+                        .registerService(EventHandler.class, e -> rescheduleTimers(), eventHandlerProperties));
             }
         }
 
-        synchronized void onInstanceDestroyed() {
-            this.instanceCount--;
+        synchronized void onInstanceDestroyed(final CronTimerExecutor instance) {
+            this.instances.remove(instance);
 
-            if (this.instanceCount > 0) {
+            if (!this.instances.isEmpty()) {
                 return;
             }
 
@@ -126,55 +131,20 @@ public class CronTimerExecutor implements TimerExecutor {
                 this.clockChangeEventHandler.get().unregister();
                 this.clockChangeEventHandler = Optional.empty();
             }
-
-            if (this.scheduler.isPresent()) {
-                try {
-                    this.scheduler.get().shutdown();
-                } catch (final Exception e) {
-                    logger.warn("failed to shutdown scheduler", e);
-                }
-                this.scheduler = Optional.empty();
-            }
-        }
-
-        synchronized void scheduleJob(final JobDetail jobDetail, final Trigger trigger) throws SchedulerException {
-            getScheduler().scheduleJob(jobDetail, trigger);
-        }
-
-        synchronized void deleteJob(final JobKey jobKey) throws SchedulerException {
-            getScheduler().deleteJob(jobKey);
         }
 
-        synchronized void rescheduleTriggers() {
-            if (!this.scheduler.isPresent()) {
-                return;
-            }
-
-            logger.info("system time changed, rescheduling triggers...");
-
-            final Scheduler currentScheduler = this.scheduler.get();
-
-            final Set<TriggerKey> keys;
-
-            try {
-                keys = currentScheduler.getTriggerKeys(GroupMatcher.anyTriggerGroup());
-            } catch (final SchedulerException e) {
-                logger.warn("failed to get scheduled triggers", e);
-                return;
-            }
+        synchronized void rescheduleTimers() {
+            logger.info("system time changed, rescheduling timers...");
 
-            for (final TriggerKey key : keys) {
+            for (final CronTimerExecutor instance : this.instances) {
                 try {
-                    final Trigger newTrigger = currentScheduler.getTrigger(key).getTriggerBuilder().startNow().build();
-                    logger.debug("rescheduling {}...", key);
-                    currentScheduler.rescheduleJob(key, newTrigger);
-                    logger.debug("rescheduling {}...done", key);
+                    instance.schedule();
                 } catch (final Exception e) {
-                    logger.warn("failed to reschedule trigger {}", key, e);
+                    logger.warn("failed to reschedule timer {}", instance.name, e);
                 }
             }
 
-            logger.info("system time changed, rescheduling triggers...done");
+            logger.info("system time changed, rescheduling timers...done");
         }
     }
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2020, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -12,41 +12,32 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.wire.timer;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.kura.internal.wire.timer.TimerScheduler.ScheduledTimer;
 import org.eclipse.kura.wire.WireSupport;
 
 public class SimpleTimerExecutor implements TimerExecutor {
 
-    private final ScheduledExecutorService executor;
+    private final ScheduledTimer timer;
 
     public SimpleTimerExecutor(final TimerOptions options, final WireSupport wireSupport) {
-        this.executor = Executors.newSingleThreadScheduledExecutor(getThreadFactory(options.getOwnPid()));
+        this(options, wireSupport, TimerScheduler.getDefault());
+    }
 
+    SimpleTimerExecutor(final TimerOptions options, final WireSupport wireSupport, final TimerScheduler scheduler) {
         long firstTickInterval = options.getSimpleInterval() * options.getSimpleTimeUnitMultiplier();
         if (!options.isDefaultFirstTickBehavior()) {
             firstTickInterval = options.firstTickInterval() * options.getSimpleTimeUnitMultiplier();
         }
 
-        this.executor.scheduleAtFixedRate(() -> Timer.emit(wireSupport), firstTickInterval,
-                options.getSimpleInterval() * options.getSimpleTimeUnitMultiplier(), TimeUnit.MILLISECONDS);
-    }
-
-    private static ThreadFactory getThreadFactory(final String pid) {
-        final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
-
-        return runnable -> {
-            final Thread result = defaultFactory.newThread(runnable);
-            result.setName("WiresTimer_" + pid + "_" + System.identityHashCode(result));
-            return result;
-        };
+        this.timer = scheduler.scheduleAtFixedRate(options.getOwnPid(), () -> Timer.emit(wireSupport),
+                firstTickInterval, options.getSimpleInterval() * options.getSimpleTimeUnitMultiplier(),
+                TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void shutdown() {
-        this.executor.shutdownNow();
+        this.timer.cancel();
     }
 }
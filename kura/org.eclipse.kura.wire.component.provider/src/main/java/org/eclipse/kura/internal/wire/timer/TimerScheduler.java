@@ -0,0 +1,570 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the emits of all the Timer components from a single hierarchical timing wheel.
+ * <p>
+ * The wheel has four levels of 256 slots. A single thread advances it by one slot every tick; the timers due in the
+ * next 256 ticks are kept in the first level, the later ones in the upper levels, and are moved to the lower levels as
+ * their deadline gets closer. Scheduling and cancelling a timer are constant time operations, and the thread sleeps
+ * when no timer is scheduled.
+ * <p>
+ * The emits are run on a shared pool, with a thread per available processor by default, see
+ * {@link #setWorkerThreadCount(int)}. A slow wire graph can delay the other timers only if it keeps all the threads
+ * busy; to isolate the timers as each timer had its own thread before, the pool can have a thread for every timer
+ * instead, see {@link #setThreadPerTimer(boolean)}. The emits of the same timer never overlap: if a timer is due while
+ * its previous emit is still running, that tick is skipped.
+ * <p>
+ * Fixed rate timers are drift compensated: each deadline is computed from the previous deadline rather than from the
+ * time of the emit. If the emits fall behind by more than a period, the missed ticks are skipped and counted. The
+ * lateness of the emits is recorded per timer, see {@link #getStatistics(boolean)}.
+ */
+public class TimerScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimerScheduler.class);
+
+    public static final int DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_WORKER_THREAD_COUNT = 0;
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_TICKS = (1L << WHEEL_BITS * LEVELS) - 1;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private static final TimerScheduler DEFAULT_INSTANCE = new TimerScheduler(DEFAULT_TICK_MILLIS,
+            DEFAULT_WORKER_THREAD_COUNT);
+
+    private final ThreadPoolExecutor workers;
+
+    // guarded by this
+    private final ScheduledTimer[] slots = new ScheduledTimer[LEVELS * WHEEL_SIZE];
+    private final Map<String, Statistics> statistics = new HashMap<>();
+    private long tickNanos;
+    private long startNanos = System.nanoTime();
+    private long currentTick;
+    private int scheduledCount;
+    private int timerCount;
+    private int workerThreadCount;
+    private boolean threadPerTimer;
+    private Thread wheelThread;
+
+    public TimerScheduler(final int tickMillis, final int workerThreadCount) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.workers = newExecutor("WiresTimerWorker", 1);
+        setWorkerThreadCount(workerThreadCount);
+    }
+
+    /**
+     * Returns the scheduler shared by all the Timer components.
+     */
+    public static TimerScheduler getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Changes the tick resolution, the scheduled timers keep their deadlines.
+     */
+    public synchronized void setTickMillis(final int tickMillis) {
+        final long newTickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        if (newTickNanos == this.tickNanos) {
+            return;
+        }
+
+        final List<ScheduledTimer> timers = new ArrayList<>(this.scheduledCount);
+        for (int i = 0; i < this.slots.length; i++) {
+            for (ScheduledTimer timer = this.slots[i]; timer != null; timer = timer.next) {
+                timers.add(timer);
+            }
+            this.slots[i] = null;
+        }
+
+        this.tickNanos = newTickNanos;
+        this.startNanos = System.nanoTime();
+        this.currentTick = 0;
+        for (final ScheduledTimer timer : timers) {
+            timer.next = null;
+            timer.prev = null;
+            insert(timer, this.currentTick + 1);
+        }
+        notifyAll();
+    }
+
+    public synchronized int getTickMillis() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(this.tickNanos);
+    }
+
+    /**
+     * Sets the number of threads running the emits, unless there is a thread for every timer.
+     *
+     * @param threadCount
+     *            the number of threads, or 0 for a thread per available processor
+     */
+    public synchronized void setWorkerThreadCount(final int threadCount) {
+        this.workerThreadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+        resizeWorkers();
+    }
+
+    /**
+     * Returns the number of threads running the emits, unless there is a thread for every timer.
+     */
+    public synchronized int getWorkerThreadCount() {
+        return this.workerThreadCount;
+    }
+
+    /**
+     * Sets whether the pool has a thread for every scheduled timer, so that a slow wire graph never delays the other
+     * timers. The threads of the cancelled timers are released after a minute of inactivity.
+     */
+    public synchronized void setThreadPerTimer(final boolean threadPerTimer) {
+        this.threadPerTimer = threadPerTimer;
+        resizeWorkers();
+    }
+
+    public synchronized boolean isThreadPerTimer() {
+        return this.threadPerTimer;
+    }
+
+    private void resizeWorkers() {
+        final int threadCount = Math.max(1, this.threadPerTimer ? this.timerCount : this.workerThreadCount);
+        if (threadCount > this.workers.getMaximumPoolSize()) {
+            this.workers.setMaximumPoolSize(threadCount);
+            this.workers.setCorePoolSize(threadCount);
+        } else {
+            this.workers.setCorePoolSize(threadCount);
+            this.workers.setMaximumPoolSize(threadCount);
+        }
+    }
+
+    /**
+     * Runs a task periodically, with drift compensation.
+     *
+     * @param name
+     *            the name used for the statistics, timers with the same name share the statistics
+     * @param task
+     *            the task to be run
+     * @param initialDelay
+     *            the delay of the first run
+     * @param period
+     *            the period between the deadlines of two consecutive runs, must be positive
+     * @param unit
+     *            the unit of initialDelay and period
+     */
+    public ScheduledTimer scheduleAtFixedRate(final String name, final Runnable task, final long initialDelay,
+            final long period, final TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        final ScheduledTimer timer = new ScheduledTimer(name, task, unit.toNanos(period), null);
+        synchronized (this) {
+            register(timer);
+            schedule(timer, unit.toNanos(Math.max(0, initialDelay)));
+        }
+        return timer;
+    }
+
+    /**
+     * Runs a task at the times computed by the provided {@link Schedule}.
+     *
+     * @param name
+     *            the name used for the statistics, timers with the same name share the statistics
+     * @param task
+     *            the task to be run
+     * @param schedule
+     *            called when the task is scheduled and after each run to compute the delay of the next run
+     */
+    public ScheduledTimer schedule(final String name, final Runnable task, final Schedule schedule) {
+        final ScheduledTimer timer = new ScheduledTimer(name, task, 0, schedule);
+        synchronized (this) {
+            register(timer);
+            final long delayNanos = schedule.nextDelayNanos();
+            if (delayNanos >= 0) {
+                schedule(timer, delayNanos);
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Returns the emit statistics of each timer.
+     *
+     * @param reset
+     *            if true, the statistics are reset after being read
+     */
+    public synchronized Map<String, TimerStatistics> getStatistics(final boolean reset) {
+        final Map<String, TimerStatistics> result = new TreeMap<>();
+        for (final Statistics timerStatistics : this.statistics.values()) {
+            result.put(timerStatistics.name, timerStatistics.get(reset));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private void register(final ScheduledTimer timer) {
+        timer.statistics = this.statistics.computeIfAbsent(timer.name, Statistics::new);
+        timer.statistics.timerCount++;
+        this.timerCount++;
+        resizeWorkers();
+    }
+
+    private void schedule(final ScheduledTimer timer, final long delayNanos) {
+        final long now = System.nanoTime();
+        if (this.scheduledCount == 0) {
+            // the wheel thread does not advance the ticks while idle
+            this.currentTick = Math.max(this.currentTick, (now - this.startNanos) / this.tickNanos);
+        }
+
+        timer.deadlineNanos = now + delayNanos;
+        insert(timer, this.currentTick + 1);
+
+        if (this.wheelThread == null) {
+            this.wheelThread = new Thread(this::runWheel, "WiresTimerScheduler");
+            this.wheelThread.setDaemon(true);
+            this.wheelThread.start();
+        }
+        notifyAll();
+    }
+
+    private synchronized void cancel(final ScheduledTimer timer) {
+        if (timer.cancelled) {
+            return;
+        }
+        timer.cancelled = true;
+        unlink(timer);
+        if (--timer.statistics.timerCount == 0) {
+            this.statistics.remove(timer.name);
+        }
+        this.timerCount--;
+        resizeWorkers();
+    }
+
+    private synchronized void runWheel() {
+        while (true) {
+            try {
+                final long now = System.nanoTime();
+                final long targetTick = (now - this.startNanos) / this.tickNanos;
+
+                if (this.scheduledCount == 0) {
+                    this.currentTick = Math.max(this.currentTick, targetTick);
+                    wait();
+                } else if (targetTick <= this.currentTick) {
+                    final long nextTickNanos = this.startNanos + (this.currentTick + 1) * this.tickNanos;
+                    TimeUnit.NANOSECONDS.timedWait(this, nextTickNanos - now);
+                } else {
+                    while (this.currentTick < targetTick && this.scheduledCount > 0) {
+                        this.currentTick++;
+                        processTick(this.currentTick);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("Timer scheduler failure", e);
+            }
+        }
+    }
+
+    private void processTick(final long tick) {
+        if ((tick & WHEEL_MASK) == 0) {
+            cascade(1, tick);
+        }
+
+        final int slot = (int) (tick & WHEEL_MASK);
+        ScheduledTimer timer = this.slots[slot];
+        this.slots[slot] = null;
+        final long now = System.nanoTime();
+        while (timer != null) {
+            final ScheduledTimer next = timer.next;
+            timer.next = null;
+            timer.prev = null;
+            timer.slot = -1;
+            this.scheduledCount--;
+            fire(timer, now);
+            timer = next;
+        }
+    }
+
+    private void cascade(final int level, final long tick) {
+        final int index = (int) (tick >>> WHEEL_BITS * level & WHEEL_MASK);
+        if (index == 0 && level + 1 < LEVELS) {
+            cascade(level + 1, tick);
+        }
+
+        final int slot = level * WHEEL_SIZE + index;
+        ScheduledTimer timer = this.slots[slot];
+        this.slots[slot] = null;
+        while (timer != null) {
+            final ScheduledTimer next = timer.next;
+            timer.next = null;
+            timer.prev = null;
+            timer.slot = -1;
+            this.scheduledCount--;
+            insert(timer, tick);
+            timer = next;
+        }
+    }
+
+    private void fire(final ScheduledTimer timer, final long now) {
+        dispatch(timer, timer.deadlineNanos);
+
+        if (timer.periodNanos > 0) {
+            long nextDeadline = timer.deadlineNanos + timer.periodNanos;
+            if (nextDeadline <= now) {
+                final long missed = (now - nextDeadline) / timer.periodNanos + 1;
+                nextDeadline += missed * timer.periodNanos;
+                timer.statistics.recordMissed(missed);
+            }
+            timer.deadlineNanos = nextDeadline;
+            insert(timer, this.currentTick + 1);
+        } else if (timer.schedule != null) {
+            final long delayNanos = timer.schedule.nextDelayNanos();
+            if (delayNanos >= 0) {
+                timer.deadlineNanos = now + delayNanos;
+                insert(timer, this.currentTick + 1);
+            }
+        }
+    }
+
+    private void dispatch(final ScheduledTimer timer, final long deadlineNanos) {
+        if (!timer.running.compareAndSet(false, true)) {
+            timer.statistics.recordMissed(1);
+            return;
+        }
+        this.workers.execute(() -> {
+            timer.statistics.recordEmit(System.nanoTime() - deadlineNanos);
+            try {
+                if (!timer.cancelled) {
+                    timer.task.run();
+                }
+            } catch (Exception e) {
+                logger.warn("Timer {} emit failed", timer.name, e);
+            } finally {
+                timer.running.set(false);
+            }
+        });
+    }
+
+    /**
+     * Puts the timer in the slot of its deadline tick, but not before minTick.
+     */
+    private void insert(final ScheduledTimer timer, final long minTick) {
+        final long deadlineOffset = timer.deadlineNanos - this.startNanos;
+        long dueTick = Math.max(minTick, (deadlineOffset + this.tickNanos - 1) / this.tickNanos);
+        final long ticks = dueTick - this.currentTick;
+
+        int level = 0;
+        if (ticks > MAX_TICKS) {
+            // put in the last slot of the wheel, it will be moved again when reached
+            dueTick = this.currentTick + MAX_TICKS;
+            level = LEVELS - 1;
+        } else if (ticks >= WHEEL_SIZE) {
+            level = (63 - Long.numberOfLeadingZeros(ticks)) / WHEEL_BITS;
+        }
+
+        final int slot = level * WHEEL_SIZE + (int) (dueTick >>> WHEEL_BITS * level & WHEEL_MASK);
+        final ScheduledTimer head = this.slots[slot];
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        timer.slot = slot;
+        this.slots[slot] = timer;
+        this.scheduledCount++;
+    }
+
+    private void unlink(final ScheduledTimer timer) {
+        if (timer.slot < 0) {
+            return;
+        }
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            this.slots[timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.next = null;
+        timer.prev = null;
+        timer.slot = -1;
+        this.scheduledCount--;
+    }
+
+    private static ThreadPoolExecutor newExecutor(final String name, final int threadCount) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadFactory threadFactory = r -> {
+            final Thread thread = new Thread(r, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Computes the run times of a timer that does not have a fixed rate.
+     */
+    @FunctionalInterface
+    public interface Schedule {
+
+        /**
+         * Returns the delay in nanoseconds from now to the next run, or a negative value if the timer should not run
+         * anymore.
+         */
+        long nextDelayNanos();
+    }
+
+    /**
+     * A timer scheduled on a {@link TimerScheduler}.
+     */
+    public final class ScheduledTimer {
+
+        private final String name;
+        private final Runnable task;
+        private final long periodNanos;
+        private final Schedule schedule;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        // guarded by the scheduler
+        private Statistics statistics;
+        private long deadlineNanos;
+        private int slot = -1;
+        private ScheduledTimer prev;
+        private ScheduledTimer next;
+
+        ScheduledTimer(final String name, final Runnable task, final long periodNanos, final Schedule schedule) {
+            this.name = name;
+            this.task = task;
+            this.periodNanos = periodNanos;
+            this.schedule = schedule;
+        }
+
+        /**
+         * Removes the timer from the scheduler, an emit that is already running is not interrupted.
+         */
+        public void cancel() {
+            TimerScheduler.this.cancel(this);
+        }
+
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+    }
+
+    /**
+     * The lateness of the emits of a timer, since the last reset.
+     */
+    public static final class TimerStatistics {
+
+        private final long emitCount;
+        private final long totalLatenessNanos;
+        private final long maxLatenessNanos;
+        private final long missedCount;
+
+        TimerStatistics(final long emitCount, final long totalLatenessNanos, final long maxLatenessNanos,
+                final long missedCount) {
+            this.emitCount = emitCount;
+            this.totalLatenessNanos = totalLatenessNanos;
+            this.maxLatenessNanos = maxLatenessNanos;
+            this.missedCount = missedCount;
+        }
+
+        public long getEmitCount() {
+            return this.emitCount;
+        }
+
+        public long getAverageLatenessNanos() {
+            return this.emitCount == 0 ? 0 : this.totalLatenessNanos / this.emitCount;
+        }
+
+        public long getMaxLatenessNanos() {
+            return this.maxLatenessNanos;
+        }
+
+        /**
+         * Returns the number of ticks skipped because the previous emit was still running or the scheduler was late
+         * by more than a period.
+         */
+        public long getMissedCount() {
+            return this.missedCount;
+        }
+
+        @Override
+        public String toString() {
+            return "emits: " + this.emitCount + ", average lateness: "
+                    + TimeUnit.NANOSECONDS.toMillis(getAverageLatenessNanos()) + " ms, max lateness: "
+                    + TimeUnit.NANOSECONDS.toMillis(this.maxLatenessNanos) + " ms, missed: " + this.missedCount;
+        }
+    }
+
+    private static final class Statistics {
+
+        private final String name;
+
+        // guarded by the scheduler
+        private int timerCount;
+
+        // guarded by this
+        private long emitCount;
+        private long totalLatenessNanos;
+        private long maxLatenessNanos;
+        private long missedCount;
+
+        Statistics(final String name) {
+            this.name = name;
+        }
+
+        synchronized void recordEmit(final long latenessNanos) {
+            this.emitCount++;
+            this.totalLatenessNanos += latenessNanos;
+            this.maxLatenessNanos = Math.max(this.maxLatenessNanos, latenessNanos);
+        }
+
+        synchronized void recordMissed(final long count) {
+            this.missedCount += count;
+        }
+
+        synchronized TimerStatistics get(final boolean reset) {
+            final TimerStatistics result = new TimerStatistics(this.emitCount, this.totalLatenessNanos,
+                    this.maxLatenessNanos, this.missedCount);
+            if (reset) {
+                this.emitCount = 0;
+                this.totalLatenessNanos = 0;
+                this.maxLatenessNanos = 0;
+                this.missedCount = 0;
+            }
+            return result;
+        }
+    }
+}
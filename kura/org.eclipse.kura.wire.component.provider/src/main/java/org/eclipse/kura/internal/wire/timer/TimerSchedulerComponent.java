@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timer;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Configures the {@link TimerScheduler} shared by all the Timer components.
+ */
+public class TimerSchedulerComponent implements ConfigurableComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimerSchedulerComponent.class);
+
+    private static final String TICK_RESOLUTION_PROP_NAME = "tick.resolution";
+    private static final String WORKER_THREAD_COUNT_PROP_NAME = "worker.thread.count";
+    private static final String THREAD_PER_TIMER_PROP_NAME = "worker.thread.per.timer";
+    private static final String STATISTICS_INTERVAL_PROP_NAME = "statistics.log.interval";
+
+    private final TimerScheduler scheduler;
+
+    private ScheduledExecutorService statisticsExecutor;
+    private ScheduledFuture<?> statisticsTask;
+
+    public TimerSchedulerComponent() {
+        this(TimerScheduler.getDefault());
+    }
+
+    TimerSchedulerComponent(final TimerScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    protected void activate(final Map<String, Object> properties) {
+        logger.info("Activating TimerScheduler...");
+        this.statisticsExecutor = Executors
+                .newSingleThreadScheduledExecutor(r -> new Thread(r, "WiresTimerSchedulerStatistics"));
+        updated(properties);
+        logger.info("Activating TimerScheduler...done");
+    }
+
+    public synchronized void updated(final Map<String, Object> properties) {
+        this.scheduler.setTickMillis(
+                Math.max(1, getInteger(properties, TICK_RESOLUTION_PROP_NAME, TimerScheduler.DEFAULT_TICK_MILLIS)));
+        this.scheduler.setWorkerThreadCount(
+                getInteger(properties, WORKER_THREAD_COUNT_PROP_NAME, TimerScheduler.DEFAULT_WORKER_THREAD_COUNT));
+        this.scheduler.setThreadPerTimer(getBoolean(properties, THREAD_PER_TIMER_PROP_NAME, false));
+        if (this.scheduler.isThreadPerTimer()) {
+            logger.info("Timers run with a {} ms tick on a thread per timer", this.scheduler.getTickMillis());
+        } else {
+            logger.info("Timers run with a {} ms tick on {} threads", this.scheduler.getTickMillis(),
+                    this.scheduler.getWorkerThreadCount());
+        }
+
+        if (this.statisticsTask != null) {
+            this.statisticsTask.cancel(false);
+            this.statisticsTask = null;
+        }
+        final int interval = getInteger(properties, STATISTICS_INTERVAL_PROP_NAME, 0);
+        if (interval > 0) {
+            this.statisticsTask = this.statisticsExecutor.scheduleAtFixedRate(this::logStatistics, interval,
+                    interval, TimeUnit.SECONDS);
+        }
+    }
+
+    protected synchronized void deactivate() {
+        logger.info("Deactivating TimerScheduler...");
+        this.statisticsExecutor.shutdownNow();
+        logger.info("Deactivating TimerScheduler...done");
+    }
+
+    private void logStatistics() {
+        this.scheduler.getStatistics(true)
+                .forEach((timer, statistics) -> logger.info("Timer {} {}", timer, statistics));
+    }
+
+    private static int getInteger(final Map<String, Object> properties, final String key, final int defaultValue) {
+        final Object value = properties != null ? properties.get(key) : null;
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    private static boolean getBoolean(final Map<String, Object> properties, final String key,
+            final boolean defaultValue) {
+        final Object value = properties != null ? properties.get(key) : null;
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -19,16 +19,20 @@ import static java.util.Objects.requireNonNull;
 import static org.eclipse.kura.configuration.ConfigurationService.KURA_SERVICE_PID;
 
 import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -58,11 +62,25 @@ import org.osgi.util.tracker.ServiceTrackerCustomizer;
  * The Class DbWireRecordFilter is responsible for representing a wire component
  * which is focused on performing an user defined SQL query in a database table and emitting the result as a Wire
  * Envelope.
+ * <p>
+ * In incremental mode the query is prepared, and its parameters are bound to the highest value of the
+ * {@link H2DbWireRecordFilterOptions#getIncrementalColumn()} column emitted so far. The rows following the last emitted
+ * one are fetched one chunk at a time, ordered by that column and then by ID, so that the rows sharing a value are
+ * never skipped even if they do not fit in a single chunk. Every chunk is emitted in its own envelope after the
+ * connection is released, so that only the new rows are read and the whole result is never kept in memory.
  */
 public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, ConfigurableComponent {
 
     private static final Logger logger = LogManager.getLogger(H2DbWireRecordFilter.class);
 
+    // reads the rows following the high-water mark, one chunk at a time, the ID tells apart the rows sharing a value
+    private static final String CHUNK_QUERY = "SELECT * FROM ({0}) WHERE {1} > ? OR ({1} = ? AND ID > ?) "
+            + "ORDER BY {1}, ID LIMIT {2}";
+
+    private static final String CHUNK_QUERY_BY_ID = "SELECT * FROM ({0}) WHERE ID > ? ORDER BY ID LIMIT {1}";
+
+    private static final String ID = "ID";
+
     private List<WireRecord> lastRecords;
 
     private H2DbServiceHelper dbHelper;
@@ -81,6 +99,9 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
 
     private ComponentContext componentContext;
 
+    // the last row emitted so far, null before the first row
+    private volatile HighWaterMark highWaterMark;
+
     public synchronized void bindDbService(H2DbService dbService) {
         this.dbHelper = H2DbServiceHelper.of(dbService);
     }
@@ -130,6 +151,7 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
                 (ServiceReference<WireComponent>) componentContext.getServiceReference());
 
         this.cacheExpirationInterval = this.options.getCacheExpirationInterval();
+        checkIncrementalQuery();
 
         // Initialize the lastRefreshTime and remove the cacheExpirationInterval in order to immediately have the cache
         // expired
@@ -147,15 +169,23 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
      */
     public void updated(final Map<String, Object> properties) {
         logger.debug("Updating DB Wire Record Filter... {}", properties);
-        final String oldDbServicePid = this.options.getDbServiceInstancePid();
+        final H2DbWireRecordFilterOptions oldOptions = this.options;
+        final String oldDbServicePid = oldOptions.getDbServiceInstancePid();
 
         this.options = new H2DbWireRecordFilterOptions(properties);
 
+        if (!Objects.equals(oldOptions.getSqlView(), this.options.getSqlView())
+                || !oldOptions.getIncrementalColumn().equals(this.options.getIncrementalColumn())
+                || !oldOptions.getIncrementalStartValue().equals(this.options.getIncrementalStartValue())) {
+            this.highWaterMark = null;
+        }
+
         if (!oldDbServicePid.equals(this.options.getDbServiceInstancePid())) {
             restartDbServiceTracker();
         }
 
         this.cacheExpirationInterval = this.options.getCacheExpirationInterval();
+        checkIncrementalQuery();
 
         // Initialize the lastRefreshTime and remove the cacheExpirationInterval in order to immediately have the cache
         // expired
@@ -243,6 +273,11 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
             return;
         }
 
+        if (this.options.isIncrementalMode()) {
+            performIncrementalQuery();
+            return;
+        }
+
         if (isCacheExpired() && this.dbHelper != null) {
             refreshCachedRecords();
         }
@@ -259,6 +294,98 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
         }
     }
 
+    private void performIncrementalQuery() {
+        final int chunkSize = this.options.getIncrementalChunkSize();
+        final String chunkQuery = isIncrementalById()
+                ? MessageFormat.format(CHUNK_QUERY_BY_ID, this.options.getSqlView(), Integer.toString(chunkSize))
+                : MessageFormat.format(CHUNK_QUERY, this.options.getSqlView(), this.options.getIncrementalColumn(),
+                        Integer.toString(chunkSize));
+
+        try {
+            boolean emitted = false;
+            while (true) {
+                final Chunk chunk = this.dbHelper.withConnection(c -> readChunk(c, chunkQuery));
+                if (chunk.records.isEmpty()) {
+                    break;
+                }
+                // the connection is released before emitting, downstream components may take a while
+                this.wireSupport.emit(Collections.unmodifiableList(chunk.records));
+                this.highWaterMark = chunk.last;
+                emitted = true;
+                if (chunk.records.size() < chunkSize) {
+                    break;
+                }
+            }
+
+            if (!emitted && this.options.emitOnEmptyResult()) {
+                this.wireSupport.emit(Collections.emptyList());
+            }
+        } catch (SQLException e) {
+            logger.error("Error while filtering Wire Records...", e);
+        }
+    }
+
+    private Chunk readChunk(final Connection c, final String chunkQuery) throws SQLException {
+        final Chunk chunk = new Chunk();
+        try (final PreparedStatement stmt = c.prepareStatement(chunkQuery)) {
+            bindHighWaterMark(stmt);
+            try (final ResultSet rset = stmt.executeQuery()) {
+                final int columnIndex = rset.findColumn(this.options.getIncrementalColumn());
+                final int idIndex = rset.findColumn(ID);
+                while (rset.next()) {
+                    chunk.records.add(new WireRecord(convertSQLRowToWireRecord(rset)));
+                    chunk.last = new HighWaterMark(rset.getObject(columnIndex), rset.getObject(idIndex));
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private void bindHighWaterMark(final PreparedStatement stmt) throws SQLException {
+        final HighWaterMark mark = this.highWaterMark;
+        final int parameterCount = stmt.getParameterMetaData().getParameterCount();
+        final boolean byId = isIncrementalById();
+
+        // the parameters of the configured query come first, they are bound to the value of the last emitted row
+        final int queryParameterCount = parameterCount - (byId ? 1 : 3);
+        for (int i = 1; i <= queryParameterCount; i++) {
+            bindValue(stmt, i, mark);
+        }
+
+        if (byId) {
+            bindValue(stmt, parameterCount, mark);
+        } else {
+            bindValue(stmt, parameterCount - 2, mark);
+            bindValue(stmt, parameterCount - 1, mark);
+            if (mark != null) {
+                stmt.setObject(parameterCount, mark.id);
+            } else {
+                // no row shares the start value
+                stmt.setLong(parameterCount, Long.MAX_VALUE);
+            }
+        }
+    }
+
+    private void bindValue(final PreparedStatement stmt, final int index, final HighWaterMark mark)
+            throws SQLException {
+        if (mark != null) {
+            stmt.setObject(index, mark.value);
+        } else {
+            stmt.setString(index, this.options.getIncrementalStartValue());
+        }
+    }
+
+    private boolean isIncrementalById() {
+        return ID.equalsIgnoreCase(this.options.getIncrementalColumn());
+    }
+
+    private void checkIncrementalQuery() {
+        if (this.options.isIncrementalMode() && this.options.getSqlView().indexOf('?') < 0) {
+            logger.warn("The incremental query has no ? parameter, it is evaluated in full for every chunk: {}",
+                    this.options.getSqlView());
+        }
+    }
+
     private void refreshCachedRecords() {
         try {
             final List<WireRecord> tmpWireRecords = performSQLQuery();
@@ -339,4 +466,23 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
         }
         return true;
     }
+
+    private static class Chunk {
+
+        private final List<WireRecord> records = new ArrayList<>();
+
+        private HighWaterMark last;
+    }
+
+    private static final class HighWaterMark {
+
+        private final Object value;
+
+        private final Object id;
+
+        HighWaterMark(final Object value, final Object id) {
+            this.value = value;
+            this.id = id;
+        }
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -36,6 +36,22 @@ final class H2DbWireRecordFilterOptions {
 
     private static final String EMIT_ON_EMPTY_RESULT = "emit.on.empty.result";
 
+    private static final String QUERY_MODE = "query.mode";
+
+    private static final String QUERY_MODE_INCREMENTAL = "INCREMENTAL";
+
+    private static final String INCREMENTAL_COLUMN = "incremental.column";
+
+    private static final String INCREMENTAL_START_VALUE = "incremental.start.value";
+
+    private static final String INCREMENTAL_CHUNK_SIZE = "incremental.chunk.size";
+
+    private static final String DEFAULT_INCREMENTAL_COLUMN = "ID";
+
+    private static final String DEFAULT_INCREMENTAL_START_VALUE = "0";
+
+    private static final int DEFAULT_INCREMENTAL_CHUNK_SIZE = 100;
+
     private final Map<String, Object> properties;
 
     /**
@@ -94,4 +110,47 @@ final class H2DbWireRecordFilterOptions {
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns true if the query returns only the rows following the last emitted one, identified by the value of
+     * {@link #getIncrementalColumn()} bound to the query parameters.
+     *
+     * @return true if the incremental mode is configured
+     */
+    boolean isIncrementalMode() {
+        final Object mode = this.properties.get(QUERY_MODE);
+        return nonNull(mode) && QUERY_MODE_INCREMENTAL.equals(mode);
+    }
+
+    String getIncrementalColumn() {
+        String column = DEFAULT_INCREMENTAL_COLUMN;
+        final Object configured = this.properties.get(INCREMENTAL_COLUMN);
+        if (nonNull(configured) && configured instanceof String && !((String) configured).trim().isEmpty()) {
+            column = ((String) configured).trim();
+        }
+        return column;
+    }
+
+    String getIncrementalStartValue() {
+        String startValue = DEFAULT_INCREMENTAL_START_VALUE;
+        final Object configured = this.properties.get(INCREMENTAL_START_VALUE);
+        if (nonNull(configured) && configured instanceof String) {
+            startValue = (String) configured;
+        }
+        return startValue;
+    }
+
+    /**
+     * Returns the maximum number of records emitted in a single envelope in incremental mode.
+     *
+     * @return the configured chunk size
+     */
+    int getIncrementalChunkSize() {
+        int chunkSize = DEFAULT_INCREMENTAL_CHUNK_SIZE;
+        final Object configured = this.properties.get(INCREMENTAL_CHUNK_SIZE);
+        if (nonNull(configured) && configured instanceof Integer) {
+            chunkSize = Math.max(1, (Integer) configured);
+        }
+        return chunkSize;
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -27,10 +27,19 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -86,16 +95,26 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
 
     private static final String SQL_ROW_COUNT_TABLE = "SELECT COUNT(*) FROM {0};";
 
-    private static final String SQL_DELETE_RANGE_TABLE = "DELETE FROM {0} WHERE rownum() <= (SELECT count(*) FROM {0}) - {1};";
+    private static final String SQL_MAX_ID_TABLE = "SELECT MAX(ID) FROM {0};";
+
+    private static final String SQL_FIND_CLEANUP_ID = "SELECT ID FROM {0} WHERE ID <= ? ORDER BY ID DESC LIMIT 1 OFFSET ?;";
+
+    private static final String SQL_DELETE_UP_TO_ID = "DELETE FROM {0} WHERE ID <= ?;";
 
     private static final String SQL_DROP_COLUMN = "ALTER TABLE {0} DROP COLUMN {1};";
 
     private static final String SQL_INSERT_RECORD = "INSERT INTO {0} ({1}) VALUES ({2});";
 
-    private static final String SQL_TRUNCATE_TABLE = "TRUNCATE TABLE {0};";
+    private static final String SQL_DROP_VIEW = "DROP VIEW IF EXISTS {0};";
 
     private static final String[] TABLE_TYPE = new String[] { "TABLE" };
 
+    private static final String[] VIEW_TYPE = new String[] { "VIEW" };
+
+    private static final int MAX_CACHED_INSERT_STATEMENTS = 64;
+
+    private static final long UNKNOWN_ROW_COUNT = -1;
+
     private H2DbServiceHelper dbHelper;
 
     private H2DbWireRecordStoreOptions wireRecordStoreOptions;
@@ -108,8 +127,32 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
 
     private ComponentContext componentContext;
 
+    private ExecutorService cleanupExecutor;
+
+    // null if the records are stored in a single table
+    private PartitionedTable partitionedTable;
+
+    // the table referred to by the cached INSERT statements
+    private String insertTableName;
+
+    // number of rows in the table, as expected once the scheduled cleanups are completed
+    private final AtomicLong rowCount = new AtomicLong(UNKNOWN_ROW_COUNT);
+
+    // INSERT statements by the list of the property names of the stored records, access is guarded by this
+    private final Map<List<String>, String> insertStatements = new LinkedHashMap<List<String>, String>(16, 0.75f,
+            true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<List<String>, String> eldest) {
+            return size() > MAX_CACHED_INSERT_STATEMENTS;
+        }
+    };
+
     public synchronized void bindDbService(final H2DbService dbService) {
         H2DbWireRecordStore.this.dbHelper = H2DbServiceHelper.of(dbService);
+        this.rowCount.set(UNKNOWN_ROW_COUNT);
         reconcileDB(this.wireRecordStoreOptions.getTableName());
     }
 
@@ -141,6 +184,7 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
         logger.debug("Activating DB Wire Record Store...");
         this.componentContext = componentContext;
         this.wireRecordStoreOptions = new H2DbWireRecordStoreOptions(properties);
+        this.cleanupExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "H2DbWireRecordStoreCleanup"));
 
         this.wireSupport = this.wireHelperService.newWireSupport(this,
                 (ServiceReference<WireComponent>) componentContext.getServiceReference());
@@ -161,6 +205,8 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
         final String oldDbServicePid = this.wireRecordStoreOptions.getDbServiceInstancePid();
 
         this.wireRecordStoreOptions = new H2DbWireRecordStoreOptions(properties);
+        this.insertStatements.clear();
+        this.rowCount.set(UNKNOWN_ROW_COUNT);
 
         if (oldDbServicePid.equals(this.wireRecordStoreOptions.getDbServiceInstancePid())) {
             final String tableName = this.wireRecordStoreOptions.getTableName();
@@ -181,63 +227,104 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
     protected void deactivate(final ComponentContext componentContext) {
         logger.debug("Deactivating DB Wire Record Store...");
         stopDbServiceTracker();
+        this.cleanupExecutor.shutdown();
+        try {
+            this.cleanupExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while waiting for the table cleanup");
+            Thread.currentThread().interrupt();
+        }
         logger.debug("Deactivating DB Wire Record Store... Done");
     }
 
     /**
-     * Truncates tables containing {@link WireRecord}s
+     * Schedules the removal of the oldest records of the table, keeping the configured number of records.
+     * <p>
+     * Only the records already stored when this method is called are considered, the cleanup does not remove the
+     * records stored while it is pending. The expected row count is updated immediately.
+     *
+     * @param c
+     *            the connection used to find the last stored record
+     * @param sqlTableName
+     *            the sanitized table name
+     * @throws SQLException
+     *             if the last stored record cannot be found
      */
-    private void truncate() {
+    private void scheduleCleanup(final Connection c, final String sqlTableName) throws SQLException {
         final int noOfRecordsToKeep = this.wireRecordStoreOptions.getNoOfRecordsToKeep();
+        final long lastId;
+        try (final Statement stmt = c.createStatement();
+                final ResultSet rset = stmt.executeQuery(MessageFormat.format(SQL_MAX_ID_TABLE, sqlTableName))) {
+            rset.next();
+            lastId = rset.getLong(1);
+        }
 
-        truncate(noOfRecordsToKeep);
+        final H2DbServiceHelper helper = this.dbHelper;
+        try {
+            this.cleanupExecutor.execute(() -> cleanup(helper, sqlTableName, lastId, noOfRecordsToKeep));
+            this.rowCount.set(Math.min(this.rowCount.get(), noOfRecordsToKeep));
+        } catch (final RejectedExecutionException e) {
+            logger.warn("Failed to schedule the cleanup of table {}", sqlTableName);
+        }
     }
 
     /**
-     * Truncates the records in the table
+     * Removes the oldest records of the table
      *
+     * @param helper
+     *            the helper of the database instance containing the table
+     * @param sqlTableName
+     *            the sanitized table name
+     * @param lastId
+     *            the identifier of the last record stored when the cleanup was scheduled
      * @param noOfRecordsToKeep
      *            the no of records to keep in the table
      */
-    private void truncate(final int noOfRecordsToKeep) {
-        final String tableName = this.wireRecordStoreOptions.getTableName();
-        final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
-
+    private void cleanup(final H2DbServiceHelper helper, final String sqlTableName, final long lastId,
+            final int noOfRecordsToKeep) {
         try {
-            this.dbHelper.withConnection(c -> {
-                final String catalog = c.getCatalog();
-                final DatabaseMetaData dbMetaData = c.getMetaData();
-                try (final ResultSet rsTbls = dbMetaData.getTables(catalog, null, tableName, TABLE_TYPE)) {
-                    if (rsTbls.next()) {
-                        // table does exist, truncate it
-                        if (noOfRecordsToKeep == 0) {
-                            logger.info("Truncating table {}...", sqlTableName);
-                            this.dbHelper.execute(c, MessageFormat.format(SQL_TRUNCATE_TABLE, sqlTableName));
-                        } else {
-                            logger.info("Partially emptying table {}", sqlTableName);
-                            this.dbHelper.execute(c, MessageFormat.format(SQL_DELETE_RANGE_TABLE, sqlTableName,
-                                    Integer.toString(noOfRecordsToKeep)));
+            helper.withConnection(c -> {
+                long deleteUpToId = lastId;
+                if (noOfRecordsToKeep > 0) {
+                    try (final PreparedStatement stmt = c
+                            .prepareStatement(MessageFormat.format(SQL_FIND_CLEANUP_ID, sqlTableName))) {
+                        stmt.setLong(1, lastId);
+                        stmt.setInt(2, noOfRecordsToKeep);
+                        try (final ResultSet rset = stmt.executeQuery()) {
+                            if (!rset.next()) {
+                                return (Void) null;
+                            }
+                            deleteUpToId = rset.getLong(1);
                         }
                     }
                 }
+
+                logger.info("Partially emptying table {}", sqlTableName);
+                try (final PreparedStatement stmt = c
+                        .prepareStatement(MessageFormat.format(SQL_DELETE_UP_TO_ID, sqlTableName))) {
+                    stmt.setLong(1, deleteUpToId);
+                    stmt.execute();
+                }
+                c.commit();
                 return (Void) null;
             });
         } catch (final SQLException sqlException) {
             logger.error("Error in truncating the table {}...", sqlTableName, sqlException);
+            this.rowCount.set(UNKNOWN_ROW_COUNT);
         }
     }
 
-    private int getTableSize() throws SQLException {
-        final String tableName = this.wireRecordStoreOptions.getTableName();
-        final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
-
-        return this.dbHelper.withConnection(c -> {
+    private long getTableSize(final Connection c, final String sqlTableName) throws SQLException {
+        long result = this.rowCount.get();
+        if (result == UNKNOWN_ROW_COUNT) {
             try (final Statement stmt = c.createStatement();
                     final ResultSet rset = stmt.executeQuery(MessageFormat.format(SQL_ROW_COUNT_TABLE, sqlTableName))) {
                 rset.next();
-                return rset.getInt(1);
+                result = rset.getLong(1);
             }
-        });
+            this.rowCount.set(result);
+        }
+        return result;
     }
 
     /** {@inheritDoc} */
@@ -255,15 +342,13 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
 
         if (this.dbHelper != null) {
             try {
-                if (getTableSize() >= this.wireRecordStoreOptions.getMaximumTableSize()) {
-                    truncate();
+                insertDataRecords(this.wireRecordStoreOptions.getTableName(), records);
+            } catch (final SQLException e) {
+                logger.warn("Batch insertion failed, storing the records one by one: {}", e.getMessage());
+                this.rowCount.set(UNKNOWN_ROW_COUNT);
+                for (WireRecord wireRecord : records) {
+                    store(wireRecord);
                 }
-            } catch (SQLException e) {
-                logger.warn("Exception while trying to clean db");
-            }
-
-            for (WireRecord wireRecord : records) {
-                store(wireRecord);
             }
         } else {
             logger.warn("DbService instance not attached");
@@ -287,7 +372,7 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
         final String tableName = this.wireRecordStoreOptions.getTableName();
         do {
             try {
-                insertDataRecord(tableName, wireRecord);
+                insertDataRecords(tableName, Collections.singletonList(wireRecord));
                 break;
             } catch (final SQLException e) {
                 logger.error("Insertion failed. Reconciling Table and Columns...", e);
@@ -309,13 +394,29 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
         try {
             if (nonNull(tableName) && !tableName.isEmpty()) {
                 reconcileTable(tableName);
-                reconcileColumns(tableName, wireRecord);
+                if (nonNull(this.partitionedTable)) {
+                    reconcilePartitionColumns(wireRecord);
+                } else {
+                    reconcileColumns(tableName, wireRecord);
+                }
             }
         } catch (final SQLException ee) {
             logger.error("Error while storing Wire Records...", ee);
         }
     }
 
+    private void reconcilePartitionColumns(final WireRecord wireRecord) throws SQLException {
+        // H2 does not allow to change the columns used by a view
+        this.partitionedTable.dropView();
+        try {
+            for (final String partition : this.partitionedTable.getPartitions()) {
+                reconcileColumns(partition, wireRecord);
+            }
+        } finally {
+            this.partitionedTable.updateView();
+        }
+    }
+
     /**
      * Tries to reconcile the database.
      *
@@ -346,10 +447,26 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
         requireNonNull(tableName, "Table name cannot be null");
         final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
 
+        final PartitionInterval partitionInterval = this.wireRecordStoreOptions.getPartitionInterval();
+        if (partitionInterval != PartitionInterval.NONE) {
+            this.partitionedTable = new PartitionedTable(this.dbHelper, tableName, partitionInterval,
+                    this.wireRecordStoreOptions.getPartitionRetentionCount());
+            this.partitionedTable.reconcile(new Date().getTime());
+            return;
+        }
+        this.partitionedTable = null;
+
         this.dbHelper.withConnection(c -> {
             // check for the table that would collect the data of this emitter
             final String catalog = c.getCatalog();
             final DatabaseMetaData dbMetaData = c.getMetaData();
+            try (final ResultSet rsViews = dbMetaData.getTables(catalog, null, tableName, VIEW_TYPE)) {
+                if (rsViews.next()) {
+                    // partitioning has been disabled, the partitions are left in the database
+                    logger.info("Dropping view {} on the partitions...", sqlTableName);
+                    this.dbHelper.execute(c, MessageFormat.format(SQL_DROP_VIEW, sqlTableName));
+                }
+            }
             try (final ResultSet rsTbls = dbMetaData.getTables(catalog, null,
                     this.wireRecordStoreOptions.getTableName(), TABLE_TYPE)) {
                 if (!rsTbls.next()) {
@@ -425,60 +542,109 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
     }
 
     /**
-     * Insert the provided {@link WireRecord} to the specified table
+     * Inserts the provided {@link WireRecord}s in the specified table, in a single transaction.
+     * <p>
+     * The records are added to a JDBC batch for each set of property names, consecutive records with the same
+     * properties are inserted by the same batch. Before inserting, the oldest records are removed if the table has
+     * reached its maximum size. If the table is partitioned, the records are inserted in the current partition.
      *
      * @param tableName
      *            the table name
-     * @param wireRecord
-     *            the {@link WireRecord}
+     * @param wireRecords
+     *            the {@link WireRecord}s
      * @throws SQLException
      *             the SQL exception
      * @throws NullPointerException
      *             if any of the provided arguments is null
      */
-    private void insertDataRecord(final String tableName, final WireRecord wireRecord) throws SQLException {
+    private void insertDataRecords(final String tableName, final List<WireRecord> wireRecords) throws SQLException {
         requireNonNull(tableName, "Table name cannot be null");
-        requireNonNull(wireRecord, "Wire Record cannot be null");
-
-        final Map<String, TypedValue<?>> wireRecordProperties = wireRecord.getProperties();
+        requireNonNull(wireRecords, "Wire Records cannot be null");
+
+        final long timestamp = new Date().getTime();
+        final PartitionedTable partitions = this.partitionedTable;
+        final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(
+                nonNull(partitions) ? partitions.getPartition(timestamp) : tableName);
+        final List<String> sqlInserts = new ArrayList<>(wireRecords.size());
+        for (final WireRecord wireRecord : wireRecords) {
+            requireNonNull(wireRecord, "Wire Record cannot be null");
+            sqlInserts.add(getInsertStatement(sqlTableName, new ArrayList<>(wireRecord.getProperties().keySet())));
+        }
 
         this.dbHelper.withConnection(c -> {
-            try (final PreparedStatement stmt = prepareStatement(c, tableName, wireRecordProperties,
-                    new Date().getTime())) {
-                stmt.execute();
-                c.commit();
-                return (Void) null;
+            if (isNull(partitions)
+                    && getTableSize(c, sqlTableName) >= this.wireRecordStoreOptions.getMaximumTableSize()) {
+                scheduleCleanup(c, sqlTableName);
             }
 
+            final boolean autoCommit = c.getAutoCommit();
+            final Map<String, PreparedStatement> statements = new HashMap<>();
+            c.setAutoCommit(false);
+            try {
+                logger.debug("Storing data into table {}...", sqlTableName);
+                PreparedStatement pending = null;
+                for (int i = 0; i < wireRecords.size(); i++) {
+                    final String sqlInsert = sqlInserts.get(i);
+                    PreparedStatement stmt = statements.get(sqlInsert);
+                    if (stmt == null) {
+                        stmt = c.prepareStatement(sqlInsert);
+                        statements.put(sqlInsert, stmt);
+                    }
+                    if (pending != null && pending != stmt) {
+                        pending.executeBatch();
+                    }
+                    setParameters(stmt, wireRecords.get(i).getProperties(), timestamp);
+                    stmt.addBatch();
+                    pending = stmt;
+                }
+                if (pending != null) {
+                    pending.executeBatch();
+                }
+                c.commit();
+            } catch (final SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                for (final PreparedStatement stmt : statements.values()) {
+                    stmt.close();
+                }
+                c.setAutoCommit(autoCommit);
+            }
+            return (Void) null;
         });
 
-        logger.debug("Stored typed value");
+        this.rowCount.addAndGet(wireRecords.size());
+        logger.debug("Stored typed values");
     }
 
-    private PreparedStatement prepareStatement(Connection connection, String tableName,
-            final Map<String, TypedValue<?>> properties, long timestamp) throws SQLException {
-
-        final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
-        final StringBuilder sbCols = new StringBuilder();
-        final StringBuilder sbVals = new StringBuilder();
-
-        // add the timestamp
-        sbCols.append("TIMESTAMP");
-        sbVals.append("?");
-
-        int i = 2;
-        for (Entry<String, TypedValue<?>> entry : properties.entrySet()) {
-            final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(entry.getKey());
-            sbCols.append(", ").append(sqlColName);
-            sbVals.append(", ?");
+    private String getInsertStatement(final String sqlTableName, final List<String> columns) {
+        if (!sqlTableName.equals(this.insertTableName)) {
+            this.insertStatements.clear();
+            this.insertTableName = sqlTableName;
         }
+        return this.insertStatements.computeIfAbsent(columns, k -> {
+            final StringBuilder sbCols = new StringBuilder();
+            final StringBuilder sbVals = new StringBuilder();
+
+            // add the timestamp
+            sbCols.append("TIMESTAMP");
+            sbVals.append("?");
+
+            for (final String column : columns) {
+                final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(column);
+                sbCols.append(", ").append(sqlColName);
+                sbVals.append(", ?");
+            }
 
-        logger.debug("Storing data into table {}...", sqlTableName);
-        final String sqlInsert = MessageFormat.format(SQL_INSERT_RECORD, sqlTableName, sbCols.toString(),
-                sbVals.toString());
-        final PreparedStatement stmt = connection.prepareStatement(sqlInsert);
+            return MessageFormat.format(SQL_INSERT_RECORD, sqlTableName, sbCols.toString(), sbVals.toString());
+        });
+    }
+
+    private void setParameters(final PreparedStatement stmt, final Map<String, TypedValue<?>> properties,
+            final long timestamp) throws SQLException {
         stmt.setLong(1, timestamp);
 
+        int i = 2;
         for (Entry<String, TypedValue<?>> entry : properties.entrySet()) {
             final DataType dataType = entry.getValue().getType();
             final Object value = entry.getValue();
@@ -511,8 +677,6 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
             }
             i++;
         }
-        return stmt;
-
     }
 
     protected void restartDbServiceTracker() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -38,6 +38,12 @@ final class H2DbWireRecordStoreOptions {
 
     private static final String TABLE_NAME = "table.name";
 
+    private static final String PARTITION_INTERVAL = "partition.interval";
+
+    private static final String PARTITION_RETENTION_COUNT = "partition.retention.count";
+
+    private static final int DEFAULT_PARTITION_RETENTION_COUNT = 24;
+
     private final Map<String, Object> properties;
 
     /**
@@ -88,6 +94,33 @@ final class H2DbWireRecordStoreOptions {
         return tableName;
     }
 
+    /**
+     * Returns the interval covered by each partition of the table, {@link PartitionInterval#NONE} if the records are
+     * stored in a single table.
+     *
+     * @return the partition interval
+     */
+    PartitionInterval getPartitionInterval() {
+        final Object interval = this.properties.get(PARTITION_INTERVAL);
+        if (interval instanceof String) {
+            try {
+                return PartitionInterval.valueOf((String) interval);
+            } catch (IllegalArgumentException e) {
+                // use the default
+            }
+        }
+        return PartitionInterval.NONE;
+    }
+
+    int getPartitionRetentionCount() {
+        int retentionCount = DEFAULT_PARTITION_RETENTION_COUNT;
+        final Object count = this.properties.get(PARTITION_RETENTION_COUNT);
+        if (nonNull(count) && count instanceof Integer) {
+            retentionCount = Math.max(1, (Integer) count);
+        }
+        return retentionCount;
+    }
+
     String getDbServiceInstancePid() {
         String dbServicePid = H2DbService.DEFAULT_INSTANCE_PID;
         final Object pid = this.properties.get(DB_SERVICE_INSTANCE);
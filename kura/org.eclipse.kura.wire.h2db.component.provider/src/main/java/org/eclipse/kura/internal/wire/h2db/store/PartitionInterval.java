@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.h2db.store;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time interval covered by each partition of a {@link PartitionedTable}. Intervals are aligned to UTC.
+ */
+enum PartitionInterval {
+
+    NONE(0, null),
+    HOURLY(TimeUnit.HOURS.toMillis(1), "yyyyMMddHH"),
+    DAILY(TimeUnit.DAYS.toMillis(1), "yyyyMMdd");
+
+    private final long length;
+    private final DateTimeFormatter formatter;
+
+    private PartitionInterval(final long length, final String pattern) {
+        this.length = length;
+        this.formatter = pattern != null ? DateTimeFormatter.ofPattern(pattern).withZone(ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Returns the start of the interval containing the provided timestamp.
+     *
+     * @param timestamp
+     *            the timestamp in milliseconds since the epoch
+     * @return the start of the interval in milliseconds since the epoch
+     */
+    long getStart(final long timestamp) {
+        return timestamp - Math.floorMod(timestamp, this.length);
+    }
+
+    long getLength() {
+        return this.length;
+    }
+
+    /**
+     * Returns the suffix appended to the table name by the partition starting at the provided time.
+     *
+     * @param start
+     *            the start of the interval in milliseconds since the epoch
+     * @return the partition suffix
+     */
+    String getSuffix(final long start) {
+        return this.formatter.format(Instant.ofEpochMilli(start));
+    }
+}
@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.h2db.store;
+
+import static java.util.Objects.requireNonNull;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.kura.internal.wire.h2db.common.H2DbServiceHelper;
+import org.eclipse.kura.type.DataType;
+
+/**
+ * Stores the records of a {@link H2DbWireRecordStore} in a table for each time interval.
+ * <p>
+ * A partition is named after the table name followed by the start of its interval, for example
+ * {@code WR_data_2021101714} for the hourly partition starting at 14:00 UTC. A view with the table name collects the
+ * records of all the partitions, so that they can be queried as a single table. The retention drops the oldest
+ * partitions as a whole, which is much cheaper than deleting rows from a single table.
+ * <p>
+ * The IDs of all the partitions are taken from a single sequence, so that the records can still be ordered by ID and
+ * an ID is never reused, even if the retained partitions are empty. Columns are added to all the partitions, so that
+ * the view can be a simple union. This class is not thread safe.
+ */
+final class PartitionedTable {
+
+    private static final Logger logger = LogManager.getLogger(PartitionedTable.class);
+
+    // a table created before enabling partitioning becomes the oldest partition
+    private static final String LEGACY_PARTITION_SUFFIX = "0000000000";
+
+    private static final String COLUMN_NAME = "COLUMN_NAME";
+
+    private static final String DATA_TYPE = "DATA_TYPE";
+
+    private static final String TABLE_NAME = "TABLE_NAME";
+
+    private static final String TYPE_NAME = "TYPE_NAME";
+
+    private static final String[] TABLE_TYPE = new String[] { "TABLE" };
+
+    // the sequence providing the IDs of the partitions is named after the table followed by this suffix
+    private static final String SEQUENCE_SUFFIX = "_ID_SEQ";
+
+    private static final String SQL_CREATE_SEQUENCE = "CREATE SEQUENCE IF NOT EXISTS {0} START WITH {1};";
+
+    private static final String SQL_CREATE_PARTITION = "CREATE TABLE IF NOT EXISTS {0} (ID BIGINT DEFAULT NEXT VALUE "
+            + "FOR {1} PRIMARY KEY, TIMESTAMP BIGINT);";
+
+    private static final String SQL_CREATE_TABLE_INDEX = "CREATE INDEX IF NOT EXISTS {0} ON {1} (TIMESTAMP DESC);";
+
+    private static final String SQL_ADD_COLUMN = "ALTER TABLE {0} ADD COLUMN {1} {2};";
+
+    private static final String SQL_MAX_ID_TABLE = "SELECT MAX(ID) FROM {0};";
+
+    private static final String SQL_RENAME_TABLE = "ALTER TABLE {0} RENAME TO {1};";
+
+    private static final String SQL_CREATE_VIEW = "CREATE OR REPLACE VIEW {0} AS {1};";
+
+    private static final String SQL_DROP_VIEW = "DROP VIEW IF EXISTS {0};";
+
+    private static final String SQL_DROP_TABLE = "DROP TABLE IF EXISTS {0};";
+
+    private final H2DbServiceHelper dbHelper;
+
+    private final String tableName;
+
+    private final PartitionInterval interval;
+
+    private final int retentionCount;
+
+    private final Pattern partitionNamePattern;
+
+    private String currentPartition;
+
+    private long currentStart;
+
+    private long currentEnd;
+
+    /**
+     * Instantiates a new partitioned table.
+     *
+     * @param dbHelper
+     *            the helper of the database instance containing the table
+     * @param tableName
+     *            the name of the view collecting the partitions
+     * @param interval
+     *            the interval covered by each partition
+     * @param retentionCount
+     *            the number of partitions to keep
+     */
+    PartitionedTable(final H2DbServiceHelper dbHelper, final String tableName, final PartitionInterval interval,
+            final int retentionCount) {
+        requireNonNull(dbHelper, "DB Service Helper cannot be null");
+        requireNonNull(tableName, "Table name cannot be null");
+        this.dbHelper = dbHelper;
+        this.tableName = tableName;
+        this.interval = interval;
+        this.retentionCount = retentionCount;
+        this.partitionNamePattern = Pattern.compile(Pattern.quote(tableName) + "_(\\d{8}|\\d{10})");
+    }
+
+    /**
+     * Moves an existing table with the configured name to a partition, creates the partition for the provided time if
+     * needed, drops the expired partitions and updates the view.
+     *
+     * @param timestamp
+     *            the current time in milliseconds since the epoch
+     * @throws SQLException
+     *             the SQL exception
+     */
+    void reconcile(final long timestamp) throws SQLException {
+        this.dbHelper.withConnection(c -> {
+            if (tableExists(c, this.tableName)) {
+                final String legacyPartition = this.tableName + "_" + LEGACY_PARTITION_SUFFIX;
+                logger.info("Moving table {} to partition {}...", this.tableName, legacyPartition);
+                this.dbHelper.execute(c, MessageFormat.format(SQL_RENAME_TABLE, sanitize(this.tableName),
+                        sanitize(legacyPartition)));
+            }
+            roll(c, timestamp);
+            return (Void) null;
+        });
+    }
+
+    /**
+     * Returns the name of the partition that stores the records with the provided timestamp, creating it if needed.
+     * The records are never stored in a partition older than the last one created, even if the clock goes back.
+     *
+     * @param timestamp
+     *            the timestamp of the records in milliseconds since the epoch
+     * @return the partition name
+     * @throws SQLException
+     *             the SQL exception
+     */
+    String getPartition(final long timestamp) throws SQLException {
+        if (this.currentPartition == null || timestamp < this.currentStart || timestamp >= this.currentEnd) {
+            this.dbHelper.withConnection(c -> {
+                roll(c, timestamp);
+                return (Void) null;
+            });
+        }
+        return this.currentPartition;
+    }
+
+    /**
+     * Returns the names of the existing partitions, from the oldest to the newest.
+     *
+     * @return the partition names
+     * @throws SQLException
+     *             the SQL exception
+     */
+    List<String> getPartitions() throws SQLException {
+        return this.dbHelper.withConnection(this::listPartitions);
+    }
+
+    /**
+     * Drops the view, to allow changing the type of the partition columns.
+     *
+     * @throws SQLException
+     *             the SQL exception
+     */
+    void dropView() throws SQLException {
+        this.dbHelper.withConnection(c -> {
+            this.dbHelper.execute(c, MessageFormat.format(SQL_DROP_VIEW, sanitize(this.tableName)));
+            return (Void) null;
+        });
+    }
+
+    /**
+     * Recreates the view on the existing partitions, to include new columns.
+     *
+     * @throws SQLException
+     *             the SQL exception
+     */
+    void updateView() throws SQLException {
+        this.dbHelper.withConnection(c -> {
+            createView(c, listPartitions(c));
+            return (Void) null;
+        });
+    }
+
+    private void roll(final Connection c, final long timestamp) throws SQLException {
+        final List<String> partitions = listPartitions(c);
+        final long start = this.interval.getStart(timestamp);
+        final String partition = this.tableName + "_" + this.interval.getSuffix(start);
+        final String newestPartition = partitions.isEmpty() ? null : partitions.get(partitions.size() - 1);
+
+        final String current;
+        if (newestPartition == null || getSortKey(newestPartition).compareTo(getSortKey(partition)) < 0) {
+            createPartition(c, partition, partitions);
+            partitions.add(partition);
+            current = partition;
+        } else {
+            current = newestPartition;
+        }
+
+        final List<String> expiredPartitions = partitions.subList(0,
+                Math.max(0, partitions.size() - this.retentionCount));
+        final List<String> droppedPartitions = new ArrayList<>(expiredPartitions);
+        expiredPartitions.clear();
+
+        // the view must not refer to the dropped partitions
+        createView(c, partitions);
+        for (final String droppedPartition : droppedPartitions) {
+            logger.info("Dropping partition {}...", droppedPartition);
+            this.dbHelper.execute(c, MessageFormat.format(SQL_DROP_TABLE, sanitize(droppedPartition)));
+        }
+
+        this.currentPartition = current;
+        this.currentStart = start;
+        this.currentEnd = start + this.interval.getLength();
+    }
+
+    private void createPartition(final Connection c, final String partition, final List<String> partitions)
+            throws SQLException {
+        final Map<String, String> columns = new LinkedHashMap<>();
+        if (!partitions.isEmpty()) {
+            columns.putAll(getColumnTypes(c, partitions.get(partitions.size() - 1)));
+        }
+
+        // the start is used only if the sequence does not exist yet, that is for the first partition or for partitions
+        // created with their own identity column
+        final String sqlSequence = sanitize(this.tableName + SEQUENCE_SUFFIX);
+        this.dbHelper.execute(c,
+                MessageFormat.format(SQL_CREATE_SEQUENCE, sqlSequence, Long.toString(getMaxId(c, partitions) + 1)));
+
+        logger.info("Creating partition {}...", partition);
+        final String sqlPartition = sanitize(partition);
+        this.dbHelper.execute(c, MessageFormat.format(SQL_CREATE_PARTITION, sqlPartition, sqlSequence));
+        this.dbHelper.execute(c,
+                MessageFormat.format(SQL_CREATE_TABLE_INDEX, sanitize(partition + "_TIMESTAMP"), sqlPartition));
+        for (final Entry<String, String> column : columns.entrySet()) {
+            if (!"ID".equals(column.getKey()) && !"TIMESTAMP".equals(column.getKey())) {
+                this.dbHelper.execute(c, MessageFormat.format(SQL_ADD_COLUMN, sqlPartition,
+                        sanitize(column.getKey()), column.getValue()));
+            }
+        }
+    }
+
+    private long getMaxId(final Connection c, final List<String> partitions) throws SQLException {
+        long maxId = 0;
+        for (final String partition : partitions) {
+            try (final Statement stmt = c.createStatement(); final ResultSet rset = stmt
+                    .executeQuery(MessageFormat.format(SQL_MAX_ID_TABLE, sanitize(partition)))) {
+                // MAX is NULL on an empty partition
+                if (rset.next()) {
+                    final long id = rset.getLong(1);
+                    if (!rset.wasNull()) {
+                        maxId = Math.max(maxId, id);
+                    }
+                }
+            }
+        }
+        return maxId;
+    }
+
+    private void createView(final Connection c, final List<String> partitions) throws SQLException {
+        if (partitions.isEmpty()) {
+            return;
+        }
+
+        // the columns of the newest partition, the older ones might lack some if they have been moved from a table
+        final Set<String> columns = getColumnTypes(c, partitions.get(partitions.size() - 1)).keySet();
+        final StringBuilder sbSelect = new StringBuilder();
+        for (final String partition : partitions) {
+            final Set<String> partitionColumns = getColumnTypes(c, partition).keySet();
+            if (sbSelect.length() > 0) {
+                sbSelect.append(" UNION ALL ");
+            }
+            sbSelect.append("SELECT ");
+            boolean first = true;
+            for (final String column : columns) {
+                if (!first) {
+                    sbSelect.append(", ");
+                }
+                first = false;
+                final String sqlColumn = sanitize(column);
+                sbSelect.append(partitionColumns.contains(column) ? sqlColumn : "NULL AS " + sqlColumn);
+            }
+            sbSelect.append(" FROM ").append(sanitize(partition));
+        }
+
+        this.dbHelper.execute(c, MessageFormat.format(SQL_CREATE_VIEW, sanitize(this.tableName), sbSelect));
+    }
+
+    private List<String> listPartitions(final Connection c) throws SQLException {
+        final List<String> partitions = new ArrayList<>();
+        final DatabaseMetaData dbMetaData = c.getMetaData();
+        try (final ResultSet rsTbls = dbMetaData.getTables(c.getCatalog(), null, null, TABLE_TYPE)) {
+            while (rsTbls.next()) {
+                final String name = rsTbls.getString(TABLE_NAME);
+                if (this.partitionNamePattern.matcher(name).matches()) {
+                    partitions.add(name);
+                }
+            }
+        }
+        partitions.sort(Comparator.comparing(this::getSortKey));
+        return partitions;
+    }
+
+    private Map<String, String> getColumnTypes(final Connection c, final String partition) throws SQLException {
+        final Map<String, String> columns = new LinkedHashMap<>();
+        final DatabaseMetaData dbMetaData = c.getMetaData();
+        try (final ResultSet rsColumns = dbMetaData.getColumns(c.getCatalog(), null, partition, null)) {
+            while (rsColumns.next()) {
+                final DataType dataType = H2DbDataTypeMapper.getDataType(rsColumns.getInt(DATA_TYPE));
+                columns.put(rsColumns.getString(COLUMN_NAME),
+                        dataType != null ? H2DbDataTypeMapper.getJdbcType(dataType).getTypeString()
+                                : rsColumns.getString(TYPE_NAME));
+            }
+        }
+        return columns;
+    }
+
+    private boolean tableExists(final Connection c, final String name) throws SQLException {
+        final DatabaseMetaData dbMetaData = c.getMetaData();
+        try (final ResultSet rsTbls = dbMetaData.getTables(c.getCatalog(), null, name, TABLE_TYPE)) {
+            while (rsTbls.next()) {
+                if (name.equals(rsTbls.getString(TABLE_NAME))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // daily and hourly partitions can coexist if the interval is changed
+    private String getSortKey(final String partition) {
+        final StringBuilder key = new StringBuilder(partition.substring(this.tableName.length() + 1));
+        while (key.length() < LEGACY_PARTITION_SUFFIX.length()) {
+            key.append('0');
+        }
+        return key.toString();
+    }
+
+    private String sanitize(final String name) {
+        return this.dbHelper.sanitizeSqlTableAndColumnName(name);
+    }
+}
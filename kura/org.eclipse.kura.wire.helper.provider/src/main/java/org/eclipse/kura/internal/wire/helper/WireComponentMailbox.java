@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded queue of the envelopes received by a wire component, delivered by a shared executor.
+ * <p>
+ * At most one task per mailbox is running at any time, so the deliveries to a component are serialized and happen in
+ * the order they have been submitted. A task delivers a limited number of envelopes before yielding the executor
+ * thread to the other mailboxes.
+ */
+final class WireComponentMailbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireComponentMailbox.class);
+
+    private static final int MAX_DELIVERIES_PER_TASK = 32;
+
+    enum OverflowPolicy {
+        /** The submitter waits until the mailbox has room. */
+        BLOCK,
+        /** The oldest queued envelope is discarded. */
+        DROP_OLDEST,
+        /** The submitted envelope is discarded. */
+        DROP_NEWEST
+    }
+
+    private final String name;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Executor executor;
+    private final BlockingQueue<Runnable> queue;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    WireComponentMailbox(final String name, final int capacity, final OverflowPolicy overflowPolicy,
+            final Executor executor) {
+        this.name = name;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    boolean hasConfiguration(final int capacity, final OverflowPolicy overflowPolicy) {
+        return this.capacity == capacity && this.overflowPolicy == overflowPolicy;
+    }
+
+    long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    void submit(final Runnable delivery) {
+        switch (this.overflowPolicy) {
+        case DROP_NEWEST:
+            if (!this.queue.offer(delivery)) {
+                onDropped();
+            }
+            break;
+        case DROP_OLDEST:
+            while (!this.queue.offer(delivery)) {
+                if (this.queue.poll() != null) {
+                    onDropped();
+                }
+            }
+            break;
+        default:
+            put(delivery);
+            break;
+        }
+        schedule();
+    }
+
+    private void put(final Runnable delivery) {
+        try {
+            // lets a ForkJoinPool start a compensating thread if a delivery task blocks on a downstream mailbox
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+
+                private boolean done;
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    if (!this.done) {
+                        WireComponentMailbox.this.queue.put(delivery);
+                        this.done = true;
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    if (!this.done) {
+                        this.done = WireComponentMailbox.this.queue.offer(delivery);
+                    }
+                    return this.done;
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onDropped();
+        }
+    }
+
+    private void onDropped() {
+        final long dropped = this.droppedCount.incrementAndGet();
+        logger.debug("Mailbox of {} is full, envelope dropped. Total dropped: {}", this.name, dropped);
+    }
+
+    private void schedule() {
+        if (!this.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.executor.execute(this::deliver);
+        } catch (RejectedExecutionException e) {
+            this.scheduled.set(false);
+            logger.warn("Failed to schedule the delivery of envelopes to {}", this.name, e);
+        }
+    }
+
+    private void deliver() {
+        try {
+            for (int i = 0; i < MAX_DELIVERIES_PER_TASK; i++) {
+                final Runnable delivery = this.queue.poll();
+                if (delivery == null) {
+                    break;
+                }
+                try {
+                    delivery.run();
+                } catch (Exception e) {
+                    logger.warn("Failed to deliver envelope to {}", this.name, e);
+                }
+            }
+        } finally {
+            this.scheduled.set(false);
+            if (!this.queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2016, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -19,6 +19,10 @@ import static org.eclipse.kura.wire.graph.Constants.EMITTER_PORT_COUNT_PROP_NAME
 import static org.eclipse.kura.wire.graph.Constants.RECEIVER_PORT_COUNT_PROP_NAME;
 import static org.osgi.framework.Constants.SERVICE_PID;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.kura.util.service.ServiceUtil;
 import org.eclipse.kura.wire.WireComponent;
 import org.eclipse.kura.wire.WireEmitter;
@@ -28,6 +32,8 @@ import org.eclipse.kura.wire.WireSupport;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.ServiceReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The Class WireHelperServiceImpl is the implementation of
@@ -35,6 +41,36 @@ import org.osgi.framework.ServiceReference;
  */
 public final class WireHelperServiceImpl implements WireHelperService {
 
+    private static final Logger logger = LoggerFactory.getLogger(WireHelperServiceImpl.class);
+
+    private static final long EXECUTOR_SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    /*
+     * Delivers the envelopes to the wire components that receive them asynchronously. Runs in FIFO mode since the
+     * tasks are independent deliveries and are never joined.
+     */
+    private ForkJoinPool executor;
+
+    protected void activate() {
+        this.executor = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("WireComponentExecutor-" + thread.getPoolIndex());
+            return thread;
+        }, (thread, e) -> logger.warn("Unexpected exception in {}", thread.getName(), e), true);
+    }
+
+    protected void deactivate() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(EXECUTOR_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Wire component deliveries still running after {} seconds",
+                        EXECUTOR_SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getPid(final WireComponent wireComponent) {
@@ -151,6 +187,7 @@ public final class WireHelperServiceImpl implements WireHelperService {
         int emitterPortCount = getIntOrDefault(wireComponentRef.getProperty(EMITTER_PORT_COUNT_PROP_NAME.value()),
                 wireComponent instanceof WireEmitter ? 1 : 0);
 
-        return new WireSupportImpl(wireComponent, servicePid, kuraServicePid, receiverPortCount, emitterPortCount);
+        return new WireSupportImpl(wireComponent, servicePid, kuraServicePid, receiverPortCount, emitterPortCount,
+                this.executor);
     }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2016, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -14,17 +14,22 @@
 package org.eclipse.kura.internal.wire.helper;
 
 import static java.util.Objects.requireNonNull;
+import static org.eclipse.kura.wire.graph.Constants.RECEIVER_MAILBOX_CAPACITY_PROP_NAME;
+import static org.eclipse.kura.wire.graph.Constants.RECEIVER_MAILBOX_OVERFLOW_POLICY_PROP_NAME;
 import static org.eclipse.kura.wire.graph.Constants.WIRE_EMITTER_PORT_PROP_NAME;
 import static org.eclipse.kura.wire.graph.Constants.WIRE_RECEIVER_PORT_PROP_NAME;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Dictionary;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
+import org.eclipse.kura.internal.wire.helper.WireComponentMailbox.OverflowPolicy;
 import org.eclipse.kura.wire.WireComponent;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireReceiver;
@@ -57,8 +62,13 @@ final class WireSupportImpl implements WireSupport, MultiportWireSupport {
 
     private final Map<Wire, ReceiverPortImpl> receiverPortByWire;
 
+    private final Executor executor;
+
+    // null if envelopes are delivered synchronously
+    private volatile WireComponentMailbox mailbox;
+
     WireSupportImpl(final WireComponent wireComponent, final String servicePid, final String kuraServicePid,
-            int inputPortCount, int outputPortCount) {
+            int inputPortCount, int outputPortCount, final Executor executor) {
         requireNonNull(wireComponent, "Wire component cannot be null");
         requireNonNull(servicePid, "service pid cannot be null");
         requireNonNull(kuraServicePid, "kura service pid cannot be null");
@@ -66,6 +76,7 @@ final class WireSupportImpl implements WireSupport, MultiportWireSupport {
         this.servicePid = servicePid;
         this.kuraServicePid = kuraServicePid;
         this.wireComponent = wireComponent;
+        this.executor = executor;
 
         if (inputPortCount < 0) {
             throw new IllegalArgumentException("Input port count must be greater or equal than zero");
@@ -76,7 +87,8 @@ final class WireSupportImpl implements WireSupport, MultiportWireSupport {
 
         this.receiverPorts = new ArrayList<>(inputPortCount);
         this.emitterPorts = new ArrayList<>(outputPortCount);
-        this.receiverPortByWire = new HashMap<>();
+        // read by the mailbox deliveries
+        this.receiverPortByWire = new ConcurrentHashMap<>();
 
         for (int i = 0; i < inputPortCount; i++) {
             receiverPorts.add(new ReceiverPortImpl());
@@ -150,6 +162,46 @@ final class WireSupportImpl implements WireSupport, MultiportWireSupport {
                 logger.warn("Failed to assign incomimg wire to port", e);
             }
         }
+        updateMailbox(wires);
+    }
+
+    private void updateMailbox(final Wire[] wires) {
+        Object capacity = null;
+        Object overflowPolicy = null;
+        for (final Wire w : wires) {
+            final Dictionary<?, ?> properties = w.getProperties();
+            if (properties != null) {
+                capacity = properties.get(RECEIVER_MAILBOX_CAPACITY_PROP_NAME.value());
+                overflowPolicy = properties.get(RECEIVER_MAILBOX_OVERFLOW_POLICY_PROP_NAME.value());
+                break;
+            }
+        }
+
+        if (this.executor == null || !(capacity instanceof Integer) || (Integer) capacity <= 0) {
+            this.mailbox = null;
+            return;
+        }
+
+        final OverflowPolicy policy = getOverflowPolicy(overflowPolicy);
+        final WireComponentMailbox currentMailbox = this.mailbox;
+        if (currentMailbox == null || !currentMailbox.hasConfiguration((Integer) capacity, policy)) {
+            logger.info("{} receives envelopes asynchronously, mailbox capacity: {}, overflow policy: {}",
+                    this.kuraServicePid, capacity, policy);
+            // envelopes still queued in the previous mailbox are delivered by it
+            this.mailbox = new WireComponentMailbox(this.kuraServicePid, (Integer) capacity, policy, this.executor);
+        }
+    }
+
+    private OverflowPolicy getOverflowPolicy(final Object value) {
+        if (value instanceof String) {
+            try {
+                return OverflowPolicy.valueOf((String) value);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unknown mailbox overflow policy {} for {}, using {}", value, this.kuraServicePid,
+                        OverflowPolicy.BLOCK);
+            }
+        }
+        return OverflowPolicy.BLOCK;
     }
 
     /** {@inheritDoc} */
@@ -160,7 +212,16 @@ final class WireSupportImpl implements WireSupport, MultiportWireSupport {
             return;
         }
         final WireEnvelope envelope = (WireEnvelope) value;
-        if (wireComponent instanceof WireReceiver) {
+        final WireComponentMailbox currentMailbox = this.mailbox;
+        if (currentMailbox != null) {
+            currentMailbox.submit(() -> deliver(wire, envelope));
+        } else {
+            deliver(wire, envelope);
+        }
+    }
+
+    private void deliver(final Wire wire, final WireEnvelope envelope) {
+        if (this.wireComponent instanceof WireReceiver) {
             ((WireReceiver) this.wireComponent).onWireReceive(envelope);
         } else {
             final ReceiverPortImpl receiverPort = this.receiverPortByWire.get(wire);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2016, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -25,10 +25,12 @@ import static org.osgi.service.wireadmin.WireConstants.WIREADMIN_PRODUCER_PID;
 
 import java.util.ArrayList;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -71,6 +73,18 @@ public class WireGraphServiceImpl implements ConfigurableComponent, WireGraphSer
 
     private static final String NEW_WIRE_GRAPH_PROPERTY = "WireGraph";
 
+    private static final String EXECUTION_MODE_PROPERTY = "execution.mode";
+    private static final String MAILBOX_CAPACITY_PROPERTY = "mailbox.capacity";
+    private static final String MAILBOX_OVERFLOW_POLICY_PROPERTY = "mailbox.overflow.policy";
+
+    private static final String ASYNCHRONOUS_EXECUTION_MODE = "ASYNCHRONOUS";
+    private static final int DEFAULT_MAILBOX_CAPACITY = 64;
+    private static final String DEFAULT_MAILBOX_OVERFLOW_POLICY = "BLOCK";
+
+    // Per component overrides of the mailbox configuration, in the wire graph JSON
+    private static final String COMPONENT_MAILBOX_CAPACITY_PROPERTY = "mailbox.capacity";
+    private static final String COMPONENT_MAILBOX_OVERFLOW_POLICY_PROPERTY = "mailbox.overflowPolicy";
+
     /** Configuration PID Property */
     private static final String CONF_PID = "org.eclipse.kura.wire.graph.WireGraphService";
 
@@ -85,6 +99,10 @@ public class WireGraphServiceImpl implements ConfigurableComponent, WireGraphSer
 
     private WireGraphConfiguration currentConfiguration;
 
+    private boolean asynchronousExecution;
+    private int defaultMailboxCapacity = DEFAULT_MAILBOX_CAPACITY;
+    private String defaultMailboxOverflowPolicy = DEFAULT_MAILBOX_OVERFLOW_POLICY;
+
     private static final Filter WIRE_COMPONENT_FILTER = getWireComponentConfigurationFilter();
 
     /**
@@ -134,6 +152,7 @@ public class WireGraphServiceImpl implements ConfigurableComponent, WireGraphSer
             logger.info("Updating Wire Graph Service Component...");
 
             this.currentConfiguration = loadWireGraphConfiguration(properties);
+            loadExecutionOptions(properties);
 
             if (this.wireComponentServiceTracker == null) {
                 logger.info("Opening Wire Component Service tracker...");
@@ -166,8 +185,56 @@ public class WireGraphServiceImpl implements ConfigurableComponent, WireGraphSer
         logger.info("Deactivating Wire Service Component...Done");
     }
 
-    private boolean checkWireExistence(final String emitterServicePid, final String receiverServicePid,
-            final int emitterPort, final int receiverPort) throws InvalidSyntaxException {
+    private void loadExecutionOptions(final Map<String, Object> properties) {
+        this.asynchronousExecution = ASYNCHRONOUS_EXECUTION_MODE.equals(properties.get(EXECUTION_MODE_PROPERTY));
+
+        final Object capacity = properties.get(MAILBOX_CAPACITY_PROPERTY);
+        this.defaultMailboxCapacity = capacity instanceof Integer && (Integer) capacity > 0 ? (Integer) capacity
+                : DEFAULT_MAILBOX_CAPACITY;
+
+        final Object overflowPolicy = properties.get(MAILBOX_OVERFLOW_POLICY_PROPERTY);
+        this.defaultMailboxOverflowPolicy = overflowPolicy instanceof String ? (String) overflowPolicy
+                : DEFAULT_MAILBOX_OVERFLOW_POLICY;
+    }
+
+    /**
+     * Returns the mailbox configuration of the given receiver, added to the properties of its incoming wires.
+     */
+    private Map<String, Object> getReceiverMailboxProperties(final String receiverPid) {
+        final Map<String, Object> result = new HashMap<>();
+        if (!this.asynchronousExecution) {
+            return result;
+        }
+
+        Object capacity = null;
+        Object overflowPolicy = null;
+        for (final WireComponentConfiguration component : this.currentConfiguration
+                .getWireComponentConfigurations()) {
+            final Map<String, Object> componentProperties = component.getProperties();
+            if (receiverPid.equals(component.getConfiguration().getPid()) && componentProperties != null) {
+                capacity = componentProperties.get(COMPONENT_MAILBOX_CAPACITY_PROPERTY);
+                overflowPolicy = componentProperties.get(COMPONENT_MAILBOX_OVERFLOW_POLICY_PROPERTY);
+                break;
+            }
+        }
+
+        result.put(Constants.RECEIVER_MAILBOX_CAPACITY_PROP_NAME.value(),
+                capacity instanceof Integer && (Integer) capacity > 0 ? capacity : this.defaultMailboxCapacity);
+        result.put(Constants.RECEIVER_MAILBOX_OVERFLOW_POLICY_PROP_NAME.value(),
+                overflowPolicy instanceof String ? overflowPolicy : this.defaultMailboxOverflowPolicy);
+        return result;
+    }
+
+    private static boolean hasProperties(final Wire wire, final Map<String, Object> properties) {
+        final Dictionary<?, ?> wireProperties = wire.getProperties();
+        return Objects.equals(properties.get(Constants.RECEIVER_MAILBOX_CAPACITY_PROP_NAME.value()),
+                wireProperties.get(Constants.RECEIVER_MAILBOX_CAPACITY_PROP_NAME.value()))
+                && Objects.equals(properties.get(Constants.RECEIVER_MAILBOX_OVERFLOW_POLICY_PROP_NAME.value()),
+                        wireProperties.get(Constants.RECEIVER_MAILBOX_OVERFLOW_POLICY_PROP_NAME.value()));
+    }
+
+    private Wire findWire(final String emitterServicePid, final String receiverServicePid, final int emitterPort,
+            final int receiverPort) throws InvalidSyntaxException {
         requireNonNull(emitterServicePid, "Emitter Service PID cannot be null");
         requireNonNull(receiverServicePid, "Receiver Service PID cannot be null");
 
@@ -181,14 +248,14 @@ public class WireGraphServiceImpl implements ConfigurableComponent, WireGraphSer
                             && receiverServicePid.equals(props.get(WIREADMIN_CONSUMER_PID))
                             && emitterPort == (Integer) props.get(Constants.WIRE_EMITTER_PORT_PROP_NAME.value())
                             && receiverPort == (Integer) props.get(Constants.WIRE_RECEIVER_PORT_PROP_NAME.value())) {
-                        return true;
+                        return w;
                     }
                 } catch (Exception e) {
                     continue;
                 }
             }
         }
-        return false;
+        return null;
 
     }
 
@@ -203,9 +270,16 @@ public class WireGraphServiceImpl implements ConfigurableComponent, WireGraphSer
             final int emitterPort = conf.getEmitterPort();
             final int receiverPort = conf.getReceiverPort();
             if (nonNull(emitterServicePid) && nonNull(receiverServicePid)) {
-                final boolean found = checkWireExistence(emitterServicePid, receiverServicePid, emitterPort,
-                        receiverPort);
-                if (!found) {
+                final Map<String, Object> mailboxProperties = getReceiverMailboxProperties(receiverPid);
+                Wire existingWire = findWire(emitterServicePid, receiverServicePid, emitterPort, receiverPort);
+                if (existingWire != null && !hasProperties(existingWire, mailboxProperties)) {
+                    // the receiver reads the mailbox configuration when its wires are connected
+                    logger.info("Recreating wire between {}/{} and {}/{} to update the receiver mailbox...", emitterPid,
+                            emitterPort, receiverPid, receiverPort);
+                    this.wireAdmin.deleteWire(existingWire);
+                    existingWire = null;
+                }
+                if (existingWire == null) {
                     logger.info("Creating wire between {}/{} and {}/{}...", emitterPid, emitterPort, receiverPid,
                             receiverPort);
                     final Dictionary<String, Object> properties = new Hashtable<>();
@@ -213,6 +287,7 @@ public class WireGraphServiceImpl implements ConfigurableComponent, WireGraphSer
                     properties.put(Constants.WIRE_RECEIVER_PORT_PROP_NAME.value(), receiverPort);
                     properties.put(Constants.EMITTER_KURA_SERVICE_PID_PROP_NAME.value(), emitterPid);
                     properties.put(Constants.RECEIVER_KURA_SERVICE_PID_PROP_NAME.value(), receiverPid);
+                    mailboxProperties.forEach(properties::put);
                     final Wire wire = this.wireAdmin.createWire(emitterServicePid, receiverServicePid, properties);
                     conf.setWire(wire);
                     logger.info("Creating wire.....Done");
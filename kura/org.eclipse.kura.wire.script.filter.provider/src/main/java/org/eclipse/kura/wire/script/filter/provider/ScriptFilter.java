@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.eclipse.kura.wire.script.filter.provider;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -28,6 +29,7 @@ import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.type.DataType;
 import org.eclipse.kura.type.TypedValue;
 import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.util.expression.Expression;
 import org.eclipse.kura.wire.WireComponent;
 import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireEnvelope;
@@ -44,14 +46,22 @@ import org.slf4j.LoggerFactory;
 
 import jdk.nashorn.api.scripting.NashornScriptEngineFactory;
 
+/**
+ * A wire component that runs a JavaScript script for each received envelope or, if script.language is set to
+ * EXPRESSION, forwards the records for which the {@link Expression} in the script property is true.
+ */
 public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComponent {
 
     private static final Logger logger = LoggerFactory.getLogger(ScriptFilter.class);
 
     private static final String SCRIPT_PROPERTY_KEY = "script";
     private static final String SCRIPT_CONTEXT_DROP_PROPERTY_KEY = "script.context.drop";
+    private static final String SCRIPT_LANGUAGE_PROPERTY_KEY = "script.language";
+
+    private static final String EXPRESSION_LANGUAGE = "EXPRESSION";
 
     private CompiledScript script;
+    private volatile Expression expression;
     private Bindings bindings;
 
     private volatile WireHelperService wireHelperService;
@@ -101,10 +111,19 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
         }
 
         this.script = null;
-        try {
-            this.script = ((Compilable) this.scriptEngine).compile(scriptSource);
-        } catch (ScriptException e) {
-            logger.warn("Failed to compile script", e);
+        this.expression = null;
+        if (EXPRESSION_LANGUAGE.equals(properties.get(SCRIPT_LANGUAGE_PROPERTY_KEY))) {
+            try {
+                this.expression = Expression.compile(scriptSource);
+            } catch (Exception e) {
+                logger.warn("Failed to compile expression", e);
+            }
+        } else {
+            try {
+                this.script = ((Compilable) this.scriptEngine).compile(scriptSource);
+            } catch (ScriptException e) {
+                logger.warn("Failed to compile script", e);
+            }
         }
 
         if (this.bindings == null || (Boolean) properties.getOrDefault(SCRIPT_CONTEXT_DROP_PROPERTY_KEY, false)) {
@@ -115,7 +134,35 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
     }
 
     @Override
-    public synchronized void onWireReceive(WireEnvelope wireEnvelope) {
+    public void onWireReceive(WireEnvelope wireEnvelope) {
+        final Expression filter = this.expression;
+        if (filter != null) {
+            filterRecords(filter, wireEnvelope);
+        } else {
+            runScript(wireEnvelope);
+        }
+    }
+
+    private void filterRecords(final Expression filter, final WireEnvelope wireEnvelope) {
+        try {
+            final List<WireRecord> records = wireEnvelope.getRecords();
+            final List<WireRecord> result = new ArrayList<>(records.size());
+
+            for (int i = 0; i < records.size(); i++) {
+                if (filter.test(records, i)) {
+                    result.add(records.get(i));
+                }
+            }
+
+            if (!result.isEmpty()) {
+                this.wireSupport.emit(result);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to evaluate expression", e);
+        }
+    }
+
+    private synchronized void runScript(WireEnvelope wireEnvelope) {
         if (this.script == null) {
             logger.warn("Failed to compile script");
             return;
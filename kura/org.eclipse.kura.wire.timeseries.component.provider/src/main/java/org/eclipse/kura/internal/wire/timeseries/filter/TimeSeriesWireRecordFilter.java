@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.filter;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.internal.wire.timeseries.storage.Resolution;
+import org.eclipse.kura.internal.wire.timeseries.storage.TimeSeriesDatabase;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEmitter;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.ComponentException;
+import org.osgi.service.wireadmin.Wire;
+
+/**
+ * The Class TimeSeriesWireRecordFilter is a wire component that, when a Wire Envelope is received, queries the series
+ * stored by the TimeSeriesWireRecordStores in the configured time range and emits the result as a Wire Envelope.
+ * <p>
+ * Each point is emitted as a Wire Record with the {@code TIMESTAMP} and {@code SERIES} properties and either the
+ * {@code VALUE} property for the raw samples, or the {@code MIN}, {@code MAX}, {@code AVG} and {@code COUNT}
+ * properties for the minute and hour rollups.
+ */
+public class TimeSeriesWireRecordFilter implements WireEmitter, WireReceiver, ConfigurableComponent {
+
+    private static final Logger logger = LogManager.getLogger(TimeSeriesWireRecordFilter.class);
+
+    static final String TIMESTAMP = "TIMESTAMP";
+    static final String SERIES = "SERIES";
+    static final String VALUE = "VALUE";
+    static final String MIN = "MIN";
+    static final String MAX = "MAX";
+    static final String AVG = "AVG";
+    static final String COUNT = "COUNT";
+
+    private TimeSeriesWireRecordFilterOptions options;
+
+    private volatile WireHelperService wireHelperService;
+
+    private WireSupport wireSupport;
+
+    private TimeSeriesDatabase database;
+
+    public void bindWireHelperService(final WireHelperService wireHelperService) {
+        if (isNull(this.wireHelperService)) {
+            this.wireHelperService = wireHelperService;
+        }
+    }
+
+    public void unbindWireHelperService(final WireHelperService wireHelperService) {
+        if (this.wireHelperService == wireHelperService) {
+            this.wireHelperService = null;
+        }
+    }
+
+    /**
+     * OSGi service component callback for activation
+     *
+     * @param componentContext
+     *            the component context
+     * @param properties
+     *            the properties
+     */
+    protected void activate(final ComponentContext componentContext, final Map<String, Object> properties) {
+        logger.debug("Activating Time Series Wire Record Filter...");
+        this.options = new TimeSeriesWireRecordFilterOptions(properties);
+
+        this.wireSupport = this.wireHelperService.newWireSupport(this,
+                (ServiceReference<WireComponent>) componentContext.getServiceReference());
+
+        openDatabase();
+        logger.debug("Activating Time Series Wire Record Filter... Done");
+    }
+
+    /**
+     * OSGi service component callback for updating
+     *
+     * @param properties
+     *            the updated properties
+     */
+    public synchronized void updated(final Map<String, Object> properties) {
+        logger.debug("Updating Time Series Wire Record Filter...");
+        final String oldDirectory = this.options.getStorageDirectory();
+
+        this.options = new TimeSeriesWireRecordFilterOptions(properties);
+
+        if (!oldDirectory.equals(this.options.getStorageDirectory())) {
+            closeDatabase();
+            openDatabase();
+        }
+        logger.debug("Updating Time Series Wire Record Filter... Done");
+    }
+
+    /**
+     * OSGi service component callback for deactivation
+     *
+     * @param componentContext
+     *            the component context
+     */
+    protected synchronized void deactivate(final ComponentContext componentContext) {
+        logger.debug("Deactivating Time Series Wire Record Filter...");
+        closeDatabase();
+        logger.debug("Deactivating Time Series Wire Record Filter... Done");
+    }
+
+    /**
+     * Queries the time series as soon as a new {@link WireEnvelope} is received and emits the result.
+     */
+    @Override
+    public synchronized void onWireReceive(final WireEnvelope wireEnvelope) {
+        requireNonNull(wireEnvelope, "Wire Envelope cannot be null");
+
+        List<WireRecord> result;
+        try {
+            result = query(this.database, this.options, System.currentTimeMillis());
+        } catch (final IOException e) {
+            logger.error("Error while querying the time series...", e);
+            return;
+        }
+
+        if (!result.isEmpty() || this.options.emitOnEmptyResult()) {
+            this.wireSupport.emit(Collections.unmodifiableList(result));
+        }
+    }
+
+    static List<WireRecord> query(final TimeSeriesDatabase database, final TimeSeriesWireRecordFilterOptions options,
+            final long now) throws IOException {
+        final Resolution resolution = options.getResolution();
+        final int maxRecords = options.getMaxRecords();
+        final long from = now - TimeUnit.SECONDS.toMillis(options.getQueryRange());
+
+        final Collection<String> seriesNames = options.getSeriesNames().isEmpty() ? database.getSeriesNames()
+                : options.getSeriesNames();
+
+        final List<WireRecord> result = new ArrayList<>();
+        for (final String name : seriesNames) {
+            final TypedValue<String> series = TypedValues.newStringValue(name);
+            final boolean completed = database.query(name, resolution, from, now, (timestamp, values, text) -> {
+                final Map<String, TypedValue<?>> properties = new HashMap<>();
+                properties.put(TIMESTAMP, TypedValues.newLongValue(timestamp));
+                properties.put(SERIES, series);
+                if (text != null) {
+                    properties.put(VALUE, TypedValues.newStringValue(text));
+                } else if (resolution == Resolution.RAW) {
+                    properties.put(VALUE, TypedValues.newDoubleValue(values[0]));
+                } else {
+                    properties.put(MIN, TypedValues.newDoubleValue(values[0]));
+                    properties.put(MAX, TypedValues.newDoubleValue(values[1]));
+                    properties.put(AVG, TypedValues.newDoubleValue(values[2]));
+                    properties.put(COUNT, TypedValues.newLongValue((long) values[3]));
+                }
+                result.add(new WireRecord(properties));
+                return result.size() < maxRecords;
+            });
+            if (!completed) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private void openDatabase() {
+        try {
+            this.database = TimeSeriesDatabase.acquire(Paths.get(this.options.getStorageDirectory()));
+        } catch (final IOException e) {
+            throw new ComponentException("Failed to open the time series storage", e);
+        }
+    }
+
+    private void closeDatabase() {
+        if (this.database != null) {
+            this.database.release();
+            this.database = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void consumersConnected(final Wire[] wires) {
+        this.wireSupport.consumersConnected(wires);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object polled(final Wire wire) {
+        return this.wireSupport.polled(wire);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void producersConnected(final Wire[] wires) {
+        this.wireSupport.producersConnected(wires);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void updated(final Wire wire, final Object value) {
+        this.wireSupport.updated(wire, value);
+    }
+}
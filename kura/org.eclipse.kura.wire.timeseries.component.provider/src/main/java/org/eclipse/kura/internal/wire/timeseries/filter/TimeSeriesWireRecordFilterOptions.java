@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.filter;
+
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.eclipse.kura.internal.wire.timeseries.storage.Resolution;
+
+/**
+ * The Class TimeSeriesWireRecordFilterOptions is responsible to contain all the Time Series Wire Record Filter related
+ * options
+ */
+final class TimeSeriesWireRecordFilterOptions {
+
+    private static final String DEFAULT_STORAGE_DIRECTORY = "/opt/eclipse/kura/data/timeseries";
+
+    private static final String STORAGE_DIRECTORY = "storage.directory";
+
+    private static final String SERIES_NAMES = "series.names";
+
+    private static final String RESOLUTION = "resolution";
+
+    private static final String QUERY_RANGE = "query.range";
+
+    private static final String MAX_RECORDS = "max.records";
+
+    private static final String EMIT_ON_EMPTY_RESULT = "emit.on.empty.result";
+
+    private static final int DEFAULT_QUERY_RANGE = 3600;
+
+    private static final int DEFAULT_MAX_RECORDS = 1000;
+
+    private final Map<String, Object> properties;
+
+    /**
+     * Instantiates a new time series wire record filter options.
+     *
+     * @param properties
+     *            the provided properties
+     */
+    TimeSeriesWireRecordFilterOptions(final Map<String, Object> properties) {
+        requireNonNull(properties, "Properties cannot be null");
+        this.properties = Collections.unmodifiableMap(new HashMap<>(properties));
+    }
+
+    String getStorageDirectory() {
+        String directory = DEFAULT_STORAGE_DIRECTORY;
+        final Object configured = this.properties.get(STORAGE_DIRECTORY);
+        if (nonNull(configured) && configured instanceof String && !((String) configured).trim().isEmpty()) {
+            directory = ((String) configured).trim();
+        }
+        return directory;
+    }
+
+    /**
+     * Returns the names of the series to be queried.
+     *
+     * @return the configured series names, an empty list to query all the series
+     */
+    List<String> getSeriesNames() {
+        final Object names = this.properties.get(SERIES_NAMES);
+        if (nonNull(names) && names instanceof String) {
+            return Arrays.stream(((String) names).split(",")).map(String::trim).filter(s -> !s.isEmpty())
+                    .collect(Collectors.toList());
+        }
+        return Collections.emptyList();
+    }
+
+    Resolution getResolution() {
+        Resolution resolution = Resolution.RAW;
+        final Object configured = this.properties.get(RESOLUTION);
+        if (nonNull(configured) && configured instanceof String) {
+            try {
+                resolution = Resolution.valueOf((String) configured);
+            } catch (final IllegalArgumentException e) {
+                // use the default
+            }
+        }
+        return resolution;
+    }
+
+    /**
+     * Returns the length in seconds of the queried time range, that ends at the time the query is performed.
+     *
+     * @return the query range in seconds
+     */
+    int getQueryRange() {
+        int queryRange = DEFAULT_QUERY_RANGE;
+        final Object range = this.properties.get(QUERY_RANGE);
+        if (nonNull(range) && range instanceof Integer) {
+            queryRange = Math.max(1, (Integer) range);
+        }
+        return queryRange;
+    }
+
+    int getMaxRecords() {
+        int maxRecords = DEFAULT_MAX_RECORDS;
+        final Object max = this.properties.get(MAX_RECORDS);
+        if (nonNull(max) && max instanceof Integer) {
+            maxRecords = Math.max(1, (Integer) max);
+        }
+        return maxRecords;
+    }
+
+    boolean emitOnEmptyResult() {
+        boolean result = true;
+        final Object emitOnEmptyResult = this.properties.get(EMIT_ON_EMPTY_RESULT);
+        if (nonNull(emitOnEmptyResult) && emitOnEmptyResult instanceof Boolean) {
+            result = (Boolean) emitOnEmptyResult;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a stream of bits written by a {@link BitWriter}.
+ */
+final class BitReader {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private long position;
+
+    /**
+     * @param buffer
+     *            the buffer containing the bits
+     * @param offset
+     *            the absolute index of the first byte of the stream in the buffer
+     */
+    BitReader(final ByteBuffer buffer, final int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * Reads an unsigned value.
+     *
+     * @param count
+     *            the number of bits to read, from 0 to 64
+     * @return the value
+     */
+    long readBits(final int count) {
+        long result = 0;
+        int remaining = count;
+        while (remaining > 0) {
+            final int available = 8 - (int) (this.position & 7);
+            final int n = Math.min(available, remaining);
+            final int b = this.buffer.get(this.offset + (int) (this.position >>> 3)) & 0xff;
+            result = result << n | (b >>> (available - n)) & ((1 << n) - 1);
+            this.position += n;
+            remaining -= n;
+        }
+        return result;
+    }
+
+    /**
+     * Reads a value written in two's complement.
+     *
+     * @param count
+     *            the number of bits to read, from 1 to 64
+     * @return the sign extended value
+     */
+    long readSignedBits(final int count) {
+        final long value = readBits(count);
+        return count == 64 ? value : value << (64 - count) >> (64 - count);
+    }
+}
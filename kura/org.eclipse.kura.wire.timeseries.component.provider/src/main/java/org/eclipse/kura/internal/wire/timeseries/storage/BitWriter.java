@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import java.util.Arrays;
+
+/**
+ * Writes a stream of bits, most significant bit first, in a growable buffer.
+ */
+final class BitWriter {
+
+    private byte[] buffer;
+    private long bitLength;
+
+    BitWriter(final int initialCapacity) {
+        this.buffer = new byte[Math.max(1, initialCapacity)];
+    }
+
+    void writeBit(final boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes the lowest bits of the provided value.
+     *
+     * @param value
+     *            the value
+     * @param count
+     *            the number of bits to write, from 0 to 64
+     */
+    void writeBits(final long value, final int count) {
+        ensureCapacity(this.bitLength + count);
+
+        int remaining = count;
+        while (remaining > 0) {
+            final int byteIndex = (int) (this.bitLength >>> 3);
+            final int free = 8 - (int) (this.bitLength & 7);
+            final int n = Math.min(free, remaining);
+            final int bits = (int) (value >>> (remaining - n)) & ((1 << n) - 1);
+            this.buffer[byteIndex] |= (byte) (bits << (free - n));
+            this.bitLength += n;
+            remaining -= n;
+        }
+    }
+
+    int getByteLength() {
+        return (int) ((this.bitLength + 7) >>> 3);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, getByteLength());
+    }
+
+    private void ensureCapacity(final long bits) {
+        final long bytes = (bits + 7) >>> 3;
+        if (bytes > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, (int) Math.max(bytes, this.buffer.length * 2L));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decompresses a block written by a {@link BlockEncoder}.
+ */
+final class BlockDecoder {
+
+    private static final double[] NO_VALUES = new double[0];
+
+    private BlockDecoder() {
+    }
+
+    static long getFirstTimestamp(final ByteBuffer buffer, final int offset) {
+        return buffer.getLong(offset);
+    }
+
+    static long getLastTimestamp(final ByteBuffer buffer, final int offset) {
+        return buffer.getLong(offset + 8);
+    }
+
+    /**
+     * Visits the points of the block in the provided time range.
+     *
+     * @param buffer
+     *            the buffer containing the block
+     * @param offset
+     *            the absolute index of the block in the buffer
+     * @param from
+     *            the start of the time range, inclusive
+     * @param to
+     *            the end of the time range, inclusive
+     * @param visitor
+     *            the visitor
+     * @return false if the visitor stopped the query
+     */
+    static boolean decode(final ByteBuffer buffer, final int offset, final long from, final long to,
+            final PointVisitor visitor) {
+        final long firstTimestamp = buffer.getLong(offset);
+        final long lastTimestamp = buffer.getLong(offset + 8);
+        final int count = buffer.getInt(offset + 16);
+        final int columns = buffer.get(offset + 20);
+        final int bitsLength = buffer.getInt(offset + 21);
+
+        if (count == 0 || lastTimestamp < from && firstTimestamp < from || firstTimestamp > to && lastTimestamp > to) {
+            return true;
+        }
+
+        final String[] dictionary = columns == 0 ? readDictionary(buffer, offset + BlockEncoder.HEADER_SIZE + bitsLength)
+                : null;
+        final BitReader bits = new BitReader(buffer, offset + BlockEncoder.HEADER_SIZE);
+        final double[] values = columns == 0 ? NO_VALUES : new double[columns];
+        final long[] lastValues = new long[columns];
+        final int[] lastLeadingZeros = new int[columns];
+        final int[] lastTrailingZeros = new int[columns];
+
+        long timestamp = firstTimestamp;
+        long delta = 0;
+        int dictionarySize = 0;
+        String text = null;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                delta += readDeltaOfDelta(bits);
+                timestamp += delta;
+            }
+
+            if (columns == 0) {
+                if (bits.readBit()) {
+                    final int index = (int) bits.readBits(BlockEncoder.getIndexWidth(dictionarySize));
+                    if (index == dictionarySize) {
+                        dictionarySize++;
+                    }
+                    text = dictionary[index];
+                }
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    lastValues[c] = readValue(bits, i, c, lastValues, lastLeadingZeros, lastTrailingZeros);
+                    values[c] = Double.longBitsToDouble(lastValues[c]);
+                }
+            }
+
+            if (timestamp >= from && timestamp <= to && !visitor.visit(timestamp, values, text)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long readDeltaOfDelta(final BitReader bits) {
+        if (!bits.readBit()) {
+            return 0;
+        } else if (!bits.readBit()) {
+            return bits.readSignedBits(7);
+        } else if (!bits.readBit()) {
+            return bits.readSignedBits(9);
+        } else if (!bits.readBit()) {
+            return bits.readSignedBits(12);
+        } else {
+            return bits.readBits(64);
+        }
+    }
+
+    private static long readValue(final BitReader bits, final int index, final int column, final long[] lastValues,
+            final int[] lastLeadingZeros, final int[] lastTrailingZeros) {
+        if (index == 0) {
+            return bits.readBits(64);
+        }
+        if (!bits.readBit()) {
+            return lastValues[column];
+        }
+        if (bits.readBit()) {
+            lastLeadingZeros[column] = (int) bits.readBits(5);
+            final int significantBits = (int) bits.readBits(6) + 1;
+            lastTrailingZeros[column] = 64 - lastLeadingZeros[column] - significantBits;
+        }
+        final int significantBits = 64 - lastLeadingZeros[column] - lastTrailingZeros[column];
+        return lastValues[column] ^ bits.readBits(significantBits) << lastTrailingZeros[column];
+    }
+
+    private static String[] readDictionary(final ByteBuffer buffer, final int offset) {
+        final String[] dictionary = new String[buffer.getInt(offset)];
+        int position = offset + 4;
+        for (int i = 0; i < dictionary.length; i++) {
+            final int length = buffer.getInt(position);
+            final byte[] bytes = new byte[length];
+            for (int j = 0; j < length; j++) {
+                bytes[j] = buffer.get(position + 4 + j);
+            }
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+        return dictionary;
+    }
+}
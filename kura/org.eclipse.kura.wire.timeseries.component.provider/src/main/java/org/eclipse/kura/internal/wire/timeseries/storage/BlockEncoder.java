@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compresses a block of points of a series.
+ * <p>
+ * Timestamps are stored as the difference between consecutive deltas, which is zero or very small for periodic
+ * samples. Each numeric column is stored as the XOR with the previous value of the same column, writing only the bits
+ * that changed. Text values are replaced by an index in a dictionary stored at the end of the block; a value equal to
+ * the previous one takes a single bit.
+ * <p>
+ * The block layout is:
+ *
+ * <pre>
+ * long  first timestamp
+ * long  last timestamp
+ * int   point count
+ * byte  numeric column count, 0 for a text series
+ * int   bit stream length in bytes
+ * byte* bit stream
+ * int   dictionary size, only for a text series
+ * (int length, byte* UTF-8)* dictionary entries
+ * </pre>
+ */
+final class BlockEncoder {
+
+    static final int HEADER_SIZE = 25;
+
+    private final int columns;
+    private final BitWriter bits = new BitWriter(256);
+
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+
+    private final long[] lastValues;
+    private final int[] lastLeadingZeros;
+    private final int[] lastTrailingZeros;
+
+    private final Map<String, Integer> dictionaryIndexes = new HashMap<>();
+    private final List<byte[]> dictionary = new ArrayList<>();
+    private int dictionaryBytes;
+    private String lastText;
+
+    /**
+     * @param columns
+     *            the number of numeric values of each point, 0 for a text series
+     */
+    BlockEncoder(final int columns) {
+        this.columns = columns;
+        this.lastValues = new long[columns];
+        this.lastLeadingZeros = new int[columns];
+        this.lastTrailingZeros = new int[columns];
+    }
+
+    int getCount() {
+        return this.count;
+    }
+
+    long getFirstTimestamp() {
+        return this.firstTimestamp;
+    }
+
+    int getEncodedSize() {
+        return HEADER_SIZE + this.bits.getByteLength()
+                + (this.columns == 0 ? 4 + 4 * this.dictionary.size() + this.dictionaryBytes : 0);
+    }
+
+    void append(final long timestamp, final double[] values) {
+        writeTimestamp(timestamp);
+        for (int i = 0; i < this.columns; i++) {
+            writeValue(i, Double.doubleToRawLongBits(values[i]));
+        }
+        this.count++;
+    }
+
+    void append(final long timestamp, final String value) {
+        final String text = value != null ? value : "";
+        writeTimestamp(timestamp);
+        if (this.count > 0 && text.equals(this.lastText)) {
+            this.bits.writeBit(false);
+        } else {
+            this.bits.writeBit(true);
+            final int dictionarySize = this.dictionary.size();
+            Integer index = this.dictionaryIndexes.get(text);
+            if (index == null) {
+                index = dictionarySize;
+                this.dictionaryIndexes.put(text, index);
+                final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                this.dictionary.add(bytes);
+                this.dictionaryBytes += bytes.length;
+            }
+            // the index equal to the dictionary size introduces a new entry
+            this.bits.writeBits(index, getIndexWidth(dictionarySize));
+            this.lastText = text;
+        }
+        this.count++;
+    }
+
+    byte[] encode() {
+        final ByteBuffer buffer = ByteBuffer.allocate(getEncodedSize());
+        buffer.putLong(this.firstTimestamp);
+        buffer.putLong(this.lastTimestamp);
+        buffer.putInt(this.count);
+        buffer.put((byte) this.columns);
+        buffer.putInt(this.bits.getByteLength());
+        buffer.put(this.bits.toByteArray());
+        if (this.columns == 0) {
+            buffer.putInt(this.dictionary.size());
+            for (final byte[] entry : this.dictionary) {
+                buffer.putInt(entry.length);
+                buffer.put(entry);
+            }
+        }
+        return buffer.array();
+    }
+
+    static int getIndexWidth(final int dictionarySize) {
+        return 32 - Integer.numberOfLeadingZeros(dictionarySize);
+    }
+
+    private void writeTimestamp(final long timestamp) {
+        if (this.count == 0) {
+            this.firstTimestamp = timestamp;
+        } else {
+            final long delta = timestamp - this.lastTimestamp;
+            final long deltaOfDelta = delta - this.lastDelta;
+            if (deltaOfDelta == 0) {
+                this.bits.writeBit(false);
+            } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+                this.bits.writeBits(0b10, 2);
+                this.bits.writeBits(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+                this.bits.writeBits(0b110, 3);
+                this.bits.writeBits(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+                this.bits.writeBits(0b1110, 4);
+                this.bits.writeBits(deltaOfDelta, 12);
+            } else {
+                this.bits.writeBits(0b1111, 4);
+                this.bits.writeBits(deltaOfDelta, 64);
+            }
+            this.lastDelta = delta;
+        }
+        this.lastTimestamp = timestamp;
+    }
+
+    private void writeValue(final int column, final long value) {
+        if (this.count == 0) {
+            this.bits.writeBits(value, 64);
+            this.lastLeadingZeros[column] = -1;
+        } else {
+            final long xor = value ^ this.lastValues[column];
+            if (xor == 0) {
+                this.bits.writeBit(false);
+            } else {
+                this.bits.writeBit(true);
+                final int leadingZeros = Math.min(31, Long.numberOfLeadingZeros(xor));
+                final int trailingZeros = Long.numberOfTrailingZeros(xor);
+                final int lastLeading = this.lastLeadingZeros[column];
+                final int lastTrailing = this.lastTrailingZeros[column];
+                if (lastLeading >= 0 && leadingZeros >= lastLeading && trailingZeros >= lastTrailing) {
+                    // the changed bits fit in the window of the previous value
+                    this.bits.writeBit(false);
+                    this.bits.writeBits(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+                } else {
+                    final int significantBits = 64 - leadingZeros - trailingZeros;
+                    this.bits.writeBit(true);
+                    this.bits.writeBits(leadingZeros, 5);
+                    this.bits.writeBits(significantBits - 1L, 6);
+                    this.bits.writeBits(xor >>> trailingZeros, significantBits);
+                    this.lastLeadingZeros[column] = leadingZeros;
+                    this.lastTrailingZeros[column] = trailingZeros;
+                }
+            }
+        }
+        this.lastValues[column] = value;
+    }
+}
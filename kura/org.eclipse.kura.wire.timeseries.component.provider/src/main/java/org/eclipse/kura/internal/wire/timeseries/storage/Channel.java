@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The series of a named channel: the raw samples and, for a numeric channel, the minute and hour rollups.
+ * <p>
+ * A rollup is appended when the first sample of the following interval is received, the interval in progress is kept
+ * in memory only. When the channel is opened it is rebuilt from the raw samples already written to the segments.
+ */
+final class Channel {
+
+    private static final Logger logger = LogManager.getLogger(Channel.class);
+
+    static final int ROLLUP_COLUMNS = 4;
+
+    private final boolean numeric;
+    private final Series raw;
+    private final Map<Resolution, Rollup> rollups = new EnumMap<>(Resolution.class);
+    private final double[] rawPoint = new double[1];
+
+    private Channel(final Path directory, final boolean numeric, final int segmentCapacity) {
+        this.numeric = numeric;
+        this.raw = new Series(directory.resolve(Resolution.RAW.name()), numeric ? 1 : 0, segmentCapacity);
+        if (numeric) {
+            for (final Resolution resolution : Resolution.values()) {
+                if (resolution != Resolution.RAW) {
+                    this.rollups.put(resolution, new Rollup(resolution,
+                            new Series(directory.resolve(resolution.name()), ROLLUP_COLUMNS, segmentCapacity)));
+                }
+            }
+            restoreRollups(directory);
+        }
+    }
+
+    static Channel numeric(final Path directory, final int segmentCapacity) {
+        return new Channel(directory, true, segmentCapacity);
+    }
+
+    static Channel text(final Path directory, final int segmentCapacity) {
+        return new Channel(directory, false, segmentCapacity);
+    }
+
+    boolean isNumeric() {
+        return this.numeric;
+    }
+
+    synchronized void append(final long timestamp, final double value) throws IOException {
+        this.rawPoint[0] = value;
+        this.raw.append(timestamp, this.rawPoint);
+        for (final Rollup rollup : this.rollups.values()) {
+            rollup.add(timestamp, value);
+        }
+    }
+
+    void append(final long timestamp, final String text) throws IOException {
+        this.raw.append(timestamp, text);
+    }
+
+    /**
+     * Returns the series of the provided resolution, null if the channel has no such series.
+     */
+    Series getSeries(final Resolution resolution) {
+        return resolution == Resolution.RAW ? this.raw
+                : this.rollups.containsKey(resolution) ? this.rollups.get(resolution).series : null;
+    }
+
+    void flush() throws IOException {
+        this.raw.flush();
+        for (final Rollup rollup : this.rollups.values()) {
+            rollup.series.flush();
+        }
+    }
+
+    void deleteOlderThan(final long rawTimestamp, final long rollupTimestamp) throws IOException {
+        this.raw.deleteOlderThan(rawTimestamp);
+        for (final Rollup rollup : this.rollups.values()) {
+            rollup.series.deleteOlderThan(rollupTimestamp);
+        }
+    }
+
+    private void restoreRollups(final Path directory) {
+        try {
+            final long lastTimestamp = this.raw.getLastTimestamp();
+            if (lastTimestamp == Long.MIN_VALUE) {
+                return;
+            }
+            // the interval of the last sample is the only one that has not been appended yet
+            for (final Rollup rollup : this.rollups.values()) {
+                this.raw.query(rollup.resolution.getStart(lastTimestamp), lastTimestamp, (timestamp, values, text) -> {
+                    rollup.accumulate(rollup.resolution.getStart(timestamp), values[0]);
+                    return true;
+                });
+            }
+        } catch (final IOException e) {
+            logger.warn("Failed to restore the rollups in progress of {}", directory, e);
+        }
+    }
+
+    void close() throws IOException {
+        this.raw.close();
+        for (final Rollup rollup : this.rollups.values()) {
+            rollup.series.close();
+        }
+    }
+
+    private static final class Rollup {
+
+        private final Resolution resolution;
+        private final Series series;
+        private final double[] point = new double[ROLLUP_COLUMNS];
+
+        private long start;
+        private long count;
+        private double min;
+        private double max;
+        private double sum;
+
+        Rollup(final Resolution resolution, final Series series) {
+            this.resolution = resolution;
+            this.series = series;
+        }
+
+        void add(final long timestamp, final double value) throws IOException {
+            final long intervalStart = this.resolution.getStart(timestamp);
+            if (this.count > 0 && intervalStart != this.start) {
+                this.point[0] = this.min;
+                this.point[1] = this.max;
+                this.point[2] = this.sum / this.count;
+                this.point[3] = this.count;
+                this.series.append(this.start, this.point);
+                this.count = 0;
+            }
+            accumulate(intervalStart, value);
+        }
+
+        void accumulate(final long intervalStart, final double value) {
+            if (this.count == 0) {
+                this.start = intervalStart;
+                this.min = value;
+                this.max = value;
+                this.sum = 0;
+            }
+            this.min = Math.min(this.min, value);
+            this.max = Math.max(this.max, value);
+            this.sum += value;
+            this.count++;
+        }
+    }
+}
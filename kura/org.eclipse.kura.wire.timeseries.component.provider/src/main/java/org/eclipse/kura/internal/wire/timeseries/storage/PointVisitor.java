@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+/**
+ * Receives the points returned by a query on a {@link TimeSeriesDatabase}.
+ */
+@FunctionalInterface
+public interface PointVisitor {
+
+    /**
+     * Visits a point.
+     *
+     * @param timestamp
+     *            the timestamp of the point in milliseconds since the epoch, for a rollup the start of its interval
+     * @param values
+     *            the numeric values of the point: a single value for a raw point, or the minimum, maximum, average and
+     *            number of samples for a rollup. The array is reused for the following points and is empty for a text
+     *            point.
+     * @param text
+     *            the value of a text point, null for a numeric point
+     * @return true to continue the query, false to stop it
+     */
+    boolean visit(long timestamp, double[] values, String text);
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The resolution of the points stored in a {@link TimeSeriesDatabase}: the samples as received, or the rollups
+ * computed over an interval.
+ */
+public enum Resolution {
+
+    RAW(0),
+    MINUTE(TimeUnit.MINUTES.toMillis(1)),
+    HOUR(TimeUnit.HOURS.toMillis(1));
+
+    private final long length;
+
+    private Resolution(final long length) {
+        this.length = length;
+    }
+
+    /**
+     * Returns the start of the rollup interval containing the provided timestamp.
+     *
+     * @param timestamp
+     *            the timestamp in milliseconds since the epoch
+     * @return the start of the interval in milliseconds since the epoch
+     */
+    long getStart(final long timestamp) {
+        return this.length == 0 ? timestamp : timestamp - Math.floorMod(timestamp, this.length);
+    }
+}
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A memory mapped file containing a sequence of blocks of a series.
+ * <p>
+ * The file is created with a fixed capacity and the blocks are appended until it is full. The header records the time
+ * range of the blocks and the end of the written data, which is updated after each block is written. The queries read
+ * the header first and only map the written data of the segments overlapping the requested time range.
+ *
+ * <pre>
+ * int   magic
+ * byte  version
+ * byte  numeric column count
+ * short reserved
+ * long  first timestamp
+ * long  last timestamp
+ * int   end of the written data
+ * int   reserved
+ * (int length, byte* block)*
+ * </pre>
+ */
+final class Segment {
+
+    private static final Logger logger = LogManager.getLogger(Segment.class);
+
+    static final String FILE_EXTENSION = ".seg";
+
+    static final int HEADER_SIZE = 32;
+
+    private static final int MAGIC = 0x4b545331;
+
+    private static final byte VERSION = 1;
+
+    private static final int FIRST_TIMESTAMP_OFFSET = 8;
+
+    private static final int LAST_TIMESTAMP_OFFSET = 16;
+
+    private static final int END_OFFSET = 24;
+
+    private final Path file;
+
+    private final MappedByteBuffer buffer;
+
+    private Segment(final Path file, final MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a new segment file.
+     *
+     * @param file
+     *            the file, which must not exist
+     * @param columns
+     *            the number of numeric values of each point, 0 for a text series
+     * @param capacity
+     *            the size of the file in bytes
+     * @return the segment
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    static Segment create(final Path file, final int columns, final int capacity) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            final MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+            buffer.putInt(0, MAGIC);
+            buffer.put(4, VERSION);
+            buffer.put(5, (byte) columns);
+            buffer.putLong(FIRST_TIMESTAMP_OFFSET, Long.MAX_VALUE);
+            buffer.putLong(LAST_TIMESTAMP_OFFSET, Long.MIN_VALUE);
+            buffer.putInt(END_OFFSET, HEADER_SIZE);
+            return new Segment(file, buffer);
+        }
+    }
+
+    /**
+     * Opens an existing segment file to append blocks.
+     *
+     * @param file
+     *            the file
+     * @return the segment
+     * @throws IOException
+     *             if the file cannot be opened or is not a valid segment
+     */
+    static Segment open(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            final MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, channel.size());
+            checkHeader(file, buffer, buffer.limit());
+            return new Segment(file, buffer);
+        }
+    }
+
+    /**
+     * Visits the points of a segment file in the provided time range.
+     *
+     * @return false if the visitor stopped the query
+     * @throws IOException
+     *             if the file cannot be read or is not a valid segment
+     */
+    static boolean read(final Path file, final long from, final long to, final PointVisitor visitor)
+            throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, READ)) {
+            final ByteBuffer header = readHeader(file, channel);
+            if (!overlaps(header, from, to)) {
+                return true;
+            }
+
+            final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, header.getInt(END_OFFSET));
+            try {
+                return read(buffer, from, to, visitor);
+            } finally {
+                unmap(buffer);
+            }
+        }
+    }
+
+    /**
+     * Returns the timestamp of the last point of a segment file, without mapping it.
+     *
+     * @throws IOException
+     *             if the file cannot be read or is not a valid segment
+     */
+    static long readLastTimestamp(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, READ)) {
+            return readHeader(file, channel).getLong(LAST_TIMESTAMP_OFFSET);
+        }
+    }
+
+    Path getFile() {
+        return this.file;
+    }
+
+    /**
+     * Appends a block, if there is room for it.
+     *
+     * @param block
+     *            the block produced by a {@link BlockEncoder}
+     * @return false if the segment is full
+     */
+    boolean append(final byte[] block) {
+        final int end = this.buffer.getInt(END_OFFSET);
+        if ((long) end + 4 + block.length > this.buffer.capacity()) {
+            return false;
+        }
+
+        final ByteBuffer target = this.buffer.duplicate();
+        target.position(end);
+        target.putInt(block.length);
+        target.put(block);
+
+        final ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+        this.buffer.putLong(FIRST_TIMESTAMP_OFFSET, Math.min(this.buffer.getLong(FIRST_TIMESTAMP_OFFSET),
+                BlockDecoder.getFirstTimestamp(blockBuffer, 0)));
+        this.buffer.putLong(LAST_TIMESTAMP_OFFSET,
+                Math.max(this.buffer.getLong(LAST_TIMESTAMP_OFFSET), BlockDecoder.getLastTimestamp(blockBuffer, 0)));
+        // written last, a block is visible only when complete
+        this.buffer.putInt(END_OFFSET, end + 4 + block.length);
+        return true;
+    }
+
+    boolean read(final long from, final long to, final PointVisitor visitor) {
+        return read(this.buffer, from, to, visitor);
+    }
+
+    void force() {
+        this.buffer.force();
+    }
+
+    /**
+     * Writes the appended blocks to the file and unmaps it. The segment cannot be used afterwards.
+     */
+    void close() {
+        this.buffer.force();
+        unmap(this.buffer);
+    }
+
+    private static boolean overlaps(final ByteBuffer header, final long from, final long to) {
+        return header.getLong(FIRST_TIMESTAMP_OFFSET) <= to && header.getLong(LAST_TIMESTAMP_OFFSET) >= from;
+    }
+
+    private static boolean read(final ByteBuffer buffer, final long from, final long to, final PointVisitor visitor) {
+        if (!overlaps(buffer, from, to)) {
+            return true;
+        }
+
+        final int end = buffer.getInt(END_OFFSET);
+        int position = HEADER_SIZE;
+        while (position < end) {
+            final int length = buffer.getInt(position);
+            if (!BlockDecoder.decode(buffer, position + 4, from, to, visitor)) {
+                return false;
+            }
+            position += 4 + length;
+        }
+        return true;
+    }
+
+    private static ByteBuffer readHeader(final Path file, final FileChannel channel) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Invalid time series segment " + file);
+            }
+        }
+        checkHeader(file, header, channel.size());
+        return header;
+    }
+
+    /**
+     * Releases the mapping without waiting for the garbage collection of the buffer, that would keep the address
+     * space and the file handle of every segment read by a query.
+     */
+    private static void unmap(final MappedByteBuffer buffer) {
+        try {
+            // Java 9 and later
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe", false, null);
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (final NoSuchMethodException e) {
+            unmapWithCleaner(buffer);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Cannot unmap segment, it will be unmapped when garbage collected", e);
+        }
+    }
+
+    private static void unmapWithCleaner(final MappedByteBuffer buffer) {
+        try {
+            final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Cannot unmap segment, it will be unmapped when garbage collected", e);
+        }
+    }
+
+    private static void checkHeader(final Path file, final ByteBuffer header, final long fileSize)
+            throws IOException {
+        if (fileSize < HEADER_SIZE || header.getInt(0) != MAGIC || header.get(4) != VERSION
+                || header.getInt(END_OFFSET) > fileSize) {
+            throw new IOException("Invalid time series segment " + file);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A sequence of points stored in the segment files of a directory.
+ * <p>
+ * The points are accumulated in an open block, that is compressed and appended to the last segment when it is full
+ * or when the series is flushed. Segments are named after the timestamp of their first block and are never
+ * modified once a new segment has been started, so that the retention can delete whole files. The segment being written
+ * is forced to the storage when it is completed, when the series is closed and at most every
+ * {@value #FORCE_INTERVAL_SECONDS} seconds, not on every flush.
+ */
+final class Series {
+
+    static final int MAX_BLOCK_POINTS = 1024;
+
+    private static final long FORCE_INTERVAL_SECONDS = 60;
+
+    private static final Logger logger = LogManager.getLogger(Series.class);
+
+    private final Path directory;
+    private final int columns;
+    private final int segmentCapacity;
+
+    private Segment current;
+    private BlockEncoder block;
+    private long lastForceNanos = System.nanoTime();
+
+    /**
+     * @param directory
+     *            the directory of the segment files, created on the first flush
+     * @param columns
+     *            the number of numeric values of each point, 0 for a text series
+     * @param segmentCapacity
+     *            the size of the segment files in bytes
+     */
+    Series(final Path directory, final int columns, final int segmentCapacity) {
+        this.directory = directory;
+        this.columns = columns;
+        this.segmentCapacity = segmentCapacity;
+    }
+
+    synchronized void append(final long timestamp, final double[] values) throws IOException {
+        getBlock().append(timestamp, values);
+        if (this.block.getCount() >= MAX_BLOCK_POINTS) {
+            flush();
+        }
+    }
+
+    synchronized void append(final long timestamp, final String text) throws IOException {
+        getBlock().append(timestamp, text);
+        if (this.block.getCount() >= MAX_BLOCK_POINTS) {
+            flush();
+        }
+    }
+
+    synchronized void flush() throws IOException {
+        if (this.block == null) {
+            return;
+        }
+
+        final byte[] encoded = this.block.encode();
+        final long firstTimestamp = this.block.getFirstTimestamp();
+        this.block = null;
+
+        if (this.current == null) {
+            this.current = openLastSegment();
+        }
+        if (this.current == null || !this.current.append(encoded)) {
+            if (this.current != null) {
+                this.current.close();
+            }
+            this.current = Segment.create(newSegmentFile(firstTimestamp), this.columns,
+                    Math.max(this.segmentCapacity, Segment.HEADER_SIZE + 4 + encoded.length));
+            this.current.append(encoded);
+        }
+
+        final long now = System.nanoTime();
+        if (now - this.lastForceNanos >= TimeUnit.SECONDS.toNanos(FORCE_INTERVAL_SECONDS)) {
+            this.current.force();
+            this.lastForceNanos = now;
+        }
+    }
+
+    /**
+     * Returns the timestamp of the last point written to the segments, {@link Long#MIN_VALUE} if there is none.
+     *
+     * @throws IOException
+     *             if the last segment cannot be read
+     */
+    synchronized long getLastTimestamp() throws IOException {
+        final List<Path> segments = listSegments();
+        return segments.isEmpty() ? Long.MIN_VALUE : Segment.readLastTimestamp(segments.get(segments.size() - 1));
+    }
+
+    /**
+     * Visits the points in the provided time range, including the ones not flushed yet, in the order they were
+     * appended.
+     *
+     * @return false if the visitor stopped the query
+     * @throws IOException
+     *             if a segment cannot be read
+     */
+    synchronized boolean query(final long from, final long to, final PointVisitor visitor) throws IOException {
+        for (final Path file : listSegments()) {
+            final boolean proceed;
+            if (this.current != null && file.equals(this.current.getFile())) {
+                proceed = this.current.read(from, to, visitor);
+            } else {
+                proceed = Segment.read(file, from, to, visitor);
+            }
+            if (!proceed) {
+                return false;
+            }
+        }
+
+        if (this.block != null) {
+            return BlockDecoder.decode(ByteBuffer.wrap(this.block.encode()), 0, from, to, visitor);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the segments whose points are all older than the provided timestamp. The segment being written is
+     * retained.
+     *
+     * @throws IOException
+     *             if the directory cannot be listed
+     */
+    synchronized void deleteOlderThan(final long timestamp) throws IOException {
+        for (final Path file : listSegments()) {
+            if (this.current != null && file.equals(this.current.getFile())) {
+                continue;
+            }
+            try {
+                if (Segment.readLastTimestamp(file) < timestamp) {
+                    Files.delete(file);
+                }
+            } catch (final IOException e) {
+                logger.warn("Failed to apply the retention to {}", file, e);
+            }
+        }
+    }
+
+    synchronized void close() throws IOException {
+        flush();
+        if (this.current != null) {
+            this.current.close();
+            this.current = null;
+        }
+    }
+
+    private BlockEncoder getBlock() {
+        if (this.block == null) {
+            this.block = new BlockEncoder(this.columns);
+        }
+        return this.block;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(this.directory)) {
+            return Collections.emptyList();
+        }
+        try (final Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(Segment.FILE_EXTENSION)).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Segment openLastSegment() throws IOException {
+        final List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            return null;
+        }
+        final Path last = segments.get(segments.size() - 1);
+        try {
+            return Segment.open(last);
+        } catch (final IOException e) {
+            logger.warn("Failed to open {}, starting a new segment", last, e);
+            return null;
+        }
+    }
+
+    private Path newSegmentFile(final long firstTimestamp) throws IOException {
+        Files.createDirectories(this.directory);
+        long name = Math.max(0, firstTimestamp);
+        Path file;
+        do {
+            file = this.directory.resolve(String.format("%020d%s", name++, Segment.FILE_EXTENSION));
+        } while (Files.exists(file));
+        return file;
+    }
+}
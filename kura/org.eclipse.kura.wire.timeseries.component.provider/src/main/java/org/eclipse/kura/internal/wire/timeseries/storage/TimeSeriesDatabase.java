@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A columnar time series database stored in a directory.
+ * <p>
+ * Each channel is stored in its own sub directory, as a series of compressed blocks in memory mapped segment files.
+ * Numeric channels also maintain the minimum, maximum and average of their samples per minute and per hour, that can
+ * be queried without decoding the raw samples.
+ * <p>
+ * The instances are shared by the components using the same directory: {@link #acquire(Path)} returns the instance
+ * of a directory, that is closed when all the acquirers have called {@link #release()}.
+ */
+public final class TimeSeriesDatabase {
+
+    private static final Logger logger = LogManager.getLogger(TimeSeriesDatabase.class);
+
+    private static final String NUMERIC_SUFFIX = ".num";
+    private static final String TEXT_SUFFIX = ".txt";
+    private static final int SEGMENT_CAPACITY = 1 << 20;
+
+    private static final Map<Path, TimeSeriesDatabase> instances = new HashMap<>();
+
+    private final Path directory;
+    private final Map<String, Channel> numericChannels = new ConcurrentHashMap<>();
+    private final Map<String, Channel> textChannels = new ConcurrentHashMap<>();
+    private int references;
+
+    private TimeSeriesDatabase(final Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the database stored in the provided directory, opening it if needed.
+     *
+     * @param directory
+     *            the directory, created if it does not exist
+     * @return the database
+     * @throws IOException
+     *             if the directory cannot be created or listed
+     */
+    public static synchronized TimeSeriesDatabase acquire(final Path directory) throws IOException {
+        final Path key = directory.toAbsolutePath().normalize();
+        TimeSeriesDatabase database = instances.get(key);
+        if (database == null) {
+            Files.createDirectories(key);
+            database = new TimeSeriesDatabase(key);
+            database.load();
+            instances.put(key, database);
+        }
+        database.references++;
+        return database;
+    }
+
+    /**
+     * Releases a database returned by {@link #acquire(Path)}, flushing and closing it if it is no longer used.
+     */
+    public void release() {
+        synchronized (TimeSeriesDatabase.class) {
+            if (--this.references > 0) {
+                return;
+            }
+            instances.remove(this.directory);
+        }
+        close();
+    }
+
+    public void append(final long timestamp, final String name, final double value) throws IOException {
+        this.numericChannels.computeIfAbsent(name, n -> Channel.numeric(getChannelDirectory(n, NUMERIC_SUFFIX),
+                SEGMENT_CAPACITY)).append(timestamp, value);
+    }
+
+    public void append(final long timestamp, final String name, final String text) throws IOException {
+        this.textChannels.computeIfAbsent(name, n -> Channel.text(getChannelDirectory(n, TEXT_SUFFIX),
+                SEGMENT_CAPACITY)).append(timestamp, text);
+    }
+
+    /**
+     * Writes the points appended so far to the segment files.
+     */
+    public void flush() {
+        forEachChannel(Channel::flush);
+    }
+
+    /**
+     * Deletes the segments older than the provided timestamps.
+     *
+     * @param rawTimestamp
+     *            the oldest timestamp of the raw samples to retain
+     * @param rollupTimestamp
+     *            the oldest timestamp of the rollups to retain
+     */
+    public void deleteOlderThan(final long rawTimestamp, final long rollupTimestamp) {
+        forEachChannel(c -> c.deleteOlderThan(rawTimestamp, rollupTimestamp));
+    }
+
+    /**
+     * Returns the names of the stored channels, in ascending order.
+     */
+    public Set<String> getSeriesNames() {
+        final Set<String> result = new TreeSet<>(this.numericChannels.keySet());
+        result.addAll(this.textChannels.keySet());
+        return result;
+    }
+
+    /**
+     * Visits the points of a channel in the provided time range, in the order they were appended. Text channels only
+     * have raw points. The rollup of the interval in progress is not visited.
+     *
+     * @param name
+     *            the channel name
+     * @param resolution
+     *            the resolution
+     * @param from
+     *            the start of the time range, inclusive
+     * @param to
+     *            the end of the time range, inclusive
+     * @param visitor
+     *            the visitor
+     * @return false if the visitor stopped the query
+     * @throws IOException
+     *             if the segment files cannot be read
+     */
+    public boolean query(final String name, final Resolution resolution, final long from, final long to,
+            final PointVisitor visitor) throws IOException {
+        for (final Map<String, Channel> channels : getChannelMaps()) {
+            final Channel channel = channels.get(name);
+            final Series series = channel != null ? channel.getSeries(resolution) : null;
+            if (series != null && !series.query(from, to, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void load() throws IOException {
+        try (final Stream<Path> files = Files.list(this.directory)) {
+            files.filter(Files::isDirectory).forEach(d -> {
+                final String fileName = d.getFileName().toString();
+                if (fileName.endsWith(NUMERIC_SUFFIX)) {
+                    this.numericChannels.put(decode(fileName, NUMERIC_SUFFIX), Channel.numeric(d, SEGMENT_CAPACITY));
+                } else if (fileName.endsWith(TEXT_SUFFIX)) {
+                    this.textChannels.put(decode(fileName, TEXT_SUFFIX), Channel.text(d, SEGMENT_CAPACITY));
+                }
+            });
+        }
+    }
+
+    private void close() {
+        forEachChannel(Channel::close);
+        this.numericChannels.clear();
+        this.textChannels.clear();
+    }
+
+    private Path getChannelDirectory(final String name, final String suffix) {
+        try {
+            return this.directory.resolve(URLEncoder.encode(name, StandardCharsets.UTF_8.name()) + suffix);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(final String fileName, final String suffix) {
+        try {
+            return URLDecoder.decode(fileName.substring(0, fileName.length() - suffix.length()),
+                    StandardCharsets.UTF_8.name());
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Map<String, Channel>> getChannelMaps() {
+        return Arrays.asList(this.numericChannels, this.textChannels);
+    }
+
+    private void forEachChannel(final ChannelAction action) {
+        for (final Map<String, Channel> channels : getChannelMaps()) {
+            for (final Map.Entry<String, Channel> entry : channels.entrySet()) {
+                try {
+                    action.apply(entry.getValue());
+                } catch (final IOException e) {
+                    logger.warn("Failed to update the time series {}", entry.getKey(), e);
+                }
+            }
+        }
+    }
+
+    private interface ChannelAction {
+
+        void apply(Channel channel) throws IOException;
+    }
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.internal.wire.timeseries.storage.TimeSeriesDatabase;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEmitter;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.ComponentException;
+import org.osgi.service.wireadmin.Wire;
+
+/**
+ * The Class TimeSeriesWireRecordStore is a wire component that stores the properties of the received Wire Records in
+ * a {@link TimeSeriesDatabase}, one series per property name, and emits the received records unchanged.
+ * <p>
+ * Numeric and boolean properties are stored as numbers, string properties as text, byte array properties are not
+ * stored. The timestamp of a property is taken from the {@code <name>_timestamp} or the {@code assetTimestamp}
+ * property emitted by a Wire Asset, if present, otherwise it is the time the record has been received. The points are
+ * buffered in memory and written to the storage every {@code flush.interval} seconds, when the retention is applied
+ * as well.
+ */
+public class TimeSeriesWireRecordStore implements WireEmitter, WireReceiver, ConfigurableComponent {
+
+    private static final Logger logger = LogManager.getLogger(TimeSeriesWireRecordStore.class);
+
+    private static final String ASSET_TIMESTAMP = "assetTimestamp";
+
+    private static final String TIMESTAMP_SUFFIX = "_timestamp";
+
+    private TimeSeriesWireRecordStoreOptions options;
+
+    private volatile WireHelperService wireHelperService;
+
+    private WireSupport wireSupport;
+
+    private TimeSeriesDatabase database;
+
+    private ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> flushTask;
+
+    public void bindWireHelperService(final WireHelperService wireHelperService) {
+        if (isNull(this.wireHelperService)) {
+            this.wireHelperService = wireHelperService;
+        }
+    }
+
+    public void unbindWireHelperService(final WireHelperService wireHelperService) {
+        if (this.wireHelperService == wireHelperService) {
+            this.wireHelperService = null;
+        }
+    }
+
+    /**
+     * OSGi Service Component callback for activation.
+     *
+     * @param componentContext
+     *            the component context
+     * @param properties
+     *            the properties
+     */
+    protected void activate(final ComponentContext componentContext, final Map<String, Object> properties) {
+        logger.debug("Activating Time Series Wire Record Store...");
+        this.options = new TimeSeriesWireRecordStoreOptions(properties);
+        this.executor = Executors
+                .newSingleThreadScheduledExecutor(r -> new Thread(r, "TimeSeriesWireRecordStoreFlush"));
+
+        this.wireSupport = this.wireHelperService.newWireSupport(this,
+                (ServiceReference<WireComponent>) componentContext.getServiceReference());
+
+        openDatabase();
+        logger.debug("Activating Time Series Wire Record Store... Done");
+    }
+
+    /**
+     * OSGi Service Component callback for updating.
+     *
+     * @param properties
+     *            the updated service component properties
+     */
+    public synchronized void updated(final Map<String, Object> properties) {
+        logger.debug("Updating Time Series Wire Record Store...");
+        closeDatabase();
+        this.options = new TimeSeriesWireRecordStoreOptions(properties);
+        openDatabase();
+        logger.debug("Updating Time Series Wire Record Store... Done");
+    }
+
+    /**
+     * OSGi Service Component callback for deactivation.
+     *
+     * @param componentContext
+     *            the component context
+     */
+    protected synchronized void deactivate(final ComponentContext componentContext) {
+        logger.debug("Deactivating Time Series Wire Record Store...");
+        closeDatabase();
+        this.executor.shutdown();
+        logger.debug("Deactivating Time Series Wire Record Store... Done");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void onWireReceive(final WireEnvelope wireEnvelope) {
+        requireNonNull(wireEnvelope, "Wire Envelope cannot be null");
+
+        final List<WireRecord> records = wireEnvelope.getRecords();
+
+        if (this.database != null) {
+            final long now = System.currentTimeMillis();
+            for (final WireRecord wireRecord : records) {
+                store(this.database, now, wireRecord);
+            }
+        } else {
+            logger.warn("Time series storage not available");
+        }
+
+        this.wireSupport.emit(records);
+    }
+
+    static void store(final TimeSeriesDatabase database, final long receiveTime, final WireRecord wireRecord) {
+        final Map<String, TypedValue<?>> properties = wireRecord.getProperties();
+        final long recordTime = getTimestamp(properties.get(ASSET_TIMESTAMP), receiveTime);
+
+        for (final Entry<String, TypedValue<?>> entry : properties.entrySet()) {
+            final String name = entry.getKey();
+            final TypedValue<?> value = entry.getValue();
+            if (value == null || isTimestampProperty(name, value, properties)) {
+                continue;
+            }
+
+            final long timestamp = getTimestamp(properties.get(name + TIMESTAMP_SUFFIX), recordTime);
+            try {
+                switch (value.getType()) {
+                case BOOLEAN:
+                    database.append(timestamp, name, (Boolean) value.getValue() ? 1 : 0);
+                    break;
+                case DOUBLE:
+                case FLOAT:
+                case INTEGER:
+                case LONG:
+                    database.append(timestamp, name, ((Number) value.getValue()).doubleValue());
+                    break;
+                case STRING:
+                    database.append(timestamp, name, (String) value.getValue());
+                    break;
+                default:
+                    logger.debug("Skipping property {} of type {}", name, value.getType());
+                }
+            } catch (final IOException e) {
+                logger.warn("Failed to store property {}", name, e);
+            }
+        }
+    }
+
+    private static boolean isTimestampProperty(final String name, final TypedValue<?> value,
+            final Map<String, TypedValue<?>> properties) {
+        if (value.getType() != DataType.LONG) {
+            return false;
+        }
+        return ASSET_TIMESTAMP.equals(name) || name.endsWith(TIMESTAMP_SUFFIX)
+                && properties.containsKey(name.substring(0, name.length() - TIMESTAMP_SUFFIX.length()));
+    }
+
+    private static long getTimestamp(final TypedValue<?> value, final long defaultTimestamp) {
+        if (value != null && value.getType() == DataType.LONG) {
+            return (Long) value.getValue();
+        }
+        return defaultTimestamp;
+    }
+
+    private void openDatabase() {
+        try {
+            this.database = TimeSeriesDatabase.acquire(Paths.get(this.options.getStorageDirectory()));
+        } catch (final IOException e) {
+            throw new ComponentException("Failed to open the time series storage", e);
+        }
+
+        final TimeSeriesDatabase openedDatabase = this.database;
+        final long rawRetention = TimeUnit.DAYS.toMillis(this.options.getRawRetentionDays());
+        final long rollupRetention = TimeUnit.DAYS.toMillis(this.options.getRollupRetentionDays());
+        final int flushInterval = this.options.getFlushInterval();
+        this.flushTask = this.executor.scheduleWithFixedDelay(() -> {
+            openedDatabase.flush();
+            final long now = System.currentTimeMillis();
+            openedDatabase.deleteOlderThan(now - rawRetention, now - rollupRetention);
+        }, flushInterval, flushInterval, TimeUnit.SECONDS);
+    }
+
+    private void closeDatabase() {
+        if (this.flushTask != null) {
+            this.flushTask.cancel(false);
+            this.flushTask = null;
+        }
+        if (this.database != null) {
+            this.database.flush();
+            this.database.release();
+            this.database = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void consumersConnected(final Wire[] wires) {
+        this.wireSupport.consumersConnected(wires);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object polled(final Wire wire) {
+        return this.wireSupport.polled(wire);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void producersConnected(final Wire[] wires) {
+        this.wireSupport.producersConnected(wires);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void updated(final Wire wire, final Object value) {
+        this.wireSupport.updated(wire, value);
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.store;
+
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Class TimeSeriesWireRecordStoreOptions is responsible to contain all the Time Series Wire Record Store related
+ * options
+ */
+final class TimeSeriesWireRecordStoreOptions {
+
+    private static final String DEFAULT_STORAGE_DIRECTORY = "/opt/eclipse/kura/data/timeseries";
+
+    private static final String STORAGE_DIRECTORY = "storage.directory";
+
+    private static final String FLUSH_INTERVAL = "flush.interval";
+
+    private static final String RAW_RETENTION_DAYS = "raw.retention.days";
+
+    private static final String ROLLUP_RETENTION_DAYS = "rollup.retention.days";
+
+    private static final int DEFAULT_FLUSH_INTERVAL = 60;
+
+    private static final int DEFAULT_RAW_RETENTION_DAYS = 30;
+
+    private static final int DEFAULT_ROLLUP_RETENTION_DAYS = 365;
+
+    private final Map<String, Object> properties;
+
+    /**
+     * Instantiates a new time series wire record store options.
+     *
+     * @param properties
+     *            the configured properties
+     */
+    TimeSeriesWireRecordStoreOptions(final Map<String, Object> properties) {
+        requireNonNull(properties, "Properties cannot be null");
+        this.properties = Collections.unmodifiableMap(new HashMap<>(properties));
+    }
+
+    String getStorageDirectory() {
+        String directory = DEFAULT_STORAGE_DIRECTORY;
+        final Object configured = this.properties.get(STORAGE_DIRECTORY);
+        if (nonNull(configured) && configured instanceof String && !((String) configured).trim().isEmpty()) {
+            directory = ((String) configured).trim();
+        }
+        return directory;
+    }
+
+    /**
+     * Returns the interval in seconds between the writes of the buffered points to the storage.
+     *
+     * @return the flush interval in seconds
+     */
+    int getFlushInterval() {
+        int flushInterval = DEFAULT_FLUSH_INTERVAL;
+        final Object interval = this.properties.get(FLUSH_INTERVAL);
+        if (nonNull(interval) && interval instanceof Integer) {
+            flushInterval = Math.max(1, (Integer) interval);
+        }
+        return flushInterval;
+    }
+
+    int getRawRetentionDays() {
+        int retentionDays = DEFAULT_RAW_RETENTION_DAYS;
+        final Object days = this.properties.get(RAW_RETENTION_DAYS);
+        if (nonNull(days) && days instanceof Integer) {
+            retentionDays = Math.max(1, (Integer) days);
+        }
+        return retentionDays;
+    }
+
+    int getRollupRetentionDays() {
+        int retentionDays = DEFAULT_ROLLUP_RETENTION_DAYS;
+        final Object days = this.properties.get(ROLLUP_RETENTION_DAYS);
+        if (nonNull(days) && days instanceof Integer) {
+            retentionDays = Math.max(1, (Integer) days);
+        }
+        return retentionDays;
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.asset.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class AssetIOSchedulerTest {
+
+    @Test
+    public void testRoundRobinInsideLane() throws InterruptedException {
+        final AssetIOScheduler scheduler = new AssetIOScheduler(1);
+        final ExecutorService first = scheduler.newAssetExecutor("first", () -> "driver");
+        final ExecutorService second = scheduler.newAssetExecutor("second", () -> "driver");
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        first.execute(() -> {
+            started.countDown();
+            await(release);
+            executed.add("first0");
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 3; i++) {
+            final String name = "first" + i;
+            first.execute(() -> executed.add(name));
+        }
+        for (int i = 0; i < 3; i++) {
+            final String name = "second" + i;
+            second.execute(() -> executed.add(name));
+        }
+        release.countDown();
+
+        shutdown(first, second);
+        assertEquals(Arrays.asList("first0", "first1", "second0", "first2", "second1", "second2"), executed);
+    }
+
+    @Test
+    public void testBlockedDriverDoesNotDelayOtherDrivers() throws InterruptedException {
+        final AssetIOScheduler scheduler = new AssetIOScheduler(2);
+        final ExecutorService slow = scheduler.newAssetExecutor("slow", () -> "slowDriver");
+        final ExecutorService fast = scheduler.newAssetExecutor("fast", () -> "fastDriver");
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch fastDone = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            slow.execute(() -> await(release));
+        }
+        for (int i = 0; i < 3; i++) {
+            fast.execute(fastDone::countDown);
+        }
+
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        assertEquals(2, scheduler.getStatistics(false).get("slowDriver").getPendingTaskCount());
+        release.countDown();
+        shutdown(slow, fast);
+    }
+
+    @Test
+    public void testShutdownNowReturnsQueuedTasks() throws InterruptedException {
+        final AssetIOScheduler scheduler = new AssetIOScheduler(1);
+        final ExecutorService executor = scheduler.newAssetExecutor("asset", () -> "driver");
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+            executed.add("running");
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final Runnable firstQueued = () -> executed.add("queued");
+        final Runnable secondQueued = () -> executed.add("queued");
+        executor.execute(firstQueued);
+        executor.execute(secondQueued);
+
+        final List<Runnable> drained = executor.shutdownNow();
+
+        assertEquals(2, drained.size());
+        assertSame(firstQueued, drained.get(0));
+        assertSame(secondQueued, drained.get(1));
+        assertFalse(executor.isTerminated());
+        assertEquals(0, scheduler.getStatistics(false).get("driver").getPendingTaskCount());
+
+        release.countDown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("running"), executed);
+    }
+
+    @Test
+    public void testUnusedLanesPruned() throws InterruptedException {
+        final AssetIOScheduler scheduler = new AssetIOScheduler(1);
+        final AtomicReference<String> driver = new AtomicReference<>("firstDriver");
+        final ExecutorService executor = scheduler.newAssetExecutor("asset", driver::get);
+
+        runAndWait(executor);
+        assertEquals(Collections.singleton("firstDriver"), scheduler.getStatistics(false).keySet());
+
+        driver.set("secondDriver");
+        runAndWait(executor);
+        awaitLaneCount(scheduler, 1);
+        assertEquals(Collections.singleton("secondDriver"), scheduler.getStatistics(false).keySet());
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        awaitLaneCount(scheduler, 0);
+    }
+
+    @Test
+    public void testThreadCountRestoredOnDeactivate() {
+        final AssetIOScheduler scheduler = new AssetIOScheduler(AssetIOScheduler.DEFAULT_THREAD_COUNT);
+        final AssetIOSchedulerComponent component = new AssetIOSchedulerComponent(scheduler);
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("io.thread.count", 8);
+
+        component.activate(properties);
+        assertEquals(8, scheduler.getThreadCount());
+
+        component.deactivate();
+        assertEquals(AssetIOScheduler.DEFAULT_THREAD_COUNT, scheduler.getThreadCount());
+    }
+
+    private static void runAndWait(final ExecutorService executor) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void awaitLaneCount(final AssetIOScheduler scheduler, final int count)
+            throws InterruptedException {
+        // the lane is released by the pool thread right after the last task
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getLaneCount() != count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, scheduler.getLaneCount());
+    }
+
+    private static void shutdown(final ExecutorService... executors) throws InterruptedException {
+        for (final ExecutorService executor : executors) {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import org.eclipse.kura.KuraInvalidMessageException;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric.ValueType;
+import org.eclipse.kura.core.util.GZipUtil;
+import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.message.KuraPosition;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+public class CloudPayloadProtoBufEncoderImplTest {
+
+    @Test
+    public void testEncodeMatchesGeneratedCode() throws IOException {
+        KuraPayload payload = createPayload();
+
+        byte[] bytes = new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+
+        assertArrayEquals(encodeWithGeneratedCode(payload), bytes);
+    }
+
+    @Test
+    public void testEncodeUnpairedSurrogate() throws IOException {
+        KuraPayload payload = new KuraPayload();
+        payload.addMetric("unpaired \ud800", "\udc00 \ud800");
+
+        byte[] bytes = new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+
+        assertArrayEquals(encodeWithGeneratedCode(payload), bytes);
+    }
+
+    @Test
+    public void testDecodeGeneratedCode() throws IOException {
+        KuraPayload payload = createPayload();
+
+        KuraPayload decoded = new CloudPayloadProtoBufDecoderImpl(encodeWithGeneratedCode(payload))
+                .buildFromByteArray();
+
+        assertPayloadEquals(payload, decoded);
+    }
+
+    @Test
+    public void testDecodeDoesNotDependOnInputArray() throws IOException {
+        KuraPayload payload = createPayload();
+        byte[] bytes = encodeWithGeneratedCode(payload);
+
+        KuraPayload decoded = new CloudPayloadProtoBufDecoderImpl(bytes).buildFromByteArray();
+        Arrays.fill(bytes, (byte) 0);
+
+        assertPayloadEquals(payload, decoded);
+    }
+
+    @Test
+    public void testCompressedRoundTrip() throws IOException {
+        KuraPayload payload = createPayload();
+        for (int i = 0; i < 100; i++) {
+            payload.addMetric("metric" + i, "value");
+        }
+
+        byte[] bytes = new CloudPayloadGZipEncoder(new CloudPayloadProtoBufEncoderImpl(payload)).getBytes();
+
+        assertTrue(GZipUtil.isCompressed(bytes));
+        assertArrayEquals(encodeWithGeneratedCode(payload), GZipUtil.decompress(bytes));
+        assertPayloadEquals(payload, new CloudPayloadProtoBufDecoderImpl(bytes).buildFromByteArray());
+    }
+
+    @Test
+    public void testUncompressedIfLonger() throws IOException {
+        KuraPayload payload = new KuraPayload();
+        payload.addMetric("a", 1);
+
+        byte[] bytes = new CloudPayloadGZipEncoder(new CloudPayloadProtoBufEncoderImpl(payload)).getBytes();
+
+        assertArrayEquals(encodeWithGeneratedCode(payload), bytes);
+    }
+
+    @Test(expected = KuraInvalidMessageException.class)
+    public void testDecodeTruncated() throws IOException {
+        byte[] bytes = encodeWithGeneratedCode(createPayload());
+
+        new CloudPayloadProtoBufDecoderImpl(Arrays.copyOf(bytes, bytes.length - 3)).buildFromByteArray();
+    }
+
+    @Test(expected = KuraInvalidMessageException.class)
+    public void testDecodeMissingMetricType() throws IOException {
+        byte[] bytes = KuraPayloadProto.KuraPayload.newBuilder()
+                .addMetric(KuraMetric.newBuilder().setName("name").setIntValue(3).buildPartial()).buildPartial()
+                .toByteArray();
+
+        new CloudPayloadProtoBufDecoderImpl(bytes).buildFromByteArray();
+    }
+
+    private static KuraPayload createPayload() {
+        KuraPayload payload = new KuraPayload();
+        payload.setTimestamp(new Date(1_600_000_000_000L));
+
+        KuraPosition position = new KuraPosition();
+        position.setLatitude(45.5);
+        position.setLongitude(-13.25);
+        position.setAltitude(100.0);
+        position.setSpeed(3.5);
+        position.setSatellites(7);
+        position.setStatus(4);
+        position.setTimestamp(new Date(1_600_000_000_001L));
+        payload.setPosition(position);
+
+        payload.addMetric("double", 1.5d);
+        payload.addMetric("float", -2.25f);
+        payload.addMetric("long", Long.MIN_VALUE);
+        payload.addMetric("int", -42);
+        payload.addMetric("bool", true);
+        payload.addMetric("string", "temp \u00b0C \u20ac \ud83d\ude00");
+        payload.addMetric("bytes", new byte[] { 1, 2, 3 });
+        payload.addMetric("empty", "");
+        payload.setBody(new byte[] { 9, 8, 7 });
+        return payload;
+    }
+
+    private static byte[] encodeWithGeneratedCode(KuraPayload payload) {
+        KuraPayloadProto.KuraPayload.Builder builder = KuraPayloadProto.KuraPayload.newBuilder();
+        if (payload.getTimestamp() != null) {
+            builder.setTimestamp(payload.getTimestamp().getTime());
+        }
+
+        KuraPosition position = payload.getPosition();
+        if (position != null) {
+            builder.setPosition(KuraPayloadProto.KuraPayload.KuraPosition.newBuilder()
+                    .setLatitude(position.getLatitude()).setLongitude(position.getLongitude())
+                    .setAltitude(position.getAltitude()).setSpeed(position.getSpeed())
+                    .setSatellites(position.getSatellites()).setStatus(position.getStatus())
+                    .setTimestamp(position.getTimestamp().getTime()));
+        }
+
+        for (Map.Entry<String, Object> entry : payload.metrics().entrySet()) {
+            KuraMetric.Builder metric = KuraMetric.newBuilder().setName(entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                metric.setType(ValueType.STRING).setStringValue((String) value);
+            } else if (value instanceof Double) {
+                metric.setType(ValueType.DOUBLE).setDoubleValue((Double) value);
+            } else if (value instanceof Integer) {
+                metric.setType(ValueType.INT32).setIntValue((Integer) value);
+            } else if (value instanceof Float) {
+                metric.setType(ValueType.FLOAT).setFloatValue((Float) value);
+            } else if (value instanceof Long) {
+                metric.setType(ValueType.INT64).setLongValue((Long) value);
+            } else if (value instanceof Boolean) {
+                metric.setType(ValueType.BOOL).setBoolValue((Boolean) value);
+            } else {
+                metric.setType(ValueType.BYTES).setBytesValue(ByteString.copyFrom((byte[]) value));
+            }
+            builder.addMetric(metric);
+        }
+
+        if (payload.getBody() != null) {
+            builder.setBody(ByteString.copyFrom(payload.getBody()));
+        }
+        return builder.build().toByteArray();
+    }
+
+    private static void assertPayloadEquals(KuraPayload expected, KuraPayload actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getPosition().getLatitude(), actual.getPosition().getLatitude());
+        assertEquals(expected.getPosition().getLongitude(), actual.getPosition().getLongitude());
+        assertEquals(expected.getPosition().getAltitude(), actual.getPosition().getAltitude());
+        assertEquals(expected.getPosition().getSpeed(), actual.getPosition().getSpeed());
+        assertEquals(expected.getPosition().getSatellites(), actual.getPosition().getSatellites());
+        assertEquals(expected.getPosition().getStatus(), actual.getPosition().getStatus());
+        assertEquals(expected.getPosition().getTimestamp(), actual.getPosition().getTimestamp());
+        assertArrayEquals(expected.getBody(), actual.getBody());
+
+        assertEquals(expected.metricNames(), actual.metricNames());
+        for (String name : expected.metricNames()) {
+            Object value = expected.getMetric(name);
+            if (value instanceof byte[]) {
+                assertArrayEquals((byte[]) value, (byte[]) actual.getMetric(name));
+            } else {
+                assertEquals(value, actual.getMetric(name));
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2018, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,10 @@
 package org.eclipse.kura.core.cloud;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -23,7 +27,9 @@ import org.eclipse.kura.KuraException;
 import org.eclipse.kura.cloud.CloudClient;
 import org.eclipse.kura.cloudconnection.request.RequestHandler;
 import org.eclipse.kura.configuration.ConfigurationService;
+import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.data.DataService;
+import org.eclipse.kura.message.KuraPayload;
 import org.eclipse.kura.system.SystemService;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -111,4 +117,35 @@ public class CloudServiceImplTest {
         assertNotNull(options);
     }
 
+    @Test
+    public void testDictionaryUsedOnceBirthCertificatePublished() throws Throwable {
+        // messages of other lanes can overtake the birth certificate, so the dictionary it advertises is used only
+        // once the certificate itself has been published
+        DataService dataService = mock(DataService.class);
+        when(dataService.publish(anyString(), any(byte[].class), anyInt(), anyBoolean(), anyInt())).thenReturn(42);
+
+        CloudServiceImpl cloudServiceImpl = new CloudServiceImpl();
+        cloudServiceImpl.setDataService(dataService);
+        TestUtil.setFieldValue(cloudServiceImpl, "options",
+                new CloudServiceOptions(new HashMap<>(), mock(SystemService.class)));
+
+        PayloadDictionary dictionary = new PayloadDictionary(2048, 1);
+        assertTrue(dictionary.addSample(new byte[] { 1, 2, 3 }));
+        TestUtil.setFieldValue(cloudServiceImpl, "payloadDictionary", dictionary);
+
+        TestUtil.invokePrivate(cloudServiceImpl, "publishLifeCycleMessage",
+                new Class<?>[] { String.class, KuraPayload.class, PayloadDictionary.Entry.class }, "$EDC/birth",
+                new KuraPayload(), dictionary.getAdvertisedDictionary());
+
+        assertTrue(dictionary.hasPendingDictionary());
+
+        cloudServiceImpl.onMessagePublished(41, "$EDC/account/client/app/topic");
+
+        assertTrue(dictionary.hasPendingDictionary());
+
+        cloudServiceImpl.onMessagePublished(42, "$EDC/birth");
+
+        assertFalse(dictionary.hasPendingDictionary());
+    }
+
 }
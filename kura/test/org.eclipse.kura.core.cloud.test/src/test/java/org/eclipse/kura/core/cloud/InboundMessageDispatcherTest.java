@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.core.cloud.InboundMessageDispatcher.OverflowPolicy;
+import org.eclipse.kura.core.testutil.TestUtil;
+import org.junit.Test;
+
+public class InboundMessageDispatcherTest {
+
+    @Test
+    public void testSynchronousDispatch() {
+        InboundMessageDispatcher dispatcher = new InboundMessageDispatcher(0, 1, OverflowPolicy.BLOCK, 0,
+                TimeUnit.MILLISECONDS);
+        List<Integer> delivered = new ArrayList<>();
+
+        dispatcher.submit(() -> dispatcher.submit(this, () -> delivered.add(1)));
+        dispatcher.submit(this, () -> delivered.add(2));
+
+        assertEquals(2, delivered.size());
+        assertEquals(2, dispatcher.getDispatchedCount());
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    public void testOrderPerTarget() throws InterruptedException {
+        InboundMessageDispatcher dispatcher = new InboundMessageDispatcher(4, 1000, OverflowPolicy.BLOCK, 1,
+                TimeUnit.SECONDS);
+        List<Integer> first = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> second = Collections.synchronizedList(new ArrayList<>());
+        Object firstTarget = new Object();
+        Object secondTarget = new Object();
+
+        for (int i = 0; i < 500; i++) {
+            final int value = i;
+            dispatcher.submit(() -> {
+                dispatcher.submit(firstTarget, () -> first.add(value));
+                dispatcher.submit(secondTarget, () -> second.add(value));
+            });
+        }
+        dispatcher.shutdown(5, TimeUnit.SECONDS);
+
+        assertEquals(500, first.size());
+        assertEquals(500, second.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, (int) first.get(i));
+            assertEquals(i, (int) second.get(i));
+        }
+        assertEquals(1000, dispatcher.getDispatchedCount());
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        List<Integer> delivered = fillQueue(OverflowPolicy.DROP_NEWEST);
+
+        assertEquals(3, delivered.size());
+        assertEquals(0, (int) delivered.get(0));
+        assertEquals(1, (int) delivered.get(1));
+        assertEquals(2, (int) delivered.get(2));
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        List<Integer> delivered = fillQueue(OverflowPolicy.DROP_OLDEST);
+
+        assertEquals(3, delivered.size());
+        assertEquals(0, (int) delivered.get(0));
+        assertEquals(3, (int) delivered.get(1));
+        assertEquals(4, (int) delivered.get(2));
+    }
+
+    @Test
+    public void testBlockTimeout() throws InterruptedException {
+        List<Integer> delivered = fillQueue(OverflowPolicy.BLOCK);
+
+        assertEquals(3, delivered.size());
+        assertEquals(0, (int) delivered.get(0));
+        assertEquals(1, (int) delivered.get(1));
+        assertEquals(2, (int) delivered.get(2));
+    }
+
+    @Test
+    public void testIntakeDoesNotBlock() throws InterruptedException {
+        InboundMessageDispatcher dispatcher = new InboundMessageDispatcher(1, 1, OverflowPolicy.BLOCK, 1,
+                TimeUnit.HOURS);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        dispatcher.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final long start = System.nanoTime();
+        dispatcher.submit(() -> {
+        });
+        dispatcher.submit(() -> {
+        });
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, dispatcher.getDroppedCount());
+
+        release.countDown();
+        dispatcher.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testIdleQueuesReleased() throws Exception {
+        InboundMessageDispatcher dispatcher = new InboundMessageDispatcher(2, 10, OverflowPolicy.BLOCK, 1,
+                TimeUnit.SECONDS);
+        Map<?, ?> mailboxes = (Map<?, ?>) TestUtil.getFieldValue(dispatcher, "mailboxes");
+        CountDownLatch delivered = new CountDownLatch(200);
+        Object target = new Object();
+
+        for (int i = 0; i < 100; i++) {
+            final Object other = new Object();
+            dispatcher.submit(target, delivered::countDown);
+            dispatcher.submit(other, delivered::countDown);
+            // a late message for a removed target must not leave its queue behind
+            dispatcher.remove(other);
+        }
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        dispatcher.shutdown(5, TimeUnit.SECONDS);
+
+        assertEquals(200, dispatcher.getDispatchedCount());
+        assertTrue(mailboxes.isEmpty());
+    }
+
+    @Test
+    public void testHasConfiguration() {
+        InboundMessageDispatcher dispatcher = new InboundMessageDispatcher(0, 10, OverflowPolicy.DROP_OLDEST, 1,
+                TimeUnit.SECONDS);
+
+        assertTrue(dispatcher.hasConfiguration(0, 10, OverflowPolicy.DROP_OLDEST, 1000, TimeUnit.MILLISECONDS));
+        assertEquals(false, dispatcher.hasConfiguration(1, 10, OverflowPolicy.DROP_OLDEST, 1, TimeUnit.SECONDS));
+        assertEquals(OverflowPolicy.DROP_NEWEST, OverflowPolicy.fromValue("drop-newest"));
+    }
+
+    /*
+     * Blocks the target on the first message, then queues four more messages to a queue of size two and releases it.
+     */
+    private List<Integer> fillQueue(OverflowPolicy overflowPolicy) throws InterruptedException {
+        InboundMessageDispatcher dispatcher = new InboundMessageDispatcher(1, 2, overflowPolicy, 10,
+                TimeUnit.MILLISECONDS);
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object target = new Object();
+
+        dispatcher.submit(target, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(0);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 1; i < 5; i++) {
+            final int value = i;
+            dispatcher.submit(target, () -> delivered.add(value));
+        }
+        assertEquals(2, dispatcher.getQueueDepth());
+        assertEquals(2, dispatcher.getDroppedCount());
+
+        release.countDown();
+        dispatcher.shutdown(5, TimeUnit.SECONDS);
+        return delivered;
+    }
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.kura.core.util.GZipUtil;
+import org.eclipse.kura.message.KuraPayload;
+import org.junit.Test;
+
+public class PayloadDictionaryTest {
+
+    @Test
+    public void testTraining() throws IOException {
+        PayloadDictionary dictionary = new PayloadDictionary(2048, 3);
+
+        assertFalse(dictionary.addSample(encode(0)));
+        assertFalse(dictionary.addSample(encode(1)));
+        assertNull(dictionary.getAdvertisedDictionary());
+        assertTrue(dictionary.addSample(encode(2)));
+
+        assertTrue(dictionary.hasPendingDictionary());
+        assertNotNull(dictionary.getAdvertisedDictionary());
+        assertFalse(dictionary.addSample(encode(3)));
+    }
+
+    @Test
+    public void testLargePayloadsIgnored() {
+        PayloadDictionary dictionary = new PayloadDictionary(2048, 1);
+
+        assertFalse(dictionary.addSample(new byte[2000]));
+        assertFalse(dictionary.hasPendingDictionary());
+    }
+
+    @Test
+    public void testMaxSize() throws IOException {
+        PayloadDictionary dictionary = new PayloadDictionary(256, 10);
+        byte[] last = null;
+        for (int i = 0; i < 10; i++) {
+            last = encode(i);
+            dictionary.addSample(last);
+        }
+
+        byte[] content = dictionary.getAdvertisedDictionary().getContent();
+        assertEquals(256, content.length);
+        assertArrayEquals(last, Arrays.copyOfRange(content, content.length - last.length, content.length));
+    }
+
+    @Test
+    public void testNoCompressionBeforeAdvertised() throws IOException {
+        PayloadDictionary dictionary = train(new PayloadDictionary(2048, 5));
+
+        assertNull(dictionary.compress(encode(100)));
+
+        dictionary.onAdvertised(dictionary.getAdvertisedDictionary());
+
+        assertFalse(dictionary.hasPendingDictionary());
+        assertNotNull(dictionary.compress(encode(100)));
+    }
+
+    @Test
+    public void testCompressRoundTrip() throws IOException, DataFormatException {
+        PayloadDictionary dictionary = train(new PayloadDictionary(2048, 5));
+        PayloadDictionary.Entry entry = dictionary.getAdvertisedDictionary();
+        dictionary.onAdvertised(entry);
+
+        byte[] source = encode(100);
+        byte[] compressed = dictionary.compress(source);
+
+        assertTrue(compressed.length < source.length);
+        assertTrue(compressed.length < GZipUtil.compress(source).length);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] result = new byte[source.length];
+            assertEquals(0, inflater.inflate(result));
+            assertTrue(inflater.needsDictionary());
+            assertEquals(entry.getId(), String.format("%08x", inflater.getAdler()));
+
+            inflater.setDictionary(entry.getContent());
+            assertEquals(source.length, inflater.inflate(result));
+            assertTrue(inflater.finished());
+            assertArrayEquals(source, result);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Test
+    public void testEncoderFallsBackToGZipWhileTraining() throws IOException {
+        PayloadDictionary dictionary = new PayloadDictionary(2048, 5);
+        KuraPayload payload = createPayload(0);
+        for (int i = 0; i < 20; i++) {
+            payload.addMetric("status" + i, "running");
+        }
+
+        byte[] bytes = new CloudPayloadDictionaryEncoder(new CloudPayloadProtoBufEncoderImpl(payload), dictionary,
+                true).getBytes();
+
+        assertTrue(GZipUtil.isCompressed(bytes));
+    }
+
+    private static PayloadDictionary train(PayloadDictionary dictionary) throws IOException {
+        for (int i = 0; !dictionary.hasPendingDictionary(); i++) {
+            dictionary.addSample(encode(i));
+        }
+        return dictionary;
+    }
+
+    private static byte[] encode(int sequence) throws IOException {
+        return new CloudPayloadProtoBufEncoderImpl(createPayload(sequence)).getBytes();
+    }
+
+    private static KuraPayload createPayload(int sequence) {
+        KuraPayload payload = new KuraPayload();
+        payload.setTimestamp(new Date(1_600_000_000_000L + sequence * 1000L));
+        payload.addMetric("temperature", 20.0 + sequence % 7 * 0.5);
+        payload.addMetric("humidity", 40.0 + sequence % 5);
+        payload.addMetric("pressure", 1013.25);
+        payload.addMetric("counter", (long) sequence);
+        payload.addMetric("status", "running");
+        payload.addMetric("assetName", "boiler-room-sensor");
+        payload.addMetric("firmware", "1.4.2");
+        return payload;
+    }
+}
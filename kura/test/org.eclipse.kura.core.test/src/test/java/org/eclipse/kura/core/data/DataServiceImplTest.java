@@ -13,22 +13,30 @@
 package org.eclipse.kura.core.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -37,16 +45,19 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.KuraConnectException;
 import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.internal.data.InFlightMessages;
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.data.DataTransportService;
 import org.eclipse.kura.data.DataTransportToken;
 import org.eclipse.kura.db.H2DbService;
 import org.eclipse.kura.status.CloudConnectionStatusEnum;
 import org.eclipse.kura.status.CloudConnectionStatusService;
+import org.eclipse.kura.system.SystemService;
 import org.eclipse.kura.watchdog.WatchdogService;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.junit.Test;
 import org.osgi.service.component.ComponentContext;
+import org.osgi.util.tracker.ServiceTracker;
 
 public class DataServiceImplTest {
 
@@ -86,15 +97,10 @@ public class DataServiceImplTest {
 
         verify(storeMock, times(1)).start(dbServiceMock, hkInterval, age, capacity);
 
-        Map<DataTransportToken, Integer> ifMsgs = (Map<DataTransportToken, Integer>) TestUtil.getFieldValue(svc,
-                "inFlightMsgIds");
+        InFlightMessages ifMsgs = (InFlightMessages) TestUtil.getFieldValue(svc, "inFlightMessages");
 
         assertEquals(1, ifMsgs.size());
-        ifMsgs.forEach((key, value) -> {
-            assertEquals(id, (int) value);
-            assertEquals(pmi, key.getMessageId());
-            assertEquals(sessionId, key.getSessionId());
-        });
+        assertEquals(id, ifMsgs.confirm(new DataTransportToken(pmi, sessionId)).getId());
     }
 
     @Test
@@ -143,14 +149,14 @@ public class DataServiceImplTest {
 
         TestUtil.setFieldValue(svc, "dataServiceOptions", dataServiceOptions);
 
-        Map<DataTransportToken, Integer> inFlightMsgIds = mock(Map.class);
-        TestUtil.setFieldValue(svc, "inFlightMsgIds", inFlightMsgIds);
+        InFlightMessages inFlightMessages = mock(InFlightMessages.class);
+        TestUtil.setFieldValue(svc, "inFlightMessages", inFlightMessages);
 
         svc.onConnectionEstablished(true);
 
         verify(ccssMock, times(1)).updateStatus(svc, CloudConnectionStatusEnum.ON);
         verify(storeMock, times(1)).dropAllInFlightMessages();
-        verify(inFlightMsgIds, times(1)).clear();
+        verify(inFlightMessages, times(1)).clear();
     }
 
     @Test
@@ -177,14 +183,14 @@ public class DataServiceImplTest {
 
         TestUtil.setFieldValue(svc, "dataServiceOptions", dataServiceOptions);
 
-        Map<DataTransportToken, Integer> inFlightMsgIds = mock(Map.class);
-        TestUtil.setFieldValue(svc, "inFlightMsgIds", inFlightMsgIds);
+        InFlightMessages inFlightMessages = mock(InFlightMessages.class);
+        TestUtil.setFieldValue(svc, "inFlightMessages", inFlightMessages);
 
         svc.onConnectionEstablished(true);
 
         verify(ccssMock, times(1)).updateStatus(svc, CloudConnectionStatusEnum.ON);
         verify(storeMock, times(1)).dropAllInFlightMessages();
-        verify(inFlightMsgIds, times(0)).clear();
+        verify(inFlightMessages, times(0)).clear();
     }
 
     @Test
@@ -209,14 +215,14 @@ public class DataServiceImplTest {
 
         TestUtil.setFieldValue(svc, "dataServiceOptions", dataServiceOptions);
 
-        Map<DataTransportToken, Integer> inFlightMsgIds = mock(Map.class);
-        TestUtil.setFieldValue(svc, "inFlightMsgIds", inFlightMsgIds);
+        InFlightMessages inFlightMessages = mock(InFlightMessages.class);
+        TestUtil.setFieldValue(svc, "inFlightMessages", inFlightMessages);
 
         svc.onConnectionEstablished(true);
 
         verify(ccssMock, times(1)).updateStatus(svc, CloudConnectionStatusEnum.ON);
         verify(storeMock, times(1)).unpublishAllInFlighMessages();
-        verify(inFlightMsgIds, times(1)).clear();
+        verify(inFlightMessages, times(1)).clear();
     }
 
     @Test
@@ -243,14 +249,261 @@ public class DataServiceImplTest {
 
         TestUtil.setFieldValue(svc, "dataServiceOptions", dataServiceOptions);
 
-        Map<DataTransportToken, Integer> inFlightMsgIds = mock(Map.class);
-        TestUtil.setFieldValue(svc, "inFlightMsgIds", inFlightMsgIds);
+        InFlightMessages inFlightMessages = mock(InFlightMessages.class);
+        TestUtil.setFieldValue(svc, "inFlightMessages", inFlightMessages);
 
         svc.onConnectionEstablished(true);
 
         verify(ccssMock, times(1)).updateStatus(svc, CloudConnectionStatusEnum.ON);
         verify(storeMock, times(1)).unpublishAllInFlighMessages();
-        verify(inFlightMsgIds, times(0)).clear();
+        verify(inFlightMessages, times(0)).clear();
+    }
+
+    @Test
+    public void testPublishLanes() throws Throwable {
+        // each lane fetches the messages of its own priority range
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+        when(storeMock.getNextMessages(anyInt(), anyInt(), anyInt())).thenReturn(new ArrayList<>());
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        TestUtil.setFieldValue(svc, "dataTransportService", dtsMock);
+        when(dtsMock.isConnected()).thenReturn(true);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("publish.priority-lanes", "5");
+        properties.put("enable.rate.limit", false);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+
+        ExecutorService publisherExecutor = Executors.newCachedThreadPool();
+        TestUtil.setFieldValue(svc, "publisherExecutor", publisherExecutor);
+
+        TestUtil.invokePrivate(svc, "startPublishLanes");
+
+        List<?> lanes = (List<?>) TestUtil.getFieldValue(svc, "publishLanes");
+        assertEquals(2, lanes.size());
+        // the lanes share the rate limit
+        assertSame(TestUtil.getFieldValue(lanes.get(0), "throttle"), TestUtil.getFieldValue(lanes.get(1), "throttle"));
+        verify(storeMock, timeout(1000).atLeastOnce()).getNextMessages(1, Integer.MIN_VALUE, 4);
+        verify(storeMock, timeout(1000).atLeastOnce()).getNextMessages(1, 5, Integer.MAX_VALUE);
+
+        TestUtil.invokePrivate(svc, "stopPublishLanes");
+
+        assertEquals(0, ((List<?>) TestUtil.getFieldValue(svc, "publishLanes")).size());
+        publisherExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testPublishBatch() throws Throwable {
+        // publish a batch of messages and mark them as published with a single store call
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        TestUtil.setFieldValue(svc, "dataTransportService", dtsMock);
+
+        DataTransportToken token = new DataTransportToken(12, "session");
+        when(dtsMock.publish("topic/qos0", null, 0, false)).thenReturn(null);
+        when(dtsMock.publish("topic/qos1", null, 1, false)).thenReturn(token);
+
+        InFlightMessages inFlightMessages = new InFlightMessages();
+        TestUtil.setFieldValue(svc, "inFlightMessages", inFlightMessages);
+
+        List<DataMessage> messages = new ArrayList<>();
+        messages.add(new DataMessage.Builder(1).withTopic("topic/qos0").withQos(0).build());
+        messages.add(new DataMessage.Builder(2).withTopic("topic/qos1").withQos(1).build());
+
+        doAnswer(invocation -> {
+            List<DataMessage> published = (List<DataMessage>) invocation.getArguments()[0];
+
+            assertEquals(2, published.size());
+            assertEquals(1, published.get(0).getId());
+            assertEquals(-1, published.get(0).getPublishedMessageId());
+            assertNull(published.get(0).getSessionId());
+            assertEquals(2, published.get(1).getId());
+            assertEquals(12, published.get(1).getPublishedMessageId());
+            assertEquals("session", published.get(1).getSessionId());
+
+            return null;
+        }).when(storeMock).published(anyObject());
+
+        TestUtil.invokePrivate(svc, "publishBatchInternal", new Class<?>[] { List.class }, messages);
+
+        verify(storeMock, times(1)).published(anyObject());
+        assertEquals(1, inFlightMessages.size());
+        assertEquals(2, inFlightMessages.confirm(token).getId());
+    }
+
+    @Test
+    public void testSpilledMessageKeepsBufferedId() throws Throwable {
+        // a buffered message moved to the store on disconnection is still reported with the returned identifier
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+        when(storeMock.store("topic", null, 0, false, 5))
+                .thenReturn(new DataMessage.Builder(42).withTopic("topic").build());
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        TestUtil.setFieldValue(svc, "dataTransportService", dtsMock);
+        when(dtsMock.isConnected()).thenReturn(true);
+
+        TestUtil.setFieldValue(svc, "cloudConnectionStatusService", mock(CloudConnectionStatusService.class));
+        TestUtil.setFieldValue(svc, "dataServiceListeners", mock(DataServiceListenerS.class));
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("store.memory-buffer.capacity", 10);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        TestUtil.invokePrivate(svc, "createMessageBuffer");
+
+        int bufferedId = svc.publish("topic", null, 0, false, 5);
+        assertTrue(bufferedId < 0);
+        verify(storeMock, times(0)).store("topic", null, 0, false, 5);
+
+        when(dtsMock.isConnected()).thenReturn(false);
+        svc.onDisconnected();
+
+        verify(storeMock, times(1)).store("topic", null, 0, false, 5);
+
+        // no message is buffered after the spill
+        when(storeMock.store("other", null, 0, false, 5))
+                .thenReturn(new DataMessage.Builder(43).withTopic("other").build());
+        assertEquals(43, svc.publish("other", null, 0, false, 5));
+
+        when(storeMock.allUnpublishedMessagesNoPayload())
+                .thenReturn(Collections.singletonList(new DataMessage.Builder(42).withTopic("topic").build()));
+        assertEquals(Collections.singletonList(bufferedId), svc.getUnpublishedMessageIds("topic"));
+        assertEquals(bufferedId, (int) TestUtil.invokePrivate(svc, "getPublishedMessageId",
+                new Class<?>[] { int.class }, 42));
+        assertEquals(42, (int) TestUtil.invokePrivate(svc, "getPublishedMessageId", new Class<?>[] { int.class }, 42));
+    }
+
+    @Test
+    public void testBufferedIdsNotReusedOnReconfiguration() throws Throwable {
+        // the buffer is kept if its capacity is unchanged, a new buffer continues the identifiers of the previous one
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        TestUtil.setFieldValue(svc, "dataTransportService", dtsMock);
+        when(dtsMock.isConnected()).thenReturn(true);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("store.memory-buffer.capacity", 10);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        TestUtil.invokePrivate(svc, "createMessageBuffer");
+        Object buffer = TestUtil.getFieldValue(svc, "messageBuffer");
+
+        int firstId = svc.publish("topic", null, 0, false, 5);
+
+        TestUtil.invokePrivate(svc, "createMessageBuffer");
+        assertSame(buffer, TestUtil.getFieldValue(svc, "messageBuffer"));
+        int secondId = svc.publish("topic", null, 0, false, 5);
+
+        when(storeMock.store("topic", null, 0, false, 5))
+                .thenReturn(new DataMessage.Builder(42).withTopic("topic").build());
+        properties.put("store.memory-buffer.capacity", 20);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        TestUtil.invokePrivate(svc, "createMessageBuffer");
+        int thirdId = svc.publish("topic", null, 0, false, 5);
+
+        properties.put("store.memory-buffer.capacity", 0);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        TestUtil.invokePrivate(svc, "createMessageBuffer");
+        properties.put("store.memory-buffer.capacity", 10);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        TestUtil.invokePrivate(svc, "createMessageBuffer");
+        int fourthId = svc.publish("topic", null, 0, false, 5);
+
+        assertEquals(-1, firstId);
+        assertEquals(-2, secondId);
+        assertEquals(-3, thirdId);
+        assertEquals(-4, fourthId);
+    }
+
+    @Test
+    public void testStopStoreStopsH2StoreOnce() throws Throwable {
+        // closing the tracker stops the H2 based store, it must not be stopped again
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+        TestUtil.setFieldValue(svc, "dbService", mock(H2DbService.class));
+        TestUtil.setFieldValue(svc, "dataTransportService", mock(DataTransportService.class));
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(new HashMap<>()));
+
+        ServiceTracker<?, ?> trackerMock = mock(ServiceTracker.class);
+        doAnswer(invocation -> {
+            svc.unsetH2DbService(null);
+            return null;
+        }).when(trackerMock).close();
+        TestUtil.setFieldValue(svc, "dbServiceTracker", trackerMock);
+
+        TestUtil.invokePrivate(svc, "stopStore");
+
+        verify(trackerMock, times(1)).close();
+        verify(storeMock, times(1)).stop();
+
+        // without a tracked H2DbService the store is stopped directly
+        TestUtil.invokePrivate(svc, "stopStore");
+
+        verify(storeMock, times(2)).stop();
+    }
+
+    @Test
+    public void testSegmentLogDirectoryDefault() throws Throwable {
+        // the segment log store defaults to a directory in the Kura data directory
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        SystemService systemServiceMock = mock(SystemService.class);
+        when(systemServiceMock.getKuraDataDirectory()).thenReturn("/var/kura/data");
+        svc.setSystemService(systemServiceMock);
+
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(new HashMap<>()));
+        assertEquals("/var/kura/data" + File.separator + "message-store",
+                TestUtil.invokePrivate(svc, "getStoreSegmentLogDirectory"));
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("store.segment-log.directory", "/tmp/store");
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        assertEquals("/tmp/store", TestUtil.invokePrivate(svc, "getStoreSegmentLogDirectory"));
+    }
+
+    @Test
+    public void testStoreChangedWithNullDirectory() throws Throwable {
+        // a null segment log directory is handled as any other value
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("store.type", "SEGMENT_LOG");
+        properties.put("store.segment-log.directory", null);
+        DataServiceOptions oldOptions = new DataServiceOptions(new HashMap<>(properties));
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+
+        Class<?>[] parameterTypes = new Class<?>[] { DataServiceOptions.class };
+        assertFalse((boolean) TestUtil.invokePrivate(svc, "isStoreChanged", parameterTypes, oldOptions));
+
+        properties.put("store.segment-log.directory", "/tmp/store");
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        assertTrue((boolean) TestUtil.invokePrivate(svc, "isStoreChanged", parameterTypes, oldOptions));
+
+        properties.put("store.segment-log.directory", null);
+        properties.put("store.segment-log.sync-interval", 10);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        assertTrue((boolean) TestUtil.invokePrivate(svc, "isStoreChanged", parameterTypes, oldOptions));
     }
 
     @Test
@@ -500,9 +753,6 @@ public class DataServiceImplTest {
         String sessionId = "sess1234";
         DataTransportToken token = new DataTransportToken(msgId, sessionId);
 
-        Map<DataTransportToken, Integer> inFlightMsgIds = new HashMap<>();
-        TestUtil.setFieldValue(svc, "inFlightMsgIds", inFlightMsgIds);
-
         Map<String, Object> properties = new HashMap<>();
         properties.put("in-flight-messages.max-number", 0);
         DataServiceOptions dataServiceOptions = new DataServiceOptions(properties);
@@ -522,14 +772,20 @@ public class DataServiceImplTest {
         String sessionId = "sess1234";
         DataTransportToken token = new DataTransportToken(msgId, sessionId);
 
-        Map<DataTransportToken, Integer> inFlightMsgIds = new HashMap<>();
-        inFlightMsgIds.put(token, msgId);
-        TestUtil.setFieldValue(svc, "inFlightMsgIds", inFlightMsgIds);
+        InFlightMessages inFlightMessages = new InFlightMessages();
+        inFlightMessages.track(token, msgId, "topic", 5);
+        TestUtil.setFieldValue(svc, "inFlightMessages", inFlightMessages);
 
         DataStore storeMock = mock(DataStore.class);
         TestUtil.setFieldValue(svc, "store", storeMock);
 
-        doThrow(new KuraStoreException("test")).when(storeMock).confirmed(msgId);
+        ExecutorService confirmationExecutor = Executors.newSingleThreadExecutor();
+        TestUtil.setFieldValue(svc, "confirmationExecutor", confirmationExecutor);
+
+        DataServiceListenerS listenersMock = mock(DataServiceListenerS.class);
+        TestUtil.setFieldValue(svc, "dataServiceListeners", listenersMock);
+
+        doThrow(new KuraStoreException("test")).when(storeMock).confirmed(Collections.singletonList(msgId));
 
         Map<String, Object> properties = new HashMap<>();
         properties.put("in-flight-messages.max-number", 0);
@@ -539,7 +795,11 @@ public class DataServiceImplTest {
 
         svc.onMessageConfirmed(token);
 
-        verify(storeMock, times(1)).confirmed(msgId);
+        verify(storeMock, timeout(1000).times(1)).confirmed(Collections.singletonList(msgId));
+        verify(listenersMock, timeout(1000).times(1)).onMessageConfirmed(msgId, "topic");
+        assertEquals(0, inFlightMessages.size());
+
+        confirmationExecutor.shutdown();
     }
 
     @Test
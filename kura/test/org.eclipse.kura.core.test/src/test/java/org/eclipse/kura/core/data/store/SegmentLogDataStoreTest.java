@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.core.testutil.TestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentLogDataStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private SegmentLogDataStore store;
+
+    @Before
+    public void setUp() throws KuraStoreException {
+        this.directory = new File(this.folder.getRoot(), "store");
+        this.store = new SegmentLogDataStore(this.directory, 4096);
+        this.store.start(null, 3600, 60, 100);
+    }
+
+    @After
+    public void tearDown() {
+        this.store.stop();
+    }
+
+    @Test
+    public void testPriorityOrder() throws KuraStoreException {
+        this.store.store("low", new byte[] { 1 }, 0, false, 5);
+        this.store.store("high", new byte[] { 2 }, 1, false, 1);
+        this.store.store("low2", null, 0, true, 5);
+
+        List<DataMessage> messages = this.store.getNextMessages(10);
+
+        assertEquals(3, messages.size());
+        assertEquals("high", messages.get(0).getTopic());
+        assertEquals("low", messages.get(1).getTopic());
+        assertArrayEquals(new byte[] { 1 }, messages.get(1).getPayload());
+        assertEquals("low2", messages.get(2).getTopic());
+        assertNull(messages.get(2).getPayload());
+
+        assertEquals("high", this.store.getNextMessage().getTopic());
+    }
+
+    @Test
+    public void testPriorityRange() throws KuraStoreException {
+        this.store.store("low", new byte[0], 0, false, 7);
+        this.store.store("high", new byte[0], 0, false, 1);
+
+        List<DataMessage> messages = this.store.getNextMessages(10, 5, Integer.MAX_VALUE);
+
+        assertEquals(1, messages.size());
+        assertEquals("low", messages.get(0).getTopic());
+        assertEquals("high", this.store.getNextMessages(10, Integer.MIN_VALUE, 4).get(0).getTopic());
+    }
+
+    @Test
+    public void testPublishAndConfirm() throws KuraStoreException {
+        DataMessage qos0 = this.store.store("qos0", new byte[0], 0, false, 5);
+        DataMessage qos1 = this.store.store("qos1", new byte[0], 1, false, 5);
+
+        this.store.published(qos0.getId());
+        this.store.published(qos1.getId(), 42, "session");
+
+        assertNull(this.store.getNextMessage());
+        assertEquals(1, this.store.allInFlightMessagesNoPayload().size());
+
+        DataMessage inFlight = this.store.get(qos1.getId());
+        assertEquals(42, inFlight.getPublishedMessageId());
+        assertEquals("session", inFlight.getSessionId());
+
+        this.store.confirmed(qos1.getId());
+
+        assertNotNull(this.store.get(qos1.getId()).getConfirmedOn());
+        assertEquals(0, this.store.allInFlightMessagesNoPayload().size());
+    }
+
+    @Test
+    public void testUnpublishAndDropInFlight() throws KuraStoreException {
+        DataMessage first = this.store.store("first", new byte[0], 1, false, 5);
+        DataMessage second = this.store.store("second", new byte[0], 1, false, 5);
+
+        this.store.published(first.getId(), 1, "session");
+        this.store.unpublishAllInFlighMessages();
+
+        assertEquals(first.getId(), this.store.getNextMessage().getId());
+
+        this.store.published(first.getId(), 1, "session");
+        this.store.published(second.getId(), 2, "session");
+        this.store.dropAllInFlightMessages();
+
+        assertEquals(0, this.store.allInFlightMessagesNoPayload().size());
+        assertEquals(2, this.store.allDroppedInFlightMessagesNoPayload().size());
+    }
+
+    @Test
+    public void testReload() throws KuraStoreException {
+        DataMessage published = this.store.store("published", new byte[] { 1, 2 }, 1, false, 5);
+        this.store.store("unpublished", new byte[] { 3 }, 0, false, 5);
+        this.store.published(published.getId(), 7, "session");
+
+        this.store.stop();
+        this.store = new SegmentLogDataStore(this.directory, 4096);
+        this.store.start(null, 3600, 60, 100);
+
+        List<DataMessage> inFlight = this.store.allInFlightMessagesNoPayload();
+        assertEquals(1, inFlight.size());
+        assertEquals(7, inFlight.get(0).getPublishedMessageId());
+        assertEquals("session", inFlight.get(0).getSessionId());
+
+        DataMessage next = this.store.getNextMessage();
+        assertEquals("unpublished", next.getTopic());
+        assertArrayEquals(new byte[] { 3 }, next.getPayload());
+
+        DataMessage stored = this.store.store("new", new byte[0], 0, false, 5);
+        assertEquals(next.getId() + 1, stored.getId());
+    }
+
+    @Test
+    public void testDeleteStaleMessagesRemovesSegments() throws KuraStoreException {
+        for (int i = 0; i < 50; i++) {
+            DataMessage message = this.store.store("topic", new byte[200], 0, false, 5);
+            this.store.published(message.getId());
+        }
+
+        File logDirectory = new File(this.directory, "5");
+        assertEquals(4, logDirectory.list().length);
+
+        this.store.deleteStaleMessages(0);
+
+        assertEquals(0, logDirectory.list().length);
+        assertNull(this.store.getNextMessage());
+    }
+
+    @Test(expected = KuraStoreCapacityReachedException.class)
+    public void testCapacity() throws KuraStoreException {
+        this.store.update(3600, 60, 1);
+
+        this.store.store("a", new byte[0], 0, false, 5);
+        this.store.store("b", new byte[0], 0, false, 5);
+    }
+
+    @Test
+    public void testChangesFlushedEverySyncInterval() throws Exception {
+        this.store.stop();
+        this.store = new SegmentLogDataStore(this.directory, 4096, 1);
+        this.store.start(null, 3600, 60, 100);
+
+        this.store.store("topic", new byte[0], 0, false, 5);
+        assertTrue((boolean) TestUtil.getFieldValue(this.store, "dirty"));
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((boolean) TestUtil.getFieldValue(this.store, "dirty") && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse((boolean) TestUtil.getFieldValue(this.store, "dirty"));
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.core.internal.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.kura.core.internal.data.InFlightMessages.InFlightMessage;
+import org.eclipse.kura.data.DataTransportToken;
+import org.junit.Test;
+
+public class InFlightMessagesTest {
+
+    @Test
+    public void testTrackAndConfirm() {
+        InFlightMessages messages = new InFlightMessages();
+        DataTransportToken token = new DataTransportToken(1, "session");
+
+        assertNull(messages.track(token, 10, "topic", 5));
+        assertEquals(1, messages.size());
+
+        InFlightMessage confirmed = messages.confirm(token);
+        assertNotNull(confirmed);
+        assertEquals(10, confirmed.getId());
+        assertEquals("topic", confirmed.getTopic());
+        assertEquals(0, messages.size());
+        assertEquals(1, messages.getConfirmedCount());
+
+        assertNull(messages.confirm(token));
+    }
+
+    @Test
+    public void testConfirmationBeforeTrack() {
+        InFlightMessages messages = new InFlightMessages();
+        DataTransportToken token = new DataTransportToken(1, "session");
+
+        assertNull(messages.confirm(token));
+
+        InFlightMessage confirmed = messages.track(token, 10, "topic", 5);
+        assertNotNull(confirmed);
+        assertEquals(10, confirmed.getId());
+        assertEquals(0, messages.size());
+    }
+
+    @Test
+    public void testConfirmationOfOtherSessionNotMatched() {
+        InFlightMessages messages = new InFlightMessages();
+
+        assertNull(messages.confirm(new DataTransportToken(1, "previous")));
+
+        assertNull(messages.track(new DataTransportToken(1, "session"), 10, "topic", 5));
+        assertEquals(1, messages.size());
+    }
+
+    @Test
+    public void testUnmatchedConfirmationsCleared() {
+        InFlightMessages messages = new InFlightMessages();
+        DataTransportToken token = new DataTransportToken(1, "session");
+
+        assertNull(messages.confirm(token));
+        messages.clearUnmatchedConfirmations();
+
+        // the reused MQTT message identifier is not confirmed by the previous confirmation
+        assertNull(messages.track(token, 10, "topic", 5));
+        assertEquals(1, messages.size());
+        assertNotNull(messages.confirm(token));
+    }
+
+    @Test
+    public void testRestoredMessagesDoNotAffectLatency() {
+        InFlightMessages messages = new InFlightMessages();
+        DataTransportToken token = new DataTransportToken(1, "session");
+
+        messages.restore(token, 10, "topic", 5);
+
+        assertEquals(10, messages.confirm(token).getId());
+        assertEquals(0, messages.getConfirmedCount());
+    }
+
+    @Test
+    public void testSizeByPriority() {
+        InFlightMessages messages = new InFlightMessages();
+
+        messages.track(new DataTransportToken(1, "session"), 10, "alarm", 1);
+        messages.track(new DataTransportToken(2, "session"), 11, "telemetry", 7);
+        messages.restore(new DataTransportToken(3, "session"), 12, "telemetry", 9);
+
+        assertEquals(3, messages.size());
+        assertEquals(1, messages.size(Integer.MIN_VALUE, 4));
+        assertEquals(2, messages.size(5, Integer.MAX_VALUE));
+    }
+}
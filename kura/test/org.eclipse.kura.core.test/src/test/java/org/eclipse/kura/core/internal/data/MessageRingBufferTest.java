@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.core.internal.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.kura.core.data.DataMessage;
+import org.junit.Test;
+
+public class MessageRingBufferTest {
+
+    @Test
+    public void testPriorityOrder() {
+        MessageRingBuffer buffer = new MessageRingBuffer(10);
+
+        DataMessage low = buffer.offer("low", null, 0, false, 7);
+        DataMessage high1 = buffer.offer("high1", null, 0, false, 2);
+        DataMessage high2 = buffer.offer("high2", null, 0, false, 2);
+
+        assertTrue(low.getId() < 0);
+        assertSame(high1, buffer.peek(Integer.MAX_VALUE));
+        assertTrue(buffer.remove(high1));
+        assertSame(high2, buffer.peek(Integer.MAX_VALUE));
+        assertTrue(buffer.remove(high2));
+        assertNull(buffer.peek(6));
+        assertSame(low, buffer.peek(7));
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    public void testPeekPriorityRange() {
+        MessageRingBuffer buffer = new MessageRingBuffer(10);
+
+        DataMessage alarm = buffer.offer("alarm", null, 0, false, 1);
+        DataMessage telemetry = buffer.offer("telemetry", null, 0, false, 7);
+
+        assertSame(alarm, buffer.peek(Integer.MIN_VALUE, 4));
+        assertSame(telemetry, buffer.peek(5, Integer.MAX_VALUE));
+        assertNull(buffer.peek(2, 6));
+        assertNull(buffer.peek(5, 4));
+    }
+
+    @Test
+    public void testLaneCapacity() {
+        MessageRingBuffer buffer = new MessageRingBuffer(2);
+
+        DataMessage first = buffer.offer("a", null, 0, false, 5);
+        assertNotNull(buffer.offer("b", null, 0, false, 5));
+        assertNull(buffer.offer("c", null, 0, false, 5));
+        assertNotNull(buffer.offer("d", null, 0, false, 4));
+
+        assertTrue(buffer.remove(first));
+        assertNotNull(buffer.offer("e", null, 0, false, 5));
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    public void testRemoveNotHead() {
+        MessageRingBuffer buffer = new MessageRingBuffer(2);
+
+        buffer.offer("a", null, 0, false, 5);
+        DataMessage second = buffer.offer("b", null, 0, false, 5);
+
+        assertFalse(buffer.remove(second));
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    public void testDrain() {
+        MessageRingBuffer buffer = new MessageRingBuffer(4);
+
+        buffer.offer("a", null, 0, false, 5);
+        buffer.offer("b", null, 0, false, 1);
+        buffer.offer("c", null, 0, false, 5);
+
+        List<DataMessage> messages = buffer.drain();
+
+        assertEquals(3, messages.size());
+        assertEquals("b", messages.get(0).getTopic());
+        assertEquals("a", messages.get(1).getTopic());
+        assertEquals("c", messages.get(2).getTopic());
+        assertEquals(0, buffer.size());
+        assertNull(buffer.peek(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testIdsContinueFromPreviousBuffer() {
+        MessageRingBuffer buffer = new MessageRingBuffer(10);
+        buffer.offer("first", null, 0, false, 5);
+        assertEquals(-2, buffer.getNextId());
+
+        MessageRingBuffer next = new MessageRingBuffer(20, buffer.getNextId());
+        assertEquals(-2, next.offer("second", null, 0, false, 5).getId());
+        assertEquals(20, next.getLaneCapacity());
+    }
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MqttTopicTrieTest {
+
+    @Test
+    public void testExactMatch() {
+        MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+        trie.add("a/b/c", "abc");
+        trie.add("a/b", "ab");
+
+        assertEquals(Collections.singletonList("abc"), trie.match("a/b/c"));
+        assertEquals(Collections.singletonList("ab"), trie.match("a/b"));
+        assertTrue(trie.match("a").isEmpty());
+        assertTrue(trie.match("a/b/c/d").isEmpty());
+    }
+
+    @Test
+    public void testWildcards() {
+        MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+        trie.add("a/+/c", "single");
+        trie.add("a/#", "multi");
+        trie.add("#", "all");
+        trie.add("+/+", "twoLevels");
+
+        assertEquals(new HashSet<>(Arrays.asList("single", "multi", "all")), new HashSet<>(trie.match("a/b/c")));
+        assertEquals(new HashSet<>(Arrays.asList("multi", "all")), new HashSet<>(trie.match("a")));
+        assertEquals(new HashSet<>(Arrays.asList("multi", "all", "twoLevels")), new HashSet<>(trie.match("a/x")));
+        assertEquals(Collections.singletonList("all"), trie.match("b/b/c"));
+    }
+
+    @Test
+    public void testEmptyLevels() {
+        MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+        trie.add("a/+/c", "single");
+
+        assertEquals(Collections.singletonList("single"), trie.match("a//c"));
+        assertTrue(trie.match("a/c").isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+        trie.add("a/+/c", "first");
+        trie.add("a/+/c", "second");
+
+        assertTrue(trie.remove("a/+/c", "first"));
+        assertFalse(trie.remove("a/+/c", "first"));
+        assertFalse(trie.remove("a/b/c", "second"));
+
+        List<String> matches = trie.match("a/b/c");
+        assertEquals(Collections.singletonList("second"), matches);
+
+        assertTrue(trie.remove("a/+/c", "second"));
+        assertTrue(trie.isEmpty());
+    }
+}
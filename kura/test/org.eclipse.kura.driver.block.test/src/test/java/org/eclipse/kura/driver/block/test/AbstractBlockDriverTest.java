@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -20,6 +20,11 @@ import static org.junit.Assert.assertTrue;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -31,6 +36,7 @@ import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.driver.ChannelDescriptor;
 import org.eclipse.kura.driver.Driver.ConnectionException;
 import org.eclipse.kura.driver.binary.Buffer;
+import org.eclipse.kura.driver.block.BlockCostModel;
 import org.eclipse.kura.driver.block.BlockFactory;
 import org.eclipse.kura.driver.block.ProhibitedBlock;
 import org.eclipse.kura.driver.block.task.AbstractBlockDriver;
@@ -141,6 +147,23 @@ public class AbstractBlockDriverTest {
         }
     }
 
+    @Test
+    public void shouldSupportCostModel() throws KuraException {
+        List<Pair<Integer, BlockTask>> tasks = testTasks(1, Mode.READ, 0, 3, 3, 5, 5, 7, 9, 12);
+        List<ChannelRecord> records = getRecords(tasks);
+        TestDriver driver = new TestDriver().withTasks(tasks)
+                .withBlockFactoryProvider((domain, mode) -> new TestBlockFactory(Mode.READ, 0, 12))
+                .withCostModel(new BlockCostModel(10, 1, 8)).withMinimumGapSize(Integer.MAX_VALUE)
+                .afterAggregation(result -> {
+                    assertEquals(2, result.size());
+                    assertEquals(0, result.get(0).getStart());
+                    assertEquals(7, result.get(0).getEnd());
+                    assertEquals(9, result.get(1).getStart());
+                    assertEquals(12, result.get(1).getEnd());
+                });
+        driver.optimize(records, Mode.READ);
+    }
+
     @Test
     public void shouldNotAggregateTasksFromDifferentDomains() throws ConnectionException {
         List<Pair<Integer, BlockTask>> tasks = new ArrayList<>();
@@ -187,6 +210,52 @@ public class AbstractBlockDriverTest {
         }
     }
 
+    @Test
+    public void shouldExecuteDomainsConcurrently() throws ConnectionException {
+        List<Pair<Integer, BlockTask>> tasks = new ArrayList<>();
+        for (int domain = 0; domain < 4; domain++) {
+            tasks.addAll(testTasks(domain, Mode.READ, 0, 3, 5, 8));
+        }
+        List<ChannelRecord> records = getRecords(tasks);
+        ConcurrencyProbe probe = new ConcurrencyProbe(4);
+        TestDriver driver = new TestDriver().withTasks(tasks).withMaxConcurrentTasks(4, 1)
+                .withBlockFactoryProvider((domain, mode) -> probe.factory(domain, mode));
+        driver.read(records);
+        assertEquals(4, probe.maxActive.get());
+        assertEquals(1, probe.maxActiveInDomain.get());
+        for (ChannelRecord record : records) {
+            assertEquals(true, record.getValue().getValue());
+        }
+    }
+
+    @Test
+    public void shouldLimitConcurrentTasksForDomain() throws ConnectionException, KuraException {
+        List<Pair<Integer, BlockTask>> tasks = testTasks(1, Mode.READ, 0, 3, 5, 8, 10, 13, 15, 18);
+        List<ChannelRecord> records = getRecords(tasks);
+        ConcurrencyProbe probe = new ConcurrencyProbe(2);
+        TestDriver driver = new TestDriver().withTasks(tasks).withMaxConcurrentTasks(8, 2)
+                .withBlockFactoryProvider((domain, mode) -> probe.factory(domain, mode));
+        driver.prepareRead(records).execute();
+        assertEquals(2, probe.maxActive.get());
+        for (ChannelRecord record : records) {
+            assertEquals(true, record.getValue().getValue());
+        }
+    }
+
+    @Test
+    public void shouldExecuteUpdateTasksSequentially() throws ConnectionException {
+        List<Pair<Integer, BlockTask>> tasks = testTasks(1, Mode.UPDATE, 0, 3, 5, 8);
+        List<ChannelRecord> records = getRecords(tasks);
+        ConcurrencyProbe probe = new ConcurrencyProbe(1);
+        TestDriver driver = new TestDriver().withTasks(tasks).withMaxConcurrentTasks(4, 4)
+                .withBlockFactoryProvider((domain, mode) -> probe.factory(domain, mode));
+        driver.write(records);
+        assertEquals(1, probe.maxActive.get());
+        for (ChannelRecord record : records) {
+            assertEquals(true, record.getValue().getValue());
+        }
+    }
+
     private List<Pair<Integer, BlockTask>> testTasks(int domain, Mode mode, int... ranges) {
         assertTrue(ranges.length % 2 == 0);
         List<Pair<Integer, BlockTask>> result = new ArrayList<>(ranges.length / 2);
@@ -233,6 +302,52 @@ public class AbstractBlockDriverTest {
 
     }
 
+    private class ConcurrencyProbe {
+
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private final AtomicInteger maxActiveInDomain = new AtomicInteger();
+        private final Map<Integer, AtomicInteger> activeByDomain = new ConcurrentHashMap<>();
+        private final CountDownLatch allActive;
+
+        /**
+         * The first tasks wait until {@code expectedActive} tasks are running at the same time, so that the expected
+         * overlap is always reached. If it cannot be reached, the tasks give up after a timeout.
+         */
+        public ConcurrencyProbe(int expectedActive) {
+            this.allActive = new CountDownLatch(expectedActive);
+        }
+
+        public BlockFactory<ToplevelBlockTask> factory(int domain, Mode mode) {
+            final AtomicInteger activeInDomain = this.activeByDomain.computeIfAbsent(domain, d -> new AtomicInteger());
+            return (start, end) -> new ToplevelBlockTask(start, end, mode) {
+
+                @Override
+                public void processBuffer() throws IOException {
+                    updateMax(ConcurrencyProbe.this.maxActive, ConcurrencyProbe.this.active.incrementAndGet());
+                    updateMax(ConcurrencyProbe.this.maxActiveInDomain, activeInDomain.incrementAndGet());
+                    ConcurrencyProbe.this.allActive.countDown();
+                    try {
+                        ConcurrencyProbe.this.allActive.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    activeInDomain.decrementAndGet();
+                    ConcurrencyProbe.this.active.decrementAndGet();
+                }
+
+                @Override
+                public Buffer getBuffer() {
+                    return null;
+                }
+            };
+        }
+
+        private void updateMax(AtomicInteger max, int value) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
     private class TestTask extends UpdateBlockTask {
 
         public TestTask(int start, int end, Mode mode) {
@@ -280,6 +395,9 @@ public class AbstractBlockDriverTest {
         private Consumer<List<BlockTask>> afterAggregation;
         private Consumer<BlockTaskAggregator> beforeAggregation;
         private int minimumGapSize;
+        private BlockCostModel costModel;
+        private int maxConcurrentTasks = 1;
+        private int maxConcurrentTasksForDomain = 1;
 
         public TestDriver withTasks(List<Pair<Integer, BlockTask>> tasks) {
             this.tasks = tasks;
@@ -291,6 +409,17 @@ public class AbstractBlockDriverTest {
             return this;
         }
 
+        public TestDriver withMaxConcurrentTasks(int maxConcurrentTasks, int maxConcurrentTasksForDomain) {
+            this.maxConcurrentTasks = maxConcurrentTasks;
+            this.maxConcurrentTasksForDomain = maxConcurrentTasksForDomain;
+            return this;
+        }
+
+        public TestDriver withCostModel(BlockCostModel costModel) {
+            this.costModel = costModel;
+            return this;
+        }
+
         public TestDriver withBlockFactoryProvider(
                 BiFunction<Integer, Mode, BlockFactory<ToplevelBlockTask>> blockFactoryProvider) {
             this.blockFactoryProvider = blockFactoryProvider;
@@ -312,6 +441,21 @@ public class AbstractBlockDriverTest {
             return this.minimumGapSize;
         }
 
+        @Override
+        protected BlockCostModel getCostModelForDomain(Integer domain, Mode mode) {
+            return this.costModel;
+        }
+
+        @Override
+        protected int getMaxConcurrentTasks() {
+            return this.maxConcurrentTasks;
+        }
+
+        @Override
+        protected int getMaxConcurrentTasksForDomain(Integer domain) {
+            return this.maxConcurrentTasksForDomain;
+        }
+
         @Override
         protected void beforeAggregation(Integer domain, Mode mode, BlockTaskAggregator aggregator) {
             if (this.beforeAggregation != null) {
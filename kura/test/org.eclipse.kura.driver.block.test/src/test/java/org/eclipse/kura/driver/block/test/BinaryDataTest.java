@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -17,8 +17,10 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Random;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -28,6 +30,7 @@ import org.eclipse.kura.driver.binary.BinaryDataTypes;
 import org.eclipse.kura.driver.binary.Buffer;
 import org.eclipse.kura.driver.binary.ByteArray;
 import org.eclipse.kura.driver.binary.ByteArrayBuffer;
+import org.eclipse.kura.driver.binary.ByteBufferBuffer;
 import org.eclipse.kura.driver.binary.Endianness;
 import org.eclipse.kura.driver.binary.UnsignedIntegerLE;
 import org.eclipse.kura.driver.binary.adapter.GainOffset;
@@ -178,6 +181,79 @@ public class BinaryDataTest {
         testRead(new UnsignedIntegerLE(17, 7), (endiannes, size) -> testBuf2, BigInteger.valueOf(87381));
     }
 
+    @Test
+    public void shouldSupportPrimitiveReads() {
+        final Random random = new Random(1234);
+        final byte[] data = new byte[64];
+        for (int i = 0; i < 100; i++) {
+            random.nextBytes(data);
+            final ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 3);
+            direct.position(3);
+            direct.put(data);
+            direct.position(3);
+
+            for (final BinaryData<?> type : BinaryDataTypes.VALUES) {
+                for (int offset = 0; offset <= data.length - type.getSize(); offset += 3) {
+                    final Number expected = (Number) type.read(new ByteArrayBuffer(data), offset);
+                    for (final Buffer buffer : Arrays.asList(new ByteArrayBuffer(data),
+                            new ByteBufferBuffer(ByteBuffer.wrap(data)), new ByteBufferBuffer(direct),
+                            new BytewiseBuffer(data))) {
+                        assertEquals(expected, type.read(buffer, offset));
+                        assertEquals(expected.intValue(), type.readInt(buffer, offset));
+                        assertEquals(expected.longValue(), type.readLong(buffer, offset));
+                        assertEquals(expected.floatValue(), type.readFloat(buffer, offset), 0.0f);
+                        assertEquals(expected.doubleValue(), type.readDouble(buffer, offset), 0.0d);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldSupportUnsignedIntegerPrimitiveReads() {
+        final Random random = new Random(1234);
+        final byte[] data = new byte[16];
+        for (int i = 0; i < 100; i++) {
+            random.nextBytes(data);
+            final byte[] reversed = new byte[data.length];
+            for (int j = 0; j < data.length; j++) {
+                reversed[j] = data[data.length - j - 1];
+            }
+            final BigInteger all = new BigInteger(1, reversed);
+
+            for (int sizeBits = 1; sizeBits <= 64; sizeBits++) {
+                for (int startBitOffset = 0; startBitOffset < 8; startBitOffset++) {
+                    final UnsignedIntegerLE type = new UnsignedIntegerLE(sizeBits, startBitOffset);
+                    final BigInteger expected = all.shiftRight(8 + startBitOffset)
+                            .and(BigInteger.ONE.shiftLeft(sizeBits).subtract(BigInteger.ONE));
+                    final ByteArrayBuffer buffer = new ByteArrayBuffer(data);
+
+                    assertEquals(expected, type.read(buffer, 1));
+                    assertEquals(expected.longValue(), type.readLong(buffer, 1));
+                    assertEquals(expected.doubleValue(), type.readDouble(buffer, 1), 0.0d);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldSupportByteBufferBuffer() {
+        final ByteBuffer backing = ByteBuffer.allocate(8);
+        backing.position(2);
+        final ByteBufferBuffer buffer = new ByteBufferBuffer(backing);
+        backing.position(0);
+
+        assertEquals(6, buffer.getLength());
+        BinaryDataTypes.INT32_BE.write(buffer, 1, 0x01020304);
+        assertArrayEquals(new byte[] { 0, 0, 0, 1, 2, 3, 4, 0 }, backing.array());
+        assertEquals(0x04030201, buffer.getInt(1, Endianness.LITTLE_ENDIAN));
+
+        buffer.write(0, new byte[] { 5, 6 });
+        final byte[] result = new byte[3];
+        buffer.read(0, result);
+        assertArrayEquals(new byte[] { 5, 6, 2 }, result);
+    }
+
     @Test
     public void shouldSupportByteArray() {
         final byte[] testBuf = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 };
@@ -355,6 +431,30 @@ public class BinaryDataTest {
         return result;
     }
 
+    private static class BytewiseBuffer implements Buffer {
+
+        private final byte[] data;
+
+        BytewiseBuffer(final byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public void put(int offset, byte value) {
+            this.data[offset] = value;
+        }
+
+        @Override
+        public byte get(int offset) {
+            return this.data[offset];
+        }
+
+        @Override
+        public int getLength() {
+            return this.data.length;
+        }
+    }
+
     private <T> void testRead(BinaryData<T> data, BiFunction<Endianness, Integer, byte[]> bufferProvider,
             T expectedValue) {
         testRead(data, bufferProvider, expectedValue, Assert::assertEquals);
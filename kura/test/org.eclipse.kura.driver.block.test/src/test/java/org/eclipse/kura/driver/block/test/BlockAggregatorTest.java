@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -23,6 +23,7 @@ import java.util.List;
 
 import org.eclipse.kura.driver.block.Block;
 import org.eclipse.kura.driver.block.BlockAggregator;
+import org.eclipse.kura.driver.block.BlockCostModel;
 import org.eclipse.kura.driver.block.ProhibitedBlock;
 import org.junit.Test;
 
@@ -110,12 +111,69 @@ public class BlockAggregatorTest {
         new TestHelper().setInput(0, 1, 2, 3, 8, 9).prohibit(4, 7).expect(0, 3, 8, 9).setMinimumGapSize(10).exec();
     }
 
+    @Test
+    public void shouldSplitBlocksLongerThanMaximumLength() {
+        final BlockCostModel model = new BlockCostModel(10, 1, 6);
+        new TestHelper().setInput(0, 2, 2, 4, 4, 6, 6, 8, 8, 10, 10, 12).setCostModel(model).expect(0, 6, 6, 12)
+                .exec();
+        new TestHelper().setInput(0, 2, 2, 4, 4, 6, 6, 8).setCostModel(model).expect(0, 6, 6, 8).exec();
+    }
+
+    @Test
+    public void shouldNotSplitOverlappingBlocks() {
+        final BlockCostModel model = new BlockCostModel(10, 1, 5);
+        new TestHelper().setInput(0, 10, 2, 4, 10, 12).setCostModel(model).expect(0, 10, 10, 12).exec();
+        new TestHelper().setInput(0, 3, 2, 6, 6, 8).setCostModel(model).expect(0, 6, 6, 8).exec();
+    }
+
+    @Test
+    public void shouldTransferGapsOnlyIfCheaper() {
+        final BlockCostModel model = new BlockCostModel(5, 1);
+        new TestHelper().setInput(0, 2, 4, 6, 30, 32).setCostModel(model).setMinimumGapSize(Integer.MAX_VALUE)
+                .expect(0, 6, 30, 32).exec();
+        new TestHelper().setInput(0, 2, 4, 6, 9, 11, 30, 32).setCostModel(model)
+                .setMinimumGapSize(Integer.MAX_VALUE).expect(0, 11, 30, 32).exec();
+        // without request cost every gap is a waste
+        new TestHelper().setInput(0, 2, 3, 6).setCostModel(new BlockCostModel(0, 1))
+                .setMinimumGapSize(Integer.MAX_VALUE).expect(0, 2, 3, 6).exec();
+    }
+
+    @Test
+    public void shouldTransferGapsShorterThanMinimumGapSizeWithCostModel() {
+        final BlockCostModel model = new BlockCostModel(5, 1);
+        new TestHelper().setInput(0, 2, 4, 6, 30, 32).setCostModel(model).expect(0, 2, 4, 6, 30, 32).exec();
+        new TestHelper().setInput(0, 2, 4, 6, 7, 9).setCostModel(model).setMinimumGapSize(2)
+                .expect(0, 2, 4, 9).exec();
+    }
+
+    @Test
+    public void shouldSupportProhibitedBlocksWithCostModel() {
+        final BlockCostModel model = new BlockCostModel(100, 1, 100);
+        new TestHelper().setInput(0, 2, 4, 6, 8, 10).prohibit(2, 3).setCostModel(model)
+                .setMinimumGapSize(Integer.MAX_VALUE).expect(0, 2, 4, 10).exec();
+        new TestHelper().setInput(0, 1, 1, 2, 3, 4).prohibit(2, 3).setCostModel(model).expect(0, 2, 3, 4).exec();
+        new TestHelper().prohibit(0, 1).setCostModel(model).expect().exec();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldReportUnfeasibleProblemWithCostModel() {
+        new TestHelper().setInput(0, 2, 3, 4, 8, 10).prohibit(3, 9).setCostModel(new BlockCostModel(1, 1)).exec();
+    }
+
+    @Test
+    public void shouldAggregateLikeUnionWithUnboundedCostModel() {
+        new TestHelper().setInput(0, 1, 1, 2, 3, 4, 2, 3).setCostModel(new BlockCostModel(1, 1)).expect(0, 4).exec();
+        new TestHelper().setInput(10, 12, 12, 14, 4, 8, 0, 4).setCostModel(new BlockCostModel(1, 1))
+                .expect(0, 8, 10, 14).exec();
+    }
+
     private static class TestHelper {
 
         private int[] inputBlocks;
         private int[] prohibitedBlocks;
         private int[] outputBlocks;
         private int minimumGapSize;
+        private BlockCostModel costModel;
         BlockAggregator<Block> aggregator;
 
         private TestHelper() {
@@ -142,6 +200,11 @@ public class BlockAggregatorTest {
             return (this);
         }
 
+        public TestHelper setCostModel(BlockCostModel costModel) {
+            this.costModel = costModel;
+            return this;
+        }
+
         public TestHelper prohibit(int... prohibitedBlocks) {
             if (prohibitedBlocks.length % 2 != 0) {
                 fail("block list size must be a multiple of 2");
@@ -165,6 +228,7 @@ public class BlockAggregatorTest {
             }
             aggregator = new BlockAggregator<Block>(inputBlocksTemp, (start, end) -> new Block(start, end));
             aggregator.setMinimumGapSize(minimumGapSize);
+            aggregator.setCostModel(costModel);
             Iterator<Block> blocks = aggregator.stream().iterator();
 
             if (outputBlocks != null) {
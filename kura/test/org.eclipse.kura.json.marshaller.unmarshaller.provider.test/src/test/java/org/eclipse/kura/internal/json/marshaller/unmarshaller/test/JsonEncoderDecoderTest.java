@@ -422,6 +422,44 @@ public class JsonEncoderDecoderTest {
         assertEquals(expected, result.toString());
     }
 
+    @Test
+    public void testMarshalComponentPropertiesWithMailbox() throws Throwable {
+        WireGraphJsonMarshallUnmarshallImpl jsonEncoderDecoder = new WireGraphJsonMarshallUnmarshallImpl();
+
+        Map<String, Object> inputMap = new HashMap<>();
+        inputMap.put("position.x", 10f);
+        inputMap.put("position.y", 100f);
+        inputMap.put("inputPortCount", 1);
+        inputMap.put("outputPortCount", 0);
+        inputMap.put("mailbox.capacity", 16);
+        inputMap.put("mailbox.overflowPolicy", "DROP_OLDEST");
+
+        JsonObject result = (JsonObject) TestUtil.invokePrivate(jsonEncoderDecoder, "marshalComponentProperties",
+                "testPid", inputMap);
+
+        assertNotNull(result);
+
+        String expected = "{\"pid\":\"testPid\",\"inputPortCount\":1,\"outputPortCount\":0,\"renderingProperties\":{\"position\":{\"x\":10,\"y\":100},\"inputPortNames\":{},\"outputPortNames\":{}},\"mailbox\":{\"capacity\":16,\"overflowPolicy\":\"DROP_OLDEST\"}}";
+        assertEquals(expected, result.toString());
+    }
+
+    @Test
+    public void testUnmarshalWireComponentConfigurationWithMailbox() throws Throwable {
+        WireGraphJsonMarshallUnmarshallImpl jsonEncoderDecoder = new WireGraphJsonMarshallUnmarshallImpl();
+        String json = "[{\"pid\":\"foo\",\"inputPortCount\":1,\"outputPortCount\":0,"
+                + "\"mailbox\":{\"capacity\":16,\"overflowPolicy\":\"DROP_NEWEST\"}}]";
+
+        JsonArray jsonArray = Json.parse(json).asArray();
+        @SuppressWarnings("unchecked")
+        List<WireComponentConfiguration> wireComponentConfigurationList = (List<WireComponentConfiguration>) TestUtil
+                .invokePrivate(jsonEncoderDecoder, "unmarshalWireComponentConfiguration", jsonArray);
+        assertEquals(1, wireComponentConfigurationList.size());
+
+        Map<String, Object> properties = wireComponentConfigurationList.get(0).getProperties();
+        assertEquals(16, properties.get("mailbox.capacity"));
+        assertEquals("DROP_NEWEST", properties.get("mailbox.overflowPolicy"));
+    }
+
     @Test
     public void testMarshalWireComponentConfigurationList() throws Throwable {
         WireGraphJsonMarshallUnmarshallImpl jsonEncoderDecoder = new WireGraphJsonMarshallUnmarshallImpl();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -13,14 +13,20 @@
 
 package org.eclipse.kura.protocol.modbus;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.eclipse.kura.KuraConnectionStatus;
 import org.eclipse.kura.protocol.modbus.test.ModbusServer;
+import org.eclipse.kura.protocol.modbus.test.PipeliningModbusServer;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -34,6 +40,7 @@ public class ModbusProtocolDeviceTest {
     private static final Logger logger = LoggerFactory.getLogger(ModbusProtocolDeviceTest.class);
 
     private static ModbusServer modbusServer;
+    private static PipeliningModbusServer pipeliningModbusServer;
 
     private ModbusProtocolDevice modbusDevice;
 
@@ -41,12 +48,15 @@ public class ModbusProtocolDeviceTest {
     public static void startServer() throws Exception {
         modbusServer = new ModbusServer();
         modbusServer.start(32345);
+        pipeliningModbusServer = new PipeliningModbusServer();
+        pipeliningModbusServer.start(0);
         logger.info("MODBUS server started");
     }
 
     @AfterClass
-    public static void stopServer() throws IOException {
+    public static void stopServer() throws IOException, InterruptedException {
         modbusServer.stop();
+        pipeliningModbusServer.stop();
         logger.info("MODBUS server stopped");
     }
 
@@ -129,4 +139,164 @@ public class ModbusProtocolDeviceTest {
         assertEquals(10, inputRegs[0]);
     }
 
+    @Test
+    public void testReadBatchPipelined() throws ModbusProtocolException {
+        ModbusProtocolDevice pipelinedDevice = createPipelinedDevice(8);
+        try {
+            List<ModbusReadRequest> requests = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                requests.add(ModbusReadRequest.readHoldingRegisters(1, i * 10, 3));
+            }
+            requests.add(ModbusReadRequest.readInputRegisters(2, 300, 2));
+            requests.add(ModbusReadRequest.readCoils(3, 4, 10));
+            requests.add(ModbusReadRequest.readDiscreteInputs(4, 1, 3));
+
+            List<ModbusReadResult> results = pipelinedDevice.readBatch(requests);
+
+            assertEquals(requests.size(), results.size());
+            for (int i = 0; i < 20; i++) {
+                assertTrue(results.get(i).isSuccessful());
+                assertArrayEquals(new int[] { i * 10, i * 10 + 1, i * 10 + 2 }, results.get(i).getRegisters());
+            }
+            assertArrayEquals(new int[] { 300, 301 }, results.get(20).getRegisters());
+            assertArrayEquals(new boolean[] { true, false, true, false, true, false, true, false, true, false },
+                    results.get(21).getBits());
+            assertArrayEquals(new boolean[] { false, true, false }, results.get(22).getBits());
+            assertTrue(pipeliningModbusServer.getMaxPendingRequests() > 1);
+        } finally {
+            pipelinedDevice.disconnect();
+        }
+    }
+
+    @Test
+    public void testReadBatchReportsFailedRequests() throws ModbusProtocolException {
+        ModbusProtocolDevice pipelinedDevice = createPipelinedDevice(4);
+        try {
+            List<ModbusReadRequest> requests = new ArrayList<>();
+            requests.add(ModbusReadRequest.readHoldingRegisters(1, 0, 2));
+            requests.add(ModbusReadRequest.readHoldingRegisters(PipeliningModbusServer.FAILING_UNIT, 0, 2));
+            requests.add(ModbusReadRequest.readInputRegisters(1, 5, 1));
+
+            List<ModbusReadResult> results = pipelinedDevice.readBatch(requests);
+
+            assertArrayEquals(new int[] { 0, 1 }, results.get(0).getRegisters());
+            assertFalse(results.get(1).isSuccessful());
+            assertNull(results.get(1).getRegisters());
+            assertEquals(ModbusProtocolErrorCode.TRANSACTION_FAILURE, results.get(1).getError().getCode());
+            assertArrayEquals(new int[] { 5 }, results.get(2).getRegisters());
+
+            // single read methods share the pipelined connection
+            assertArrayEquals(new int[] { 7, 8 }, pipelinedDevice.readHoldingRegisters(1, 7, 2));
+        } finally {
+            pipelinedDevice.disconnect();
+        }
+    }
+
+    @Test
+    public void testReadBatchTimeout() throws ModbusProtocolException {
+        ModbusProtocolDevice pipelinedDevice = createPipelinedDevice(4, 300);
+        try {
+            List<ModbusReadRequest> requests = new ArrayList<>();
+            requests.add(ModbusReadRequest.readHoldingRegisters(PipeliningModbusServer.SILENT_UNIT, 0, 1));
+            requests.add(ModbusReadRequest.readHoldingRegisters(1, 3, 1));
+
+            List<ModbusReadResult> results = pipelinedDevice.readBatch(requests);
+
+            assertEquals(ModbusProtocolErrorCode.RESPONSE_TIMEOUT, results.get(0).getError().getCode());
+            assertArrayEquals(new int[] { 3 }, results.get(1).getRegisters());
+        } finally {
+            pipelinedDevice.disconnect();
+        }
+    }
+
+    @Test
+    public void testReadBatchSequential() throws ModbusProtocolException {
+        ModbusProtocolDevice sequentialDevice = createPipelinedDevice(1);
+        try {
+            List<ModbusReadRequest> requests = new ArrayList<>();
+            requests.add(ModbusReadRequest.readHoldingRegisters(1, 10, 2));
+            requests.add(ModbusReadRequest.readCoils(1, 0, 2));
+
+            List<ModbusReadResult> results = sequentialDevice.readBatch(requests);
+
+            assertArrayEquals(new int[] { 10, 11 }, results.get(0).getRegisters());
+            assertArrayEquals(new boolean[] { true, false }, results.get(1).getBits());
+        } finally {
+            sequentialDevice.disconnect();
+        }
+    }
+
+    @Test
+    public void testPooledDevicesShareConnections() throws ModbusProtocolException {
+        ModbusProtocolDevice firstDevice = createPooledDevice(4);
+        ModbusProtocolDevice secondDevice = createPooledDevice(4);
+        try {
+            List<ModbusReadRequest> requests = new ArrayList<>();
+            for (int unit = 1; unit <= 12; unit++) {
+                requests.add(ModbusReadRequest.readHoldingRegisters(unit, unit, 1));
+            }
+
+            List<ModbusReadResult> results = firstDevice.readBatch(requests);
+            for (int i = 0; i < requests.size(); i++) {
+                assertArrayEquals(new int[] { i + 1 }, results.get(i).getRegisters());
+            }
+            assertArrayEquals(new int[] { 20 }, secondDevice.readInputRegisters(13, 20, 1));
+
+            List<ModbusConnectionMetrics> metrics = secondDevice.getConnectionMetrics();
+            assertTrue(metrics.size() > 1);
+            assertTrue(metrics.size() <= 4);
+            assertEquals(metrics.size(), firstDevice.getConnectionMetrics().size());
+
+            long requestCount = 0;
+            for (ModbusConnectionMetrics connectionMetrics : metrics) {
+                assertEquals("127.0.0.1:" + pipeliningModbusServer.getPort(), connectionMetrics.getGateway());
+                assertTrue(connectionMetrics.isConnected());
+                assertEquals(0, connectionMetrics.getErrorCount());
+                requestCount += connectionMetrics.getRequestCount();
+            }
+            assertEquals(13, requestCount);
+
+            firstDevice.disconnect();
+            assertEquals(KuraConnectionStatus.CONNECTED, secondDevice.getConnectStatus());
+            assertArrayEquals(new int[] { 3 }, secondDevice.readHoldingRegisters(1, 3, 1));
+        } finally {
+            firstDevice.disconnect();
+            secondDevice.disconnect();
+        }
+        assertTrue(secondDevice.getConnectionMetrics().isEmpty());
+    }
+
+    private ModbusProtocolDevice createPooledDevice(int maxConnections) throws ModbusProtocolException {
+        ModbusProtocolDevice device = new ModbusProtocolDevice();
+        Properties connectionConfig = new Properties();
+        connectionConfig.setProperty("connectionType", ModbusProtocolDevice.PROTOCOL_CONNECTION_TYPE_ETHER_TCP);
+        connectionConfig.setProperty("ipAddress", "127.0.0.1");
+        connectionConfig.setProperty("ethport", Integer.toString(pipeliningModbusServer.getPort()));
+        connectionConfig.setProperty("respTimeout", "10000");
+        connectionConfig.setProperty("transmissionMode", ModbusTransmissionMode.RTU);
+        connectionConfig.setProperty("maxConnections", Integer.toString(maxConnections));
+        device.configureConnection(connectionConfig);
+        device.connect();
+        return device;
+    }
+
+    private ModbusProtocolDevice createPipelinedDevice(int maxOutstandingRequests) throws ModbusProtocolException {
+        return createPipelinedDevice(maxOutstandingRequests, 10000);
+    }
+
+    private ModbusProtocolDevice createPipelinedDevice(int maxOutstandingRequests, int respTimeout)
+            throws ModbusProtocolException {
+        ModbusProtocolDevice device = new ModbusProtocolDevice();
+        Properties connectionConfig = new Properties();
+        connectionConfig.setProperty("connectionType", ModbusProtocolDevice.PROTOCOL_CONNECTION_TYPE_ETHER_TCP);
+        connectionConfig.setProperty("ipAddress", "127.0.0.1");
+        connectionConfig.setProperty("ethport", Integer.toString(pipeliningModbusServer.getPort()));
+        connectionConfig.setProperty("respTimeout", Integer.toString(respTimeout));
+        connectionConfig.setProperty("transmissionMode", ModbusTransmissionMode.RTU);
+        connectionConfig.setProperty("maxOutstandingRequests", Integer.toString(maxOutstandingRequests));
+        device.configureConnection(connectionConfig);
+        device.connect();
+        return device;
+    }
+
 }
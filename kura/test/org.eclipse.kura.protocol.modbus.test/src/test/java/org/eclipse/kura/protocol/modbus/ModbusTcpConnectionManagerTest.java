@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+
+package org.eclipse.kura.protocol.modbus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.protocol.modbus.ModbusTcpConnectionManager.GatewayPool;
+import org.eclipse.kura.protocol.modbus.test.PipeliningModbusServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModbusTcpConnectionManagerTest {
+
+    private PipeliningModbusServer server;
+    private ModbusTcpConnectionManager manager;
+    private int port;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new PipeliningModbusServer();
+        this.server.start(0);
+        this.port = this.server.getPort();
+        // health checks are run explicitly by the tests
+        this.manager = new ModbusTcpConnectionManager(TimeUnit.HOURS.toMillis(1));
+    }
+
+    @After
+    public void tearDown() throws IOException, InterruptedException {
+        this.server.stop();
+    }
+
+    @Test
+    public void testPoolSharedAndReleased() throws ModbusProtocolException {
+        GatewayPool first = this.manager.acquire("127.0.0.1", this.port, 1, 1, 1000);
+        GatewayPool second = this.manager.acquire("127.0.0.1", this.port, 2, 1, 1000);
+        assertSame(first, second);
+
+        first.connect();
+        assertTrue(first.isConnected());
+
+        this.manager.release(first);
+        assertTrue(second.isConnected());
+        assertEquals(10, readRegister(second, 1, 10));
+
+        this.manager.release(second);
+        assertFalse(second.isConnected());
+        assertTrue(second.getMetrics().isEmpty());
+
+        second.connect();
+        assertFalse(second.isConnected());
+        try {
+            readRegister(second, 1, 10);
+            fail("Expected the closed pool to refuse the request");
+        } catch (ModbusProtocolException e) {
+            assertEquals(ModbusProtocolErrorCode.TRANSACTION_FAILURE, e.getCode());
+        }
+        assertTrue(second.getMetrics().isEmpty());
+    }
+
+    @Test
+    public void testHealthCheckReconnects() throws Exception {
+        GatewayPool pool = this.manager.acquire("127.0.0.1", this.port, 1, 1, 1000);
+        try {
+            pool.connect();
+            assertEquals(0, pool.getMetrics().get(0).getConnectionId());
+
+            this.server.awaitConnections(1);
+            this.server.closeConnections();
+            waitUntilDisconnected(pool);
+
+            this.manager.checkHealth();
+
+            List<ModbusConnectionMetrics> metrics = pool.getMetrics();
+            assertEquals(1, metrics.size());
+            assertEquals(1, metrics.get(0).getConnectionId());
+            assertTrue(metrics.get(0).isConnected());
+            assertEquals(5, readRegister(pool, 1, 5));
+        } finally {
+            this.manager.release(pool);
+        }
+    }
+
+    @Test
+    public void testHealthCheckClosesUnresponsiveConnection() throws Exception {
+        GatewayPool pool = this.manager.acquire("127.0.0.1", this.port, 1, 4, 1000);
+        try {
+            for (int i = 0; i < ModbusTcpConnectionManager.MAX_CONSECUTIVE_TIMEOUTS; i++) {
+                try {
+                    ModbusTcpTransport.await(pool.submit(
+                            new byte[] { (byte) PipeliningModbusServer.SILENT_UNIT, 3, 0, 0, 0, 1 }, 100));
+                    fail("Expected a timeout");
+                } catch (ModbusProtocolException e) {
+                    assertEquals(ModbusProtocolErrorCode.RESPONSE_TIMEOUT, e.getCode());
+                }
+            }
+
+            ModbusConnectionMetrics metrics = pool.getMetrics().get(0);
+            assertEquals(ModbusTcpConnectionManager.MAX_CONSECUTIVE_TIMEOUTS, metrics.getTimeoutCount());
+            assertEquals(ModbusTcpConnectionManager.MAX_CONSECUTIVE_TIMEOUTS, metrics.getErrorCount());
+
+            this.manager.checkHealth();
+
+            metrics = pool.getMetrics().get(0);
+            assertEquals(1, metrics.getConnectionId());
+            assertEquals(0, metrics.getRequestCount());
+            assertEquals(7, readRegister(pool, 2, 7));
+            assertEquals(1, pool.getMetrics().get(0).getResponseCount());
+        } finally {
+            this.manager.release(pool);
+        }
+    }
+
+    private static int readRegister(GatewayPool pool, int unitAddr, int address) throws ModbusProtocolException {
+        byte[] response = ModbusTcpTransport
+                .await(pool.submit(new byte[] { (byte) unitAddr, 3, 0, (byte) address, 0, 1 }, 1000));
+        return (response[3] & 0xff) << 8 | response[4] & 0xff;
+    }
+
+    private static void waitUntilDisconnected(GatewayPool pool) throws InterruptedException {
+        for (int i = 0; i < 100 && pool.isConnected(); i++) {
+            Thread.sleep(20);
+        }
+        assertFalse(pool.isConnected());
+    }
+}
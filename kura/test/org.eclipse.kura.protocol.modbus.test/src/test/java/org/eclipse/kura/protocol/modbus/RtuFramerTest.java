@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+
+package org.eclipse.kura.protocol.modbus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class RtuFramerTest {
+
+    @Test
+    public void testFrameReceivedInChunks() {
+        byte[] frame = withCrc(1, 3, 4, 0, 10, 0, 11);
+        RtuFramer framer = new RtuFramer(1, 3);
+
+        assertNull(framer.accept(frame, 0, 2));
+        assertNull(framer.accept(frame, 2, 3));
+        assertArrayEquals(frame, framer.accept(frame, 5, frame.length - 5));
+        assertEquals(0, framer.getLength());
+    }
+
+    @Test
+    public void testLeadingNoiseDiscarded() {
+        byte[] frame = withCrc(1, 6, 0, 0, 0, 37);
+        byte[] received = concat(new byte[] { 0, (byte) 0xff, 1, 4 }, frame);
+        RtuFramer framer = new RtuFramer(1, 6);
+
+        assertArrayEquals(frame, framer.accept(received, 0, received.length));
+    }
+
+    @Test
+    public void testResyncAfterBadCrc() {
+        byte[] corrupted = withCrc(1, 4, 2, 0, 10);
+        corrupted[corrupted.length - 1] ^= 0x55;
+        byte[] frame = withCrc(1, 4, 2, 0, 10);
+        byte[] received = concat(corrupted, frame);
+        RtuFramer framer = new RtuFramer(1, 4);
+
+        assertArrayEquals(frame, framer.accept(received, 0, received.length));
+    }
+
+    @Test
+    public void testSilenceDiscardsPartialFrame() {
+        byte[] frame = withCrc(1, 3, 2, 0, 10);
+        RtuFramer framer = new RtuFramer(1, 3);
+
+        assertNull(framer.accept(frame, 0, 3));
+        framer.silence();
+        assertEquals(0, framer.getLength());
+        assertNull(framer.accept(frame, 3, frame.length - 3));
+        assertArrayEquals(frame, framer.accept(frame, 0, frame.length));
+    }
+
+    @Test
+    public void testExceptionResponse() {
+        byte[] frame = withCrc(1, 0x83, 2);
+        RtuFramer framer = new RtuFramer(1, 3);
+
+        assertArrayEquals(frame, framer.accept(frame, 0, frame.length));
+    }
+
+    @Test
+    public void testInterFrameSilence() {
+        assertEquals(RtuFramer.MIN_INTER_FRAME_SILENCE, RtuFramer.getInterFrameSilence(115200));
+        assertEquals(RtuFramer.MIN_INTER_FRAME_SILENCE, RtuFramer.getInterFrameSilence(9600));
+        assertEquals(33, RtuFramer.getInterFrameSilence(1200));
+    }
+
+    private static byte[] withCrc(int... values) {
+        byte[] frame = new byte[values.length + 2];
+        for (int i = 0; i < values.length; i++) {
+            frame[i] = (byte) values[i];
+        }
+        int crc = Crc16.getCrc16(frame, values.length, 0xffff);
+        frame[values.length] = (byte) crc;
+        frame[values.length + 1] = (byte) (crc >> 8);
+        return frame;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
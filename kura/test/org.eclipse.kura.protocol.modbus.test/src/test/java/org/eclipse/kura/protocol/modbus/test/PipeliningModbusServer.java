@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+
+package org.eclipse.kura.protocol.modbus.test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Modbus TCP server that handles several outstanding transactions per connection: the requests received within
+ * a short interval are answered in reverse order, with the transaction identifier of each request.
+ * <p>
+ * Register <i>n</i> holds the value <i>n</i>, coil and discrete input <i>n</i> are set if <i>n</i> is even, the
+ * requests addressed to {@link #FAILING_UNIT} are answered with an illegal data address exception and the ones
+ * addressed to {@link #SILENT_UNIT} are not answered.
+ */
+public class PipeliningModbusServer {
+
+    public static final int FAILING_UNIT = 99;
+    public static final int SILENT_UNIT = 98;
+
+    private static final Logger logger = LoggerFactory.getLogger(PipeliningModbusServer.class);
+
+    private static final int COLLECT_TIME = 20;
+
+    private final AtomicInteger maxPendingRequests = new AtomicInteger();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger acceptedCount = new AtomicInteger();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final Set<Thread> handlers = ConcurrentHashMap.newKeySet();
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    /**
+     * Starts the server on the provided port, 0 for an ephemeral port returned by {@link #getPort()}.
+     */
+    public void start(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port);
+        this.acceptor = new Thread(() -> {
+            while (!this.serverSocket.isClosed()) {
+                try {
+                    Socket socket = this.serverSocket.accept();
+                    this.sockets.add(socket);
+                    Thread handler = new Thread(() -> handle(socket), "PipeliningModbusHandler");
+                    handler.setDaemon(true);
+                    this.handlers.add(handler);
+                    handler.start();
+                    this.acceptedCount.incrementAndGet();
+                } catch (IOException e) {
+                    logger.debug("PipeliningModbusServer stopped", e);
+                }
+            }
+        }, "PipeliningModbusServer");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * Stops accepting connections, closes the accepted ones and waits for the server threads to terminate.
+     */
+    public void stop() throws IOException, InterruptedException {
+        if (this.serverSocket == null) {
+            return;
+        }
+        this.serverSocket.close();
+        this.acceptor.join();
+        closeConnections();
+        for (Thread handler : this.handlers) {
+            handler.join();
+        }
+        this.handlers.clear();
+    }
+
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    public int getMaxPendingRequests() {
+        return this.maxPendingRequests.get();
+    }
+
+    public int getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    /**
+     * Waits until the provided number of connections have been accepted since the server has been started.
+     */
+    public void awaitConnections(int count) throws InterruptedException {
+        for (int i = 0; i < 100 && this.acceptedCount.get() < count; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Closes the connections currently open.
+     */
+    public void closeConnections() throws IOException {
+        for (Socket socket : this.sockets) {
+            socket.close();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+                DataInputStream in = new DataInputStream(s.getInputStream());
+                OutputStream out = s.getOutputStream()) {
+            List<byte[]> requests = new ArrayList<>();
+            while (true) {
+                requests.add(readFrame(in));
+                Thread.sleep(COLLECT_TIME);
+                while (in.available() > 0) {
+                    requests.add(readFrame(in));
+                }
+
+                this.requestCount.addAndGet(requests.size());
+                this.maxPendingRequests.accumulateAndGet(requests.size(), Math::max);
+
+                Collections.reverse(requests);
+                for (byte[] request : requests) {
+                    if ((request[6] & 0xff) != SILENT_UNIT) {
+                        out.write(handleRequest(request));
+                    }
+                }
+                out.flush();
+                requests.clear();
+            }
+        } catch (IOException e) {
+            logger.debug("Connection closed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.sockets.remove(socket);
+            this.handlers.remove(Thread.currentThread());
+        }
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        byte[] header = new byte[6];
+        in.readFully(header);
+        int length = (header[4] & 0xff) << 8 | header[5] & 0xff;
+        byte[] frame = new byte[6 + length];
+        System.arraycopy(header, 0, frame, 0, 6);
+        in.readFully(frame, 6, length);
+        return frame;
+    }
+
+    private static byte[] handleRequest(byte[] request) {
+        int unit = request[6] & 0xff;
+        int function = request[7] & 0xff;
+        int address = (request[8] & 0xff) << 8 | request[9] & 0xff;
+        int count = (request[10] & 0xff) << 8 | request[11] & 0xff;
+
+        byte[] pdu;
+        if (unit == FAILING_UNIT) {
+            pdu = new byte[] { (byte) (function | 0x80), 2 };
+        } else if (function == 3 || function == 4) {
+            pdu = new byte[2 + count * 2];
+            pdu[0] = (byte) function;
+            pdu[1] = (byte) (count * 2);
+            for (int i = 0; i < count; i++) {
+                pdu[2 + i * 2] = (byte) ((address + i) >> 8);
+                pdu[3 + i * 2] = (byte) (address + i);
+            }
+        } else if (function == 1 || function == 2) {
+            pdu = new byte[2 + (count + 7) / 8];
+            pdu[0] = (byte) function;
+            pdu[1] = (byte) ((count + 7) / 8);
+            for (int i = 0; i < count; i++) {
+                if ((address + i) % 2 == 0) {
+                    pdu[2 + i / 8] |= 1 << i % 8;
+                }
+            }
+        } else {
+            pdu = new byte[] { (byte) (function | 0x80), 1 };
+        }
+
+        byte[] response = new byte[7 + pdu.length];
+        response[0] = request[0];
+        response[1] = request[1];
+        response[4] = (byte) ((pdu.length + 1) >> 8);
+        response[5] = (byte) (pdu.length + 1);
+        response[6] = (byte) unit;
+        System.arraycopy(pdu, 0, response, 7, pdu.length);
+        return response;
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.util.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireRecord;
+import org.junit.Test;
+
+public class ExpressionTest {
+
+    private final List<WireRecord> records = Arrays.asList(
+            record("TIMER", TypedValues.newLongValue(20), "temperature", TypedValues.newFloatValue(21.5f), "name",
+                    TypedValues.newStringValue("sensor"), "on", TypedValues.newBooleanValue(true), "a b",
+                    TypedValues.newIntegerValue(3)),
+            record("TIMER", TypedValues.newLongValue(40)));
+
+    @Test
+    public void testArithmetic() throws ExpressionException {
+        assertEquals(7L, evaluate("1 + 2 * 3"));
+        assertEquals(9L, evaluate("(1 + 2) * 3"));
+        assertEquals(3L, evaluate("7 / 2"));
+        assertEquals(3.5, evaluate("7 / 2.0"));
+        assertEquals(1L, evaluate("7 % 3"));
+        assertEquals(-4L, evaluate("-(2 + 2)"));
+        assertEquals(1500.0, evaluate("1.5e3"));
+        assertEquals(10L, evaluate("TIMER / 2"));
+        assertEquals(43.0, evaluate("temperature * 2"));
+        assertEquals("sensor-1", evaluate("name + '-' + 1"));
+        assertNull(evaluate("missing + 1"));
+    }
+
+    @Test
+    public void testComparisons() throws ExpressionException {
+        assertEquals(true, evaluate("TIMER > 10 && TIMER < 30"));
+        assertEquals(true, evaluate("TIMER == 20.0"));
+        assertEquals(true, evaluate("TIMER === 20 && TIMER !== 21"));
+        assertEquals(true, evaluate("temperature >= 21.5 && temperature <= 21.5"));
+        assertEquals(true, evaluate("name == \"sensor\" && name < 't'"));
+        assertEquals(true, evaluate("record['a b'] != 4"));
+        assertEquals(false, evaluate("missing > 0 || missing <= 0"));
+        assertEquals(true, evaluate("missing == null"));
+    }
+
+    @Test
+    public void testBooleanLogic() throws ExpressionException {
+        assertEquals(true, evaluate("on && !false"));
+        assertEquals(true, evaluate("!on || true"));
+        assertEquals("hot", evaluate("temperature > 20 ? 'hot' : 'cold'"));
+        // short circuit, the right operand would fail
+        assertEquals(false, evaluate("false && name > 1"));
+    }
+
+    @Test
+    public void testRecordAccess() throws ExpressionException {
+        assertEquals(2L, evaluate("records.length"));
+        assertEquals(40L, evaluate("records[1].TIMER"));
+        assertEquals(20L, evaluate("records[1 - 1]['TIMER']"));
+        assertNull(evaluate("records[2].TIMER"));
+        assertEquals(20L, evaluate("record.TIMER"));
+
+        final Expression expression = Expression.compile("TIMER > 30");
+        assertFalse(expression.test(this.records, 0));
+        assertTrue(expression.test(this.records, 1));
+    }
+
+    @Test
+    public void testConstantFolding() throws ExpressionException {
+        // evaluated without records
+        assertEquals(true, Expression.compile("(1 + 2) * 3 == 9 && !false;").evaluate(null, 0));
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        assertSyntaxError("1 +", 3);
+        assertSyntaxError("(1 + 2", 6);
+        assertSyntaxError("TIMER.getValue()", 5);
+        assertSyntaxError("abs(1)", 0);
+        assertSyntaxError("'unterminated", 13);
+        assertSyntaxError("records[0.5].TIMER", 12);
+        assertSyntaxError("1 = 2", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeError() throws ExpressionException {
+        evaluate("on + 1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonBooleanCondition() throws ExpressionException {
+        Expression.compile("TIMER + 1").test(this.records, 0);
+    }
+
+    private Object evaluate(final String source) throws ExpressionException {
+        return Expression.compile(source).evaluate(this.records, 0);
+    }
+
+    private static void assertSyntaxError(final String source, final int position) {
+        try {
+            Expression.compile(source);
+            fail("Expected a syntax error for " + source);
+        } catch (ExpressionException e) {
+            assertEquals(source, position, e.getPosition());
+        }
+    }
+
+    private static WireRecord record(final Object... keyValues) {
+        final Map<String, TypedValue<?>> properties = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.put((String) keyValues[i], (TypedValue<?>) keyValues[i + 1]);
+        }
+        return new WireRecord(properties);
+    }
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.junit.Test;
+import org.osgi.service.component.ComponentContext;
+
+public class AggregatorTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testStatistics() {
+        final StreamingStatistics statistics = new StreamingStatistics();
+        for (final double value : new double[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+            statistics.add(value);
+        }
+
+        assertEquals(8, statistics.getCount());
+        assertEquals(40, statistics.getSum(), DELTA);
+        assertEquals(2, statistics.getMin(), DELTA);
+        assertEquals(9, statistics.getMax(), DELTA);
+        assertEquals(9, statistics.getLast(), DELTA);
+        assertEquals(5, statistics.getMean(), DELTA);
+        assertEquals(Math.sqrt(32.0 / 7), statistics.getStandardDeviation(), DELTA);
+    }
+
+    @Test
+    public void testStatisticsMerge() {
+        final StreamingStatistics all = new StreamingStatistics();
+        final StreamingStatistics first = new StreamingStatistics();
+        final StreamingStatistics second = new StreamingStatistics();
+        for (int i = 0; i < 10; i++) {
+            all.add(i * 1.5);
+            (i < 4 ? first : second).add(i * 1.5);
+        }
+
+        final StreamingStatistics merged = new StreamingStatistics();
+        merged.merge(first);
+        merged.merge(new StreamingStatistics());
+        merged.merge(second);
+
+        assertEquals(all.getCount(), merged.getCount());
+        assertEquals(all.getMean(), merged.getMean(), DELTA);
+        assertEquals(all.getStandardDeviation(), merged.getStandardDeviation(), DELTA);
+        assertEquals(all.getMin(), merged.getMin(), DELTA);
+        assertEquals(all.getMax(), merged.getMax(), DELTA);
+        assertEquals(all.getLast(), merged.getLast(), DELTA);
+    }
+
+    @Test
+    public void testTumblingCountWindow() {
+        final List<WireRecord> emitted = new ArrayList<>();
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("window.mode", "COUNT");
+        properties.put("window.size", 3);
+        properties.put("functions", "min,max,mean,count,last");
+        final Aggregator aggregator = createAggregator(properties, emitted);
+
+        aggregator.onWireReceive(createWireEnvelope(1, 2));
+        assertTrue(emitted.isEmpty());
+        aggregator.onWireReceive(createWireEnvelope(3, 4, 5));
+
+        assertEquals(1, emitted.size());
+        final Map<String, TypedValue<?>> result = emitted.get(0).getProperties();
+        assertEquals(1.0, result.get("value_min").getValue());
+        assertEquals(3.0, result.get("value_max").getValue());
+        assertEquals(2.0, result.get("value_mean").getValue());
+        assertEquals(3L, result.get("value_count").getValue());
+        assertEquals(3.0, result.get("value_last").getValue());
+        assertTrue(result.containsKey("windowStart"));
+        assertTrue(result.containsKey("windowEnd"));
+        // the timestamps and the non numeric properties are not aggregated
+        assertFalse(result.containsKey("assetTimestamp_min"));
+        assertFalse(result.containsKey("name_min"));
+
+        aggregator.onWireReceive(createWireEnvelope(6));
+        assertEquals(2, emitted.size());
+        assertEquals(5.0, emitted.get(1).getProperties().get("value_mean").getValue());
+        assertEquals(4.0, emitted.get(1).getProperties().get("value_min").getValue());
+    }
+
+    @Test
+    public void testSlidingCountWindow() {
+        final List<WireRecord> emitted = new ArrayList<>();
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("window.type", "SLIDING");
+        properties.put("window.mode", "COUNT");
+        properties.put("window.size", 4);
+        properties.put("window.slide", 2);
+        properties.put("functions", "sum,count");
+        final Aggregator aggregator = createAggregator(properties, emitted);
+
+        aggregator.onWireReceive(createWireEnvelope(1, 2, 3, 4, 5, 6, 7, 8));
+
+        // the windows are [1, 4], [3, 6] and [5, 8]
+        assertEquals(3, emitted.size());
+        assertEquals(10.0, emitted.get(0).getProperties().get("value_sum").getValue());
+        assertEquals(18.0, emitted.get(1).getProperties().get("value_sum").getValue());
+        assertEquals(26.0, emitted.get(2).getProperties().get("value_sum").getValue());
+        assertEquals(4L, emitted.get(2).getProperties().get("value_count").getValue());
+        assertNull(emitted.get(2).getProperties().get("value_min"));
+    }
+
+    @Test
+    public void testTimeWindow() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<WireRecord> emitted = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("window.mode", "TIME");
+        properties.put("window.size", 1);
+        properties.put("functions", "stddev,count");
+        final Aggregator aggregator = createAggregator(properties, records -> {
+            emitted.addAll(records);
+            latch.countDown();
+        });
+
+        aggregator.onWireReceive(createWireEnvelope(2, 4, 4, 4, 5, 5, 7, 9));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        aggregator.deactivate();
+        final Map<String, TypedValue<?>> result = emitted.get(0).getProperties();
+        assertEquals(8L, result.get("value_count").getValue());
+        assertEquals(Math.sqrt(32.0 / 7), (Double) result.get("value_stddev").getValue(), DELTA);
+        final long start = (Long) result.get("windowStart").getValue();
+        final long end = (Long) result.get("windowEnd").getValue();
+        assertTrue(end - start >= 900);
+    }
+
+    private Aggregator createAggregator(final Map<String, Object> properties, final List<WireRecord> emitted) {
+        return createAggregator(properties, emitted::addAll);
+    }
+
+    private Aggregator createAggregator(final Map<String, Object> properties,
+            final Consumer<List<WireRecord>> emitter) {
+        final Aggregator aggregator = new Aggregator();
+
+        final WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        aggregator.bindWireHelperService(wireHelperServiceMock);
+
+        final WireSupport wireSupportMock = mock(WireSupport.class);
+        doAnswer(invocation -> {
+            emitter.accept((List<WireRecord>) invocation.getArguments()[0]);
+            return null;
+        }).when(wireSupportMock).emit(anyListOf(WireRecord.class));
+        when(wireHelperServiceMock.newWireSupport(aggregator, null)).thenReturn(wireSupportMock);
+
+        aggregator.activate(properties, mock(ComponentContext.class));
+        return aggregator;
+    }
+
+    private WireEnvelope createWireEnvelope(final int... values) {
+        final List<WireRecord> wireRecords = new ArrayList<>();
+        for (final int value : values) {
+            final Map<String, TypedValue<?>> recordProps = new HashMap<>();
+            recordProps.put("value", TypedValues.newIntegerValue(value));
+            recordProps.put("name", TypedValues.newStringValue("sensor"));
+            recordProps.put("assetTimestamp", TypedValues.newLongValue(System.currentTimeMillis()));
+            wireRecords.add(new WireRecord(recordProps));
+        }
+        return new WireEnvelope("emitter", wireRecords);
+    }
+}
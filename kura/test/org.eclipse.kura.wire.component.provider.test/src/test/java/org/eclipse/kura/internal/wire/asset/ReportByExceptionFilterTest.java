@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.asset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.channel.Channel;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.channel.ChannelType;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.junit.Test;
+
+public class ReportByExceptionFilterTest {
+
+    @Test
+    public void testAbsoluteDeadband() {
+        final ReportByExceptionFilter filter = new ReportByExceptionFilter(
+                Arrays.asList(createChannel("temperature", DataType.DOUBLE, 0.5, 0)), 0);
+
+        assertEquals(1, filter.filter(records(record("temperature", 20.0)), 0).size());
+        assertTrue(filter.filter(records(record("temperature", 20.4)), 1).isEmpty());
+        assertTrue(filter.filter(records(record("temperature", 19.6)), 2).isEmpty());
+        assertEquals(1, filter.filter(records(record("temperature", 20.6)), 3).size());
+        // the deadband is relative to the last reported value
+        assertTrue(filter.filter(records(record("temperature", 20.2)), 4).isEmpty());
+        assertEquals(1, filter.filter(records(record("temperature", 20.0)), 5).size());
+    }
+
+    @Test
+    public void testPercentDeadband() {
+        final ReportByExceptionFilter filter = new ReportByExceptionFilter(
+                Arrays.asList(createChannel("pressure", DataType.INTEGER, 0, 10)), 0);
+
+        assertEquals(1, filter.filter(records(record("pressure", 1000)), 0).size());
+        assertTrue(filter.filter(records(record("pressure", 1100)), 1).isEmpty());
+        assertEquals(1, filter.filter(records(record("pressure", 1101)), 2).size());
+        assertTrue(filter.filter(records(record("pressure", 1000)), 3).isEmpty());
+    }
+
+    @Test
+    public void testMaxSilence() {
+        final ReportByExceptionFilter filter = new ReportByExceptionFilter(
+                Arrays.asList(createChannel("state", DataType.BOOLEAN, 0, 0)), 1000);
+
+        assertEquals(1, filter.filter(records(record("state", true)), 0).size());
+        assertTrue(filter.filter(records(record("state", true)), 999).isEmpty());
+        assertEquals(1, filter.filter(records(record("state", true)), 1000).size());
+        assertTrue(filter.filter(records(record("state", true)), 1500).isEmpty());
+        assertEquals(1, filter.filter(records(record("state", false)), 1600).size());
+    }
+
+    @Test
+    public void testPartialReport() {
+        final ReportByExceptionFilter filter = new ReportByExceptionFilter(Arrays.asList(
+                createChannel("a", DataType.STRING, 0, 0), createChannel("b", DataType.BYTE_ARRAY, 0, 0),
+                createChannel("c", DataType.LONG, 0, 0)), 0);
+
+        final List<ChannelRecord> first = records(record("a", "x"), record("b", new byte[] { 1, 2 }),
+                record("c", 5L));
+        assertSame(first, filter.filter(first, 0));
+
+        final ChannelRecord changed = record("c", 6L);
+        final List<ChannelRecord> result = filter
+                .filter(records(record("a", "x"), record("b", new byte[] { 1, 2 }), changed), 1);
+        assertEquals(1, result.size());
+        assertSame(changed, result.get(0));
+    }
+
+    @Test
+    public void testErrorsAlwaysReported() {
+        final ReportByExceptionFilter filter = new ReportByExceptionFilter(
+                Arrays.asList(createChannel("value", DataType.INTEGER, 0, 0)), 0);
+
+        assertEquals(1, filter.filter(records(record("value", 1)), 0).size());
+        final ChannelRecord error = ChannelRecord.createStatusRecord("value",
+                new ChannelStatus(ChannelFlag.FAILURE, "read failed", null));
+        assertEquals(1, filter.filter(records(error), 1).size());
+        assertEquals(1, filter.filter(records(error), 2).size());
+        // the first value after an error is reported even if unchanged
+        assertEquals(1, filter.filter(records(record("value", 1)), 3).size());
+        assertTrue(filter.filter(records(record("value", 1)), 4).isEmpty());
+    }
+
+    private static Channel createChannel(final String name, final DataType valueType, final double absolute,
+            final double percent) {
+        final Map<String, Object> configuration = new HashMap<>();
+        configuration.put(WireAssetConstants.DEADBAND_ABSOLUTE_PROP_NAME.value(), absolute);
+        configuration.put(WireAssetConstants.DEADBAND_PERCENT_PROP_NAME.value(), Double.toString(percent));
+        return new Channel(name, ChannelType.READ, valueType, configuration);
+    }
+
+    private static ChannelRecord record(final String channelName, final Object value) {
+        final TypedValue<?> typedValue = TypedValues.newTypedValue(value);
+        final ChannelRecord record = ChannelRecord.createReadRecord(channelName, typedValue.getType());
+        record.setValue(typedValue);
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+        return record;
+    }
+
+    private static List<ChannelRecord> records(final ChannelRecord... records) {
+        return Arrays.asList(records);
+    }
+}
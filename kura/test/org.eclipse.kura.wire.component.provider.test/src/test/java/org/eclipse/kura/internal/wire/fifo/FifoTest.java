@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,8 @@ package org.eclipse.kura.internal.wire.fifo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -24,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.eclipse.kura.type.LongValue;
 import org.eclipse.kura.type.StringValue;
@@ -187,6 +190,90 @@ public class FifoTest {
         assertEquals(1, wiresLatch.getCount());
     }
 
+    @Test
+    public void testCoalesce() throws InterruptedException {
+        CountDownLatch firstEmit = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        List<List<WireRecord>> emitted = new ArrayList<>();
+
+        Fifo fifo = createFifo(records -> {
+            emitted.add(records);
+            firstEmit.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, true, 10);
+
+        fifo.onWireReceive(createWireEnvelope());
+        assertTrue(firstEmit.await(1, TimeUnit.SECONDS));
+
+        // queued while the first envelope is being delivered
+        for (int i = 0; i < 5; i++) {
+            fifo.onWireReceive(createWireEnvelope());
+        }
+        assertEquals(5, fifo.getQueueSize());
+        released.countDown();
+
+        for (int i = 0; i < 100 && fifo.getQueueSize() > 0; i++) {
+            Thread.sleep(10);
+        }
+        fifo.deactivate();
+
+        assertEquals(2, emitted.size());
+        assertEquals(1, emitted.get(0).size());
+        assertEquals(5, emitted.get(1).size());
+    }
+
+    @Test
+    public void testDiscardedCount() throws InterruptedException {
+        CountDownLatch released = new CountDownLatch(1);
+
+        Fifo fifo = createFifo(records -> {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, false, 3);
+
+        fifo.onWireReceive(createWireEnvelope());
+        for (int i = 0; i < 100 && fifo.getQueueSize() > 0; i++) {
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < 5; i++) {
+            fifo.onWireReceive(createWireEnvelope());
+        }
+
+        assertEquals(3, fifo.getQueueSize());
+        assertEquals(2, fifo.getDiscardedEnvelopeCount());
+        released.countDown();
+        fifo.deactivate();
+    }
+
+    private Fifo createFifo(Consumer<List<WireRecord>> emitter, boolean coalesce, int capacity) {
+        Fifo fifo = new Fifo();
+
+        WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        fifo.bindWireHelperService(wireHelperServiceMock);
+
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        doAnswer(invocation -> {
+            emitter.accept((List<WireRecord>) invocation.getArguments()[0]);
+            return null;
+        }).when(wireSupportMock).emit(anyListOf(WireRecord.class));
+        when(wireHelperServiceMock.newWireSupport(fifo, null)).thenReturn(wireSupportMock);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("discard.envelopes", true);
+        properties.put("coalesce.envelopes", coalesce);
+        properties.put("queue.capacity", capacity);
+
+        fifo.activate(properties, mock(ComponentContext.class));
+        return fifo;
+    }
+
     private WireEnvelope createWireEnvelope() {
         String emitterPid = "emitter";
         List<WireRecord> wireRecords = new ArrayList<WireRecord>();
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.fifo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MpscRingBufferTest {
+
+    @Test
+    public void testCapacity() {
+        final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+        assertTrue(buffer.isEmpty());
+
+        // go around the ring a few times
+        for (int lap = 0; lap < 4; lap++) {
+            assertTrue(buffer.offer(1));
+            assertTrue(buffer.offer(2));
+            assertTrue(buffer.offer(3));
+            assertFalse(buffer.offer(4));
+            assertEquals(3, buffer.size());
+
+            assertEquals(1, (int) buffer.poll());
+            assertTrue(buffer.offer(5));
+
+            final List<Integer> drained = new ArrayList<>();
+            assertEquals(3, buffer.drain(drained::add));
+            assertEquals(Arrays.asList(2, 3, 5), drained);
+            assertNull(buffer.poll());
+            assertTrue(buffer.isEmpty());
+        }
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final int producerCount = 4;
+        final int elementCount = 100000;
+        final MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(64);
+
+        final List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < elementCount; i++) {
+                    final long[] element = { producer, i };
+                    while (!buffer.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+
+        // the elements of each producer are received in order, none is lost
+        final long[] next = new long[producerCount];
+        int received = 0;
+        while (received < producerCount * elementCount) {
+            final long[] element = buffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[(int) element[0]]++, element[1]);
+            received++;
+        }
+
+        for (final Thread thread : producers) {
+            thread.join();
+        }
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.kura.internal.wire.timer.TimerScheduler.ScheduledTimer;
+import org.eclipse.kura.internal.wire.timer.TimerScheduler.TimerStatistics;
+import org.junit.Test;
+
+public class TimerSchedulerTest {
+
+    @Test
+    public void testFixedRate() throws InterruptedException {
+        final TimerScheduler scheduler = new TimerScheduler(5, 2);
+        final CountDownLatch latch = new CountDownLatch(10);
+        final AtomicLong lastEmit = new AtomicLong();
+
+        final long start = System.nanoTime();
+        final ScheduledTimer timer = scheduler.scheduleAtFixedRate("timer", () -> {
+            lastEmit.set(System.nanoTime());
+            latch.countDown();
+        }, 20, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        timer.cancel();
+
+        // the deadlines do not drift with the lateness of the emits
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(lastEmit.get() - start);
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 200 && elapsedMillis < 300);
+        assertTrue(scheduler.getStatistics(false).isEmpty());
+    }
+
+    @Test
+    public void testStatistics() throws InterruptedException {
+        final TimerScheduler scheduler = new TimerScheduler(5, 2);
+        final CountDownLatch latch = new CountDownLatch(5);
+
+        final ScheduledTimer timer = scheduler.scheduleAtFixedRate("timer", latch::countDown, 0, 10,
+                TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        final TimerStatistics statistics = scheduler.getStatistics(true).get("timer");
+        assertTrue(statistics.getEmitCount() >= 5);
+        assertTrue(statistics.getMaxLatenessNanos() >= statistics.getAverageLatenessNanos());
+        assertTrue(statistics.getAverageLatenessNanos() >= 0);
+        timer.cancel();
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final TimerScheduler scheduler = new TimerScheduler(5, 2);
+        final AtomicInteger count = new AtomicInteger();
+
+        final ScheduledTimer timer = scheduler.scheduleAtFixedRate("timer", count::incrementAndGet, 50, 50,
+                TimeUnit.MILLISECONDS);
+        timer.cancel();
+
+        Thread.sleep(150);
+        assertTrue(timer.isCancelled());
+        assertEquals(0, count.get());
+        assertTrue(scheduler.getStatistics(false).isEmpty());
+    }
+
+    @Test
+    public void testUpperLevels() throws InterruptedException {
+        // with a 1 ms tick the timers go through the second level of the wheel
+        final TimerScheduler scheduler = new TimerScheduler(1, 2);
+        final CountDownLatch near = new CountDownLatch(1);
+        final CountDownLatch far = new CountDownLatch(1);
+        final AtomicLong farEmit = new AtomicLong();
+
+        final long start = System.nanoTime();
+        scheduler.scheduleAtFixedRate("near", near::countDown, 5, 1000, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate("far", () -> {
+            farEmit.set(System.nanoTime());
+            far.countDown();
+        }, 700, 1000, TimeUnit.MILLISECONDS);
+
+        assertTrue(near.await(5, TimeUnit.SECONDS));
+        assertTrue(far.await(5, TimeUnit.SECONDS));
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(farEmit.get() - start);
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 700 && elapsedMillis < 800);
+    }
+
+    @Test
+    public void testTickChange() throws InterruptedException {
+        final TimerScheduler scheduler = new TimerScheduler(1, 2);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicLong emit = new AtomicLong();
+
+        final long start = System.nanoTime();
+        scheduler.scheduleAtFixedRate("timer", () -> {
+            emit.set(System.nanoTime());
+            latch.countDown();
+        }, 300, 1000, TimeUnit.MILLISECONDS);
+        scheduler.setTickMillis(20);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(emit.get() - start);
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 300 && elapsedMillis < 400);
+    }
+
+    @Test
+    public void testOverrunSkipsTicks() throws InterruptedException {
+        final TimerScheduler scheduler = new TimerScheduler(5, 4);
+        final AtomicBoolean running = new AtomicBoolean();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final CountDownLatch latch = new CountDownLatch(3);
+
+        final ScheduledTimer timer = scheduler.scheduleAtFixedRate("slow", () -> {
+            if (!running.compareAndSet(false, true)) {
+                overlapped.set(true);
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.set(false);
+            latch.countDown();
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        final TimerStatistics statistics = scheduler.getStatistics(false).get("slow");
+        timer.cancel();
+
+        assertFalse(overlapped.get());
+        assertTrue(statistics.getMissedCount() > 0);
+    }
+
+    @Test
+    public void testSchedule() throws InterruptedException {
+        final TimerScheduler scheduler = new TimerScheduler(5, 2);
+        final AtomicInteger remaining = new AtomicInteger(3);
+        final AtomicInteger count = new AtomicInteger();
+
+        scheduler.schedule("cron", count::incrementAndGet,
+                () -> remaining.getAndDecrement() > 0 ? TimeUnit.MILLISECONDS.toNanos(10) : -1);
+
+        Thread.sleep(200);
+        assertEquals(3, count.get());
+    }
+
+    @Test
+    public void testFixedPoolByDefault() {
+        final TimerScheduler scheduler = new TimerScheduler(5, TimerScheduler.DEFAULT_WORKER_THREAD_COUNT);
+
+        assertFalse(scheduler.isThreadPerTimer());
+        assertEquals(Runtime.getRuntime().availableProcessors(), scheduler.getWorkerThreadCount());
+    }
+
+    @Test
+    public void testThreadPerTimer() throws InterruptedException {
+        final TimerScheduler scheduler = new TimerScheduler(5, 1);
+        scheduler.setThreadPerTimer(true);
+        final CountDownLatch blocked = new CountDownLatch(3);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ScheduledTimer[] timers = new ScheduledTimer[3];
+
+        // every emit blocks until all the timers are running at the same time
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = scheduler.scheduleAtFixedRate("timer" + i, () -> {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 0, 10, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            for (final ScheduledTimer timer : timers) {
+                timer.cancel();
+            }
+        }
+    }
+}
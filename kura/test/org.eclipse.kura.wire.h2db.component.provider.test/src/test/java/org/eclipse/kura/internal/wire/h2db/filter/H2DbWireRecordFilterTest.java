@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -13,28 +13,38 @@
 package org.eclipse.kura.internal.wire.h2db.filter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.db.H2DbService;
 import org.eclipse.kura.internal.wire.h2db.common.H2DbServiceHelper;
+import org.eclipse.kura.type.TypedValues;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
 import org.eclipse.kura.wire.WireSupport;
 import org.junit.Test;
 import org.osgi.service.component.ComponentContext;
@@ -300,4 +310,190 @@ public class H2DbWireRecordFilterTest {
         verify(mockWireSupport).updated(mockWire, 42);
     }
 
+    @Test
+    public void testIncrementalQuery() throws SQLException {
+        DriverManager.registerDriver(new org.h2.Driver());
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:incrementaldb", "SA", "");
+                Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE T (ID BIGINT PRIMARY KEY, VAL INTEGER)");
+            insertRows(stmt, 1, 5);
+
+            H2DbService dbService = createMockH2DbService(connection);
+            WireHelperService mockWireHelperService = mock(WireHelperService.class);
+
+            H2DbWireRecordFilter filter = new H2DbWireRecordFilter() {
+
+                @Override
+                protected void restartDbServiceTracker() {
+                    bindDbService(dbService);
+                }
+            };
+            filter.bindWireHelperService(mockWireHelperService);
+
+            WireSupport mockWireSupport = mock(WireSupport.class);
+            when(mockWireHelperService.newWireSupport(filter, null)).thenReturn(mockWireSupport);
+            List<List<WireRecord>> envelopes = new ArrayList<>();
+            doAnswer(invocation -> envelopes.add(new ArrayList<>(invocation.getArgumentAt(0, List.class))))
+                    .when(mockWireSupport).emit(anyListOf(WireRecord.class));
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("sql.view", "SELECT * FROM T WHERE ID > ? ORDER BY ID");
+            properties.put("query.mode", "INCREMENTAL");
+            properties.put("incremental.chunk.size", 2);
+            properties.put("emit.on.empty.result", false);
+            filter.activate(mock(ComponentContext.class), properties);
+
+            WireEnvelope mockWireEnvelope = mock(WireEnvelope.class);
+            filter.onWireReceive(mockWireEnvelope);
+
+            assertEquals(3, envelopes.size());
+            assertEquals(2, envelopes.get(0).size());
+            assertEquals(1, envelopes.get(2).size());
+            assertEquals(TypedValues.newLongValue(5), envelopes.get(2).get(0).getProperties().get("ID"));
+
+            // nothing new
+            filter.onWireReceive(mockWireEnvelope);
+            assertEquals(3, envelopes.size());
+
+            insertRows(stmt, 6, 7);
+            filter.onWireReceive(mockWireEnvelope);
+            assertEquals(4, envelopes.size());
+            assertEquals(TypedValues.newLongValue(6), envelopes.get(3).get(0).getProperties().get("ID"));
+            assertEquals(TypedValues.newLongValue(7), envelopes.get(3).get(1).getProperties().get("ID"));
+
+            // changing the query restarts from the start value
+            properties.put("sql.view", "SELECT ID FROM T WHERE ID > ? ORDER BY ID");
+            properties.put("incremental.chunk.size", 10);
+            filter.updated(properties);
+            filter.onWireReceive(mockWireEnvelope);
+            assertEquals(5, envelopes.size());
+            assertEquals(7, envelopes.get(4).size());
+
+            stmt.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void testIncrementalChunksEmittedOutsideConnection() throws SQLException, NoSuchFieldException {
+        DriverManager.registerDriver(new org.h2.Driver());
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:incrementalchunkdb", "SA", "");
+                Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE T (ID BIGINT PRIMARY KEY, VAL INTEGER)");
+            insertRows(stmt, 1, 5);
+
+            AtomicBoolean inConnection = new AtomicBoolean();
+            H2DbService dbService = mock(H2DbService.class);
+            when(dbService.withConnection(anyObject())).thenAnswer(invocation -> {
+                inConnection.set(true);
+                try {
+                    return invocation.getArgumentAt(0, H2DbService.ConnectionCallable.class).call(connection);
+                } finally {
+                    inConnection.set(false);
+                }
+            });
+            WireHelperService mockWireHelperService = mock(WireHelperService.class);
+
+            H2DbWireRecordFilter filter = new H2DbWireRecordFilter() {
+
+                @Override
+                protected void restartDbServiceTracker() {
+                    bindDbService(dbService);
+                }
+            };
+            filter.bindWireHelperService(mockWireHelperService);
+
+            WireSupport mockWireSupport = mock(WireSupport.class);
+            when(mockWireHelperService.newWireSupport(filter, null)).thenReturn(mockWireSupport);
+            List<List<WireRecord>> envelopes = new ArrayList<>();
+            doAnswer(invocation -> {
+                assertFalse(inConnection.get());
+                return envelopes.add(new ArrayList<>(invocation.getArgumentAt(0, List.class)));
+            }).when(mockWireSupport).emit(anyListOf(WireRecord.class));
+
+            // without a parameter the rows following the last emitted one are still selected
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("sql.view", "SELECT * FROM T");
+            properties.put("query.mode", "INCREMENTAL");
+            properties.put("incremental.chunk.size", 2);
+            properties.put("emit.on.empty.result", false);
+            filter.activate(mock(ComponentContext.class), properties);
+
+            WireEnvelope mockWireEnvelope = mock(WireEnvelope.class);
+            filter.onWireReceive(mockWireEnvelope);
+
+            assertEquals(3, envelopes.size());
+            assertEquals(TypedValues.newLongValue(1), envelopes.get(0).get(0).getProperties().get("ID"));
+            assertEquals(TypedValues.newLongValue(3), envelopes.get(1).get(0).getProperties().get("ID"));
+            assertEquals(TypedValues.newLongValue(5), envelopes.get(2).get(0).getProperties().get("ID"));
+            assertEquals(5L, TestUtil.getFieldValue(TestUtil.getFieldValue(filter, "highWaterMark"), "value"));
+
+            insertRows(stmt, 6, 6);
+            filter.onWireReceive(mockWireEnvelope);
+            assertEquals(4, envelopes.size());
+            assertEquals(1, envelopes.get(3).size());
+            assertEquals(TypedValues.newLongValue(6), envelopes.get(3).get(0).getProperties().get("ID"));
+
+            stmt.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void testIncrementalValuesSharedAcrossChunks() throws SQLException {
+        // more rows share a value than fit in a chunk, as the records of an envelope sharing a TIMESTAMP
+        DriverManager.registerDriver(new org.h2.Driver());
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:incrementalshareddb", "SA", "");
+                Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE T (ID BIGINT PRIMARY KEY, TIMESTAMP BIGINT)");
+            stmt.execute("INSERT INTO T VALUES (1, 1000), (2, 1000), (3, 1000), (4, 1000), (5, 1000), (6, 2000)");
+
+            H2DbService dbService = createMockH2DbService(connection);
+            WireHelperService mockWireHelperService = mock(WireHelperService.class);
+
+            H2DbWireRecordFilter filter = new H2DbWireRecordFilter() {
+
+                @Override
+                protected void restartDbServiceTracker() {
+                    bindDbService(dbService);
+                }
+            };
+            filter.bindWireHelperService(mockWireHelperService);
+
+            WireSupport mockWireSupport = mock(WireSupport.class);
+            when(mockWireHelperService.newWireSupport(filter, null)).thenReturn(mockWireSupport);
+            List<Object> ids = new ArrayList<>();
+            doAnswer(invocation -> {
+                for (Object wireRecord : invocation.getArgumentAt(0, List.class)) {
+                    ids.add(((WireRecord) wireRecord).getProperties().get("ID").getValue());
+                }
+                return null;
+            }).when(mockWireSupport).emit(anyListOf(WireRecord.class));
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("sql.view", "SELECT * FROM T WHERE TIMESTAMP >= ?");
+            properties.put("query.mode", "INCREMENTAL");
+            properties.put("incremental.column", "TIMESTAMP");
+            properties.put("incremental.chunk.size", 2);
+            properties.put("emit.on.empty.result", false);
+            filter.activate(mock(ComponentContext.class), properties);
+
+            WireEnvelope mockWireEnvelope = mock(WireEnvelope.class);
+            filter.onWireReceive(mockWireEnvelope);
+
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L), ids);
+
+            // a row stored later with the last emitted value is not skipped
+            stmt.execute("INSERT INTO T VALUES (7, 2000), (8, 3000)");
+            filter.onWireReceive(mockWireEnvelope);
+
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), ids);
+
+            stmt.execute("SHUTDOWN");
+        }
+    }
+
+    private static void insertRows(final Statement stmt, final int from, final int to) throws SQLException {
+        for (int i = from; i <= to; i++) {
+            stmt.execute("INSERT INTO T VALUES (" + i + ", " + i * 10 + ")");
+        }
+    }
 }
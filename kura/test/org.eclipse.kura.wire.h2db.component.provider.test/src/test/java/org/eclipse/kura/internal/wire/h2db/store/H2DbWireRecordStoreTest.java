@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -439,4 +439,144 @@ public class H2DbWireRecordStoreTest {
         connection.prepareStatement("SHUTDOWN").execute();
     }
 
+    @Test
+    public void testBatchSequence() throws SQLException {
+        // store envelopes containing records with different properties, check that all the records are stored in
+        // order and that the cleanup only removes the records stored before it was triggered
+
+        Connection connection = getConnection();
+
+        H2DbService dbServiceMock = createMockH2DbService(connection);
+
+        H2DbWireRecordStore store = new H2DbWireRecordStore() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                bindDbService(dbServiceMock);
+            }
+        };
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(store, null)).thenReturn(wireSupportMock);
+
+        store.bindWireHelperService(whsMock);
+
+        ComponentContext ctx = mock(ComponentContext.class);
+        Map<String, Object> props = new HashMap<String, Object>();
+        String tableName = "H2_STORE_TEST";
+        props.put("table.name", tableName);
+        props.put("cleanup.records.keep", 100);
+        props.put("maximum.table.size", 200);
+
+        // init
+        store.activate(ctx, props);
+
+        String emitterPid = "emitter";
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            List<WireRecord> wireRecords = new ArrayList<WireRecord>();
+            for (int j = 0; j < 100; j++) {
+                Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+                recordProps.put("index", new IntegerValue(index));
+                if (index % 3 == 0) {
+                    recordProps.put("key", new StringValue("val"));
+                }
+                wireRecords.add(new WireRecord(recordProps));
+                index++;
+            }
+            store.onWireReceive(new WireEnvelope(emitterPid, wireRecords));
+        }
+        // wait for the executor to do its duty and DB operation to finish
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            // OK
+        }
+
+        // the cleanup has been triggered by the third envelope, before storing it
+        ResultSet resultSet = connection
+                .prepareStatement("SELECT \"index\", \"key\" FROM " + tableName + " ORDER BY ID").executeQuery();
+        int expectedIndex = 100;
+        while (resultSet.next()) {
+            assertEquals(expectedIndex, resultSet.getInt(1));
+            assertEquals(expectedIndex % 3 == 0 ? "val" : null, resultSet.getString(2));
+            expectedIndex++;
+        }
+        assertEquals("Unexpected number of records", 300, expectedIndex);
+
+        // deinit
+        store.deactivate(null);
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    @Test
+    public void testPartitionedSequence() throws SQLException {
+        // store records in partitions, change a column type and check that the records can be read through the view
+
+        Connection connection = getConnection();
+
+        H2DbService dbServiceMock = createMockH2DbService(connection);
+
+        H2DbWireRecordStore store = new H2DbWireRecordStore() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                bindDbService(dbServiceMock);
+            }
+        };
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(store, null)).thenReturn(wireSupportMock);
+
+        store.bindWireHelperService(whsMock);
+
+        ComponentContext ctx = mock(ComponentContext.class);
+        Map<String, Object> props = new HashMap<String, Object>();
+        String tableName = "H2_STORE_TEST";
+        props.put("table.name", tableName);
+        props.put("partition.interval", "HOURLY");
+
+        // init
+        store.activate(ctx, props);
+
+        String emitterPid = "emitter";
+        Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("key", new DoubleValue(1.5));
+        List<WireRecord> wireRecords = new ArrayList<WireRecord>();
+        wireRecords.add(new WireRecord(recordProps));
+        store.onWireReceive(new WireEnvelope(emitterPid, wireRecords));
+
+        recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("key", new StringValue("val"));
+        wireRecords = new ArrayList<WireRecord>();
+        wireRecords.add(new WireRecord(recordProps));
+        store.onWireReceive(new WireEnvelope(emitterPid, wireRecords));
+
+        ResultSet tables = connection.getMetaData().getTables(null, null, tableName, new String[] { "VIEW" });
+        assertTrue("The view was expected", tables.next());
+
+        ResultSet resultSet = connection.prepareStatement("SELECT \"key\" FROM " + tableName + " ORDER BY ID DESC")
+                .executeQuery();
+        assertTrue(resultSet.next());
+        assertEquals("val", resultSet.getString(1));
+        // the column type has been changed, dropping the old values
+        assertTrue(resultSet.next());
+        assertEquals(null, resultSet.getString(1));
+        assertTrue(resultSet.isLast());
+
+        // disable partitioning, the records are stored in a table again
+        props.put("partition.interval", "NONE");
+        store.updated(props);
+        store.onWireReceive(new WireEnvelope(emitterPid, wireRecords));
+
+        resultSet = connection.prepareStatement("SELECT count(*) FROM " + tableName).executeQuery();
+        resultSet.next();
+        assertEquals("Unexpected number of records", 1, resultSet.getInt(1));
+
+        // deinit
+        store.deactivate(null);
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
 }
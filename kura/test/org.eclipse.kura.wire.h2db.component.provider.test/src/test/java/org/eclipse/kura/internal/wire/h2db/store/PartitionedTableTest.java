@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.h2db.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.eclipse.kura.db.H2DbService;
+import org.eclipse.kura.internal.wire.h2db.common.H2DbServiceHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PartitionedTableTest {
+
+    private static final long HOUR = 3600000L;
+
+    // 2021-10-17T14:30:00Z
+    private static final long TIME = 1634481000000L;
+
+    private Connection connection;
+
+    private H2DbServiceHelper dbHelper;
+
+    @BeforeClass
+    public static void setup() throws SQLException {
+        DriverManager.registerDriver(new org.h2.Driver());
+    }
+
+    @Before
+    public void openDb() throws SQLException {
+        this.connection = DriverManager.getConnection("jdbc:h2:mem:partitiondb", "SA", "");
+
+        final H2DbService dbServiceMock = mock(H2DbService.class);
+        when(dbServiceMock.withConnection(anyObject())).thenAnswer(invocation -> {
+            return invocation.getArgumentAt(0, H2DbService.ConnectionCallable.class).call(this.connection);
+        });
+        this.dbHelper = H2DbServiceHelper.of(dbServiceMock);
+    }
+
+    @After
+    public void closeDb() throws SQLException {
+        this.connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    @Test
+    public void testRollAndRetention() throws SQLException {
+        final PartitionedTable table = new PartitionedTable(this.dbHelper, "DATA", PartitionInterval.HOURLY, 2);
+        table.reconcile(TIME);
+        table.dropView();
+        this.connection.prepareStatement("ALTER TABLE \"DATA_2021101714\" ADD COLUMN VAL INTEGER").execute();
+        table.updateView();
+
+        assertEquals("DATA_2021101714", table.getPartition(TIME));
+        assertEquals("DATA_2021101714", table.getPartition(TIME + HOUR / 3));
+        insert("DATA_2021101714", 1);
+        insert("DATA_2021101714", 2);
+
+        assertEquals("DATA_2021101715", table.getPartition(TIME + HOUR));
+        insert("DATA_2021101715", 3);
+        assertEquals(Arrays.asList("DATA_2021101714", "DATA_2021101715"), table.getPartitions());
+        assertEquals(3, count("DATA"));
+
+        // the identity continues across the partitions
+        assertEquals(3, maxId("DATA"));
+
+        // the oldest partition is dropped
+        assertEquals("DATA_2021101716", table.getPartition(TIME + 2 * HOUR));
+        insert("DATA_2021101716", 4);
+        assertEquals(Arrays.asList("DATA_2021101715", "DATA_2021101716"), table.getPartitions());
+        assertEquals(2, count("DATA"));
+
+        // records are not stored in older partitions if the clock goes back
+        assertEquals("DATA_2021101716", table.getPartition(TIME - HOUR));
+    }
+
+    @Test
+    public void testExistingTableIsMoved() throws SQLException {
+        this.connection.prepareStatement("CREATE TABLE DATA (ID BIGINT GENERATED BY DEFAULT "
+                + "AS IDENTITY(START WITH 1 INCREMENT BY 1) PRIMARY KEY, TIMESTAMP BIGINT, VAL INTEGER)").execute();
+        insert("DATA", 1);
+
+        final PartitionedTable table = new PartitionedTable(this.dbHelper, "DATA", PartitionInterval.DAILY, 3);
+        table.reconcile(TIME);
+
+        assertEquals(Arrays.asList("DATA_0000000000", "DATA_20211017"), table.getPartitions());
+        assertEquals("DATA_20211017", table.getPartition(TIME));
+        insert("DATA_20211017", 2);
+
+        assertEquals(2, count("DATA"));
+        assertEquals(2, maxId("DATA"));
+    }
+
+    @Test
+    public void testIdsNotReusedAfterEmptyPartition() throws SQLException {
+        final PartitionedTable table = new PartitionedTable(this.dbHelper, "DATA", PartitionInterval.HOURLY, 2);
+        table.reconcile(TIME);
+        table.dropView();
+        this.connection.prepareStatement("ALTER TABLE \"DATA_2021101714\" ADD COLUMN VAL INTEGER").execute();
+        table.updateView();
+        insert("DATA_2021101714", 1);
+        insert("DATA_2021101714", 2);
+
+        // no records are stored in this partition
+        assertEquals("DATA_2021101715", table.getPartition(TIME + HOUR));
+
+        // the partition holding the highest ID is dropped
+        assertEquals("DATA_2021101716", table.getPartition(TIME + 2 * HOUR));
+        assertEquals(Arrays.asList("DATA_2021101715", "DATA_2021101716"), table.getPartitions());
+        insert("DATA_2021101716", 3);
+
+        assertEquals(3, maxId("DATA"));
+    }
+
+    private void insert(final String table, final int value) throws SQLException {
+        this.connection.prepareStatement("INSERT INTO \"" + table + "\" (TIMESTAMP, VAL) VALUES (0, " + value + ")")
+                .execute();
+    }
+
+    private int count(final String table) throws SQLException {
+        final ResultSet resultSet = this.connection.prepareStatement("SELECT count(*) FROM \"" + table + "\"")
+                .executeQuery();
+        resultSet.next();
+        return resultSet.getInt(1);
+    }
+
+    private long maxId(final String table) throws SQLException {
+        final ResultSet resultSet = this.connection.prepareStatement("SELECT max(ID) FROM \"" + table + "\"")
+                .executeQuery();
+        resultSet.next();
+        return resultSet.getLong(1);
+    }
+}
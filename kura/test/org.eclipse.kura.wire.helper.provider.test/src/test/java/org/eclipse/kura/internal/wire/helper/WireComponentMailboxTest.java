@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kura.internal.wire.helper.WireComponentMailbox.OverflowPolicy;
+import org.junit.Test;
+
+public class WireComponentMailboxTest {
+
+    @Test
+    public void testDeliveriesSerializedAndOrdered() throws InterruptedException {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final WireComponentMailbox mailbox = new WireComponentMailbox("test", 16, OverflowPolicy.BLOCK, pool);
+            final List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+            final AtomicInteger active = new AtomicInteger();
+            final AtomicInteger maxActive = new AtomicInteger();
+            final CountDownLatch done = new CountDownLatch(1000);
+
+            for (int i = 0; i < 1000; i++) {
+                final int value = i;
+                mailbox.submit(() -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    delivered.add(value);
+                    active.decrementAndGet();
+                    done.countDown();
+                });
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(1, maxActive.get());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, (int) delivered.get(i));
+            }
+            assertEquals(0, mailbox.getDroppedCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDropNewest() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final WireComponentMailbox mailbox = new WireComponentMailbox("test", 2, OverflowPolicy.DROP_NEWEST,
+                tasks::add);
+        final List<Integer> delivered = new ArrayList<>();
+
+        submit(mailbox, delivered, 0, 1, 2, 3);
+        runAll(tasks);
+
+        assertEquals(Arrays.asList(0, 1), delivered);
+        assertEquals(2, mailbox.getDroppedCount());
+    }
+
+    @Test
+    public void testDropOldest() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final WireComponentMailbox mailbox = new WireComponentMailbox("test", 2, OverflowPolicy.DROP_OLDEST,
+                tasks::add);
+        final List<Integer> delivered = new ArrayList<>();
+
+        submit(mailbox, delivered, 0, 1, 2, 3);
+        runAll(tasks);
+
+        assertEquals(Arrays.asList(2, 3), delivered);
+        assertEquals(2, mailbox.getDroppedCount());
+    }
+
+    @Test
+    public void testBlockWaitsForRoom() throws InterruptedException {
+        final List<Runnable> tasks = Collections.synchronizedList(new ArrayList<>());
+        final WireComponentMailbox mailbox = new WireComponentMailbox("test", 1, OverflowPolicy.BLOCK, tasks::add);
+        final List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+
+        submit(mailbox, delivered, 0);
+        final Thread submitter = new Thread(() -> submit(mailbox, delivered, 1));
+        submitter.start();
+
+        // the submitter waits for the envelope already queued to be delivered
+        while (submitter.getState() != Thread.State.WAITING) {
+            assertTrue(submitter.isAlive());
+            Thread.yield();
+        }
+        assertTrue(delivered.isEmpty());
+
+        runAll(tasks);
+        submitter.join(5000);
+        runAll(tasks);
+
+        assertEquals(Arrays.asList(0, 1), delivered);
+        assertEquals(0, mailbox.getDroppedCount());
+    }
+
+    @Test
+    public void testDeliveryYieldsAfterBatch() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final WireComponentMailbox mailbox = new WireComponentMailbox("test", 64, OverflowPolicy.BLOCK, tasks::add);
+        final List<Integer> delivered = new ArrayList<>();
+
+        for (int i = 0; i < 40; i++) {
+            submit(mailbox, delivered, i);
+        }
+        assertEquals(1, tasks.size());
+
+        tasks.remove(0).run();
+        assertEquals(32, delivered.size());
+        assertEquals(1, tasks.size());
+
+        tasks.remove(0).run();
+        assertEquals(40, delivered.size());
+        assertTrue(tasks.isEmpty());
+    }
+
+    private static void submit(final WireComponentMailbox mailbox, final List<Integer> delivered,
+            final int... values) {
+        for (final int value : values) {
+            mailbox.submit(() -> delivered.add(value));
+        }
+    }
+
+    private static void runAll(final List<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -21,7 +21,9 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 
@@ -42,6 +44,7 @@ import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.wireadmin.Wire;
 import org.osgi.service.wireadmin.WireAdmin;
+import org.osgi.service.wireadmin.WireConstants;
 import org.osgi.util.tracker.ServiceTracker;
 
 public class WireGraphServiceImplTest {
@@ -50,6 +53,7 @@ public class WireGraphServiceImplTest {
     private static final String WIRE_SERVICE_PID = "org.eclipse.kura.wire.graph.WireGraphService";
     private static final String DEFAULT_GRAPH = "{\"components\":[],\"wires\":[]}";
     private static final String SIMPLE_GRAPH = "{\"components\":[{\"pid\":\"emitterPid\",\"inputPortCount\":0,\"outputPortCount\":1,\"renderingProperties\":{\"position\":{\"x\":10,\"y\":15},\"inputPortNames\":{},\"outputPortNames\":{}}},{\"pid\":\"receiverPid\",\"inputPortCount\":1,\"outputPortCount\":0,\"renderingProperties\":{\"position\":{\"x\":100,\"y\":150},\"inputPortNames\":{},\"outputPortNames\":{}}}],\"wires\":[{\"emitter\":\"emitterPid\",\"emitterPort\":0,\"receiver\":\"receiverPid\",\"receiverPort\":0}]}";
+    private static final String SIMPLE_GRAPH_WITH_MAILBOX = "{\"components\":[{\"pid\":\"emitterPid\",\"inputPortCount\":0,\"outputPortCount\":1,\"renderingProperties\":{\"position\":{\"x\":10,\"y\":15},\"inputPortNames\":{},\"outputPortNames\":{}}},{\"pid\":\"receiverPid\",\"inputPortCount\":1,\"outputPortCount\":0,\"renderingProperties\":{\"position\":{\"x\":100,\"y\":150},\"inputPortNames\":{},\"outputPortNames\":{}},\"mailbox\":{\"capacity\":16}}],\"wires\":[{\"emitter\":\"emitterPid\",\"emitterPort\":0,\"receiver\":\"receiverPid\",\"receiverPort\":0}]}";
     private static final String SIMPLE_GRAPH_NO_ARCS = "{\"components\":[{\"pid\":\"emitterPid\",\"inputPortCount\":0,\"outputPortCount\":1,\"renderingProperties\":{\"position\":{\"x\":10,\"y\":15},\"inputPortNames\":{},\"outputPortNames\":{}}},{\"pid\":\"receiverPid\",\"inputPortCount\":1,\"outputPortCount\":0,\"renderingProperties\":{\"position\":{\"x\":100,\"y\":150},\"inputPortNames\":{},\"outputPortNames\":{}}}],\"wires\":[]}";
 
     @Test
@@ -99,6 +103,77 @@ public class WireGraphServiceImplTest {
         verify(servicePidMappings, times(1)).get(receiverPid);
     }
 
+    @Test
+    public void testCreateWiresAsynchronous() throws NoSuchFieldException, InvalidSyntaxException {
+        final Map<String, String> servicePidMappings = new HashMap<>();
+        servicePidMappings.put("emitterPid", "emitterServicePid");
+        servicePidMappings.put("receiverPid", "receiverServicePid");
+
+        WireGraphServiceImpl wsi = getWireGraphServiceImpl(servicePidMappings);
+
+        WireAdmin wireAdmin = mock(WireAdmin.class);
+        TestUtil.setFieldValue(wsi, "wireAdmin", wireAdmin);
+
+        ServiceTracker<WireComponent, WireComponent> wireComponentServiceTracker = mock(ServiceTracker.class);
+        TestUtil.setFieldValue(wsi, "wireComponentServiceTracker", wireComponentServiceTracker);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(WIRE_GRAPH_PROPERTY_NAME, SIMPLE_GRAPH_WITH_MAILBOX);
+        properties.put("execution.mode", "ASYNCHRONOUS");
+        properties.put("mailbox.overflow.policy", "DROP_OLDEST");
+
+        wsi.activate(mock(ComponentContext.class), properties);
+
+        ArgumentCaptor<Dictionary> captor = ArgumentCaptor.forClass(Dictionary.class);
+        verify(wireAdmin, times(1)).createWire(eq("emitterServicePid"), eq("receiverServicePid"), captor.capture());
+        assertEquals(16, captor.getValue().get("receiver.mailbox.capacity"));
+        assertEquals("DROP_OLDEST", captor.getValue().get("receiver.mailbox.overflow.policy"));
+    }
+
+    @Test
+    public void testCreateWiresRecreatesWireWithDifferentMailbox()
+            throws NoSuchFieldException, InvalidSyntaxException {
+        final Map<String, String> servicePidMappings = new HashMap<>();
+        servicePidMappings.put("emitterPid", "emitterServicePid");
+        servicePidMappings.put("receiverPid", "receiverServicePid");
+
+        WireGraphServiceImpl wsi = getWireGraphServiceImpl(servicePidMappings);
+
+        // a synchronous wire, created before switching to the asynchronous mode
+        Dictionary<String, Object> wireProperties = new Hashtable<>();
+        wireProperties.put(WireConstants.WIREADMIN_PRODUCER_PID, "emitterServicePid");
+        wireProperties.put(WireConstants.WIREADMIN_CONSUMER_PID, "receiverServicePid");
+        wireProperties.put("emitter.port", 0);
+        wireProperties.put("receiver.port", 0);
+        Wire wire = mock(Wire.class);
+        when(wire.getProperties()).thenReturn(wireProperties);
+
+        WireAdmin wireAdmin = mock(WireAdmin.class);
+        when(wireAdmin.getWires(null)).thenReturn(new Wire[] { wire });
+        TestUtil.setFieldValue(wsi, "wireAdmin", wireAdmin);
+
+        ServiceTracker<WireComponent, WireComponent> wireComponentServiceTracker = mock(ServiceTracker.class);
+        TestUtil.setFieldValue(wsi, "wireComponentServiceTracker", wireComponentServiceTracker);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(WIRE_GRAPH_PROPERTY_NAME, SIMPLE_GRAPH);
+
+        wsi.activate(mock(ComponentContext.class), properties);
+
+        verify(wireAdmin, times(0)).deleteWire(wire);
+        verify(wireAdmin, times(0)).createWire(Matchers.anyString(), Matchers.anyString(),
+                Matchers.any(Dictionary.class));
+
+        properties.put("execution.mode", "ASYNCHRONOUS");
+        wsi.updated(properties);
+
+        verify(wireAdmin, times(1)).deleteWire(wire);
+        ArgumentCaptor<Dictionary> captor = ArgumentCaptor.forClass(Dictionary.class);
+        verify(wireAdmin, times(1)).createWire(eq("emitterServicePid"), eq("receiverServicePid"), captor.capture());
+        assertEquals(64, captor.getValue().get("receiver.mailbox.capacity"));
+        assertEquals("BLOCK", captor.getValue().get("receiver.mailbox.overflow.policy"));
+    }
+
     @Test
     public void testWireGraphUpdate() throws KuraException, NoSuchFieldException, InvalidSyntaxException {
         ConfigurationService configurationService = mock(ConfigurationService.class);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017, 2020 Eurotech and/or its affiliates and others
+ * Copyright (c) 2017, 2021 Eurotech and/or its affiliates and others
  * 
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kura.core.testutil.TestUtil;
+import org.eclipse.kura.type.IntegerValue;
 import org.eclipse.kura.type.StringValue;
 import org.eclipse.kura.type.TypedValue;
 import org.eclipse.kura.wire.WireEnvelope;
@@ -104,6 +105,49 @@ public class ScriptFilterTest {
         svc.deactivate();
     }
 
+    @Test
+    public void testExpressionFilter() throws NoSuchFieldException {
+        ScriptFilter svc = new ScriptFilter();
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        svc.bindWireHelperService(whsMock);
+
+        WireSupport wsMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(svc, null)).thenReturn(wsMock);
+
+        doAnswer(invocation -> {
+            List<WireRecord> records = invocation.getArgumentAt(0, List.class);
+
+            assertEquals(1, records.size());
+            assertEquals(25, records.get(0).getProperties().get("temperature").getValue());
+
+            return null;
+        }).when(wsMock).emit(anyObject());
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("script", "temperature > 20 && record['sensor name'] == 'a'");
+        properties.put("script.language", "EXPRESSION");
+        svc.activate(mock(ComponentContext.class), properties);
+
+        assertNull(TestUtil.getFieldValue(svc, "script"));
+        assertNotNull(TestUtil.getFieldValue(svc, "expression"));
+
+        List<WireRecord> wireRecords = new ArrayList<>();
+        for (int temperature : new int[] { 15, 25 }) {
+            Map<String, TypedValue<?>> recordProps = new HashMap<>();
+            recordProps.put("temperature", new IntegerValue(temperature));
+            recordProps.put("sensor name", new StringValue("a"));
+            wireRecords.add(new WireRecord(recordProps));
+        }
+
+        svc.onWireReceive(new WireEnvelope("emitter", wireRecords));
+        svc.onWireReceive(new WireEnvelope("emitter", wireRecords.subList(0, 1)));
+
+        verify(wsMock, times(1)).emit(anyObject());
+
+        svc.deactivate();
+    }
+
     @Test
     public void testNoScript() throws NoSuchFieldException {
         // test scenario where no script is provided
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.internal.wire.timeseries.storage.TimeSeriesDatabase;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TimeSeriesWireRecordFilterTest {
+
+    // 2021-10-17T14:30:00Z
+    private static final long TIME = 1634481000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TimeSeriesDatabase database;
+
+    @Before
+    public void openDatabase() throws IOException {
+        this.database = TimeSeriesDatabase.acquire(this.folder.getRoot().toPath());
+        // one sample per second for 10 minutes
+        for (int i = 0; i < 600; i++) {
+            this.database.append(TIME + i * 1000L, "a", i);
+            this.database.append(TIME + i * 1000L, "b", i % 2 == 0 ? "even" : "odd");
+        }
+    }
+
+    @After
+    public void closeDatabase() {
+        this.database.release();
+    }
+
+    @Test
+    public void testRawQuery() throws IOException {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("query.range", 10);
+
+        final List<WireRecord> records = TimeSeriesWireRecordFilter.query(this.database,
+                new TimeSeriesWireRecordFilterOptions(properties), TIME + 599000L);
+
+        assertEquals(22, records.size());
+        final Map<String, ?> first = records.get(0).getProperties();
+        assertEquals(TypedValues.newLongValue(TIME + 589000L), first.get(TimeSeriesWireRecordFilter.TIMESTAMP));
+        assertEquals(TypedValues.newStringValue("a"), first.get(TimeSeriesWireRecordFilter.SERIES));
+        assertEquals(TypedValues.newDoubleValue(589), first.get(TimeSeriesWireRecordFilter.VALUE));
+        assertEquals(TypedValues.newStringValue("odd"),
+                records.get(11).getProperties().get(TimeSeriesWireRecordFilter.VALUE));
+    }
+
+    @Test
+    public void testRollupQuery() throws IOException {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("series.names", " a, b ,missing");
+        properties.put("resolution", "MINUTE");
+        properties.put("max.records", 5);
+
+        final List<WireRecord> records = TimeSeriesWireRecordFilter.query(this.database,
+                new TimeSeriesWireRecordFilterOptions(properties), TIME + 600000L);
+
+        assertEquals(5, records.size());
+        final Map<String, ?> second = records.get(1).getProperties();
+        assertEquals(TypedValues.newLongValue(TIME + 60000L), second.get(TimeSeriesWireRecordFilter.TIMESTAMP));
+        assertEquals(TypedValues.newDoubleValue(60), second.get(TimeSeriesWireRecordFilter.MIN));
+        assertEquals(TypedValues.newDoubleValue(119), second.get(TimeSeriesWireRecordFilter.MAX));
+        assertEquals(TypedValues.newDoubleValue(89.5), second.get(TimeSeriesWireRecordFilter.AVG));
+        assertEquals(TypedValues.newLongValue(60), second.get(TimeSeriesWireRecordFilter.COUNT));
+    }
+}
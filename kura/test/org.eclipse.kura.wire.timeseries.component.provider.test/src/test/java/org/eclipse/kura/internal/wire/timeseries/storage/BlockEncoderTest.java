@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BlockEncoderTest {
+
+    private static final long TIME = 1634481000000L;
+
+    @Test
+    public void testNumericRoundTrip() {
+        final Random random = new Random(42);
+        final long[] timestamps = new long[1000];
+        final double[][] values = new double[timestamps.length][2];
+
+        long timestamp = TIME;
+        for (int i = 0; i < timestamps.length; i++) {
+            // mostly periodic, with jitter, gaps and a step back in time
+            timestamp += i % 100 == 99 ? -5000 : i % 50 == 49 ? 3600000 : 1000 + random.nextInt(3);
+            timestamps[i] = timestamp;
+            values[i][0] = i % 10 == 0 ? random.nextDouble() * 1000 : i > 0 ? values[i - 1][0] : 0;
+            values[i][1] = i == 500 ? Double.NaN : i % 7 == 0 ? -0.0 : 20.5 + i / 100;
+        }
+
+        final BlockEncoder encoder = new BlockEncoder(2);
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.append(timestamps[i], values[i]);
+        }
+        final byte[] block = encoder.encode();
+        assertEquals(block.length, encoder.getEncodedSize());
+        assertTrue(block.length < timestamps.length * 24 / 4);
+
+        final List<Long> decodedTimestamps = new ArrayList<>();
+        final List<double[]> decodedValues = new ArrayList<>();
+        assertTrue(BlockDecoder.decode(ByteBuffer.wrap(block), 0, Long.MIN_VALUE, Long.MAX_VALUE, (t, v, s) -> {
+            decodedTimestamps.add(t);
+            decodedValues.add(v.clone());
+            return true;
+        }));
+
+        assertEquals(timestamps.length, decodedTimestamps.size());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], (long) decodedTimestamps.get(i));
+            assertEquals(Double.doubleToRawLongBits(values[i][0]),
+                    Double.doubleToRawLongBits(decodedValues.get(i)[0]));
+            assertEquals(Double.doubleToRawLongBits(values[i][1]),
+                    Double.doubleToRawLongBits(decodedValues.get(i)[1]));
+        }
+    }
+
+    @Test
+    public void testTextRoundTrip() {
+        final String[] texts = { "on", "on", "off", null, "on", "\u00e8\u00e0", "", "on", "off", "off" };
+
+        final BlockEncoder encoder = new BlockEncoder(0);
+        for (int i = 0; i < texts.length; i++) {
+            encoder.append(TIME + i * 1000L, texts[i]);
+        }
+
+        final List<String> decoded = new ArrayList<>();
+        BlockDecoder.decode(ByteBuffer.wrap(encoder.encode()), 0, Long.MIN_VALUE, Long.MAX_VALUE, (t, v, s) -> {
+            assertEquals(0, v.length);
+            decoded.add(s);
+            return true;
+        });
+
+        final List<String> expected = new ArrayList<>();
+        for (final String text : texts) {
+            expected.add(text != null ? text : "");
+        }
+        assertEquals(expected, decoded);
+    }
+
+    @Test
+    public void testTimeRange() {
+        final BlockEncoder encoder = new BlockEncoder(1);
+        for (int i = 0; i < 100; i++) {
+            encoder.append(TIME + i * 1000L, new double[] { i });
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(10 + encoder.getEncodedSize());
+        buffer.position(10);
+        buffer.put(encoder.encode());
+
+        assertEquals(TIME, BlockDecoder.getFirstTimestamp(buffer, 10));
+        assertEquals(TIME + 99000L, BlockDecoder.getLastTimestamp(buffer, 10));
+
+        final List<Double> decoded = new ArrayList<>();
+        assertTrue(BlockDecoder.decode(buffer, 10, TIME + 10000L, TIME + 19000L, (t, v, s) -> decoded.add(v[0])));
+        assertEquals(10, decoded.size());
+        assertEquals(10.0, decoded.get(0), 0.0);
+        assertEquals(19.0, decoded.get(9), 0.0);
+
+        decoded.clear();
+        assertFalse(BlockDecoder.decode(buffer, 10, TIME, TIME + 99000L, (t, v, s) -> {
+            decoded.add(v[0]);
+            return decoded.size() < 5;
+        }));
+        assertArrayEquals(new Object[] { 0.0, 1.0, 2.0, 3.0, 4.0 }, decoded.toArray());
+    }
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TimeSeriesDatabaseTest {
+
+    private static final long MINUTE = 60000L;
+
+    // 2021-10-17T14:30:00Z
+    private static final long TIME = 1634481000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testQueryBeforeAndAfterFlush() throws IOException {
+        final Path directory = this.folder.getRoot().toPath();
+        final TimeSeriesDatabase database = TimeSeriesDatabase.acquire(directory);
+        try {
+            for (int i = 0; i < 3000; i++) {
+                database.append(TIME + i * 1000L, "temperature", i);
+            }
+            database.append(TIME, "state/value", "on");
+            database.append(TIME + 1000L, "state/value", "off");
+
+            // the last block is not flushed yet
+            assertEquals(3000, queryValues(database, "temperature", Resolution.RAW, TIME, TIME + 3000000L).size());
+
+            database.flush();
+            final List<Double> values = queryValues(database, "temperature", Resolution.RAW, TIME + 1000000L,
+                    TIME + 1001000L);
+            assertEquals(Arrays.asList(1000.0, 1001.0), values);
+            assertEquals(Arrays.asList("state/value", "temperature"), new ArrayList<>(database.getSeriesNames()));
+        } finally {
+            database.release();
+        }
+
+        final TimeSeriesDatabase reopened = TimeSeriesDatabase.acquire(directory);
+        try {
+            assertEquals(Arrays.asList("state/value", "temperature"), new ArrayList<>(reopened.getSeriesNames()));
+            assertEquals(3000, queryValues(reopened, "temperature", Resolution.RAW, TIME, TIME + 3000000L).size());
+
+            final List<String> texts = new ArrayList<>();
+            reopened.query("state/value", Resolution.RAW, TIME, TIME + 1000L, (t, v, s) -> texts.add(s));
+            assertEquals(Arrays.asList("on", "off"), texts);
+
+            // the appended points go to the same segment
+            reopened.append(TIME + 3000000L, "temperature", 3000);
+            reopened.flush();
+            assertEquals(3001, queryValues(reopened, "temperature", Resolution.RAW, TIME, TIME + 3000000L).size());
+            assertEquals(1, countSegments(directory.resolve("temperature.num").resolve("RAW")));
+        } finally {
+            reopened.release();
+        }
+    }
+
+    @Test
+    public void testSharedInstance() throws IOException {
+        final Path directory = this.folder.getRoot().toPath();
+        final TimeSeriesDatabase first = TimeSeriesDatabase.acquire(directory);
+        final TimeSeriesDatabase second = TimeSeriesDatabase.acquire(directory.resolve("."));
+        try {
+            assertSame(first, second);
+            first.append(TIME, "value", 1);
+            assertEquals(Arrays.asList(1.0), queryValues(second, "value", Resolution.RAW, TIME, TIME));
+        } finally {
+            first.release();
+            second.release();
+        }
+    }
+
+    @Test
+    public void testRollups() throws IOException {
+        final TimeSeriesDatabase database = TimeSeriesDatabase.acquire(this.folder.getRoot().toPath());
+        try {
+            // one sample every 10 seconds for three minutes and a half, values 0..5 in each minute
+            for (int i = 0; i < 21; i++) {
+                database.append(TIME + i * 10000L, "value", i % 6);
+            }
+            database.append(TIME, "state", "on");
+
+            final List<double[]> rollups = new ArrayList<>();
+            final List<Long> timestamps = new ArrayList<>();
+            database.query("value", Resolution.MINUTE, TIME, TIME + 10 * MINUTE, (t, v, s) -> {
+                timestamps.add(t);
+                rollups.add(v.clone());
+                return true;
+            });
+
+            // the minute in progress is not visited
+            assertEquals(Arrays.asList(TIME, TIME + MINUTE, TIME + 2 * MINUTE), timestamps);
+            for (final double[] rollup : rollups) {
+                assertArrayEquals(new double[] { 0, 5, 2.5, 6 }, rollup, 0.0);
+            }
+
+            assertTrue(queryValues(database, "value", Resolution.HOUR, TIME, TIME + 10 * MINUTE).isEmpty());
+            // text series have no rollups
+            assertTrue(queryValues(database, "state", Resolution.MINUTE, TIME, TIME + 10 * MINUTE).isEmpty());
+        } finally {
+            database.release();
+        }
+    }
+
+    @Test
+    public void testRollupInProgressRestored() throws IOException {
+        final Path directory = this.folder.getRoot().toPath();
+        final TimeSeriesDatabase database = TimeSeriesDatabase.acquire(directory);
+        try {
+            for (int i = 0; i < 3; i++) {
+                database.append(TIME + i * 10000L, "value", i);
+            }
+        } finally {
+            database.release();
+        }
+
+        final TimeSeriesDatabase reopened = TimeSeriesDatabase.acquire(directory);
+        try {
+            reopened.append(TIME + 30000L, "value", 3);
+            reopened.append(TIME + MINUTE, "value", 0);
+
+            final List<double[]> rollups = new ArrayList<>();
+            reopened.query("value", Resolution.MINUTE, TIME, TIME + MINUTE, (t, v, s) -> rollups.add(v.clone()));
+
+            assertEquals(1, rollups.size());
+            assertArrayEquals(new double[] { 0, 3, 1.5, 4 }, rollups.get(0), 0.0);
+        } finally {
+            reopened.release();
+        }
+    }
+
+    @Test
+    public void testRetention() throws IOException {
+        final Path directory = this.folder.getRoot().toPath();
+        final Path segments = directory.resolve("value.num").resolve("RAW");
+        final TimeSeriesDatabase database = TimeSeriesDatabase.acquire(directory);
+        try {
+            // random values do not compress, fill more than a segment
+            final Random random = new Random(1);
+            for (int i = 0; i < 200000; i++) {
+                database.append(TIME + i * 1000L, "value", random.nextDouble());
+            }
+            database.flush();
+            final long segmentCount = countSegments(segments);
+            assertTrue(segmentCount > 1);
+
+            database.deleteOlderThan(TIME + 199999 * 1000L, TIME);
+            assertEquals(1, countSegments(segments));
+
+            final List<Double> values = queryValues(database, "value", Resolution.RAW, TIME, TIME + 200000 * 1000L);
+            assertTrue(values.size() < 200000);
+            assertFalse(values.isEmpty());
+        } finally {
+            database.release();
+        }
+    }
+
+    private static List<Double> queryValues(final TimeSeriesDatabase database, final String name,
+            final Resolution resolution, final long from, final long to) throws IOException {
+        final List<Double> result = new ArrayList<>();
+        database.query(name, resolution, from, to, (t, v, s) -> result.add(v[0]));
+        return result;
+    }
+
+    private static long countSegments(final Path directory) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
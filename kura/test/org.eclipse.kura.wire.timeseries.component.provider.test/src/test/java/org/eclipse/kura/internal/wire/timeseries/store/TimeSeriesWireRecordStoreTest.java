@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.timeseries.store;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.internal.wire.timeseries.storage.Resolution;
+import org.eclipse.kura.internal.wire.timeseries.storage.TimeSeriesDatabase;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TimeSeriesWireRecordStoreTest {
+
+    private static final long TIME = 1634481000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TimeSeriesDatabase database;
+
+    @Before
+    public void openDatabase() throws IOException {
+        this.database = TimeSeriesDatabase.acquire(this.folder.getRoot().toPath());
+    }
+
+    @After
+    public void closeDatabase() {
+        this.database.release();
+    }
+
+    @Test
+    public void testStoreProperties() throws IOException {
+        final Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("assetName", TypedValues.newStringValue("asset"));
+        properties.put("assetTimestamp", TypedValues.newLongValue(TIME - 1000));
+        properties.put("int", TypedValues.newIntegerValue(3));
+        properties.put("float", TypedValues.newFloatValue(1.5f));
+        properties.put("bool", TypedValues.newBooleanValue(true));
+        properties.put("long", TypedValues.newLongValue(7));
+        properties.put("long_timestamp", TypedValues.newLongValue(TIME - 2000));
+        properties.put("bytes", TypedValues.newByteArrayValue(new byte[] { 1 }));
+
+        TimeSeriesWireRecordStore.store(this.database, TIME, new WireRecord(properties));
+
+        assertEquals(Arrays.asList("assetName", "bool", "float", "int", "long"),
+                new ArrayList<>(this.database.getSeriesNames()));
+        assertEquals(Arrays.asList(TIME - 1000 + "=asset"), query("assetName"));
+        assertEquals(Arrays.asList(TIME - 1000 + "=3.0"), query("int"));
+        assertEquals(Arrays.asList(TIME - 1000 + "=1.5"), query("float"));
+        assertEquals(Arrays.asList(TIME - 1000 + "=1.0"), query("bool"));
+        assertEquals(Arrays.asList(TIME - 2000 + "=7.0"), query("long"));
+    }
+
+    @Test
+    public void testReceiveTime() throws IOException {
+        final Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("value", TypedValues.newDoubleValue(2.5));
+        // not the timestamp of another property
+        properties.put("start_timestamp", TypedValues.newLongValue(5));
+
+        TimeSeriesWireRecordStore.store(this.database, TIME, new WireRecord(properties));
+
+        assertEquals(Arrays.asList(TIME + "=2.5"), query("value"));
+        assertEquals(Arrays.asList(TIME + "=5.0"), query("start_timestamp"));
+    }
+
+    private List<String> query(final String name) throws IOException {
+        final List<String> result = new ArrayList<>();
+        this.database.query(name, Resolution.RAW, 0, Long.MAX_VALUE,
+                (t, v, s) -> result.add(t + "=" + (s != null ? s : Double.toString(v[0]))));
+        return result;
+    }
+}
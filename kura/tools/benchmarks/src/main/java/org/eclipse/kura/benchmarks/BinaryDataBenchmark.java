@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.driver.binary.BinaryData;
+import org.eclipse.kura.driver.binary.BinaryDataTypes;
+import org.eclipse.kura.driver.binary.Buffer;
+import org.eclipse.kura.driver.binary.ByteArrayBuffer;
+import org.eclipse.kura.driver.binary.ByteBufferBuffer;
+import org.eclipse.kura.driver.binary.UnsignedIntegerLE;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the decoding of a block of values of every type in {@link BinaryDataTypes} and of
+ * {@link UnsignedIntegerLE} bit fields, through the boxed {@link BinaryData#read(Buffer, int)} method and through the
+ * primitive {@link BinaryData#readDouble(Buffer, int)} method. The {@code legacyRead} benchmark runs the same decoding
+ * with the implementation that preceded the primitive read methods, see {@link LegacyBinaryData}.
+ * <p>
+ * The {@code UINT_LE_<bits>_<offset>} types are {@link UnsignedIntegerLE} fields of the given size in bits, starting
+ * at the given bit offset in their first byte.
+ * </p>
+ * <p>
+ * The {@code bytewise} buffer implements only the single byte accessors of {@link Buffer}, as the buffers written
+ * before the introduction of the primitive accessors, the {@code array}, {@code heap} and {@code direct} buffers
+ * decode the values through {@link ByteBuffer} views. Run with {@code -prof gc} to compare the allocation rates.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryDataBenchmark {
+
+    private static final int BUFFER_SIZE = 1024;
+    private static final String UNSIGNED_INTEGER_LE_PREFIX = "UINT_LE_";
+
+    @Param({ "UINT8", "INT8", "UINT16_LE", "UINT16_BE", "INT16_LE", "INT16_BE", "UINT32_LE", "UINT32_BE", "INT32_LE",
+            "INT32_BE", "INT64_LE", "INT64_BE", "FLOAT_LE", "FLOAT_BE", "DOUBLE_LE", "DOUBLE_BE", "UINT_LE_13_3",
+            "UINT_LE_32_0", "UINT_LE_48_5" })
+    private String type;
+
+    @Param({ "bytewise", "array", "heap", "direct" })
+    private String bufferType;
+
+    private BinaryData<?> binaryData;
+    private LegacyBinaryData.Reader legacyReader;
+    private Buffer buffer;
+    // the number of bytes touched by a value, greater than its size if a bit field spans an additional byte
+    private int span;
+
+    @Setup
+    public void setup() {
+        if (this.type.startsWith(UNSIGNED_INTEGER_LE_PREFIX)) {
+            final String[] field = this.type.substring(UNSIGNED_INTEGER_LE_PREFIX.length()).split("_");
+            final int sizeBits = Integer.parseInt(field[0]);
+            final int startBitOffset = Integer.parseInt(field[1]);
+            this.binaryData = new UnsignedIntegerLE(sizeBits, startBitOffset);
+            this.legacyReader = LegacyBinaryData.unsignedIntegerLE(sizeBits, startBitOffset);
+            this.span = (startBitOffset + sizeBits + 7) / 8;
+        } else {
+            this.binaryData = BinaryDataTypes.parse(this.type);
+            this.legacyReader = LegacyBinaryData.parse(this.type);
+            this.span = this.binaryData.getSize();
+        }
+
+        final byte[] data = new byte[BUFFER_SIZE];
+        new Random(42).nextBytes(data);
+
+        switch (this.bufferType) {
+        case "bytewise":
+            this.buffer = new BytewiseBuffer(data);
+            break;
+        case "array":
+            this.buffer = new ByteArrayBuffer(data);
+            break;
+        case "heap":
+            this.buffer = new ByteBufferBuffer(ByteBuffer.wrap(data));
+            break;
+        default:
+            final ByteBuffer direct = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            direct.put(data);
+            direct.flip();
+            this.buffer = new ByteBufferBuffer(direct);
+            break;
+        }
+    }
+
+    @Benchmark
+    public double legacyRead() {
+        final int size = this.binaryData.getSize();
+        double result = 0;
+        for (int offset = 0; offset + this.span <= BUFFER_SIZE; offset += size) {
+            result += this.legacyReader.read(this.buffer, offset).doubleValue();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public double boxedRead() {
+        final int size = this.binaryData.getSize();
+        double result = 0;
+        for (int offset = 0; offset + this.span <= BUFFER_SIZE; offset += size) {
+            result += ((Number) this.binaryData.read(this.buffer, offset)).doubleValue();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public double primitiveRead() {
+        final int size = this.binaryData.getSize();
+        double result = 0;
+        for (int offset = 0; offset + this.span <= BUFFER_SIZE; offset += size) {
+            result += this.binaryData.readDouble(this.buffer, offset);
+        }
+        return result;
+    }
+
+    private static final class BytewiseBuffer implements Buffer {
+
+        private final byte[] data;
+
+        BytewiseBuffer(final byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public void put(int offset, byte value) {
+            this.data[offset] = value;
+        }
+
+        @Override
+        public byte get(int offset) {
+            return this.data[offset];
+        }
+
+        @Override
+        public int getLength() {
+            return this.data.length;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.driver.block.Block;
+import org.eclipse.kura.driver.block.BlockAggregator;
+import org.eclipse.kura.driver.block.BlockCostModel;
+import org.eclipse.kura.driver.block.BlockFactory;
+import org.eclipse.kura.driver.block.ProhibitedBlock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the aggregation of the channels of a device into requests, with the minimum gap size criterion and with a
+ * {@link BlockCostModel}.
+ * <p>
+ * The channel map resembles the register map of a Modbus device: the channels are 1, 2 or 4 registers long and are
+ * grouped in clusters of consecutive registers separated by gaps of different lengths, some reserved ranges are
+ * prohibited. The cost model uses a request cost of 20 registers and a maximum block length of 125 registers, the
+ * limit of a Modbus read request.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockAggregationBenchmark {
+
+    private static final BlockFactory<Block> FACTORY = Block::new;
+    private static final BlockCostModel MODBUS_COST_MODEL = new BlockCostModel(20, 1, 125);
+
+    @Param({ "1000", "5000", "10000" })
+    private int channelCount;
+
+    private List<Block> blocks;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        this.blocks = new ArrayList<>(this.channelCount);
+
+        int address = 0;
+        int clusterRemaining = 0;
+        for (int i = 0; i < this.channelCount; i++) {
+            if (clusterRemaining == 0) {
+                clusterRemaining = 1 + random.nextInt(40);
+                final int gap = random.nextInt(10) < 8 ? 1 + random.nextInt(10) : 50 + random.nextInt(200);
+                if (gap > 100) {
+                    this.blocks.add(new ProhibitedBlock(address + 10, address + 20));
+                }
+                address += gap;
+            }
+            final int length = 1 << random.nextInt(3);
+            this.blocks.add(new Block(address, address + length));
+            address += length;
+            clusterRemaining--;
+        }
+
+        // channel configurations are not sorted by address
+        Collections.shuffle(this.blocks, random);
+    }
+
+    @Benchmark
+    public int minimumGapAggregation() {
+        final BlockAggregator<Block> aggregator = new BlockAggregator<>(new ArrayList<>(this.blocks), FACTORY);
+        aggregator.setMinimumGapSize(20);
+        return (int) aggregator.stream().count();
+    }
+
+    @Benchmark
+    public int costModelAggregation() {
+        final BlockAggregator<Block> aggregator = new BlockAggregator<>(new ArrayList<>(this.blocks), FACTORY);
+        aggregator.setMinimumGapSize(Integer.MAX_VALUE);
+        aggregator.setCostModel(MODBUS_COST_MODEL);
+        return (int) aggregator.stream().count();
+    }
+}
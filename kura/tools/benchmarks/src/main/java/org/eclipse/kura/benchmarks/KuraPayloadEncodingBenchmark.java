@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.benchmarks;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.core.cloud.CloudPayloadGZipEncoder;
+import org.eclipse.kura.core.cloud.CloudPayloadProtoBufEncoderImpl;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric.ValueType;
+import org.eclipse.kura.core.util.GZipUtil;
+import org.eclipse.kura.core.util.KuraPayloadProtoBufCodec;
+import org.eclipse.kura.message.KuraPayload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Compares the streaming {@link KuraPayloadProtoBufCodec} with the encoding and decoding through the generated
+ * protocol buffers classes. Run with {@code -prof gc} to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KuraPayloadEncodingBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int metricCount;
+
+    private KuraPayload payload;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        this.payload = new KuraPayload();
+        this.payload.setTimestamp(new Date());
+        for (int i = 0; i < this.metricCount; i++) {
+            switch (i % 4) {
+            case 0:
+                this.payload.addMetric("temperature." + i, 20.0 + i);
+                break;
+            case 1:
+                this.payload.addMetric("counter." + i, (long) i);
+                break;
+            case 2:
+                this.payload.addMetric("status." + i, "running");
+                break;
+            default:
+                this.payload.addMetric("alarm." + i, i % 3 == 0);
+                break;
+            }
+        }
+        this.encoded = KuraPayloadProtoBufCodec.encode(this.payload);
+    }
+
+    @Benchmark
+    public byte[] encodeGenerated() {
+        return buildGenerated(this.payload).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeStreaming() throws IOException {
+        return new CloudPayloadProtoBufEncoderImpl(this.payload).getBytes();
+    }
+
+    @Benchmark
+    public byte[] encodeGeneratedGZip() throws IOException {
+        final byte[] source = buildGenerated(this.payload).toByteArray();
+        final byte[] compressed = GZipUtil.compress(source);
+        return compressed.length < source.length ? compressed : source;
+    }
+
+    @Benchmark
+    public byte[] encodeStreamingGZip() throws IOException {
+        return new CloudPayloadGZipEncoder(new CloudPayloadProtoBufEncoderImpl(this.payload)).getBytes();
+    }
+
+    @Benchmark
+    public KuraPayload decodeGenerated() throws InvalidProtocolBufferException {
+        final KuraPayloadProto.KuraPayload proto = KuraPayloadProto.KuraPayload.parseFrom(this.encoded);
+        final KuraPayload result = new KuraPayload();
+        result.setTimestamp(new Date(proto.getTimestamp()));
+        for (final KuraMetric metric : proto.getMetricList()) {
+            result.addMetric(metric.getName(), getGeneratedValue(metric));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object decodeStreaming() {
+        final KuraPayload result = KuraPayloadProtoBufCodec.decode(this.encoded);
+        return result.getMetric("temperature.0");
+    }
+
+    /**
+     * Decodes without accessing the metrics, as done when only the payload timestamp or body are used.
+     */
+    @Benchmark
+    public Date decodeStreamingWithoutMetrics() {
+        return KuraPayloadProtoBufCodec.decode(this.encoded).getTimestamp();
+    }
+
+    private static KuraPayloadProto.KuraPayload buildGenerated(final KuraPayload payload) {
+        final KuraPayloadProto.KuraPayload.Builder builder = KuraPayloadProto.KuraPayload.newBuilder();
+        builder.setTimestamp(payload.getTimestamp().getTime());
+        for (final Map.Entry<String, Object> entry : payload.metrics().entrySet()) {
+            final KuraMetric.Builder metric = KuraMetric.newBuilder().setName(entry.getKey());
+            final Object value = entry.getValue();
+            if (value instanceof Double) {
+                metric.setType(ValueType.DOUBLE).setDoubleValue((Double) value);
+            } else if (value instanceof Long) {
+                metric.setType(ValueType.INT64).setLongValue((Long) value);
+            } else if (value instanceof String) {
+                metric.setType(ValueType.STRING).setStringValue((String) value);
+            } else if (value instanceof Boolean) {
+                metric.setType(ValueType.BOOL).setBoolValue((Boolean) value);
+            } else {
+                metric.setType(ValueType.BYTES).setBytesValue(ByteString.copyFrom((byte[]) value));
+            }
+            builder.addMetric(metric);
+        }
+        return builder.build();
+    }
+
+    private static Object getGeneratedValue(final KuraMetric metric) {
+        switch (metric.getType()) {
+        case DOUBLE:
+            return metric.getDoubleValue();
+        case INT64:
+            return metric.getLongValue();
+        case STRING:
+            return metric.getStringValue();
+        case BOOL:
+            return metric.getBoolValue();
+        default:
+            return metric.getBytesValue().toByteArray();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *  Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.benchmarks;
+
+import java.math.BigInteger;
+
+import org.eclipse.kura.driver.binary.BinaryDataTypes;
+import org.eclipse.kura.driver.binary.Buffer;
+
+/**
+ * A copy of the decoding of the {@link BinaryDataTypes} entries and of
+ * {@link org.eclipse.kura.driver.binary.UnsignedIntegerLE} as it was before the introduction of the primitive read
+ * methods, used as the baseline of {@link BinaryDataBenchmark}. Every value is composed from single byte
+ * {@link Buffer#get(int)} calls and returned boxed.
+ */
+final class LegacyBinaryData {
+
+    @FunctionalInterface
+    interface Reader {
+
+        Number read(Buffer buf, int offset);
+    }
+
+    private LegacyBinaryData() {
+    }
+
+    static Reader parse(final String type) {
+        switch (type) {
+        case "UINT8":
+            return (buf, offset) -> (int) (buf.get(offset) & 0xff);
+        case "INT8":
+            return (buf, offset) -> (int) buf.get(offset);
+        case "UINT16_LE":
+            return (buf, offset) -> readUInt16(buf, offset, false);
+        case "UINT16_BE":
+            return (buf, offset) -> readUInt16(buf, offset, true);
+        case "INT16_LE":
+            return (buf, offset) -> readInt16(buf, offset, false);
+        case "INT16_BE":
+            return (buf, offset) -> readInt16(buf, offset, true);
+        case "UINT32_LE":
+            return (buf, offset) -> readUInt32(buf, offset, false);
+        case "UINT32_BE":
+            return (buf, offset) -> readUInt32(buf, offset, true);
+        case "INT32_LE":
+            return (buf, offset) -> readInt32(buf, offset, false);
+        case "INT32_BE":
+            return (buf, offset) -> readInt32(buf, offset, true);
+        case "INT64_LE":
+            return (buf, offset) -> readInt64(buf, offset, false);
+        case "INT64_BE":
+            return (buf, offset) -> readInt64(buf, offset, true);
+        case "FLOAT_LE":
+            return (buf, offset) -> Float.intBitsToFloat(readInt32(buf, offset, false));
+        case "FLOAT_BE":
+            return (buf, offset) -> Float.intBitsToFloat(readInt32(buf, offset, true));
+        case "DOUBLE_LE":
+            return (buf, offset) -> Double.longBitsToDouble(readInt64(buf, offset, false));
+        case "DOUBLE_BE":
+            return (buf, offset) -> Double.longBitsToDouble(readInt64(buf, offset, true));
+        default:
+            throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+    }
+
+    static Reader unsignedIntegerLE(final int sizeBits, final int startBitOffset) {
+        return (buf, offset) -> readUnsignedIntegerLE(buf, offset, sizeBits, startBitOffset);
+    }
+
+    private static Integer readUInt16(final Buffer buf, final int offset, final boolean bigEndian) {
+        int result;
+        if (bigEndian) {
+            result = buf.get(offset + 1) & 0xff;
+            result |= (buf.get(offset) & 0xff) << 8;
+        } else {
+            result = buf.get(offset) & 0xff;
+            result |= (buf.get(offset + 1) & 0xff) << 8;
+        }
+        return result;
+    }
+
+    private static Integer readInt16(final Buffer buf, final int offset, final boolean bigEndian) {
+        short result;
+        if (bigEndian) {
+            result = (short) (buf.get(offset + 1) & 0xff);
+            result |= (buf.get(offset) & 0xff) << 8;
+        } else {
+            result = (short) (buf.get(offset) & 0xff);
+            result |= (buf.get(offset + 1) & 0xff) << 8;
+        }
+        return (int) result;
+    }
+
+    private static Long readUInt32(final Buffer buf, final int offset, final boolean bigEndian) {
+        long result;
+        if (bigEndian) {
+            result = (long) buf.get(offset + 3) & 0xff;
+            result |= (long) (buf.get(offset + 2) & 0xff) << 8;
+            result |= (long) (buf.get(offset + 1) & 0xff) << 16;
+            result |= (long) (buf.get(offset) & 0xff) << 24;
+        } else {
+            result = buf.get(offset) & 0xff;
+            result |= (long) (buf.get(offset + 1) & 0xff) << 8;
+            result |= (long) (buf.get(offset + 2) & 0xff) << 16;
+            result |= (long) (buf.get(offset + 3) & 0xff) << 24;
+        }
+        return result;
+    }
+
+    private static int readInt32(final Buffer buf, final int offset, final boolean bigEndian) {
+        int result;
+        if (bigEndian) {
+            result = buf.get(offset + 3) & 0xff;
+            result |= (buf.get(offset + 2) & 0xff) << 8;
+            result |= (buf.get(offset + 1) & 0xff) << 16;
+            result |= (buf.get(offset) & 0xff) << 24;
+        } else {
+            result = buf.get(offset) & 0xff;
+            result |= (buf.get(offset + 1) & 0xff) << 8;
+            result |= (buf.get(offset + 2) & 0xff) << 16;
+            result |= (buf.get(offset + 3) & 0xff) << 24;
+        }
+        return result;
+    }
+
+    private static long readInt64(final Buffer buf, final int offset, final boolean bigEndian) {
+        long result;
+        if (bigEndian) {
+            result = buf.get(offset + 7) & 0xffL;
+            result |= (buf.get(offset + 6) & 0xffL) << 8;
+            result |= (buf.get(offset + 5) & 0xffL) << 16;
+            result |= (buf.get(offset + 4) & 0xffL) << 24;
+            result |= (buf.get(offset + 3) & 0xffL) << 32;
+            result |= (buf.get(offset + 2) & 0xffL) << 40;
+            result |= (buf.get(offset + 1) & 0xffL) << 48;
+            result |= (buf.get(offset) & 0xffL) << 56;
+        } else {
+            result = buf.get(offset) & 0xffL;
+            result |= (buf.get(offset + 1) & 0xffL) << 8;
+            result |= (buf.get(offset + 2) & 0xffL) << 16;
+            result |= (buf.get(offset + 3) & 0xffL) << 24;
+            result |= (buf.get(offset + 4) & 0xffL) << 32;
+            result |= (buf.get(offset + 5) & 0xffL) << 40;
+            result |= (buf.get(offset + 6) & 0xffL) << 48;
+            result |= (buf.get(offset + 7) & 0xffL) << 56;
+        }
+        return result;
+    }
+
+    private static BigInteger readUnsignedIntegerLE(final Buffer buf, final int offset, final int sizeBits,
+            final int startBitOffset) {
+        final int sizeBytes = (int) Math.ceil((double) sizeBits / 8);
+
+        final byte[] raw = new byte[sizeBytes];
+
+        int srcBit = offset * 8 + startBitOffset;
+        final int srcEnd = srcBit + sizeBits;
+
+        int dstBit = 0;
+
+        while (srcBit < srcEnd) {
+            final int srcByte = srcBit / 8;
+            final int dstByte = dstBit / 8;
+
+            if ((buf.get(srcByte) & 0xff & (1 << (srcBit % 8))) != 0) {
+                raw[dstByte] |= (1 << (dstBit % 8));
+            }
+
+            srcBit++;
+            dstBit++;
+        }
+
+        for (int i = 0; i < sizeBytes / 2; i++) {
+            final byte tmp = raw[i];
+            raw[i] = raw[sizeBytes - i - 1];
+            raw[sizeBytes - i - 1] = tmp;
+        }
+
+        return new BigInteger(1, raw);
+    }
+}